@@ -0,0 +1,32 @@
+package fr.inria.spirals.repairnator;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * This class can be used in gson to properly serialize File object: only its path is kept.
+ */
+public class GsonFileTypeAdapter extends TypeAdapter<File> {
+    @Override
+    public void write(JsonWriter jsonWriter, File file) throws IOException {
+        if (file == null) {
+            jsonWriter.nullValue();
+        } else {
+            jsonWriter.value(file.getPath());
+        }
+    }
+
+    @Override
+    public File read(JsonReader jsonReader) throws IOException {
+        if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+            return null;
+        }
+        return new File(jsonReader.nextString());
+    }
+}
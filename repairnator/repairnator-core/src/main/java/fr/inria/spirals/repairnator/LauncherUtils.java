@@ -400,13 +400,21 @@ public class LauncherUtils {
     }
 
     public static List<SerializerEngine> initFileSerializerEngines(Logger logger) {
+        return initFileSerializerEngines(logger, 0);
+    }
+
+    /**
+     * Initialize the file serializer engines writing in a subdirectory of the output path named after the given build id,
+     * or directly in the output path if the build id is not positive.
+     */
+    public static List<SerializerEngine> initFileSerializerEngines(Logger logger, long buildId) {
         List<SerializerEngine> fileSerializerEngines = new ArrayList<>();
         RepairnatorConfig config = RepairnatorConfig.getInstance();
         if (config.getOutputPath() != null) {
             logger.info("Initialize file serializer engines.");
 
             String path = config.getOutputPath();
-            path += config.getBuildId() > 0 ? "/"+config.getBuildId() : "";
+            path += buildId > 0 ? "/"+buildId : "";
 
             fileSerializerEngines.add(new CSVSerializerEngine(path));
             fileSerializerEngines.add(new JSONFileSerializerEngine(path));
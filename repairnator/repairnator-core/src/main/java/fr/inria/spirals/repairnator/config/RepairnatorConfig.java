@@ -42,8 +42,6 @@ public class RepairnatorConfig {
     private boolean bearsDelimiter;
 
     // Pipeline
-    private int buildId;
-    private int nextBuildId;
     private String z3solverPath;
     private String workspacePath;
     private String githubToken;
@@ -51,6 +49,28 @@ public class RepairnatorConfig {
     private Set<String> repairTools;
     private String githubUserName;
     private String githubUserEmail;
+    private boolean parallelRepair;
+    private int repairTimeBudget;
+    private boolean stopAtFirstPatch;
+    private boolean resume;
+    private String stepCachePath;
+    private int stepCacheMaxEntries;
+    private String mavenDaemonPath;
+    private String sharedMavenRepositoryPath;
+    private int sharedMavenRepositoryMaxSize;
+    private boolean singlePassBuild;
+    private boolean incrementalBuild;
+    private boolean targetedTests;
+    private boolean fullTestSuiteAfterTargetedTests;
+    private int processTimeout;
+    private boolean liveTestResults;
+    private int stopTestsAfterFailingClasses;
+    private int flakyTestReruns;
+    private int cloneDepth;
+    private String mirrorCachePath;
+    private int mirrorCacheMaxSize;
+    private String pushSpoolPath;
+    private int nopolParallelism;
 
     // Dockerpool
     private String dockerImageName;
@@ -209,22 +229,6 @@ public class RepairnatorConfig {
         this.debug = debug;
     }
 
-    public int getBuildId() {
-        return buildId;
-    }
-
-    public void setBuildId(int buildId) {
-        this.buildId = buildId;
-    }
-
-    public int getNextBuildId() {
-        return nextBuildId;
-    }
-
-    public void setNextBuildId(int nextBuildId) {
-        this.nextBuildId = nextBuildId;
-    }
-
     public String getZ3solverPath() {
         return z3solverPath;
     }
@@ -453,6 +457,182 @@ public class RepairnatorConfig {
         this.createPR = createPR;
     }
 
+    public boolean isParallelRepair() {
+        return parallelRepair;
+    }
+
+    public void setParallelRepair(boolean parallelRepair) {
+        this.parallelRepair = parallelRepair;
+    }
+
+    public int getRepairTimeBudget() {
+        return repairTimeBudget;
+    }
+
+    public void setRepairTimeBudget(int repairTimeBudget) {
+        this.repairTimeBudget = repairTimeBudget;
+    }
+
+    public boolean isStopAtFirstPatch() {
+        return stopAtFirstPatch;
+    }
+
+    public void setStopAtFirstPatch(boolean stopAtFirstPatch) {
+        this.stopAtFirstPatch = stopAtFirstPatch;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    public String getStepCachePath() {
+        return stepCachePath;
+    }
+
+    public void setStepCachePath(String stepCachePath) {
+        this.stepCachePath = stepCachePath;
+    }
+
+    public int getStepCacheMaxEntries() {
+        return stepCacheMaxEntries;
+    }
+
+    public void setStepCacheMaxEntries(int stepCacheMaxEntries) {
+        this.stepCacheMaxEntries = stepCacheMaxEntries;
+    }
+
+    public String getMavenDaemonPath() {
+        return mavenDaemonPath;
+    }
+
+    public void setMavenDaemonPath(String mavenDaemonPath) {
+        this.mavenDaemonPath = mavenDaemonPath;
+    }
+
+    public String getSharedMavenRepositoryPath() {
+        return sharedMavenRepositoryPath;
+    }
+
+    public void setSharedMavenRepositoryPath(String sharedMavenRepositoryPath) {
+        this.sharedMavenRepositoryPath = sharedMavenRepositoryPath;
+    }
+
+    public int getSharedMavenRepositoryMaxSize() {
+        return sharedMavenRepositoryMaxSize;
+    }
+
+    public void setSharedMavenRepositoryMaxSize(int sharedMavenRepositoryMaxSize) {
+        this.sharedMavenRepositoryMaxSize = sharedMavenRepositoryMaxSize;
+    }
+
+    public boolean isSinglePassBuild() {
+        return singlePassBuild;
+    }
+
+    public void setSinglePassBuild(boolean singlePassBuild) {
+        this.singlePassBuild = singlePassBuild;
+    }
+
+    public boolean isIncrementalBuild() {
+        return incrementalBuild;
+    }
+
+    public void setIncrementalBuild(boolean incrementalBuild) {
+        this.incrementalBuild = incrementalBuild;
+    }
+
+    public boolean isTargetedTests() {
+        return targetedTests;
+    }
+
+    public void setTargetedTests(boolean targetedTests) {
+        this.targetedTests = targetedTests;
+    }
+
+    public boolean isFullTestSuiteAfterTargetedTests() {
+        return fullTestSuiteAfterTargetedTests;
+    }
+
+    public void setFullTestSuiteAfterTargetedTests(boolean fullTestSuiteAfterTargetedTests) {
+        this.fullTestSuiteAfterTargetedTests = fullTestSuiteAfterTargetedTests;
+    }
+
+    public int getProcessTimeout() {
+        return processTimeout;
+    }
+
+    public void setProcessTimeout(int processTimeout) {
+        this.processTimeout = processTimeout;
+    }
+
+    public boolean isLiveTestResults() {
+        return liveTestResults;
+    }
+
+    public void setLiveTestResults(boolean liveTestResults) {
+        this.liveTestResults = liveTestResults;
+    }
+
+    public int getStopTestsAfterFailingClasses() {
+        return stopTestsAfterFailingClasses;
+    }
+
+    public void setStopTestsAfterFailingClasses(int stopTestsAfterFailingClasses) {
+        this.stopTestsAfterFailingClasses = stopTestsAfterFailingClasses;
+    }
+
+    public int getFlakyTestReruns() {
+        return flakyTestReruns;
+    }
+
+    public void setFlakyTestReruns(int flakyTestReruns) {
+        this.flakyTestReruns = flakyTestReruns;
+    }
+
+    public int getCloneDepth() {
+        return cloneDepth;
+    }
+
+    public void setCloneDepth(int cloneDepth) {
+        this.cloneDepth = cloneDepth;
+    }
+
+    public String getMirrorCachePath() {
+        return mirrorCachePath;
+    }
+
+    public void setMirrorCachePath(String mirrorCachePath) {
+        this.mirrorCachePath = mirrorCachePath;
+    }
+
+    public int getMirrorCacheMaxSize() {
+        return mirrorCacheMaxSize;
+    }
+
+    public void setMirrorCacheMaxSize(int mirrorCacheMaxSize) {
+        this.mirrorCacheMaxSize = mirrorCacheMaxSize;
+    }
+
+    public String getPushSpoolPath() {
+        return pushSpoolPath;
+    }
+
+    public void setPushSpoolPath(String pushSpoolPath) {
+        this.pushSpoolPath = pushSpoolPath;
+    }
+
+    public int getNopolParallelism() {
+        return nopolParallelism;
+    }
+
+    public void setNopolParallelism(int nopolParallelism) {
+        this.nopolParallelism = nopolParallelism;
+    }
+
     @Override
     public String toString() {
         String ghToken = this.getGithubToken();
@@ -483,7 +663,6 @@ public class RepairnatorConfig {
                 ", fork=" + fork +
                 ", lookFromDate=" + lookFromDate +
                 ", lookToDate=" + lookToDate +
-                ", buildId=" + buildId +
                 ", z3solverPath='" + z3solverPath + '\'' +
                 ", workspacePath='" + workspacePath + '\'' +
                 ", githubToken='" + ghToken + '\'' +
@@ -507,6 +686,28 @@ public class RepairnatorConfig {
                 ", repairTools=" + StringUtils.join(this.repairTools, ",") +
                 ", githubUserName= " + githubUserName +
                 ", githubUserEmail=" + githubUserEmail +
+                ", parallelRepair=" + parallelRepair +
+                ", repairTimeBudget=" + repairTimeBudget +
+                ", stopAtFirstPatch=" + stopAtFirstPatch +
+                ", resume=" + resume +
+                ", stepCachePath='" + stepCachePath + '\'' +
+                ", stepCacheMaxEntries=" + stepCacheMaxEntries +
+                ", mavenDaemonPath='" + mavenDaemonPath + '\'' +
+                ", sharedMavenRepositoryPath='" + sharedMavenRepositoryPath + '\'' +
+                ", sharedMavenRepositoryMaxSize=" + sharedMavenRepositoryMaxSize +
+                ", singlePassBuild=" + singlePassBuild +
+                ", incrementalBuild=" + incrementalBuild +
+                ", targetedTests=" + targetedTests +
+                ", fullTestSuiteAfterTargetedTests=" + fullTestSuiteAfterTargetedTests +
+                ", processTimeout=" + processTimeout +
+                ", liveTestResults=" + liveTestResults +
+                ", stopTestsAfterFailingClasses=" + stopTestsAfterFailingClasses +
+                ", flakyTestReruns=" + flakyTestReruns +
+                ", cloneDepth=" + cloneDepth +
+                ", mirrorCachePath='" + mirrorCachePath + '\'' +
+                ", mirrorCacheMaxSize=" + mirrorCacheMaxSize +
+                ", pushSpoolPath='" + pushSpoolPath + '\'' +
+                ", nopolParallelism=" + nopolParallelism +
                 '}';
     }
 }
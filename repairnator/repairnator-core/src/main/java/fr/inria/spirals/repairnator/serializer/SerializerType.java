@@ -11,6 +11,7 @@ public enum SerializerType {
     PIPELINE_ERRORS("pipeline-errors"),
     PATCHES("patches"),
     TOOL_DIAGNOSTIC("tool-diagnostic"),
+    STEP_METRICS("step-metrics"),
 
     // dockerpool
     TREATEDBUILD("treatedbuild"),
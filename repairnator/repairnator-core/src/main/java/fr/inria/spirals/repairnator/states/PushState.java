@@ -10,5 +10,7 @@ public enum PushState {
     PATCH_COMMITTED, PATCH_NOT_COMMITTED,
     PROCESS_END_COMMITTED, PROCESS_END_NOT_COMMITTED,
     CHANGED_TESTS_COMMITTED, CHANGED_TESTS_NOT_COMMITTED,
-    REPO_PUSHED, REPO_NOT_PUSHED
+    REPO_PUSHED, REPO_NOT_PUSHED,
+    // the push failed: the branch is kept in the spool to be pushed by a next pipeline
+    REPO_SPOOLED
 }
@@ -36,15 +36,27 @@ import java.util.Properties;
 
 /**
  * This class is the main entry point for the repairnator pipeline.
+ * The pipeline either processes the single build given with --build, or works as a worker processing
+ * all the builds read from the queue given with --builds, one after the other in the same JVM.
  */
 public class Launcher {
     private static Logger LOGGER = LoggerFactory.getLogger(Launcher.class);
+    private static final String STDIN_QUEUE = "-";
     
+    private InputBuildId inputBuildId;
+    private String buildsQueue;
     private BuildToBeInspected buildToBeInspected;
+    private SerializerEngine mongoDBSerializerEngine;
     private List<SerializerEngine> engines;
+    private List<NotifierEngine> notifierEngines;
     private List<AbstractNotifier> notifiers;
     private PatchNotifier patchNotifier;
 
+    // those options might be switched off for a build from a project to be ignored
+    private boolean push;
+    private boolean fork;
+    private boolean createPR;
+
     private RepairnatorConfig getConfig() {
         return RepairnatorConfig.getInstance();
     }
@@ -67,14 +79,20 @@ public class Launcher {
         JSAPResult arguments = jsap.parse(args);
         LauncherUtils.checkArguments(jsap, arguments, LauncherType.PIPELINE);
         this.initConfig(arguments);
+        this.initInputBuildId(jsap, arguments);
 
         if (this.getConfig().getLauncherMode() == LauncherMode.REPAIR) {
             this.checkToolsLoaded(jsap);
             this.checkNopolSolverPath(jsap);
-            LOGGER.info("The pipeline will try to repair the following build id: "+this.getConfig().getBuildId());
-        } else {
+            if (this.inputBuildId != null) {
+                LOGGER.info("The pipeline will try to repair the following build id: "+this.inputBuildId.getBuggyBuildId());
+            }
+        } else if (this.inputBuildId != null) {
             this.checkNextBuildId(jsap);
-            LOGGER.info("The pipeline will try to reproduce a bug from build "+this.getConfig().getBuildId()+" and its corresponding patch from build "+this.getConfig().getNextBuildId());
+            LOGGER.info("The pipeline will try to reproduce a bug from build "+this.inputBuildId.getBuggyBuildId()+" and its corresponding patch from build "+this.inputBuildId.getPatchedBuildId());
+        }
+        if (this.buildsQueue != null) {
+            LOGGER.info("The pipeline will process the builds read from "+(this.buildsQueue.equals(STDIN_QUEUE) ? "the standard input" : this.buildsQueue)+".");
         }
 
         if (this.getConfig().isDebug()) {
@@ -124,8 +142,13 @@ public class Launcher {
         opt2.setShortFlag('b');
         opt2.setLongFlag("build");
         opt2.setStringParser(JSAP.INTEGER_PARSER);
-        opt2.setRequired(true);
-        opt2.setHelp("Specify the build id to use.");
+        opt2.setHelp("Specify the build id to use (required if --builds is not used).");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("builds");
+        opt2.setLongFlag("builds");
+        opt2.setStringParser(JSAP.STRING_PARSER);
+        opt2.setHelp("Process several builds in the same JVM: specify a file containing one build id per line (in BEARS mode, a buggy build id and a patched build id separated by a space), or - to read them from the standard input.");
         jsap.registerParameter(opt2);
 
         opt2 = new FlaggedOption("nextBuild");
@@ -169,6 +192,147 @@ public class Launcher {
         opt2.setDefault(repairTools);
         jsap.registerParameter(opt2);
 
+        Switch sw1 = new Switch("parallelRepair");
+        sw1.setLongFlag("parallelRepair");
+        sw1.setDefault("false");
+        sw1.setHelp("Run the repair tools concurrently, each of them in its own copy of the repository.");
+        jsap.registerParameter(sw1);
+
+        opt2 = new FlaggedOption("repairTimeBudget");
+        opt2.setLongFlag("repairTimeBudget");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("0");
+        opt2.setHelp("Specify the time budget in minutes shared by all the repair tools when they run concurrently (0 means no limit).");
+        jsap.registerParameter(opt2);
+
+        sw1 = new Switch("stopAtFirstPatch");
+        sw1.setLongFlag("stopAtFirstPatch");
+        sw1.setDefault("false");
+        sw1.setHelp("Stop the other repair tools as soon as one of them found a patch (only with --parallelRepair).");
+        jsap.registerParameter(sw1);
+
+        sw1 = new Switch("resume");
+        sw1.setLongFlag("resume");
+        sw1.setDefault("false");
+        sw1.setHelp("Resume the pipeline from the last checkpoint saved in the workspace by a previous execution on the same build.");
+        jsap.registerParameter(sw1);
+
+        opt2 = new FlaggedOption("stepCache");
+        opt2.setLongFlag("stepCache");
+        opt2.setStringParser(JSAP.STRING_PARSER);
+        opt2.setHelp("Specify a directory to cache the results of the steps computing the classpath, the source/test directories and the modules of a project, to reuse them across builds.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("stepCacheMaxEntries");
+        opt2.setLongFlag("stepCacheMaxEntries");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("10000");
+        opt2.setHelp("Specify the maximum number of entries of the step cache: the least recently used entries are evicted.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("mavenDaemon");
+        opt2.setLongFlag("mavenDaemon");
+        opt2.setStringParser(FileStringParser.getParser().setMustBeFile(true).setMustExist(true));
+        opt2.setHelp("Specify the path to the executable of a Maven daemon (mvnd) to use instead of starting a new Maven for each goal.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("sharedMavenRepository");
+        opt2.setLongFlag("sharedMavenRepository");
+        opt2.setStringParser(JSAP.STRING_PARSER);
+        opt2.setHelp("Specify a directory to share the released maven artifacts downloaded by the builds, to avoid downloading them again for the next builds. It must be on the same file system as the workspace.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("sharedMavenRepositoryMaxSize");
+        opt2.setLongFlag("sharedMavenRepositoryMaxSize");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("20480");
+        opt2.setHelp("Specify the maximum size in MB of the shared maven repository: the least recently used artifacts are evicted.");
+        jsap.registerParameter(opt2);
+
+        sw1 = new Switch("singlePassBuild");
+        sw1.setLongFlag("singlePassBuild");
+        sw1.setDefault("false");
+        sw1.setHelp("Build the project, run its tests and compute its classpath in a single maven execution.");
+        jsap.registerParameter(sw1);
+
+        sw1 = new Switch("incrementalBuild");
+        sw1.setLongFlag("incrementalBuild");
+        sw1.setDefault("false");
+        sw1.setHelp("Rebuild and test only the modules changed by the patched build, reusing the outputs of the buggy build.");
+        jsap.registerParameter(sw1);
+
+        sw1 = new Switch("targetedTests");
+        sw1.setLongFlag("targetedTests");
+        sw1.setDefault("false");
+        sw1.setHelp("Only run the tests which failed in the buggy build when testing the patched build, and stop at the first failure.");
+        jsap.registerParameter(sw1);
+
+        sw1 = new Switch("fullTestSuiteAfterTargetedTests");
+        sw1.setLongFlag("fullTestSuiteAfterTargetedTests");
+        sw1.setDefault("false");
+        sw1.setHelp("Run the whole test suite of the patched build once the targeted tests passed.");
+        jsap.registerParameter(sw1);
+
+        opt2 = new FlaggedOption("processTimeout");
+        opt2.setLongFlag("processTimeout");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("0");
+        opt2.setHelp("Specify the maximum duration in minutes of a process started by the pipeline, like maven or git: the whole process tree is killed after it. By default (0) there is no limit, and maven is only killed after 10 minutes without output.");
+        jsap.registerParameter(opt2);
+
+        sw1 = new Switch("liveTestResults");
+        sw1.setLongFlag("liveTestResults");
+        sw1.setDefault("false");
+        sw1.setHelp("Read the test reports while the tests of the buggy build are running, to update the test metrics live.");
+        jsap.registerParameter(sw1);
+
+        opt2 = new FlaggedOption("stopTestsAfterFailingClasses");
+        opt2.setLongFlag("stopTestsAfterFailingClasses");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("0");
+        opt2.setHelp("Stop the tests of the buggy build as soon as the given number of test classes failed (implies --liveTestResults). 0 means the whole test suite is run.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("flakyTestReruns");
+        opt2.setLongFlag("flakyTestReruns");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("0");
+        opt2.setHelp("Run again each failing test of the buggy build the given number of times before the repair, to exclude the flaky tests from the repair. 0 means the failing tests are not run again.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("cloneDepth");
+        opt2.setLongFlag("cloneDepth");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("0");
+        opt2.setHelp("Clone only the commits of the builds, with the given depth of history: the history is deepened when needed and the git submodules are only initialized when the build references them. 0 means the whole repository is cloned.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("mirrorCache");
+        opt2.setLongFlag("mirrorCache");
+        opt2.setStringParser(JSAP.STRING_PARSER);
+        opt2.setHelp("Specify a directory to keep a bare mirror of each repository, shared by the builds of the machine: the repositories are cloned from their mirror, which is only updated from GitHub.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("mirrorCacheMaxSize");
+        opt2.setLongFlag("mirrorCacheMaxSize");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("20480");
+        opt2.setHelp("Specify the maximum size of the mirror cache in MB: the least recently used mirrors are evicted.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("pushSpool");
+        opt2.setLongFlag("pushSpool");
+        opt2.setStringParser(JSAP.STRING_PARSER);
+        opt2.setHelp("Specify a directory to spool the branches to push, shared by the builds of the machine: the spooled branches are pushed together in batches.");
+        jsap.registerParameter(opt2);
+
+        opt2 = new FlaggedOption("nopolParallelism");
+        opt2.setLongFlag("nopolParallelism");
+        opt2.setStringParser(JSAP.INTEGER_PARSER);
+        opt2.setDefault("0");
+        opt2.setHelp("Specify the maximum number of Nopol runs executed concurrently, each in its own JVM. 0 means the number of available processors.");
+        jsap.registerParameter(opt2);
+
         return jsap;
     }
 
@@ -203,10 +367,6 @@ public class Launcher {
         if (this.getConfig().isCreatePR() || (this.getConfig().getSmtpServer() != null && !this.getConfig().getSmtpServer().isEmpty() && this.getConfig().getNotifyTo() != null && this.getConfig().getNotifyTo().length > 0)) {
             this.getConfig().setFork(true);
         }
-        this.getConfig().setBuildId(arguments.getInt("build"));
-        if (this.getConfig().getLauncherMode() == LauncherMode.BEARS) {
-            this.getConfig().setNextBuildId(arguments.getInt("nextBuild"));
-        }
         this.getConfig().setZ3solverPath(arguments.getFile("z3").getPath());
         this.getConfig().setWorkspacePath(arguments.getString("workspace"));
         this.getConfig().setGithubUserEmail(LauncherUtils.getArgGithubUserEmail(arguments));
@@ -220,6 +380,53 @@ public class Launcher {
         if (this.getConfig().getLauncherMode() == LauncherMode.REPAIR) {
             LOGGER.info("The following repair tools will be used: " + StringUtils.join(this.getConfig().getRepairTools(), ", "));
         }
+        this.getConfig().setParallelRepair(arguments.getBoolean("parallelRepair"));
+        this.getConfig().setRepairTimeBudget(arguments.getInt("repairTimeBudget"));
+        this.getConfig().setStopAtFirstPatch(arguments.getBoolean("stopAtFirstPatch"));
+        this.getConfig().setResume(arguments.getBoolean("resume"));
+        this.getConfig().setStepCachePath(arguments.getString("stepCache"));
+        this.getConfig().setStepCacheMaxEntries(arguments.getInt("stepCacheMaxEntries"));
+        if (arguments.getFile("mavenDaemon") != null) {
+            this.getConfig().setMavenDaemonPath(arguments.getFile("mavenDaemon").getPath());
+        }
+        this.getConfig().setSharedMavenRepositoryPath(arguments.getString("sharedMavenRepository"));
+        this.getConfig().setSharedMavenRepositoryMaxSize(arguments.getInt("sharedMavenRepositoryMaxSize"));
+        this.getConfig().setSinglePassBuild(arguments.getBoolean("singlePassBuild"));
+        this.getConfig().setIncrementalBuild(arguments.getBoolean("incrementalBuild"));
+        this.getConfig().setTargetedTests(arguments.getBoolean("targetedTests"));
+        this.getConfig().setFullTestSuiteAfterTargetedTests(arguments.getBoolean("fullTestSuiteAfterTargetedTests"));
+        this.getConfig().setProcessTimeout(arguments.getInt("processTimeout"));
+        this.getConfig().setLiveTestResults(arguments.getBoolean("liveTestResults"));
+        this.getConfig().setStopTestsAfterFailingClasses(arguments.getInt("stopTestsAfterFailingClasses"));
+        this.getConfig().setFlakyTestReruns(arguments.getInt("flakyTestReruns"));
+        this.getConfig().setCloneDepth(arguments.getInt("cloneDepth"));
+        this.getConfig().setMirrorCachePath(arguments.getString("mirrorCache"));
+        this.getConfig().setMirrorCacheMaxSize(arguments.getInt("mirrorCacheMaxSize"));
+        this.getConfig().setPushSpoolPath(arguments.getString("pushSpool"));
+        this.getConfig().setNopolParallelism(arguments.getInt("nopolParallelism"));
+
+        this.push = this.getConfig().isPush();
+        this.fork = this.getConfig().isFork();
+        this.createPR = this.getConfig().isCreatePR();
+    }
+
+    private void initInputBuildId(JSAP jsap, JSAPResult arguments) {
+        if (arguments.getString("builds") != null) {
+            if (arguments.contains("build")) {
+                System.err.println("The options --build and --builds cannot be used together.");
+                LauncherUtils.printUsage(jsap, LauncherType.PIPELINE);
+            }
+            this.buildsQueue = arguments.getString("builds");
+        } else if (arguments.contains("build")) {
+            if (this.getConfig().getLauncherMode() == LauncherMode.BEARS) {
+                this.inputBuildId = new InputBuildId(arguments.getInt("build"), arguments.getInt("nextBuild"));
+            } else {
+                this.inputBuildId = new InputBuildId(arguments.getInt("build"));
+            }
+        } else {
+            System.err.println("A build id must be provided with --build, or a queue of build ids with --builds.");
+            LauncherUtils.printUsage(jsap, LauncherType.PIPELINE);
+        }
     }
 
     private void checkToolsLoaded(JSAP jsap) {
@@ -251,32 +458,37 @@ public class Launcher {
     }
 
     private void checkNextBuildId(JSAP jsap) {
-        if (this.getConfig().getNextBuildId() == InputBuildId.NO_PATCH) {
+        if (this.inputBuildId.getPatchedBuildId() == InputBuildId.NO_PATCH) {
             System.err.println("A pair of builds needs to be provided in BEARS mode.");
             LauncherUtils.printUsage(jsap, LauncherType.PIPELINE);
         }
     }
 
     private void initSerializerEngines() {
+        this.mongoDBSerializerEngine = LauncherUtils.initMongoDBSerializerEngine(LOGGER);
+    }
+
+    private void initBuildSerializerEngines(long buildId) {
         this.engines = new ArrayList<>();
 
-        List<SerializerEngine> fileSerializerEngines = LauncherUtils.initFileSerializerEngines(LOGGER);
+        List<SerializerEngine> fileSerializerEngines = LauncherUtils.initFileSerializerEngines(LOGGER, buildId);
         this.engines.addAll(fileSerializerEngines);
 
-        SerializerEngine mongoDBSerializerEngine = LauncherUtils.initMongoDBSerializerEngine(LOGGER);
-        if (mongoDBSerializerEngine != null) {
-            this.engines.add(mongoDBSerializerEngine);
+        if (this.mongoDBSerializerEngine != null) {
+            this.engines.add(this.mongoDBSerializerEngine);
         }
     }
 
     private void initNotifiers() {
-        List<NotifierEngine> notifierEngines = LauncherUtils.initNotifierEngines(LOGGER);
-        ErrorNotifier.getInstance(notifierEngines);
+        this.notifierEngines = LauncherUtils.initNotifierEngines(LOGGER);
+        ErrorNotifier.getInstance(this.notifierEngines);
 
-        this.notifiers = new ArrayList<>();
-        this.notifiers.add(new BugAndFixerBuildsNotifier(notifierEngines));
+        this.patchNotifier = new PatchNotifier(this.notifierEngines);
+    }
 
-        this.patchNotifier = new PatchNotifier(notifierEngines);
+    private void initBuildNotifiers() {
+        this.notifiers = new ArrayList<>();
+        this.notifiers.add(new BugAndFixerBuildsNotifier(this.notifierEngines));
     }
 
     private List<String> getListOfProjectsToIgnore() {
@@ -294,26 +506,29 @@ public class Launcher {
         return result;
     }
 
-    private void getBuildToBeInspected() {
+    /**
+     * @return false if the builds cannot be retrieved.
+     */
+    private boolean getBuildToBeInspected(InputBuildId inputBuildId) {
         JTravis jTravis = this.getConfig().getJTravis();
-        Optional<Build> optionalBuild = jTravis.build().fromId(this.getConfig().getBuildId());
+        Optional<Build> optionalBuild = jTravis.build().fromId(inputBuildId.getBuggyBuildId());
         if (!optionalBuild.isPresent()) {
-            LOGGER.error("Error while retrieving the buggy build. The process will exit now.");
-            System.exit(-1);
+            LOGGER.error("Error while retrieving the buggy build "+inputBuildId.getBuggyBuildId()+".");
+            return false;
         }
 
         Build buggyBuild = optionalBuild.get();
         if (buggyBuild.getFinishedAt() == null) {
-            LOGGER.error("Apparently the buggy build is not yet finished (maybe it has been restarted?). The process will exit now.");
-            System.exit(-1);
+            LOGGER.error("Apparently the buggy build "+buggyBuild.getId()+" is not yet finished (maybe it has been restarted?).");
+            return false;
         }
         String runId = this.getConfig().getRunId();
 
         if (this.getConfig().getLauncherMode() == LauncherMode.BEARS) {
-            Optional<Build> optionalBuildPatch = jTravis.build().fromId(this.getConfig().getNextBuildId());
+            Optional<Build> optionalBuildPatch = jTravis.build().fromId(inputBuildId.getPatchedBuildId());
             if (!optionalBuildPatch.isPresent()) {
-                LOGGER.error("Error while getting patched build: null value was obtained. The process will exit now.");
-                System.exit(-1);
+                LOGGER.error("Error while getting patched build "+inputBuildId.getPatchedBuildId()+": null value was obtained.");
+                return false;
             }
 
             Build patchedBuild = optionalBuildPatch.get();
@@ -340,16 +555,30 @@ public class Launcher {
                 this.getConfig().setFork(false);
                 this.getConfig().setCreatePR(false);
                 this.engines.clear();
-                LOGGER.info("The build "+this.getConfig().getBuildId()+" is from a project to be ignored ("+project+"), thus the pipeline deactivated serialization for that build.");
+                LOGGER.info("The build "+buggyBuild.getId()+" is from a project to be ignored ("+project+"), thus the pipeline deactivated serialization for that build.");
             }
         }
+        return true;
     }
 
-    private void mainProcess() {
-        LOGGER.info("Start by getting the build (buildId: "+this.getConfig().getBuildId()+") with the following config: "+this.getConfig());
-        this.getBuildToBeInspected();
+    /**
+     * Inspect the given build with its own serializer engines and notifiers.
+     *
+     * @return false if the builds cannot be retrieved.
+     */
+    private boolean processBuild(InputBuildId inputBuildId) {
+        this.getConfig().setPush(this.push);
+        this.getConfig().setFork(this.fork);
+        this.getConfig().setCreatePR(this.createPR);
+        this.initBuildSerializerEngines(inputBuildId.getBuggyBuildId());
+        this.initBuildNotifiers();
+
+        LOGGER.info("Start by getting the build (buildId: "+inputBuildId.getBuggyBuildId()+") with the following config: "+this.getConfig());
+        if (!this.getBuildToBeInspected(inputBuildId)) {
+            return false;
+        }
 
-        HardwareInfoSerializer hardwareInfoSerializer = new HardwareInfoSerializer(this.engines, this.getConfig().getRunId(), this.getConfig().getBuildId()+"");
+        HardwareInfoSerializer hardwareInfoSerializer = new HardwareInfoSerializer(this.engines, this.getConfig().getRunId(), inputBuildId.getBuggyBuildId()+"");
         hardwareInfoSerializer.serialize();
 
         List<AbstractDataSerializer> serializers = new ArrayList<>();
@@ -365,6 +594,7 @@ public class Launcher {
         serializers.add(new PipelineErrorSerializer(this.engines));
         serializers.add(new PatchesSerializer(this.engines));
         serializers.add(new ToolDiagnosticSerializer(this.engines));
+        serializers.add(new StepMetricsSerializer(this.engines));
 
         ProjectInspector inspector;
 
@@ -376,14 +606,86 @@ public class Launcher {
 
         inspector.setPatchNotifier(this.patchNotifier);
         inspector.run();
+        return true;
+    }
+
+    private void mainProcess() {
+        if (!this.processBuild(this.inputBuildId)) {
+            LOGGER.error("The process will exit now.");
+            System.exit(-1);
+        }
 
         LOGGER.info("Inspector is finished. The process will exit now.");
         System.exit(0);
     }
 
+    /**
+     * @return the build ids of the given line of the queue, or null if the line is empty or invalid.
+     */
+    private InputBuildId parseInputBuildId(String line) {
+        String[] buildIds = line.trim().split("[\\s,]+");
+        if (buildIds[0].isEmpty() || buildIds[0].startsWith("#")) {
+            return null;
+        }
+        try {
+            if (this.getConfig().getLauncherMode() == LauncherMode.BEARS) {
+                if (buildIds.length != 2) {
+                    LOGGER.error("A pair of builds needs to be provided in BEARS mode, the following line is ignored: "+line);
+                    return null;
+                }
+                return new InputBuildId(Long.parseLong(buildIds[0]), Long.parseLong(buildIds[1]));
+            } else {
+                return new InputBuildId(Long.parseLong(buildIds[0]));
+            }
+        } catch (NumberFormatException e) {
+            LOGGER.error("Invalid build id, the following line is ignored: "+line);
+            return null;
+        }
+    }
+
+    private void workerProcess() {
+        int nbProcessed = 0;
+        int nbFailed = 0;
+
+        // the queue is read line by line, so that builds can be pushed in the standard input while the previous ones are processed
+        try (BufferedReader reader = this.buildsQueue.equals(STDIN_QUEUE)
+                ? new BufferedReader(new InputStreamReader(System.in))
+                : Files.newBufferedReader(new File(this.buildsQueue).toPath())) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                InputBuildId inputBuildId = this.parseInputBuildId(line);
+                if (inputBuildId == null) {
+                    continue;
+                }
+
+                try {
+                    if (this.processBuild(inputBuildId)) {
+                        nbProcessed++;
+                    } else {
+                        nbFailed++;
+                    }
+                } catch (RuntimeException e) {
+                    LOGGER.error("Error while inspecting the build "+inputBuildId.getBuggyBuildId(), e);
+                    nbFailed++;
+                }
+                LOGGER.info("Inspector is finished for build "+inputBuildId.getBuggyBuildId()+" ("+nbProcessed+" build(s) processed, "+nbFailed+" failure(s) so far).");
+            }
+        } catch (IOException e) {
+            LOGGER.error("Error while reading the builds from "+this.buildsQueue, e);
+            System.exit(-1);
+        }
+
+        LOGGER.info("All the builds have been processed ("+nbProcessed+" build(s) processed, "+nbFailed+" failure(s)). The process will exit now.");
+        System.exit(0);
+    }
+
     public static void main(String[] args) throws JSAPException {
         Launcher launcher = new Launcher(args);
-        launcher.mainProcess();
+        if (launcher.buildsQueue != null) {
+            launcher.workerProcess();
+        } else {
+            launcher.mainProcess();
+        }
     }
 
 }
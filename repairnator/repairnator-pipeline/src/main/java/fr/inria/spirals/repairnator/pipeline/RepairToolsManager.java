@@ -1,6 +1,8 @@
 package fr.inria.spirals.repairnator.pipeline;
 
 import fr.inria.spirals.repairnator.process.step.repair.AbstractRepairStep;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -10,8 +12,11 @@ import java.util.Set;
 /**
  * This class defines a java ServiceLoader to automatically discover the available
  * repair steps from the manifest (see the resources).
+ * The discovered steps are only used as prototypes: a new step is created each time a step is asked,
+ * as several pipelines might be executed in the same JVM.
  */
 public class RepairToolsManager {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepairToolsManager.class);
     private static RepairToolsManager instance;
     private Map<String, AbstractRepairStep> repairTools;
     private ServiceLoader<AbstractRepairStep> repairToolLoader = ServiceLoader.load(AbstractRepairStep.class);
@@ -21,7 +26,7 @@ public class RepairToolsManager {
         this.discoverRepairTools();
     }
 
-    public static RepairToolsManager getInstance() {
+    public static synchronized RepairToolsManager getInstance() {
         if (instance == null) {
             instance = new RepairToolsManager();
         }
@@ -41,8 +46,21 @@ public class RepairToolsManager {
         }
     }
 
+    /**
+     * @return a new repair step for the given repair tool, or null if the repair tool is unknown.
+     */
     public static AbstractRepairStep getStepFromName(String name) {
-        return getInstance().repairTools.get(name);
+        AbstractRepairStep repairStep = getInstance().repairTools.get(name);
+        if (repairStep == null) {
+            return null;
+        }
+        try {
+            // the service loader already requires a public constructor without parameter
+            return repairStep.getClass().newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            LOGGER.error("Error while creating the repair step of " + name, e);
+            return null;
+        }
     }
 
     public static Set<String> getRepairToolsName() {
@@ -0,0 +1,200 @@
+package fr.inria.spirals.repairnator.process.cache;
+
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.git.GitHelper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * This class is a cache, shared by all the builds processed on a machine, of bare mirrors of the repositories.
+ *
+ * A repository is cloned once from GitHub in its mirror, which is then only updated with incremental fetches.
+ * The repository of a build is cloned from the mirror with hard links to its objects: the clone takes no network
+ * nor copy of the history, and it stays valid when the mirror is evicted.
+ * The mirror of a repository is locked, across the pipelines of the machine, while it is updated and cloned.
+ *
+ * The mirrors are stored in the directory given by {@link RepairnatorConfig#getMirrorCachePath()}, and the least
+ * recently used ones are evicted when their size exceeds {@link RepairnatorConfig#getMirrorCacheMaxSize()} MB.
+ */
+public class RepositoryMirrorCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryMirrorCache.class);
+
+    private static final String MIRROR_EXTENSION = ".git";
+    private static final String LOCK_EXTENSION = ".lock";
+    private static final long MB = 1024L * 1024L;
+
+    // the file locks are held by the JVM: the threads of a same pipeline are synchronized apart
+    private static final Map<String, Object> MIRROR_MONITORS = new ConcurrentHashMap<>();
+
+    private File cacheDir;
+    private long maxSize;
+    private GitHelper gitHelper;
+
+    /**
+     * @param maxSize the maximum size of the cache, in bytes.
+     */
+    public RepositoryMirrorCache(String cachePath, long maxSize, GitHelper gitHelper) {
+        this.cacheDir = new File(cachePath);
+        this.maxSize = maxSize;
+        this.gitHelper = gitHelper;
+    }
+
+    /**
+     * @return the cache configured in {@link RepairnatorConfig} or null if no cache is configured.
+     */
+    public static RepositoryMirrorCache fromConfig(GitHelper gitHelper) {
+        RepairnatorConfig config = RepairnatorConfig.getInstance();
+        if (config.getMirrorCachePath() == null || config.getMirrorCachePath().isEmpty()) {
+            return null;
+        }
+        return new RepositoryMirrorCache(config.getMirrorCachePath(), config.getMirrorCacheMaxSize() * MB, gitHelper);
+    }
+
+    /**
+     * Update the mirror of the given repository, creating it if needed, and clone it in the given directory.
+     * The remote of the clone is the given repository, so that the missing commits are fetched from it.
+     *
+     * @return true if the repository has been cloned.
+     */
+    public boolean cloneFromMirror(String repoSlug, String remoteUrl, File repoDirectory) {
+        String mirrorName = repoSlug.replace('/', '-');
+        File mirrorDir = new File(this.cacheDir, mirrorName + MIRROR_EXTENSION);
+
+        boolean cloned;
+        try {
+            Files.createDirectories(this.cacheDir.toPath());
+            Path lockFile = new File(this.cacheDir, mirrorName + LOCK_EXTENSION).toPath();
+
+            synchronized (MIRROR_MONITORS.computeIfAbsent(mirrorName, key -> new Object())) {
+                try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     FileLock lock = channel.lock()) {
+                    // the date of the lock file is the date of the last use of the mirror
+                    Files.setLastModifiedTime(lockFile, FileTime.fromMillis(System.currentTimeMillis()));
+
+                    if (!this.updateMirror(remoteUrl, mirrorDir)) {
+                        return false;
+                    }
+                    cloned = this.gitHelper.executeGitCommand(new String[] {"git", "clone", "--local", mirrorDir.getAbsolutePath(), repoDirectory.getAbsolutePath()}, this.cacheDir)
+                            && this.gitHelper.executeGitCommand(new String[] {"git", "remote", "set-url", "origin", remoteUrl}, repoDirectory);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Error while using the mirror of " + repoSlug + ": " + e);
+            return false;
+        }
+
+        this.evict(mirrorDir);
+        return cloned;
+    }
+
+    private boolean updateMirror(String remoteUrl, File mirrorDir) throws IOException {
+        if (mirrorDir.isDirectory()) {
+            LOGGER.info("Update the mirror " + mirrorDir.getName());
+            return this.gitHelper.executeGitCommand(new String[] {"git", "fetch", "--prune", "origin"}, mirrorDir);
+        }
+
+        LOGGER.info("Create the mirror " + mirrorDir.getName());
+        // the mirror is created then moved, so that an interrupted clone never leaves a partial mirror
+        File tmpDir = Files.createTempDirectory(this.cacheDir.toPath(), mirrorDir.getName()).toFile();
+        try {
+            if (!this.gitHelper.executeGitCommand(new String[] {"git", "clone", "--mirror", remoteUrl, tmpDir.getAbsolutePath()}, this.cacheDir)) {
+                return false;
+            }
+            Files.move(tmpDir.toPath(), mirrorDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } finally {
+            if (tmpDir.exists()) {
+                FileHelper.deleteFile(tmpDir);
+            }
+        }
+    }
+
+    /**
+     * Delete the least recently used mirrors, except the given one, while the cache exceeds its maximum size.
+     * A mirror locked by another pipeline is not deleted.
+     */
+    private void evict(File usedMirrorDir) {
+        File[] mirrorDirs = this.cacheDir.listFiles(file -> file.isDirectory() && file.getName().endsWith(MIRROR_EXTENSION));
+        if (mirrorDirs == null) {
+            return;
+        }
+
+        long totalSize = 0;
+        List<File> candidates = new ArrayList<>();
+        Map<File, Long> sizes = new ConcurrentHashMap<>();
+        Arrays.stream(mirrorDirs).parallel().forEach(mirrorDir -> sizes.put(mirrorDir, computeSize(mirrorDir)));
+        for (File mirrorDir : mirrorDirs) {
+            totalSize += sizes.get(mirrorDir);
+            if (!mirrorDir.equals(usedMirrorDir)) {
+                candidates.add(mirrorDir);
+            }
+        }
+        if (totalSize <= this.maxSize) {
+            return;
+        }
+
+        candidates.sort(Comparator.comparingLong(mirrorDir -> this.getLockFile(mirrorDir).lastModified()));
+        for (File mirrorDir : candidates) {
+            if (totalSize <= this.maxSize) {
+                break;
+            }
+            if (this.evictMirror(mirrorDir)) {
+                totalSize -= sizes.get(mirrorDir);
+            }
+        }
+    }
+
+    private boolean evictMirror(File mirrorDir) {
+        String mirrorName = this.getMirrorName(mirrorDir);
+        synchronized (MIRROR_MONITORS.computeIfAbsent(mirrorName, key -> new Object())) {
+            try (FileChannel channel = FileChannel.open(this.getLockFile(mirrorDir).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.tryLock()) {
+                if (lock == null) {
+                    return false;
+                }
+                LOGGER.info("Evict the mirror " + mirrorDir.getName());
+                FileHelper.deleteFile(mirrorDir);
+                return true;
+            } catch (IOException | OverlappingFileLockException e) {
+                LOGGER.debug("Error while evicting the mirror " + mirrorDir.getName() + ": " + e);
+                return false;
+            }
+        }
+    }
+
+    private String getMirrorName(File mirrorDir) {
+        return mirrorDir.getName().substring(0, mirrorDir.getName().length() - MIRROR_EXTENSION.length());
+    }
+
+    private File getLockFile(File mirrorDir) {
+        return new File(this.cacheDir, this.getMirrorName(mirrorDir) + LOCK_EXTENSION);
+    }
+
+    private static long computeSize(File directory) {
+        try (Stream<Path> files = Files.walk(directory.toPath())) {
+            return files.map(Path::toFile).filter(File::isFile).mapToLong(File::length).sum();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.debug("Error while computing the size of " + directory + ": " + e);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package fr.inria.spirals.repairnator.process.cache;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.maven.ProjectModelService;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Profile;
+import org.apache.maven.model.io.xpp3.MavenXpp3Reader;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * This class is a cache, shared by all the builds processed on a machine, for the results of the steps
+ * which only depend on the pom.xml files of a project, like the computation of the classpath or of the source directories.
+ *
+ * An entry is keyed by the hash of the pom.xml files of the project, the name of the step and its parameters,
+ * and contains a list of files. The pom.xml files of the project are the root one, its modules, in all the profiles,
+ * and their parents in the local repository, recursively: the other pom.xml files of the local repository,
+ * e.g. the ones of the test resources, and the files which are not pom.xml files are not considered, except the paths
+ * given by a step whose existence in each module changes its result, like the default source directory.
+ * Those files are stored relatively to the local repository or to the local maven repository, so that an entry
+ * can be reused for another build of the same project. An entry is only used if all its files exist.
+ *
+ * The entries are stored as JSON files in the directory given by {@link RepairnatorConfig#getStepCachePath()},
+ * and the least recently used ones are evicted when there are more than {@link RepairnatorConfig#getStepCacheMaxEntries()} entries.
+ * The hits and misses of the cache are counted in the {@link fr.inria.spirals.repairnator.process.inspectors.JobStatus}.
+ */
+public class StepResultCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StepResultCache.class);
+
+    private static final String ENTRY_EXTENSION = ".json";
+    private static final String REPOSITORY_PREFIX = "${repo}";
+    private static final String M2_PREFIX = "${m2}";
+    private static final String DEFAULT_PARENT_PATH = "../" + Utils.POM_FILE;
+
+    private File cacheDir;
+    private int maxEntries;
+
+    public StepResultCache(String cachePath, int maxEntries) {
+        this.cacheDir = new File(cachePath);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * @return the cache configured in {@link RepairnatorConfig} or null if no cache is configured.
+     */
+    public static StepResultCache fromConfig() {
+        RepairnatorConfig config = RepairnatorConfig.getInstance();
+        if (config.getStepCachePath() == null || config.getStepCachePath().isEmpty()) {
+            return null;
+        }
+        return new StepResultCache(config.getStepCachePath(), config.getStepCacheMaxEntries());
+    }
+
+    /**
+     * Compute the key of an entry for the given step, from the pom.xml files of the project of the given root pom.xml.
+     * The parameters which are paths in the local repository are made relative to it.
+     *
+     * @return the key or null if the pom.xml files cannot be read.
+     */
+    public String computeKey(ProjectInspector inspector, String stepName, File rootPomFile, String... parameters) {
+        return this.computeKey(inspector, stepName, rootPomFile, Collections.<String>emptyList(), parameters);
+    }
+
+    /**
+     * Compute the key of an entry like {@link #computeKey(ProjectInspector, String, File, String...)}, which also
+     * depends on the existence of the given paths in the directory of each pom.xml file of the project.
+     *
+     * @param modulePaths the paths relative to the directory of a pom.xml file, e.g. "src/main/java"
+     */
+    public String computeKey(ProjectInspector inspector, String stepName, File rootPomFile, List<String> modulePaths, String... parameters) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            this.update(digest, stepName);
+            for (String parameter : parameters) {
+                this.update(digest, (parameter == null) ? "null" : this.toEntry(inspector, parameter));
+            }
+
+            Path root = new File(inspector.getRepoLocalPath()).getCanonicalFile().toPath();
+            for (Path pomFile : findPomFiles(root, rootPomFile.getCanonicalFile().toPath())) {
+                this.update(digest, root.relativize(pomFile).toString());
+                if (Files.isRegularFile(pomFile)) {
+                    digest.update(Files.readAllBytes(pomFile));
+                }
+                digest.update((byte) 0);
+                for (String modulePath : modulePaths) {
+                    digest.update((byte) (new File(pomFile.getParent().toFile(), modulePath).exists() ? 1 : 0));
+                }
+            }
+            return toHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) {
+            LOGGER.warn("Error while computing the cache key of step " + stepName + ": " + e);
+            return null;
+        }
+    }
+
+    private void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Find the pom.xml files of the project from the raw models of its pom.xml files, without building their effective
+     * models: the modules of all the profiles are considered, as well as the parents found in the local repository.
+     * A missing module is kept, so that the key changes when it is created.
+     *
+     * @return the canonical pom.xml files, sorted.
+     */
+    private static Set<Path> findPomFiles(Path root, Path rootPomFile) throws IOException {
+        if (!Files.isRegularFile(rootPomFile)) {
+            throw new IOException("The pom.xml file " + rootPomFile + " does not exist.");
+        }
+        Set<Path> pomFiles = new TreeSet<>();
+        Deque<Path> toVisit = new ArrayDeque<>();
+        toVisit.add(rootPomFile);
+        while (!toVisit.isEmpty()) {
+            Path pomFile = toVisit.poll();
+            if (!pomFile.startsWith(root) || !pomFiles.add(pomFile) || !Files.isRegularFile(pomFile)) {
+                continue;
+            }
+
+            Model model;
+            try {
+                model = new MavenXpp3Reader().read(new ByteArrayInputStream(Files.readAllBytes(pomFile)), false);
+            } catch (XmlPullParserException e) {
+                // the content of the file is hashed anyway
+                LOGGER.debug("Error while reading " + pomFile + ": " + e);
+                continue;
+            }
+
+            List<String> modules = new ArrayList<>(model.getModules());
+            for (Profile profile : model.getProfiles()) {
+                modules.addAll(profile.getModules());
+            }
+            for (String module : modules) {
+                toVisit.add(getCanonicalPath(ProjectModelService.getModulePomFile(pomFile.toFile(), module)));
+            }
+
+            if (model.getParent() != null) {
+                String relativePath = (model.getParent().getRelativePath() != null) ? model.getParent().getRelativePath() : DEFAULT_PARENT_PATH;
+                if (!relativePath.trim().isEmpty()) {
+                    File parentPomFile = new File(pomFile.getParent().toFile(), relativePath.trim());
+                    if (parentPomFile.isDirectory()) {
+                        parentPomFile = new File(parentPomFile, Utils.POM_FILE);
+                    }
+                    if (parentPomFile.isFile()) {
+                        toVisit.add(getCanonicalPath(parentPomFile));
+                    }
+                }
+            }
+        }
+        return pomFiles;
+    }
+
+    private static Path getCanonicalPath(File file) throws IOException {
+        return file.getCanonicalFile().toPath();
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder result = new StringBuilder();
+        for (byte b : bytes) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    /**
+     * Get the files of an entry, resolved for the given inspector.
+     *
+     * @return the files or null if there is no entry for this key or if one of its files does not exist.
+     */
+    public File[] getFiles(ProjectInspector inspector, String key) {
+        File entryFile = new File(this.cacheDir, key + ENTRY_EXTENSION);
+        if (!entryFile.exists()) {
+            inspector.getJobStatus().addStepCacheMiss();
+            return null;
+        }
+
+        String[] entries;
+        try {
+            entries = new Gson().fromJson(new String(Files.readAllBytes(entryFile.toPath()), StandardCharsets.UTF_8), String[].class);
+        } catch (IOException | JsonParseException e) {
+            LOGGER.warn("Error while reading the cache entry " + entryFile.getPath() + ": " + e);
+            inspector.getJobStatus().addStepCacheMiss();
+            return null;
+        }
+        if (entries == null) {
+            inspector.getJobStatus().addStepCacheMiss();
+            return null;
+        }
+
+        File[] files = new File[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            files[i] = this.fromEntry(inspector, entries[i]);
+            if (!files[i].exists()) {
+                LOGGER.debug("The cache entry " + key + " cannot be used: " + files[i].getPath() + " does not exist.");
+                inspector.getJobStatus().addStepCacheMiss();
+                return null;
+            }
+        }
+
+        // the modification date is used to evict the least recently used entries
+        try {
+            Files.setLastModifiedTime(entryFile.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            LOGGER.debug("Error while updating the cache entry " + entryFile.getPath() + ": " + e);
+        }
+        inspector.getJobStatus().addStepCacheHit();
+        return files;
+    }
+
+    public void putFiles(ProjectInspector inspector, String key, File[] files) {
+        String[] entries = new String[files.length];
+        for (int i = 0; i < files.length; i++) {
+            entries[i] = this.toEntry(inspector, files[i].getPath());
+        }
+
+        File entryFile = new File(this.cacheDir, key + ENTRY_EXTENSION);
+        try {
+            Files.createDirectories(this.cacheDir.toPath());
+            // the entry is written then moved as the cache might be used by several pipelines at the same time
+            Path tmpFile = Files.createTempFile(this.cacheDir.toPath(), key, ".tmp");
+            Files.write(tmpFile, new Gson().toJson(entries).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmpFile, entryFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.warn("Error while writing the cache entry " + entryFile.getPath() + ": " + e);
+            return;
+        }
+        this.evict();
+    }
+
+    private void evict() {
+        File[] entryFiles = this.cacheDir.listFiles((dir, name) -> name.endsWith(ENTRY_EXTENSION));
+        if (entryFiles == null || entryFiles.length <= this.maxEntries) {
+            return;
+        }
+
+        Arrays.sort(entryFiles, Comparator.comparingLong(File::lastModified));
+        for (int i = 0; i < entryFiles.length - this.maxEntries; i++) {
+            if (!entryFiles[i].delete()) {
+                LOGGER.debug("Error while evicting the cache entry " + entryFiles[i].getPath());
+            }
+        }
+    }
+
+    private String toEntry(ProjectInspector inspector, String path) {
+        String m2LocalPath = inspector.getM2LocalPath();
+        if (m2LocalPath != null) {
+            String relativePath = relativize(path, m2LocalPath);
+            if (relativePath != null) {
+                return M2_PREFIX + relativePath;
+            }
+        }
+        String relativePath = relativize(path, inspector.getRepoLocalPath());
+        if (relativePath != null) {
+            return REPOSITORY_PREFIX + relativePath;
+        }
+        return path;
+    }
+
+    private File fromEntry(ProjectInspector inspector, String entry) {
+        if (entry.startsWith(M2_PREFIX)) {
+            return new File(inspector.getM2LocalPath() + entry.substring(M2_PREFIX.length()));
+        } else if (entry.startsWith(REPOSITORY_PREFIX)) {
+            return new File(new File(inspector.getRepoLocalPath()).getAbsolutePath() + entry.substring(REPOSITORY_PREFIX.length()));
+        }
+        return new File(entry);
+    }
+
+    private static String relativize(String path, String directory) {
+        List<String> directories = new ArrayList<>();
+        File directoryFile = new File(directory);
+        directories.add(directory);
+        directories.add(directoryFile.getAbsolutePath());
+        try {
+            directories.add(directoryFile.getCanonicalPath());
+        } catch (IOException e) {
+            LOGGER.debug("Error while getting the canonical path of " + directory);
+        }
+
+        for (String dir : directories) {
+            if (path.equals(dir)) {
+                return "";
+            }
+            if (path.startsWith(dir + File.separator)) {
+                return path.substring(dir.length());
+            }
+        }
+        return null;
+    }
+}
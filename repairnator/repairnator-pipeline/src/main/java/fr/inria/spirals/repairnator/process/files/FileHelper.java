@@ -6,11 +6,19 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.process.instrumentation.ProcessWatchdog;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 
 import org.apache.commons.io.FileUtils;
@@ -22,6 +30,7 @@ import org.slf4j.LoggerFactory;
  */
 
 public class FileHelper {
+    private static final String BUILD_OUTPUT_DIR = "target";
 
     private static Logger getLogger() {
         return LoggerFactory.getLogger(FileHelper.class);
@@ -65,21 +74,7 @@ public class FileHelper {
                 FileUtils.copyDirectory(sourceDir, targetDir, new FileFilter() {
                     @Override
                     public boolean accept(File file) {
-                        for (String excludedFileName : excludedFileNames) {
-                            if (isToPerfectlyMatch) {
-                                String excludedFilePath = sourceDir.getPath() + "/" + excludedFileName;
-                                if (file.getPath().equals(excludedFilePath)) {
-                                    getLogger().debug("File not copied: " + file.getPath());
-                                    return false;
-                                }
-                            } else {
-                                if (file.getPath().contains(excludedFileName)) {
-                                    getLogger().debug("File not copied: " + file.getPath());
-                                    return false;
-                                }
-                            }
-                        }
-                        return true;
+                        return !isExcluded(sourceDir, file, excludedFileNames, isToPerfectlyMatch);
                     }
                 });
             } catch (IOException e) {
@@ -92,6 +87,148 @@ public class FileHelper {
         }
     }
 
+    /**
+     * Synchronize a directory into another: only the files whose size or modification date differ from the ones
+     * of the target directory are copied, with their modification date, so that the next synchronization and the
+     * git index of the target directory consider the other files as unchanged.
+     * As with {@link #copyDirectory(File, File, String[], boolean, AbstractStep)}, the files deleted from sourceDir
+     * are kept in targetDir.
+     * The build outputs of the maven modules, i.e. the target directories next to a pom.xml, are not copied.
+     * The unchanged files are not hard-linked, as the files of sourceDir are then modified in place by the pipeline.
+     *
+     * @param excludedFileNames
+     *            see {@link #copyDirectory(File, File, String[], boolean, AbstractStep)}.
+     * @param isToPerfectlyMatch
+     *            see {@link #copyDirectory(File, File, String[], boolean, AbstractStep)}.
+     */
+    public static void synchronizeDirectory(File sourceDir, File targetDir, String[] excludedFileNames,
+            boolean isToPerfectlyMatch, AbstractStep step) {
+        if (sourceDir == null || targetDir == null) {
+            step.addStepError(
+                    "Error while copying files to prepare the git repository folder towards to push data: the source and/or target folders are null.");
+            return;
+        }
+        getLogger().debug("Synchronizing " + sourceDir.getPath() + " into " + targetDir.getPath());
+
+        Path sourcePath = sourceDir.toPath();
+        Path targetPath = targetDir.toPath();
+        long[] nbFiles = new long[3]; // copied files, unchanged files, copied bytes
+        try {
+            Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (!dir.equals(sourcePath)) {
+                        if (isExcluded(sourceDir, dir.toFile(), excludedFileNames, isToPerfectlyMatch)) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                        if (BUILD_OUTPUT_DIR.equals(dir.getFileName().toString()) && Files.isRegularFile(dir.resolveSibling(Utils.POM_FILE))) {
+                            return FileVisitResult.SKIP_SUBTREE;
+                        }
+                    }
+                    Files.createDirectories(targetPath.resolve(sourcePath.relativize(dir)));
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (isExcluded(sourceDir, file.toFile(), excludedFileNames, isToPerfectlyMatch)) {
+                        return FileVisitResult.CONTINUE;
+                    }
+                    Path targetFile = targetPath.resolve(sourcePath.relativize(file));
+                    if (isUnchanged(attrs, targetFile)) {
+                        nbFiles[1]++;
+                    } else {
+                        Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES, LinkOption.NOFOLLOW_LINKS);
+                        nbFiles[0]++;
+                        nbFiles[2] += attrs.size();
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            getLogger().info(nbFiles[0] + " files copied (" + (nbFiles[2] / 1024) + " KB) and " + nbFiles[1] + " unchanged files while synchronizing " + targetDir.getPath());
+        } catch (IOException e) {
+            step.addStepError(
+                    "Error while copying files to prepare the git repository folder towards to push data.", e);
+        }
+    }
+
+    private static boolean isUnchanged(BasicFileAttributes sourceAttributes, Path targetFile) {
+        try {
+            BasicFileAttributes targetAttributes = Files.readAttributes(targetFile, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            return targetAttributes.size() == sourceAttributes.size()
+                    && targetAttributes.lastModifiedTime().equals(sourceAttributes.lastModifiedTime())
+                    && targetAttributes.isSymbolicLink() == sourceAttributes.isSymbolicLink();
+        } catch (IOException e) {
+            // the file does not exist in the target directory
+            return false;
+        }
+    }
+
+    private static boolean isExcluded(File sourceDir, File file, String[] excludedFileNames, boolean isToPerfectlyMatch) {
+        for (String excludedFileName : excludedFileNames) {
+            if (isToPerfectlyMatch) {
+                String excludedFilePath = sourceDir.getPath() + "/" + excludedFileName;
+                if (file.getPath().equals(excludedFilePath)) {
+                    getLogger().debug("File not copied: " + file.getPath());
+                    return true;
+                }
+            } else {
+                if (file.getPath().contains(excludedFileName)) {
+                    getLogger().debug("File not copied: " + file.getPath());
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy a directory using copy-on-write clones of the files when the file system supports it
+     * (cp --reflink=auto), which makes the copy of a workspace almost free.
+     * If cp is not available or fails, a regular copy is done.
+     *
+     * @param sourceDir
+     *            is the directory containing the files to be copied from.
+     * @param targetDir
+     *            is the directory to create with the copy of the files.
+     * @param excludedFileNames
+     *            names of the direct children of sourceDir that should not be copied.
+     */
+    public static void copyDirectoryCopyOnWrite(File sourceDir, File targetDir, String[] excludedFileNames) throws IOException {
+        List<String> excluded = Arrays.asList(excludedFileNames);
+        File[] children = sourceDir.listFiles();
+        if (children == null) {
+            throw new IOException("The directory to copy does not exist: " + sourceDir.getPath());
+        }
+        targetDir.mkdirs();
+
+        List<String> command = new ArrayList<>(Arrays.asList("cp", "-a", "--reflink=auto"));
+        for (File child : children) {
+            if (!excluded.contains(child.getName())) {
+                command.add(child.getAbsolutePath());
+            }
+        }
+        command.add(targetDir.getAbsolutePath());
+
+        if (command.size() > 4) {
+            int status;
+            try {
+                status = ProcessWatchdog.runProcess(new ProcessBuilder(command).inheritIO(), "cp").exitValue();
+            } catch (IOException e) {
+                getLogger().debug("Error while launching cp: " + e);
+                status = -1;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while copying " + sourceDir.getPath(), e);
+            }
+
+            if (status != 0) {
+                getLogger().debug("The copy-on-write copy of " + sourceDir.getPath() + " failed, a regular copy will be done.");
+                FileUtils.copyDirectory(sourceDir, targetDir, file -> !(file.getParentFile().equals(sourceDir) && excluded.contains(file.getName())));
+            }
+        }
+    }
+
     public static void deleteFile(File file) throws IOException {
         if (file != null) {
             for (File childFile : file.listFiles()) {
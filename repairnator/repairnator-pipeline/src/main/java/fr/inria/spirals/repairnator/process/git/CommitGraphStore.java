@@ -0,0 +1,110 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class stores, in a small file per repository, what has been learnt about the commits missing in the clones:
+ * the parents of the commits retrieved with the GitHub API, and the commits which cannot be fetched from GitHub.
+ * The builds of a same repository then resolve the same missing commits without API request nor fetch attempt.
+ *
+ * The file is kept next to the mirrors of {@link RepairnatorConfig#getMirrorCachePath()} if a cache is configured,
+ * or else in the git directory of the clone. Each line is either "sha parent..." or "sha !" for a commit which
+ * cannot be fetched.
+ */
+public class CommitGraphStore {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommitGraphStore.class);
+
+    private static final String STORE_EXTENSION = ".commits";
+    private static final String UNFETCHABLE = "!";
+
+    private File storeFile;
+    private Map<String, List<String>> parents;
+    private Set<String> unfetchableCommits;
+
+    public CommitGraphStore(File storeFile) {
+        this.storeFile = storeFile;
+        this.parents = new HashMap<>();
+        this.unfetchableCommits = new HashSet<>();
+        this.load();
+    }
+
+    public static CommitGraphStore forRepository(String repoSlug, File gitDirectory) {
+        String mirrorCachePath = RepairnatorConfig.getInstance().getMirrorCachePath();
+        if (mirrorCachePath != null && !mirrorCachePath.isEmpty()) {
+            return new CommitGraphStore(new File(mirrorCachePath, repoSlug.replace('/', '-') + STORE_EXTENSION));
+        }
+        return new CommitGraphStore(new File(gitDirectory, "repairnator" + STORE_EXTENSION));
+    }
+
+    private void load() {
+        if (!this.storeFile.isFile()) {
+            return;
+        }
+        try {
+            for (String line : Files.readAllLines(this.storeFile.toPath(), StandardCharsets.UTF_8)) {
+                String[] commits = line.trim().split(" ");
+                if (commits[0].isEmpty()) {
+                    continue;
+                }
+                if (commits.length == 2 && UNFETCHABLE.equals(commits[1])) {
+                    this.unfetchableCommits.add(commits[0]);
+                } else {
+                    this.parents.put(commits[0], Arrays.asList(commits).subList(1, commits.length));
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Error while reading the commit graph " + this.storeFile + ": " + e);
+        }
+    }
+
+    /**
+     * @return the parents of the given commit, or null if they are unknown.
+     */
+    public synchronized List<String> getParents(String commitSha) {
+        List<String> commitParents = this.parents.get(commitSha);
+        return (commitParents != null) ? Collections.unmodifiableList(commitParents) : null;
+    }
+
+    public synchronized void addParents(String commitSha, List<String> commitParents) {
+        if (!this.parents.containsKey(commitSha)) {
+            this.parents.put(commitSha, new ArrayList<>(commitParents));
+            this.append(commitSha + (commitParents.isEmpty() ? "" : " " + String.join(" ", commitParents)));
+        }
+    }
+
+    public synchronized boolean isUnfetchable(String commitSha) {
+        return this.unfetchableCommits.contains(commitSha);
+    }
+
+    public synchronized void addUnfetchable(String commitSha) {
+        if (this.unfetchableCommits.add(commitSha)) {
+            this.append(commitSha + " " + UNFETCHABLE);
+        }
+    }
+
+    private void append(String line) {
+        try {
+            Files.createDirectories(this.storeFile.getAbsoluteFile().getParentFile().toPath());
+            // a line is appended in one write, so that the builds of the machine can share the file
+            Files.write(this.storeFile.toPath(), (line + "\n").getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            LOGGER.warn("Error while writing the commit graph " + this.storeFile + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.step.AbstractStep;
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.instrumentation.ProcessWatchdog;
+import org.apache.commons.lang.StringUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.kohsuke.github.GHCommit;
+import org.kohsuke.github.GHRepository;
+import org.kohsuke.github.GitHub;
+import org.kohsuke.github.GitUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * This class resolves a commit missing in a clone, e.g. a commit of a force-pushed branch.
+ *
+ * The commit is first fetched by its sha. If GitHub does not give it anymore, its first-parent ancestry is walked
+ * until an ancestor which can be fetched: the parents are read from the {@link CommitGraphStore} of the repository,
+ * and only requested to the GitHub API when they are unknown. The missing commits are then recreated on the
+ * ancestor by applying their patches retrieved from GitHub. They are recreated in a temporary index, so the HEAD,
+ * the index and the working tree of the repository are left untouched.
+ *
+ * A commit is only recorded as unfetchable in the {@link CommitGraphStore}, which is shared between the builds,
+ * when the remote tells that it does not have it: a transient failure, e.g. of the network, is not recorded.
+ */
+public class CommitResolver {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommitResolver.class);
+
+    private static final int MAX_MISSING_COMMITS = 20;
+    private static final String EMPTY_BLOB_SHA = "e69de29bb2d1d6434b8b29ae775ad8c2e48c5391";
+
+    private GitHelper gitHelper;
+    private CommitGraphStore commitGraphStore;
+    private GHRepository ghRepo;
+    private Map<String, GHCommit> ghCommits;
+
+    public CommitResolver(GitHelper gitHelper, CommitGraphStore commitGraphStore) {
+        this.gitHelper = gitHelper;
+        this.commitGraphStore = commitGraphStore;
+        this.ghCommits = new HashMap<>();
+    }
+
+    /**
+     * @return the given sha if the commit is in the repository or has been fetched, the sha of the commit
+     * recreated from GitHub on its last known ancestor, or null if the commit cannot be resolved.
+     */
+    public String resolve(Git git, String commitSha, String repoSlug, AbstractStep step) throws IOException, GitAPIException {
+        if (this.gitHelper.commitExists(git, commitSha) || this.fetch(git, commitSha)) {
+            return commitSha;
+        }
+
+        List<String> missingCommits = new ArrayList<>();
+        missingCommits.add(commitSha);
+        String currentSha = commitSha;
+        while (missingCommits.size() <= MAX_MISSING_COMMITS) {
+            List<String> parents = this.commitGraphStore.getParents(currentSha);
+            if (parents == null) {
+                GHCommit ghCommit = this.getGHCommit(currentSha, repoSlug, step);
+                parents = ghCommit.getParentSHA1s();
+                this.commitGraphStore.addParents(currentSha, parents);
+            }
+            if (parents.isEmpty()) {
+                LOGGER.warn("The commit " + currentSha + " does not have any parent: " + commitSha + " cannot be resolved.");
+                return null;
+            }
+
+            String parentSha = parents.get(0);
+            if (this.gitHelper.commitExists(git, parentSha) || this.fetch(git, parentSha)) {
+                LOGGER.info("The last known ancestor of " + commitSha + " is " + parentSha + ": the " + missingCommits.size() + " missing commits are recreated on it.");
+                return this.recreateCommits(git, parentSha, missingCommits, repoSlug, step);
+            }
+            missingCommits.add(parentSha);
+            currentSha = parentSha;
+        }
+
+        LOGGER.warn("No ancestor of " + commitSha + " found in the " + MAX_MISSING_COMMITS + " previous commits: it cannot be resolved.");
+        return null;
+    }
+
+    private boolean fetch(Git git, String commitSha) {
+        if (this.commitGraphStore.isUnfetchable(commitSha)) {
+            return false;
+        }
+        GitHelper.FetchResult fetchResult = this.gitHelper.fetchCommitFromRemote(git, commitSha);
+        if (fetchResult == GitHelper.FetchResult.FETCHED) {
+            return true;
+        }
+        // a shallow repository might have the commit in its history
+        if (GitHelper.isShallow(git)) {
+            this.gitHelper.unshallow(git);
+            if (this.gitHelper.commitExists(git, commitSha)) {
+                return true;
+            }
+        }
+
+        if (fetchResult == GitHelper.FetchResult.NOT_ON_REMOTE) {
+            this.commitGraphStore.addUnfetchable(commitSha);
+        } else {
+            LOGGER.info("The fetch of the commit " + commitSha + " failed: it is not recorded as unfetchable.");
+        }
+        return false;
+    }
+
+    private GHCommit getGHCommit(String commitSha, String repoSlug, AbstractStep step) throws IOException {
+        GHCommit ghCommit = this.ghCommits.get(commitSha);
+        if (ghCommit == null) {
+            if (this.ghRepo == null) {
+                GitHub gh = RepairnatorConfig.getInstance().getGithub();
+                this.gitHelper.showGitHubRateInformation(gh, step);
+                this.ghRepo = gh.getRepository(repoSlug);
+            }
+            ghCommit = this.ghRepo.getCommit(commitSha);
+            this.ghCommits.put(commitSha, ghCommit);
+        }
+        return ghCommit;
+    }
+
+    /**
+     * Recreate the given missing commits, from the most recent to the oldest, by applying their patches on the given ancestor.
+     *
+     * @return the sha of the recreated commit, or null if a patch cannot be applied.
+     */
+    private String recreateCommits(Git git, String ancestorSha, List<String> missingCommits, String repoSlug, AbstractStep step) throws IOException {
+        String parentSha = ancestorSha;
+        for (int i = missingCommits.size() - 1; i >= 0; i--) {
+            GHCommit ghCommit = this.getGHCommit(missingCommits.get(i), repoSlug, step);
+            String patchContent = toPatch(ghCommit.getFiles());
+            if (patchContent == null) {
+                LOGGER.warn("The patch of the commit " + ghCommit.getSHA1() + " is not complete in GitHub: it cannot be recreated.");
+                return null;
+            }
+
+            GitUser author = ghCommit.getCommitShortInfo().getAuthor();
+            parentSha = this.commitPatch(git, parentSha, patchContent,
+                    new PersonIdent(author.getName(), author.getEmail(), author.getDate(), TimeZone.getDefault()),
+                    ghCommit.getCommitShortInfo().getMessage());
+            if (parentSha == null) {
+                LOGGER.warn("The patch of the commit " + ghCommit.getSHA1() + " cannot be applied: it cannot be recreated.");
+                return null;
+            }
+        }
+        return parentSha;
+    }
+
+    /**
+     * Create a commit applying the given patch on the given parent commit. The patch is applied in a temporary index,
+     * so the HEAD, the index and the working tree of the repository are not changed.
+     *
+     * @return the sha of the created commit, or null if the patch cannot be applied.
+     */
+    String commitPatch(Git git, String parentSha, String patchContent, PersonIdent author, String message) throws IOException {
+        File gitDir = git.getRepository().getDirectory();
+        File tmpDir = Files.createTempDirectory("commit").toFile();
+        try {
+            File patch = new File(tmpDir, "commit.patch");
+            Files.write(patch.toPath(), patchContent.getBytes(StandardCharsets.UTF_8));
+            Map<String, String> env = new HashMap<>();
+            env.put("GIT_INDEX_FILE", new File(tmpDir, "index").getAbsolutePath());
+
+            String treeSha = null;
+            if (this.runGit(gitDir, env, "read-tree", parentSha) != null
+                    && this.runGit(gitDir, env, "apply", "--cached", patch.getAbsolutePath()) != null) {
+                treeSha = this.runGit(gitDir, env, "write-tree");
+            }
+            if (treeSha == null) {
+                return null;
+            }
+
+            CommitBuilder commitBuilder = new CommitBuilder();
+            commitBuilder.setTreeId(ObjectId.fromString(treeSha));
+            commitBuilder.setParentId(ObjectId.fromString(parentSha));
+            commitBuilder.setAuthor(author);
+            commitBuilder.setCommitter(GitHelper.getCommitterIdent());
+            commitBuilder.setMessage(message);
+            try (ObjectInserter inserter = git.getRepository().newObjectInserter()) {
+                ObjectId commitId = inserter.insert(commitBuilder);
+                inserter.flush();
+                return commitId.getName();
+            }
+        } finally {
+            FileHelper.deleteFile(tmpDir);
+        }
+    }
+
+    /**
+     * Run a git command on the given git directory, with the given additional environment.
+     *
+     * @return the trimmed standard output of the command, or null if it failed.
+     */
+    private String runGit(File gitDir, Map<String, String> env, String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.add("--git-dir=" + gitDir.getAbsolutePath());
+        command.addAll(Arrays.asList(args));
+
+        File output = File.createTempFile("git", ".out");
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(command).inheritIO().redirectOutput(output);
+            processBuilder.environment().putAll(env);
+            if (ProcessWatchdog.runProcess(processBuilder, "git " + args[0]).exitValue() != 0) {
+                LOGGER.warn("The git command failed: " + StringUtils.join(command, " "));
+                return null;
+            }
+            return new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8).trim();
+        } catch (InterruptedException e) {
+            LOGGER.error("Error while executing git command: " + e);
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            output.delete();
+        }
+    }
+
+    /**
+     * Build a patch, in the format of git diff, from the files of a commit given by GitHub.
+     *
+     * @return the patch, or null if the content of a file is not given, e.g. for a binary or too large file.
+     */
+    static String toPatch(List<GHCommit.File> files) {
+        StringBuilder patch = new StringBuilder();
+        for (GHCommit.File file : files) {
+            String newPath = file.getFileName();
+            String oldPath = (file.getPreviousFilename() != null) ? file.getPreviousFilename() : newPath;
+            if (file.getPatch() == null && !isWithoutContent(file)) {
+                return null;
+            }
+
+            patch.append("diff --git a/").append(oldPath).append(" b/").append(newPath).append('\n');
+            switch (file.getStatus()) {
+                case "added":
+                    patch.append("new file mode 100644\n");
+                    break;
+                case "removed":
+                    patch.append("deleted file mode 100644\n");
+                    break;
+                case "renamed":
+                    patch.append("rename from ").append(oldPath).append('\n').append("rename to ").append(newPath).append('\n');
+                    break;
+                default:
+                    break;
+            }
+            if (file.getPatch() != null) {
+                patch.append("--- ").append("added".equals(file.getStatus()) ? "/dev/null" : "a/" + oldPath).append('\n');
+                patch.append("+++ ").append("removed".equals(file.getStatus()) ? "/dev/null" : "b/" + newPath).append('\n');
+                patch.append(file.getPatch()).append('\n');
+            }
+        }
+        return patch.toString();
+    }
+
+    /**
+     * @return true if the change of the given file has no content: the file is renamed without change,
+     * added empty, or removed, in which case git checks that the removed content matches.
+     */
+    private static boolean isWithoutContent(GHCommit.File file) {
+        switch (file.getStatus()) {
+            case "renamed":
+                return file.getLinesChanged() == 0;
+            case "added":
+                return EMPTY_BLOB_SHA.equals(file.getSha());
+            case "removed":
+                return true;
+            default:
+                return false;
+        }
+    }
+}
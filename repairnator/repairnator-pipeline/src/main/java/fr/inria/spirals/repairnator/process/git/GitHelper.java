@@ -6,30 +6,53 @@ import fr.inria.spirals.repairnator.Utils;
 import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.properties.patchDiff.PatchDiff;
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.instrumentation.ProcessWatchdog;
+import fr.inria.spirals.repairnator.process.instrumentation.ResourceMetrics;
+import fr.inria.spirals.repairnator.process.instrumentation.ResourceMonitor;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import org.apache.commons.lang.StringUtils;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeCommand;
 import org.eclipse.jgit.api.MergeResult;
 import org.eclipse.jgit.api.RemoteAddCommand;
+import org.eclipse.jgit.api.ResetCommand;
 import org.eclipse.jgit.api.Status;
+import org.eclipse.jgit.api.StatusCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
 import org.eclipse.jgit.diff.Edit;
 import org.eclipse.jgit.diff.EditList;
-import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheBuildIterator;
+import org.eclipse.jgit.dircache.DirCacheBuilder;
+import org.eclipse.jgit.dircache.DirCacheEntry;
+import org.eclipse.jgit.dircache.DirCacheIterator;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.IndexDiff;
 import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
 import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.Repository;
 import org.eclipse.jgit.patch.FileHeader;
 import org.eclipse.jgit.patch.HunkHeader;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.submodule.SubmoduleWalk;
 import org.eclipse.jgit.transport.URIish;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.NameConflictTreeWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.WorkingTreeIterator;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.NotTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilterGroup;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.io.DisabledOutputStream;
-import org.kohsuke.github.GHCommit;
 import org.kohsuke.github.GHRateLimit;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
@@ -37,24 +60,101 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * Created by fernanda on 01/03/17.
  */
 public class GitHelper {
+    /**
+     * The result of the fetch of a commit.
+     */
+    enum FetchResult {
+        FETCHED,
+        // the remote does not have the commit anymore, e.g. because of a force-push
+        NOT_ON_REMOTE,
+        // the fetch failed, e.g. because of the network or of the credentials
+        FAILED
+    }
+
+    private static final String SHALLOW_FILE = "shallow";
+    private static final int MAX_DEEPENINGS = 4;
 
     private int nbCommits;
+    private JobStatus jobStatus;
+    private final Map<File, Repository> repositories;
 
     private static PersonIdent committerIdent;
 
     public GitHelper() {
         this.nbCommits = 0;
+        this.repositories = new HashMap<>();
+    }
+
+    /**
+     * @param jobStatus the job status in which the duration of the git operations is recorded.
+     */
+    public GitHelper(JobStatus jobStatus) {
+        this();
+        this.jobStatus = jobStatus;
+    }
+
+    /**
+     * Set the job status in which the duration of the git operations is recorded,
+     * e.g. when the job status of the inspector is replaced by the one restored from a checkpoint.
+     */
+    public void setJobStatus(JobStatus jobStatus) {
+        this.jobStatus = jobStatus;
+    }
+
+    /**
+     * Open the git repository of the given directory: a repository is only opened once by this helper,
+     * and closing the returned object does not close the repository, which is closed by {@link #close()}.
+     */
+    public synchronized Git openGit(File repoDirectory) throws IOException {
+        File key = repoDirectory.getAbsoluteFile();
+        Repository repository = this.repositories.get(key);
+        if (repository == null || !repository.getDirectory().isDirectory()) {
+            repository = Git.open(key).getRepository();
+            this.repositories.put(key, repository);
+        }
+        return Git.wrap(repository);
+    }
+
+    /**
+     * Close the repositories opened by {@link #openGit(File)}.
+     */
+    public synchronized void close() {
+        for (Repository repository : this.repositories.values()) {
+            repository.close();
+        }
+        this.repositories.clear();
+    }
+
+    private ResourceMonitor startMonitor(String operation) {
+        return ResourceMonitor.start(operation, ResourceMetrics.Kind.GIT);
+    }
+
+    private void stopMonitor(ResourceMonitor monitor) {
+        ResourceMetrics metrics = monitor.stop();
+        this.getLogger().debug(metrics.getName() + " done in " + metrics.getWallTime() + " ms.");
+        if (this.jobStatus != null) {
+            this.jobStatus.addResourceMetrics(metrics);
+        }
     }
 
 
@@ -81,6 +181,15 @@ public class GitHelper {
             git.getRepository().open(commitObject);
             return oldCommitSha;
         } catch (IOException e) {
+            try {
+                CommitGraphStore commitGraphStore = CommitGraphStore.forRepository(build.getRepository().getSlug(), git.getRepository().getDirectory());
+                String commitSha = new CommitResolver(this, commitGraphStore).resolve(git, oldCommitSha, build.getRepository().getSlug(), step);
+                if (commitSha != null) {
+                    return commitSha;
+                }
+            } catch (IOException | GitAPIException resolveException) {
+                this.getLogger().warn("Error while resolving the commit " + oldCommitSha + ": " + resolveException);
+            }
             step.addStepError("Error while testing commit: " + e);
             if (!build.getBranch().isExistsOnGithub()) {
                 step.addStepError("The commit can't be resolved because the branch where such commit was done does not exist in GitHub anymore: " + Utils.getBranchUrl(build.getBranch().getName(), build.getRepository().getSlug()));
@@ -130,21 +239,7 @@ public class GitHelper {
 
                 if (!filesToCheckout.isEmpty()) {
                     this.getLogger().debug("Checkout "+filesToCheckout.size()+" files.");
-
-                    this.getLogger().info("Exec following command: git checkout -- " + StringUtils.join(filesToCheckout, " "));
-                    ProcessBuilder processBuilder = new ProcessBuilder("git", "checkout", "--", StringUtils.join(filesToCheckout, " "))
-                            .directory(git.getRepository().getDirectory().getParentFile()).inheritIO();
-
-                    try {
-                        Process p = processBuilder.start();
-                        p.waitFor();
-
-                    } catch (InterruptedException|IOException e) {
-                        this.getLogger().error("Error while executing git command to checkout files: " + e);
-                        return false;
-                    }
-
-                    //git.checkout().addPaths(filesToCheckout).call();
+                    this.gitCheckoutPaths(filesToCheckout, git);
                 }
 
                 this.gitAdd(filesToAdd, git);
@@ -165,49 +260,216 @@ public class GitHelper {
         }
     }
 
-    public void initAllSubmodules(Git git) {
-        this.getLogger().info("Init git submodules.");
-        ProcessBuilder processBuilder = new ProcessBuilder("git", "submodule", "update", "--init", "--recursive")
-                .directory(git.getRepository().getDirectory().getParentFile()).inheritIO();
+    /**
+     * Clone the given repository with only the given commits and the given depth of their history.
+     * The history is deepened later if needed, see {@link #fetchMissingCommit(Git, String)}.
+     *
+     * @return true if all the commits have been fetched.
+     */
+    public boolean shallowClone(String remoteUrl, File repoDirectory, int depth, Collection<String> commits) {
+        this.getLogger().info("Shallow clone of " + commits.size() + " commits with a depth of " + depth + ".");
+        if (!repoDirectory.isDirectory() && !repoDirectory.mkdirs()) {
+            this.getLogger().error("The directory " + repoDirectory + " cannot be created.");
+            return false;
+        }
+
+        List<String> gitFetch = new ArrayList<>();
+        gitFetch.add("git");
+        gitFetch.add("fetch");
+        gitFetch.add("--depth=" + depth);
+        gitFetch.add("origin");
+        gitFetch.addAll(commits);
+
+        return this.executeGitCommand(new String[] {"git", "init"}, repoDirectory)
+                && this.executeGitCommand(new String[] {"git", "remote", "add", "origin", remoteUrl}, repoDirectory)
+                && this.executeGitCommand(gitFetch.toArray(new String[0]), repoDirectory);
+    }
+
+    /**
+     * @return true if the given repository only contains a part of the history.
+     */
+    public static boolean isShallow(Git git) {
+        return new File(git.getRepository().getDirectory(), SHALLOW_FILE).isFile();
+    }
+
+    /**
+     * Fetch a commit missing in a shallow repository: the commit is fetched by its sha with the depth
+     * given by {@link RepairnatorConfig#getCloneDepth()}, and if it is not enough, the whole history is fetched.
+     *
+     * @return true if the commit is now in the repository.
+     */
+    public boolean fetchMissingCommit(Git git, String commitSha) {
+        if (this.fetchCommit(git, commitSha)) {
+            return true;
+        }
+
+        this.getLogger().info("The commit " + commitSha + " cannot be fetched directly: the whole history is fetched.");
+        this.unshallow(git);
+        return this.commitExists(git, commitSha);
+    }
+
+    /**
+     * Fetch the whole history of a shallow repository.
+     */
+    void unshallow(Git git) {
+        File repoDirectory = git.getRepository().getDirectory().getParentFile();
+        this.executeGitCommand(new String[] {"git", "fetch", "--unshallow", "origin"}, repoDirectory);
+    }
 
+    /**
+     * Deepen the history of a shallow repository until the given commits have a common ancestor, so that they
+     * can be merged. The depth is doubled each time, and the whole history is fetched at last.
+     */
+    public void deepenToMergeBase(Git git, String firstCommitSha, String secondCommitSha) {
+        if (!isShallow(git)) {
+            return;
+        }
+        File repoDirectory = git.getRepository().getDirectory().getParentFile();
+        String[] gitMergeBase = {"git", "merge-base", firstCommitSha, secondCommitSha};
+
+        int depth = Math.max(1, RepairnatorConfig.getInstance().getCloneDepth());
+        for (int i = 0; i < MAX_DEEPENINGS; i++) {
+            if (this.executeGitCommand(gitMergeBase, repoDirectory)) {
+                return;
+            }
+            this.getLogger().info("No common ancestor found for " + firstCommitSha + " and " + secondCommitSha + ": the history is deepened by " + depth + " commits.");
+            this.executeGitCommand(new String[] {"git", "fetch", "--deepen=" + depth, "origin", firstCommitSha, secondCommitSha}, repoDirectory);
+            depth *= 2;
+        }
+        if (!this.executeGitCommand(gitMergeBase, repoDirectory)) {
+            this.executeGitCommand(new String[] {"git", "fetch", "--unshallow", "origin"}, repoDirectory);
+        }
+    }
+
+    /**
+     * Fetch a commit by its sha. In a shallow repository, the commit is fetched with the depth
+     * given by {@link RepairnatorConfig#getCloneDepth()}.
+     *
+     * @return true if the commit is now in the repository.
+     */
+    public boolean fetchCommit(Git git, String commitSha) {
+        return this.fetchCommitFromRemote(git, commitSha) == FetchResult.FETCHED;
+    }
+
+    /**
+     * Fetch a commit by its sha, as {@link #fetchCommit(Git, String)}, and tell why it could not be fetched.
+     */
+    FetchResult fetchCommitFromRemote(Git git, String commitSha) {
+        File repoDirectory = git.getRepository().getDirectory().getParentFile();
+        this.getLogger().info("Fetch the missing commit " + commitSha + ".");
+        String[] gitFetch = isShallow(git)
+                ? new String[] {"git", "fetch", "--depth=" + Math.max(1, RepairnatorConfig.getInstance().getCloneDepth()), "origin", commitSha}
+                : new String[] {"git", "fetch", "origin", commitSha};
+        this.getLogger().debug("Executing git command: " + StringUtils.join(gitFetch, " "));
+
+        File errorOutput = null;
         try {
-            Process p = processBuilder.start();
-            p.waitFor();
+            // the error output tells if the remote does not have the commit or if the fetch failed, e.g. because of the network
+            errorOutput = File.createTempFile("git_fetch", ".err");
+            ProcessBuilder processBuilder = new ProcessBuilder(gitFetch).directory(repoDirectory).inheritIO().redirectError(errorOutput);
+            int exitValue = ProcessWatchdog.runProcess(processBuilder, "git fetch").exitValue();
+            if (exitValue == 0 && this.commitExists(git, commitSha)) {
+                return FetchResult.FETCHED;
+            }
 
-        } catch (InterruptedException|IOException e) {
-            this.getLogger().error("Error while executing git command to get git submodules: " + e);
+            String error = new String(Files.readAllBytes(errorOutput.toPath()), StandardCharsets.UTF_8).trim();
+            this.getLogger().warn("The commit " + commitSha + " cannot be fetched: " + error);
+            return isNotOnRemote(error) ? FetchResult.NOT_ON_REMOTE : FetchResult.FAILED;
+        } catch (InterruptedException | IOException e) {
+            this.getLogger().error("Error while executing git command: " + e);
+            return FetchResult.FAILED;
+        } finally {
+            if (errorOutput != null) {
+                errorOutput.delete();
+            }
         }
     }
 
-    private String getLastKnowParent(GitHub gh, GHRepository ghRepo, Git git, String oldCommitSha, AbstractStep step) throws IOException {
-        showGitHubRateInformation(gh, step);
-        GHCommit commit = ghRepo.getCommit(oldCommitSha); // get the deleted
-        // commit from GH
-        List<String> commitParents = commit.getParentSHA1s();
+    /**
+     * @return true if the given error output of git fetch tells that the remote does not have the fetched commit.
+     */
+    static boolean isNotOnRemote(String error) {
+        String lowerCaseError = error.toLowerCase();
+        // a repository which is not found might be a private repository with wrong credentials
+        return lowerCaseError.contains("not our ref") || lowerCaseError.contains("couldn't find remote ref")
+                || (lowerCaseError.contains("not found") && !lowerCaseError.contains("repository not found"));
+    }
 
-        if (commitParents.isEmpty()) {
-            step.addStepError("The following commit does not have any parent in GitHub: " + oldCommitSha
-                    + ". It cannot be resolved.");
-            return null;
+    boolean commitExists(Git git, String commitSha) {
+        try {
+            ObjectId commitObject = git.getRepository().resolve(commitSha);
+            return commitObject != null && git.getRepository().hasObject(commitObject);
+        } catch (IOException e) {
+            return false;
         }
+    }
 
-        if (commitParents.size() > 1) {
-            this.getLogger().debug("Step " + step.getName() + " - The commit has more than one parent : " + commit.getHtmlUrl());
+    /**
+     * Init the git submodules referenced by the build: a submodule is referenced when its path appears in
+     * a pom.xml of the given modules, e.g. as a module or as a source directory.
+     * If there is no pom.xml, all the submodules are initialized.
+     *
+     * @param moduleDirs the directories of the modules of the project.
+     */
+    public void initReferencedSubmodules(Git git, List<File> moduleDirs) {
+        List<String> submodulePaths = new ArrayList<>();
+        try (SubmoduleWalk submoduleWalk = SubmoduleWalk.forIndex(git.getRepository())) {
+            while (submoduleWalk.next()) {
+                submodulePaths.add(submoduleWalk.getPath());
+            }
+        } catch (IOException e) {
+            this.getLogger().error("Error while reading the git submodules: " + e);
+            return;
+        }
+        if (submodulePaths.isEmpty()) {
+            return;
         }
 
-        String parent = commitParents.get(0);
+        List<String> pomContents = new ArrayList<>();
+        for (File moduleDir : moduleDirs) {
+            File pomFile = new File(moduleDir, Utils.POM_FILE);
+            try {
+                pomContents.add(new String(Files.readAllBytes(pomFile.toPath()), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                this.getLogger().debug("The pom.xml " + pomFile + " cannot be read: " + e);
+            }
+        }
+
+        List<String> gitSubmoduleUpdate = new ArrayList<>(Arrays.asList("git", "submodule", "update", "--init", "--recursive", "--"));
+        for (String submodulePath : submodulePaths) {
+            boolean referenced = pomContents.isEmpty();
+            for (String pomContent : pomContents) {
+                referenced = referenced || pomContent.contains(submodulePath);
+            }
+            if (referenced) {
+                gitSubmoduleUpdate.add(submodulePath);
+            } else {
+                this.getLogger().debug("The submodule " + submodulePath + " is not referenced by the build: it is not initialized.");
+            }
+        }
+
+        if (gitSubmoduleUpdate.get(gitSubmoduleUpdate.size() - 1).equals("--")) {
+            this.getLogger().info("None of the " + submodulePaths.size() + " git submodules is referenced by the build.");
+            return;
+        }
+        this.getLogger().info("Init the git submodules referenced by the build.");
+        this.executeGitCommand(gitSubmoduleUpdate.toArray(new String[0]), git.getRepository().getDirectory().getParentFile());
+    }
+
+    public void initAllSubmodules(Git git) {
+        this.getLogger().info("Init git submodules.");
+        ProcessBuilder processBuilder = new ProcessBuilder("git", "submodule", "update", "--init", "--recursive")
+                .directory(git.getRepository().getDirectory().getParentFile()).inheritIO();
 
         try {
-            ObjectId commitObject = git.getRepository().resolve(parent);
-            git.getRepository().open(commitObject);
+            ProcessWatchdog.runProcess(processBuilder, "git submodule update");
 
-            return parent;
-        } catch (MissingObjectException e) {
-            return getLastKnowParent(gh, ghRepo, git, parent, step);
+        } catch (InterruptedException|IOException e) {
+            this.getLogger().error("Error while executing git command to get git submodules: " + e);
         }
     }
 
-    private void showGitHubRateInformation(GitHub gh, AbstractStep step) throws IOException {
+    void showGitHubRateInformation(GitHub gh, AbstractStep step) throws IOException {
         GHRateLimit rateLimit = gh.getRateLimit();
         SimpleDateFormat dateFormat = new SimpleDateFormat("HH:mm:ss");
         this.getLogger().info("Step " + step.getName() + " - GitHub rate limit: Limit: " + rateLimit.limit +
@@ -218,12 +480,15 @@ public class GitHelper {
         try {
             String remoteBranchPath = Utils.getCompleteGithubRepoUrl(prInformation.getOtherRepo().getFullName());
 
-            RemoteAddCommand remoteBranchCommand = git.remoteAdd();
-            remoteBranchCommand.setName("PR");
-            remoteBranchCommand.setUri(new URIish(remoteBranchPath));
-            remoteBranchCommand.call();
+            // a shallow clone already contains the commits of the PR, fetched from the base repository
+            if (!this.commitExists(git, prInformation.getHead().getSHA1()) || !this.commitExists(git, prInformation.getBase().getSHA1())) {
+                RemoteAddCommand remoteBranchCommand = git.remoteAdd();
+                remoteBranchCommand.setName("PR");
+                remoteBranchCommand.setUri(new URIish(remoteBranchPath));
+                remoteBranchCommand.call();
 
-            git.fetch().setRemote("PR").call();
+                git.fetch().setRemote("PR").call();
+            }
 
             String commitHeadSha = this.testCommitExistence(git, prInformation.getHead().getSHA1(), step, build);
             String commitBaseSha = this.testCommitExistence(git, prInformation.getBase().getSHA1(), step, build);
@@ -249,6 +514,8 @@ public class GitHelper {
                 git.checkout().setName(commitHeadSha).call();
             }
 
+            this.deepenToMergeBase(git, commitHeadSha, commitBaseSha);
+
             RevWalk revwalk = new RevWalk(git.getRepository());
             RevCommit revCommitBase = revwalk.lookupCommit(git.getRepository().resolve(commitBaseSha));
 
@@ -275,6 +542,75 @@ public class GitHelper {
         return null;
     }
 
+    /**
+     * @return the sha of the commit checked out in the given repository, or null if there is none.
+     */
+    public String getHeadCommit(Git git) throws IOException {
+        ObjectId head = git.getRepository().resolve(Constants.HEAD);
+        return (head != null) ? head.getName() : null;
+    }
+
+    /**
+     * @return the paths, relative to the repository, of the files added, modified or deleted between the two given commits.
+     */
+    public List<String> getChangedFiles(Git git, String oldCommit, String newCommit) throws IOException {
+        ObjectId oldTree = git.getRepository().resolve(oldCommit + "^{tree}");
+        ObjectId newTree = git.getRepository().resolve(newCommit + "^{tree}");
+        if (oldTree == null || newTree == null) {
+            throw new IOException("Cannot resolve the commits " + oldCommit + " and " + newCommit + ".");
+        }
+
+        List<String> changedFiles = new ArrayList<>();
+        try (ObjectReader reader = git.getRepository().newObjectReader();
+             DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            CanonicalTreeParser oldTreeIter = new CanonicalTreeParser();
+            oldTreeIter.reset(reader, oldTree);
+            CanonicalTreeParser newTreeIter = new CanonicalTreeParser();
+            newTreeIter.reset(reader, newTree);
+
+            diffFormatter.setRepository(git.getRepository());
+            for (DiffEntry entry : diffFormatter.scan(oldTreeIter, newTreeIter)) {
+                if (!entry.getOldPath().equals(DiffEntry.DEV_NULL)) {
+                    changedFiles.add(entry.getOldPath());
+                }
+                if (!entry.getNewPath().equals(DiffEntry.DEV_NULL) && !entry.getNewPath().equals(entry.getOldPath())) {
+                    changedFiles.add(entry.getNewPath());
+                }
+            }
+        }
+        return changedFiles;
+    }
+
+    /**
+     * Compute the uncommitted changes, including the untracked files, under the given paths only, as
+     * <code>git status -- paths</code>, except under the excluded paths, like the local maven repository
+     * or the build directories, which are then not traversed.
+     *
+     * @param includedPaths the paths relative to the repository, an empty path standing for the whole repository.
+     * @param excludedPaths the paths relative to the repository.
+     * @return the paths, relative to the repository, of the changed files.
+     */
+    public List<String> getUncommittedChanges(Git git, Collection<String> includedPaths, Collection<String> excludedPaths) throws IOException {
+        Repository repository = git.getRepository();
+        IndexDiff indexDiff = new IndexDiff(repository, Constants.HEAD, new FileTreeIterator(repository));
+        TreeFilter filter = (includedPaths.isEmpty() || includedPaths.contains("")) ? TreeFilter.ALL : PathFilterGroup.createFromStrings(includedPaths);
+        if (!excludedPaths.isEmpty()) {
+            filter = AndTreeFilter.create(filter, NotTreeFilter.create(PathFilterGroup.createFromStrings(excludedPaths)));
+        }
+        indexDiff.setFilter(filter);
+        indexDiff.diff();
+
+        Set<String> changedFiles = new HashSet<>();
+        changedFiles.addAll(indexDiff.getAdded());
+        changedFiles.addAll(indexDiff.getChanged());
+        changedFiles.addAll(indexDiff.getRemoved());
+        changedFiles.addAll(indexDiff.getMissing());
+        changedFiles.addAll(indexDiff.getModified());
+        changedFiles.addAll(indexDiff.getConflicting());
+        changedFiles.addAll(indexDiff.getUntracked());
+        return new ArrayList<>(changedFiles);
+    }
+
     public void computePatchStats(JobStatus jobStatus, Git git, RevCommit headRev, RevCommit commit) {
         try {
             ObjectReader reader = git.getRepository().newObjectReader();
@@ -361,8 +697,7 @@ public class GitHelper {
                 .directory(new File(path)).inheritIO();
 
         try {
-            Process p = processBuilder.start();
-            return p.waitFor();
+            return ProcessWatchdog.runProcess(processBuilder, "git checkout -b").exitValue();
         } catch (InterruptedException|IOException e) {
             getLogger().error("Error while executing git command to create new branch and checkout it: " + e);
         }
@@ -370,24 +705,240 @@ public class GitHelper {
         return -1;
     }
 
+    /**
+     * Add the given files, or the files of the given directories, to the index even if they are ignored,
+     * as <code>git add -f files</code>. A file which does not exist anymore is removed from the index.
+     * The index is written once for all the files: a single git process is used if it fails.
+     */
     public void gitAdd(List<String> files, Git git) {
-        for (String file : files) {
-            // add force is not supported by JGit...
-            ProcessBuilder processBuilder = new ProcessBuilder("git", "add", "-f", file)
-                    .directory(git.getRepository().getDirectory().getParentFile()).inheritIO();
+        if (files.isEmpty()) {
+            return;
+        }
+        List<String> paths = this.removeDuplicatePaths(files);
+        ResourceMonitor monitor = this.startMonitor("git add " + paths.size() + " files");
+        try {
+            // add force is not supported by the AddCommand of JGit: the index is directly edited
+            List<String> pathsNotWalked = this.addToIndex(git.getRepository(), paths);
+            if (!pathsNotWalked.isEmpty()) {
+                // some versions of JGit do not walk the ignored directories
+                List<String> gitAdd = new ArrayList<>(Arrays.asList("git", "add", "-f", "--"));
+                gitAdd.addAll(pathsNotWalked);
+                this.executeGitCommand(gitAdd.toArray(new String[0]), git.getRepository().getWorkTree());
+            }
+        } catch (IOException e) {
+            this.getLogger().warn("Error while adding files to the index, a git process is used instead: " + e);
+            List<String> gitAdd = new ArrayList<>(Arrays.asList("git", "add", "-f", "--"));
+            gitAdd.addAll(paths);
+            this.executeGitCommand(gitAdd.toArray(new String[0]), git.getRepository().getWorkTree());
+        } finally {
+            this.stopMonitor(monitor);
+        }
+    }
 
-            try {
-                Process p = processBuilder.start();
-                p.waitFor();
-            } catch (InterruptedException|IOException e) {
-                this.getLogger().error("Error while executing git command to add files: " + e);
+    /**
+     * Add the given paths to the index, as <code>git add -f -- paths</code>: the ignored files are added, and the files
+     * which do not exist anymore are removed from the index. As with git, the content of the files is given by a walk
+     * of the working tree for a check-in, which applies the attributes of the repository (end of lines, clean filters),
+     * and the .git directories are never added.
+     *
+     * @return the given paths which exist but have not been found by the walk of the working tree, and which are then not added.
+     */
+    private List<String> addToIndex(Repository repository, List<String> paths) throws IOException {
+        Path workTree = repository.getWorkTree().toPath();
+        Set<String> entryPaths = new HashSet<>();
+        for (String path : paths) {
+            String entryPath = toEntryPath(workTree, workTree.resolve(path).normalize());
+            if (entryPath.startsWith("..")) {
+                this.getLogger().warn("The file " + path + " is not in the repository: it is not added.");
+            } else if (!entryPath.equals(Constants.DOT_GIT) && !entryPath.endsWith("/" + Constants.DOT_GIT) && !entryPath.contains("/" + Constants.DOT_GIT + "/")
+                    && !entryPath.startsWith(Constants.DOT_GIT + "/")) {
+                entryPaths.add(entryPath);
             }
         }
+        if (entryPaths.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<String> walkedPaths = new HashSet<>();
+        DirCache dirCache = repository.lockDirCache();
+        try (ObjectInserter inserter = repository.newObjectInserter();
+             NameConflictTreeWalk treeWalk = new NameConflictTreeWalk(repository)) {
+            treeWalk.setOperationType(TreeWalk.OperationType.CHECKIN_OP);
+            DirCacheBuilder builder = dirCache.builder();
+            treeWalk.addTree(new DirCacheBuildIterator(builder));
+            FileTreeIterator workingTreeIterator = new FileTreeIterator(repository);
+            workingTreeIterator.setDirCacheIterator(treeWalk, 0);
+            treeWalk.addTree(workingTreeIterator);
+            if (!entryPaths.contains("")) {
+                treeWalk.setFilter(PathFilterGroup.createFromStrings(entryPaths));
+            }
+            treeWalk.setRecursive(true);
+
+            // the entries which are not walked are kept by the builder
+            while (treeWalk.next()) {
+                String walkedPath = treeWalk.getPathString();
+                for (String entryPath : entryPaths) {
+                    if (entryPath.isEmpty() || walkedPath.equals(entryPath) || walkedPath.startsWith(entryPath + "/")) {
+                        walkedPaths.add(entryPath);
+                    }
+                }
+
+                DirCacheIterator indexIterator = treeWalk.getTree(0, DirCacheIterator.class);
+                WorkingTreeIterator fileIterator = treeWalk.getTree(1, WorkingTreeIterator.class);
+                if (fileIterator == null) {
+                    // the file does not exist anymore: it is removed from the index
+                    continue;
+                }
+                if (indexIterator != null && !fileIterator.isModified(indexIterator.getDirCacheEntry(), true, treeWalk.getObjectReader())) {
+                    builder.add(indexIterator.getDirCacheEntry());
+                    continue;
+                }
+
+                DirCacheEntry entry = new DirCacheEntry(treeWalk.getRawPath());
+                FileMode fileMode = fileIterator.getIndexFileMode(indexIterator);
+                entry.setFileMode(fileMode);
+                if (fileMode == FileMode.GITLINK) {
+                    entry.setObjectId(fileIterator.getEntryObjectId());
+                } else {
+                    entry.setLength(fileIterator.getEntryLength());
+                    entry.setLastModified(fileIterator.getEntryLastModified());
+                    // the logs might be big: they are streamed to the object database
+                    long contentLength = fileIterator.getEntryContentLength();
+                    try (InputStream content = fileIterator.openEntryStream()) {
+                        entry.setObjectId(inserter.insert(Constants.OBJ_BLOB, contentLength, content));
+                    }
+                }
+                builder.add(entry);
+            }
+            inserter.flush();
+            builder.commit();
+        } finally {
+            dirCache.unlock();
+        }
+
+        List<String> pathsNotWalked = new ArrayList<>();
+        for (String entryPath : entryPaths) {
+            if (!walkedPaths.contains(entryPath) && Files.exists(workTree.resolve(entryPath))) {
+                pathsNotWalked.add(entryPath);
+            }
+        }
+        return pathsNotWalked;
     }
 
+    private static String toEntryPath(Path workTree, Path file) {
+        return workTree.relativize(file).toString().replace(File.separatorChar, '/');
+    }
+
+    /**
+     * Restore the given files from the index, as <code>git checkout -- files</code>, in a single operation.
+     * The files which are not in the index, like the untracked files, are left as they are.
+     */
+    public void gitCheckoutPaths(List<String> files, Git git) {
+        ResourceMonitor monitor = this.startMonitor("git checkout " + files.size() + " files");
+        List<String> indexedFiles = new ArrayList<>();
+        try {
+            DirCache dirCache = git.getRepository().readDirCache();
+            for (String file : this.removeDuplicatePaths(files)) {
+                if (dirCache.findEntry(file) >= 0) {
+                    indexedFiles.add(file);
+                }
+            }
+            if (!indexedFiles.isEmpty()) {
+                git.checkout().addPaths(indexedFiles).call();
+            }
+        } catch (IOException | GitAPIException e) {
+            this.getLogger().warn("Error while checking out files, a git process is used instead: " + e);
+            if (!indexedFiles.isEmpty()) {
+                List<String> gitCheckout = new ArrayList<>(Arrays.asList("git", "checkout", "--"));
+                gitCheckout.addAll(indexedFiles);
+                this.executeGitCommand(gitCheckout.toArray(new String[0]), git.getRepository().getWorkTree());
+            }
+        } finally {
+            this.stopMonitor(monitor);
+        }
+    }
+
+    /**
+     * Apply the given patch on the working tree, as <code>git apply patch</code>.
+     * If JGit cannot apply it, the changes are reverted and a git process is used.
+     *
+     * @return true if the patch has been applied.
+     */
+    public boolean gitApply(File patch, Git git) {
+        ResourceMonitor monitor = this.startMonitor("git apply " + patch.getName());
+        Set<String> untrackedFiles = null;
+        try (InputStream patchContent = new FileInputStream(patch)) {
+            untrackedFiles = git.status().call().getUntracked();
+            git.apply().setPatch(patchContent).call();
+            return true;
+        } catch (IOException | GitAPIException e) {
+            this.getLogger().warn("Error while applying the patch " + patch.getName() + ", a git process is used instead: " + e);
+            if (untrackedFiles != null && !this.revertWorkingTree(git, untrackedFiles)) {
+                return false;
+            }
+            return this.executeGitCommand(new String[] {"git", "apply", patch.getAbsolutePath()}, git.getRepository().getWorkTree());
+        } finally {
+            this.stopMonitor(monitor);
+        }
+    }
+
+    /**
+     * Restore the tracked files from the index and delete the untracked files which are not in the given set.
+     */
+    private boolean revertWorkingTree(Git git, Set<String> previousUntrackedFiles) {
+        try {
+            git.checkout().setAllPaths(true).call();
+            for (String untrackedFile : git.status().call().getUntracked()) {
+                if (!previousUntrackedFiles.contains(untrackedFile)) {
+                    Files.deleteIfExists(new File(git.getRepository().getWorkTree(), untrackedFile).toPath());
+                }
+            }
+            return true;
+        } catch (IOException | GitAPIException e) {
+            this.getLogger().error("Error while reverting the working tree: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Reset the given paths to the given commit, in the index and in the working tree, and remove their untracked files.
+     * The working tree of the other paths is restored from the index.
+     */
     public void gitResetPaths(String commit, List<String> paths, File gitDirectory) {
         paths = this.removeDuplicatePaths(paths);
+        ResourceMonitor monitor = this.startMonitor("git reset " + paths.size() + " paths");
+        try {
+            Git git = this.openGit(gitDirectory);
+            ResetCommand resetCommand = git.reset().setRef(commit);
+            StatusCommand statusCommand = git.status();
+            for (String path : paths) {
+                String entryPath = StringUtils.removeEnd(path, "/");
+                resetCommand.addPath(entryPath);
+                statusCommand.addPath(entryPath);
+            }
+            resetCommand.call();
+
+            Status status = statusCommand.call();
+            for (String untrackedFile : status.getUntracked()) {
+                Files.deleteIfExists(new File(gitDirectory, untrackedFile).toPath());
+            }
+            for (String untrackedFolder : status.getUntrackedFolders()) {
+                File folder = new File(gitDirectory, untrackedFolder);
+                if (folder.exists()) {
+                    FileHelper.deleteFile(folder);
+                }
+            }
 
+            git.checkout().setAllPaths(true).call();
+        } catch (IOException | GitAPIException e) {
+            this.getLogger().warn("Error while resetting paths, git processes are used instead: " + e);
+            this.gitResetPathsWithProcesses(commit, paths, gitDirectory);
+        } finally {
+            this.stopMonitor(monitor);
+        }
+    }
+
+    private void gitResetPathsWithProcesses(String commit, List<String> paths, File gitDirectory) {
         List<String> gitReset = new ArrayList<>();
         gitReset.add("git");
         gitReset.add("reset");
@@ -412,15 +963,18 @@ public class GitHelper {
         this.executeGitCommand(gitCheckout, gitDirectory);
     }
 
-    public void executeGitCommand(String[] gitCommand, File gitDirectory) {
+    /**
+     * @return true if the git command succeeded.
+     */
+    public boolean executeGitCommand(String[] gitCommand, File gitDirectory) {
         this.getLogger().debug("Executing git command: " + StringUtils.join(gitCommand, " "));
 
         ProcessBuilder processBuilder = new ProcessBuilder(gitCommand).directory(gitDirectory).inheritIO();
         try {
-            Process process = processBuilder.start();
-            process.waitFor();
+            return ProcessWatchdog.runProcess(processBuilder, "git " + gitCommand[1]).exitValue() == 0;
         } catch (InterruptedException|IOException e) {
             this.getLogger().error("Error while executing git command: " + e);
+            return false;
         }
     }
 
@@ -3,6 +3,7 @@ package fr.inria.spirals.repairnator.process.inspectors;
 import com.google.gson.JsonElement;
 import fr.inria.spirals.repairnator.process.inspectors.properties.Properties;
 import fr.inria.spirals.repairnator.process.inspectors.properties.tests.FailureDetail;
+import fr.inria.spirals.repairnator.process.instrumentation.ResourceMetrics;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
 import fr.inria.spirals.repairnator.states.PushState;
@@ -14,9 +15,12 @@ import java.net.URL;
 import java.util.*;
 
 /**
- * This class contains all information about the status of the pipeline
+ * This class contains all information about the status of the pipeline.
+ * Methods adding information are synchronized as independent steps might be executed concurrently.
  */
 public class JobStatus {
+    public static final int MAX_ERRORS_PER_STEP = 100;
+
     private final Logger logger = LoggerFactory.getLogger(JobStatus.class);
 
     private List<PushState> pushStates;
@@ -53,9 +57,21 @@ public class JobStatus {
     private boolean hasBeenForked;
     private String forkURL;
 
+    // set when the tests have been run and the classpath exported by the last build of the project (single pass build)
+    private boolean testsRunDuringBuild;
+    private boolean classpathExportedDuringBuild;
+    private String lastBuiltCommit;
+    private List<String> incrementalBuildModules;
+    private boolean partialTestReports;
+
     private List<StepStatus> stepStatuses;
     private Map<String, Integer> stepsDurationsInSeconds;
     private Map<String, Long> freeMemoryByStep;
+    private List<ResourceMetrics> resourceMetrics;
+    private int stepCacheHits;
+    private int stepCacheMisses;
+    private int sharedMavenRepositoryHits;
+    private int sharedMavenRepositoryMisses;
 
     private List<String> PRCreated;
 
@@ -69,6 +85,7 @@ public class JobStatus {
         this.stepStatuses = new ArrayList<>();
         this.stepsDurationsInSeconds = new HashMap<>();
         this.freeMemoryByStep = new HashMap<>();
+        this.resourceMetrics = new ArrayList<>();
         this.pushStates = new ArrayList<>();
         this.listOfPatches = new HashMap<>();
         this.toolDiagnostic = new HashMap<>();
@@ -100,6 +117,59 @@ public class JobStatus {
         isReproducedAsFail = reproducedAsFail;
     }
 
+    public boolean isTestsRunDuringBuild() {
+        return testsRunDuringBuild;
+    }
+
+    public void setTestsRunDuringBuild(boolean testsRunDuringBuild) {
+        this.testsRunDuringBuild = testsRunDuringBuild;
+    }
+
+    public boolean isClasspathExportedDuringBuild() {
+        return classpathExportedDuringBuild;
+    }
+
+    public void setClasspathExportedDuringBuild(boolean classpathExportedDuringBuild) {
+        this.classpathExportedDuringBuild = classpathExportedDuringBuild;
+    }
+
+    /**
+     * @return the commit which has been successfully built the last time, or null if the project has not been built
+     * or if its last build failed.
+     */
+    public String getLastBuiltCommit() {
+        return lastBuiltCommit;
+    }
+
+    public void setLastBuiltCommit(String lastBuiltCommit) {
+        this.lastBuiltCommit = lastBuiltCommit;
+    }
+
+    /**
+     * @return the modules changed since the previous build when the project has been built incrementally, or null
+     * if the whole project has been built.
+     */
+    public List<String> getIncrementalBuildModules() {
+        return incrementalBuildModules;
+    }
+
+    public void setIncrementalBuildModules(List<String> incrementalBuildModules) {
+        this.incrementalBuildModules = incrementalBuildModules;
+    }
+
+    /**
+     * @return true if the last test run did not run the whole test suite, because it has been stopped after the failure
+     * of some test classes or because only the targeted tests have been run: its test reports cannot be reused for the
+     * modules which are not tested again.
+     */
+    public boolean isPartialTestReports() {
+        return partialTestReports;
+    }
+
+    public void setPartialTestReports(boolean partialTestReports) {
+        this.partialTestReports = partialTestReports;
+    }
+
     public String getPomDirPath() {
         return pomDirPath;
     }
@@ -108,13 +178,18 @@ public class JobStatus {
         this.pomDirPath = pomDirPath;
     }
 
-    public void addStepError(String step, String error) {
+    /**
+     * Add an error to the given step: at most {@link #MAX_ERRORS_PER_STEP} distinct errors are kept for each step.
+     */
+    public synchronized void addStepError(String step, String error) {
         if (!stepErrors.containsKey(step)) {
             stepErrors.put(step, new ArrayList<String>());
         }
 
         List<String> errors = stepErrors.get(step);
-        errors.add(error);
+        if (errors.size() < MAX_ERRORS_PER_STEP && !errors.contains(error)) {
+            errors.add(error);
+        }
     }
 
 
@@ -171,7 +246,7 @@ public class JobStatus {
         return pushStates.get(pushStates.size() - 1);
     }
 
-    public void addPushState(PushState pushState) {
+    public synchronized void addPushState(PushState pushState) {
         this.pushStates.add(pushState);
     }
 
@@ -203,7 +278,7 @@ public class JobStatus {
         this.fatalError = fatalError;
     }
 
-    public void addFileToPush(String filePath) {
+    public synchronized void addFileToPush(String filePath) {
         if (!this.createdFilesToPush.contains(filePath)) {
             this.createdFilesToPush.add(filePath);
         }
@@ -238,11 +313,11 @@ public class JobStatus {
         this.forkURL = forkURL;
     }
 
-    public void addStepStatus(StepStatus stepStatus) {
+    public synchronized void addStepStatus(StepStatus stepStatus) {
         this.stepStatuses.add(stepStatus);
     }
 
-    public void addToolDiagnostic(String toolName, JsonElement diagnostic) {
+    public synchronized void addToolDiagnostic(String toolName, JsonElement diagnostic) {
         this.toolDiagnostic.put(toolName, diagnostic);
     }
 
@@ -250,7 +325,7 @@ public class JobStatus {
         return stepStatuses;
     }
 
-    public void addPatches(String toolName, List<RepairPatch> patches) {
+    public synchronized void addPatches(String toolName, List<RepairPatch> patches) {
         this.listOfPatches.put(toolName, patches);
     }
 
@@ -274,7 +349,7 @@ public class JobStatus {
         return PRCreated;
     }
 
-    public void addPRCreated(String prURL) {
+    public synchronized void addPRCreated(String prURL) {
         this.PRCreated.add(prURL);
     }
 
@@ -282,7 +357,7 @@ public class JobStatus {
         return stepsDurationsInSeconds;
     }
 
-    public void addStepDuration(String step, int duration) {
+    public synchronized void addStepDuration(String step, int duration) {
         this.stepsDurationsInSeconds.put(step, duration);
     }
 
@@ -290,10 +365,50 @@ public class JobStatus {
         return freeMemoryByStep;
     }
 
-    public void addFreeMemoryByStep(String step, long value) {
+    public synchronized void addFreeMemoryByStep(String step, long value) {
         this.freeMemoryByStep.put(step, value);
     }
 
+    public List<ResourceMetrics> getResourceMetrics() {
+        return resourceMetrics;
+    }
+
+    public synchronized void addResourceMetrics(ResourceMetrics metrics) {
+        this.resourceMetrics.add(metrics);
+    }
+
+    public synchronized int getStepCacheHits() {
+        return stepCacheHits;
+    }
+
+    public synchronized void addStepCacheHit() {
+        this.stepCacheHits++;
+    }
+
+    public synchronized int getStepCacheMisses() {
+        return stepCacheMisses;
+    }
+
+    public synchronized void addStepCacheMiss() {
+        this.stepCacheMisses++;
+    }
+
+    public synchronized int getSharedMavenRepositoryHits() {
+        return sharedMavenRepositoryHits;
+    }
+
+    public synchronized void addSharedMavenRepositoryHits(int hits) {
+        this.sharedMavenRepositoryHits += hits;
+    }
+
+    public synchronized int getSharedMavenRepositoryMisses() {
+        return sharedMavenRepositoryMisses;
+    }
+
+    public synchronized void addSharedMavenRepositoryMisses(int misses) {
+        this.sharedMavenRepositoryMisses += misses;
+    }
+
     public List<String> getFailureNames() {
         List<String> failureNames = new ArrayList<>();
         for (FailureDetail failureDetail : this.properties.getTests().getFailureDetails()) {
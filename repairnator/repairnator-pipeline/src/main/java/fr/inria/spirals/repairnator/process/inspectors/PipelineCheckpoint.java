@@ -0,0 +1,293 @@
+package fr.inria.spirals.repairnator.process.inspectors;
+
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.InstanceCreator;
+import com.google.gson.JsonParseException;
+import fr.inria.spirals.repairnator.GsonFileTypeAdapter;
+import fr.inria.spirals.repairnator.process.step.AbstractStep;
+import fr.inria.spirals.repairnator.process.step.StepStatus;
+import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutType;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.IndexDiff;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.treewalk.FileTreeIterator;
+import org.eclipse.jgit.treewalk.filter.NotTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * This class is a snapshot of the state of a pipeline, taken each time a step of the main chain of steps is finished.
+ * It contains the job status with its properties, the status of the executed steps, the HEAD and the uncommitted changes
+ * of the local repository and the HEAD of the repository to push.
+ *
+ * The snapshot is saved next to the local repository: if the pipeline is killed before its end,
+ * it can be resumed from the next step (see {@link fr.inria.spirals.repairnator.config.RepairnatorConfig#isResume()})
+ * instead of starting again from the clone, as long as the local repository is still there.
+ */
+public class PipelineCheckpoint {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PipelineCheckpoint.class);
+    private static final String CHECKPOINT_FILE_SUFFIX = "_checkpoint.json";
+    private static final List<String> JOB_STATUS_EXCLUDED_FIELDS = Arrays.asList("logger", "fatalError", "stepStatuses");
+
+    private static class StepRecord {
+        private int index;
+        private String name;
+        private StepStatus.StatusKind status;
+        private String diagnostic;
+        private Date dateBegin;
+        private Date dateEnd;
+    }
+
+    private long buggyBuildId;
+    private int nextStepPosition;
+    private String nextStepName;
+    private String headCommit;
+    private List<String> workingTreeChanges;
+    private String repoToPushHeadCommit;
+    private CheckoutType checkoutType;
+    private boolean bug;
+    private String bugType;
+    private List<StepRecord> steps;
+    private JobStatus jobStatus;
+
+    private PipelineCheckpoint() {
+        this.steps = new ArrayList<>();
+    }
+
+    private static Gson getGson() {
+        return new GsonBuilder()
+                .setDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ")
+                .registerTypeAdapter(File.class, new GsonFileTypeAdapter())
+                .registerTypeAdapter(JobStatus.class, (InstanceCreator<JobStatus>) type -> new JobStatus(null))
+                .setExclusionStrategies(new ExclusionStrategy() {
+                    @Override
+                    public boolean shouldSkipField(FieldAttributes fieldAttributes) {
+                        return fieldAttributes.getDeclaringClass() == JobStatus.class
+                                && JOB_STATUS_EXCLUDED_FIELDS.contains(fieldAttributes.getName());
+                    }
+
+                    @Override
+                    public boolean shouldSkipClass(Class<?> aClass) {
+                        return false;
+                    }
+                })
+                .create();
+    }
+
+    static File getCheckpointFile(ProjectInspector inspector) {
+        return new File(inspector.getRepoLocalPath() + CHECKPOINT_FILE_SUFFIX);
+    }
+
+    private static String getHeadCommit(String repoLocalPath) {
+        File repoDir = new File(repoLocalPath);
+        if (!new File(repoDir, ".git").exists()) {
+            return null;
+        }
+        try (Git git = Git.open(repoDir)) {
+            ObjectId head = git.getRepository().resolve(Constants.HEAD);
+            return (head != null) ? head.getName() : null;
+        } catch (IOException e) {
+            LOGGER.warn("Error while reading the HEAD of " + repoLocalPath + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Compute the changes of the tracked files of the given repository against its HEAD, with the content of the
+     * changed files, e.g. the source code checked out from another commit or the patches applied by the steps.
+     * The untracked files are ignored, as a killed step may leave some of them, like its build outputs or its logs,
+     * as well as the local maven repository.
+     *
+     * @return the sorted list of the changed paths with the id of their content, or null if it cannot be computed.
+     */
+    private static List<String> getWorkingTreeChanges(String repoLocalPath) {
+        File repoDir = new File(repoLocalPath);
+        if (!new File(repoDir, ".git").exists()) {
+            return null;
+        }
+        try (Git git = Git.open(repoDir)) {
+            Repository repository = git.getRepository();
+            IndexDiff indexDiff = new IndexDiff(repository, Constants.HEAD, new FileTreeIterator(repository));
+            indexDiff.setFilter(NotTreeFilter.create(PathFilter.create(".m2")));
+            indexDiff.diff();
+
+            Set<String> changedPaths = new TreeSet<>();
+            changedPaths.addAll(indexDiff.getAdded());
+            changedPaths.addAll(indexDiff.getChanged());
+            changedPaths.addAll(indexDiff.getRemoved());
+            changedPaths.addAll(indexDiff.getMissing());
+            changedPaths.addAll(indexDiff.getModified());
+
+            List<String> changes = new ArrayList<>();
+            ObjectInserter.Formatter formatter = new ObjectInserter.Formatter();
+            for (String path : changedPaths) {
+                File file = new File(repoDir, path);
+                String content = file.isFile() ? formatter.idFor(Constants.OBJ_BLOB, Files.readAllBytes(file.toPath())).getName() : "deleted";
+                changes.add(path + " " + content);
+            }
+            return changes;
+        } catch (IOException e) {
+            LOGGER.warn("Error while reading the changes of " + repoLocalPath + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Save the state of the pipeline of the given inspector.
+     *
+     * @param nextStepPosition the position in the main chain of steps of the next step to execute.
+     * @param nextStep the next step to execute.
+     */
+    static void save(ProjectInspector inspector, int nextStepPosition, AbstractStep nextStep) {
+        PipelineCheckpoint checkpoint = new PipelineCheckpoint();
+        checkpoint.buggyBuildId = inspector.getBuggyBuild().getId();
+        checkpoint.nextStepPosition = nextStepPosition;
+        checkpoint.nextStepName = nextStep.getName();
+        checkpoint.headCommit = getHeadCommit(inspector.getRepoLocalPath());
+        checkpoint.workingTreeChanges = getWorkingTreeChanges(inspector.getRepoLocalPath());
+        if (inspector.getRepoToPushLocalPath() != null) {
+            checkpoint.repoToPushHeadCommit = getHeadCommit(inspector.getRepoToPushLocalPath());
+        }
+        checkpoint.checkoutType = inspector.getCheckoutType();
+        if (inspector instanceof ProjectInspector4Bears) {
+            checkpoint.bug = ((ProjectInspector4Bears) inspector).isBug();
+            checkpoint.bugType = ((ProjectInspector4Bears) inspector).getBugType();
+        }
+
+        List<AbstractStep> registeredSteps = inspector.getSteps();
+        JobStatus jobStatus = inspector.getJobStatus();
+        for (StepStatus stepStatus : new ArrayList<>(jobStatus.getStepStatuses())) {
+            AbstractStep step = stepStatus.getStep();
+            StepRecord record = new StepRecord();
+            record.index = registeredSteps.indexOf(step);
+            record.name = step.getName();
+            record.status = stepStatus.getStatus();
+            record.diagnostic = stepStatus.getDiagnostic();
+            record.dateBegin = step.getDateBegin();
+            record.dateEnd = step.getDateEnd();
+            checkpoint.steps.add(record);
+        }
+        checkpoint.jobStatus = jobStatus;
+
+        File checkpointFile = getCheckpointFile(inspector);
+        File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+        try {
+            // the checkpoint is written then moved to never leave a truncated file if the pipeline is killed meanwhile
+            try (Writer writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+                getGson().toJson(checkpoint, writer);
+            }
+            Files.move(tmpFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            LOGGER.debug("Checkpoint saved before step " + nextStep.getName() + " in " + checkpointFile.getPath());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.warn("Error while saving the checkpoint of the pipeline in " + checkpointFile.getPath() + ": " + e);
+        }
+    }
+
+    /**
+     * Load the last checkpoint saved for the given inspector.
+     *
+     * @return the checkpoint or null if there is none or if it cannot be read.
+     */
+    static PipelineCheckpoint load(ProjectInspector inspector) {
+        File checkpointFile = getCheckpointFile(inspector);
+        if (!checkpointFile.exists()) {
+            LOGGER.info("No checkpoint found in " + checkpointFile.getPath() + ": the pipeline will be executed from its first step.");
+            return null;
+        }
+        try (Reader reader = Files.newBufferedReader(checkpointFile.toPath(), StandardCharsets.UTF_8)) {
+            return getGson().fromJson(reader, PipelineCheckpoint.class);
+        } catch (IOException | JsonParseException e) {
+            LOGGER.warn("Error while reading the checkpoint " + checkpointFile.getPath() + ": " + e);
+            return null;
+        }
+    }
+
+    static void delete(ProjectInspector inspector) {
+        try {
+            Files.deleteIfExists(getCheckpointFile(inspector).toPath());
+        } catch (IOException e) {
+            LOGGER.warn("Error while deleting the checkpoint of the pipeline: " + e);
+        }
+    }
+
+    /**
+     * Restore the state saved in this checkpoint in the given inspector, which steps must have been created
+     * the same way as in the execution that saved the checkpoint.
+     * Nothing is restored if the checkpoint does not match the pipeline or the local repository.
+     *
+     * @param firstStep the first step of the main chain of steps.
+     * @return the step to execute to resume the pipeline, or null if the checkpoint cannot be used.
+     */
+    AbstractStep restore(ProjectInspector inspector, AbstractStep firstStep) {
+        if (this.jobStatus == null || this.buggyBuildId != inspector.getBuggyBuild().getId()) {
+            LOGGER.warn("The checkpoint does not match the build being inspected.");
+            return null;
+        }
+
+        AbstractStep nextStep = firstStep;
+        for (int i = 0; i < this.nextStepPosition && nextStep != null; i++) {
+            nextStep = nextStep.getNextStep();
+        }
+        if (nextStep == null || !nextStep.getName().equals(this.nextStepName)) {
+            LOGGER.warn("The checkpoint does not match the steps of the pipeline.");
+            return null;
+        }
+
+        List<AbstractStep> registeredSteps = inspector.getSteps();
+        for (StepRecord record : this.steps) {
+            if (record.index < 0 || record.index >= registeredSteps.size() || !registeredSteps.get(record.index).getName().equals(record.name)) {
+                LOGGER.warn("The checkpoint does not match the steps of the pipeline.");
+                return null;
+            }
+        }
+
+        String headCommit = getHeadCommit(inspector.getRepoLocalPath());
+        List<String> workingTreeChanges = getWorkingTreeChanges(inspector.getRepoLocalPath());
+        if (this.headCommit == null || !this.headCommit.equals(headCommit)
+                || this.workingTreeChanges == null || !this.workingTreeChanges.equals(workingTreeChanges)) {
+            LOGGER.warn("The local repository " + inspector.getRepoLocalPath() + " is not in the state saved by the checkpoint.");
+            return null;
+        }
+
+        // the repository to push only exists once it has been initialized by a step
+        String repoToPushHeadCommit = (inspector.getRepoToPushLocalPath() != null) ? getHeadCommit(inspector.getRepoToPushLocalPath()) : null;
+        if (!Objects.equals(this.repoToPushHeadCommit, repoToPushHeadCommit)) {
+            LOGGER.warn("The repository to push " + inspector.getRepoToPushLocalPath() + " is not in the state saved by the checkpoint.");
+            return null;
+        }
+
+        inspector.setJobStatus(this.jobStatus);
+        inspector.setCheckoutType(this.checkoutType);
+        if (inspector instanceof ProjectInspector4Bears) {
+            ((ProjectInspector4Bears) inspector).setBug(this.bug, this.bugType);
+        }
+        for (StepRecord record : this.steps) {
+            registeredSteps.get(record.index).restoreStepStatus(record.status, record.diagnostic, record.dateBegin, record.dateEnd);
+        }
+
+        LOGGER.info("The pipeline is resumed from step " + nextStep.getName() + " (" + this.steps.size() + " step(s) already executed).");
+        return nextStep;
+    }
+}
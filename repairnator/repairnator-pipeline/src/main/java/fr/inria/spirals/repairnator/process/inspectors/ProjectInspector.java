@@ -9,12 +9,15 @@ import fr.inria.spirals.repairnator.notifier.PatchNotifier;
 import fr.inria.spirals.repairnator.pipeline.RepairToolsManager;
 import fr.inria.spirals.repairnator.process.inspectors.properties.Properties;
 import fr.inria.spirals.repairnator.process.inspectors.properties.machineInfo.MachineInfo;
+import fr.inria.spirals.repairnator.process.instrumentation.ResourceMetrics;
+import fr.inria.spirals.repairnator.process.maven.ProjectModelService;
 import fr.inria.spirals.repairnator.process.step.paths.ComputeClasspath;
 import fr.inria.spirals.repairnator.process.step.paths.ComputeModules;
 import fr.inria.spirals.repairnator.process.step.paths.ComputeSourceDir;
 import fr.inria.spirals.repairnator.process.step.paths.ComputeTestDir;
 import fr.inria.spirals.repairnator.process.step.push.*;
 import fr.inria.spirals.repairnator.process.step.repair.AbstractRepairStep;
+import fr.inria.spirals.repairnator.process.step.repair.ParallelRepair;
 import fr.inria.spirals.repairnator.notifier.AbstractNotifier;
 import fr.inria.spirals.repairnator.process.git.GitHelper;
 import fr.inria.spirals.repairnator.process.step.*;
@@ -23,6 +26,7 @@ import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutPatc
 import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutType;
 import fr.inria.spirals.repairnator.process.step.gatherinfo.BuildShouldFail;
 import fr.inria.spirals.repairnator.process.step.gatherinfo.BuildShouldPass;
+import fr.inria.spirals.repairnator.process.step.gatherinfo.ClassifyFlakyTests;
 import fr.inria.spirals.repairnator.process.step.gatherinfo.GatherTestInformation;
 import fr.inria.spirals.repairnator.serializer.AbstractDataSerializer;
 import fr.inria.spirals.repairnator.states.ScannedBuildStatus;
@@ -50,6 +54,7 @@ public class ProjectInspector {
 
     private String workspace;
     private String m2LocalPath;
+    private ProjectModelService projectModelService;
     private List<AbstractDataSerializer> serializers;
     private JobStatus jobStatus;
     private List<AbstractNotifier> notifiers;
@@ -58,6 +63,7 @@ public class ProjectInspector {
     private CheckoutType checkoutType;
 
     private List<AbstractStep> steps;
+    private AbstractStep firstStep;
     private AbstractStep finalStep;
     private boolean pipelineEnding;
 
@@ -69,14 +75,36 @@ public class ProjectInspector {
         this.repoToPushLocalPath = repoLocalPath+"_topush";
         this.m2LocalPath = new File(this.repoLocalPath + File.separator + ".m2").getAbsolutePath();
         this.serializers = serializers;
-        this.gitHelper = new GitHelper();
         this.jobStatus = new JobStatus(repoLocalPath);
+        this.gitHelper = new GitHelper(this.jobStatus);
         this.notifiers = notifiers;
         this.checkoutType = CheckoutType.NO_CHECKOUT;
         this.steps = new ArrayList<>();
         this.initProperties();
     }
 
+    /**
+     * Create an inspector working on a copy of the local repository of another inspector.
+     * The build, the serializers, the notifiers and the repository to push are shared with the original inspector,
+     * but the job status is the given one, and the local maven repository is the one of the copy.
+     * Steps registered in this inspector are not part of the original pipeline.
+     */
+    public ProjectInspector(ProjectInspector original, String repoLocalPath, JobStatus jobStatus) {
+        this.buildToBeInspected = original.buildToBeInspected;
+        this.workspace = original.workspace;
+        this.repoLocalPath = repoLocalPath;
+        this.repoToPushLocalPath = original.repoToPushLocalPath;
+        this.m2LocalPath = new File(this.repoLocalPath + File.separator + ".m2").getAbsolutePath();
+        this.projectModelService = original.getProjectModelService();
+        this.serializers = original.serializers;
+        this.gitHelper = new GitHelper(jobStatus);
+        this.jobStatus = jobStatus;
+        this.notifiers = original.notifiers;
+        this.patchNotifier = original.patchNotifier;
+        this.checkoutType = original.checkoutType;
+        this.steps = new ArrayList<>();
+    }
+
     protected void initProperties() {
         try {
             Properties properties = this.jobStatus.getProperties();
@@ -147,6 +175,12 @@ public class ProjectInspector {
         return jobStatus;
     }
 
+    void setJobStatus(JobStatus jobStatus) {
+        this.jobStatus = jobStatus;
+        // the metrics of the git operations must be recorded in the new job status
+        this.gitHelper.setJobStatus(jobStatus);
+    }
+
     public GitHelper getGitHelper() {
         return this.gitHelper;
     }
@@ -163,6 +197,16 @@ public class ProjectInspector {
         return m2LocalPath;
     }
 
+    /**
+     * @return the service giving the models of the pom.xml files, shared with the inspectors working on a copy of the repository.
+     */
+    public synchronized ProjectModelService getProjectModelService() {
+        if (this.projectModelService == null) {
+            this.projectModelService = new ProjectModelService(this.getM2LocalPath());
+        }
+        return projectModelService;
+    }
+
     public BuildToBeInspected getBuildToBeInspected() {
         return this.buildToBeInspected;
     }
@@ -199,23 +243,38 @@ public class ProjectInspector {
             cloneRepo
                     .addNextStep(new CheckoutBuggyBuild(this, true))
                     .addNextStep(new BuildProject(this))
-                    .addNextStep(new TestProject(this))
+                    .addNextStep(new TestProject(this, true, TestProject.class.getSimpleName(), true))
                     .addNextStep(new GatherTestInformation(this, true, new BuildShouldFail(), false))
-                    .addNextStep(new InitRepoToPush(this))
-                    .addNextStep(new ComputeClasspath(this, false))
-                    .addNextStep(new ComputeSourceDir(this, false, false))
-                    .addNextStep(new ComputeTestDir(this, false));
+                    // those steps only read the checked out buggy build: they can be executed concurrently
+                    .addNextStep(new StepGraph(this,
+                            new InitRepoToPush(this),
+                            new ComputeClasspath(this, false),
+                            new ComputeSourceDir(this, false, false),
+                            new ComputeTestDir(this, false)));
+
+            if (RepairnatorConfig.getInstance().getFlakyTestReruns() > 0) {
+                cloneRepo.addNextStep(new ClassifyFlakyTests(this));
+            }
 
+            List<AbstractRepairStep> repairSteps = new ArrayList<>();
             for (String repairToolName : RepairnatorConfig.getInstance().getRepairTools()) {
                 AbstractRepairStep repairStep = RepairToolsManager.getStepFromName(repairToolName);
                 if (repairStep != null) {
                     repairStep.setProjectInspector(this);
-                    cloneRepo.addNextStep(repairStep);
+                    repairSteps.add(repairStep);
                 } else {
                     logger.error("Error while getting repair step class for following name: " + repairToolName);
                 }
             }
 
+            if (RepairnatorConfig.getInstance().isParallelRepair() && repairSteps.size() > 1) {
+                cloneRepo.addNextStep(new ParallelRepair(this, repairSteps));
+            } else {
+                for (AbstractRepairStep repairStep : repairSteps) {
+                    cloneRepo.addNextStep(repairStep);
+                }
+            }
+
             cloneRepo.addNextStep(new CommitPatch(this, CommitType.COMMIT_REPAIR_INFO))
                     .addNextStep(new CheckoutPatchedBuild(this, true))
                     .addNextStep(new BuildProject(this))
@@ -223,11 +282,12 @@ public class ProjectInspector {
                     .addNextStep(new GatherTestInformation(this, true, new BuildShouldPass(), true))
                     .addNextStep(new CommitPatch(this, CommitType.COMMIT_HUMAN_PATCH));
 
-            this.finalStep = new ComputeSourceDir(this, false, true); // this step is used to compute code metrics on the project
-
+            // the first steps are used to compute code metrics on the project
+            this.finalStep = new StepGraph(this,
+                    new ComputeSourceDir(this, false, true),
+                    new ComputeModules(this, false));
 
             this.finalStep.
-                    addNextStep(new ComputeModules(this, false)).
                     addNextStep(new WritePropertyFile(this)).
                     addNextStep(new CommitProcessEnd(this)).
                     addNextStep(new PushProcessEnd(this));
@@ -238,7 +298,7 @@ public class ProjectInspector {
             this.printPipeline();
 
             try {
-                cloneRepo.execute();
+                this.getStepToExecute(cloneRepo).execute();
             } catch (Exception e) {
                 this.jobStatus.addStepError("Unknown", e.getMessage());
                 this.logger.error("Exception catch while executing steps: ", e);
@@ -252,12 +312,57 @@ public class ProjectInspector {
                 for (AbstractDataSerializer serializer : this.serializers) {
                     serializer.serializeData(this);
                 }
+            } finally {
+                this.gitHelper.close();
             }
         } else {
             this.logger.debug("Build " + this.getBuggyBuild().getId() + " is not a failing build.");
         }
     }
 
+    /**
+     * Set the first step of the main chain of steps and, in resume mode, restore the state
+     * saved by the last checkpoint of a previous execution of the pipeline.
+     *
+     * @return the step from which the pipeline must be executed.
+     */
+    protected AbstractStep getStepToExecute(AbstractStep firstStep) {
+        this.firstStep = firstStep;
+        if (RepairnatorConfig.getInstance().isResume()) {
+            PipelineCheckpoint checkpoint = PipelineCheckpoint.load(this);
+            if (checkpoint != null) {
+                AbstractStep nextStep = checkpoint.restore(this, firstStep);
+                if (nextStep != null) {
+                    return nextStep;
+                }
+                this.logger.warn("The checkpoint cannot be used: the pipeline will be executed from its first step.");
+            }
+        }
+        return firstStep;
+    }
+
+    /**
+     * Save a checkpoint of the pipeline before executing the given step.
+     * Only the steps of the main chain of steps are checkpointed, and only in resume mode.
+     */
+    public void saveCheckpoint(AbstractStep nextStep) {
+        if (!RepairnatorConfig.getInstance().isResume() || this.firstStep == null || this.pipelineEnding) {
+            return;
+        }
+        int position = 0;
+        for (AbstractStep step = this.firstStep; step != null; step = step.getNextStep()) {
+            if (step == nextStep) {
+                PipelineCheckpoint.save(this, position, nextStep);
+                return;
+            }
+            position++;
+        }
+    }
+
+    public void deleteCheckpoint() {
+        PipelineCheckpoint.delete(this);
+    }
+
     public CheckoutType getCheckoutType() {
         return checkoutType;
     }
@@ -350,6 +455,7 @@ public class ProjectInspector {
             }
             this.logger.info(stepNameFormatted + stepStatus + stepDurationFormatted);
         }
+        this.printResourceMetrics();
         String finding = AbstractDataSerializer.getPrettyPrintState(this).toUpperCase();
         finding = (finding.equals("UNKNOWN")) ? "-" : finding;
         this.logger.info("----------------------------------------------------------------------");
@@ -357,4 +463,38 @@ public class ProjectInspector {
         this.logger.info("----------------------------------------------------------------------");
     }
 
+    private void printResourceMetrics() {
+        List<ResourceMetrics> resourceMetrics = new ArrayList<>(this.jobStatus.getResourceMetrics());
+        int stepCacheLookups = this.jobStatus.getStepCacheHits() + this.jobStatus.getStepCacheMisses();
+        int sharedMavenRepositoryLookups = this.jobStatus.getSharedMavenRepositoryHits() + this.jobStatus.getSharedMavenRepositoryMisses();
+        if (resourceMetrics.isEmpty() && stepCacheLookups == 0 && sharedMavenRepositoryLookups == 0) {
+            return;
+        }
+        this.logger.info("----------------------------------------------------------------------");
+        this.logger.info("PIPELINE RESOURCES (wall time, CPU time, allocated memory, GC pauses, child processes peak RSS, disk read/written, watched processes CPU time)");
+        this.logger.info("----------------------------------------------------------------------");
+        for (ResourceMetrics metrics : resourceMetrics) {
+            this.logger.info(String.format("%-5s %s: %s / %s / %s / %s / %s / %s / %s / %s",
+                    metrics.getKind().name(), metrics.getName(),
+                    formatMetric(metrics.getWallTime(), 1, "ms"),
+                    formatMetric(metrics.getCpuTime(), 1, "ms"),
+                    formatMetric(metrics.getAllocatedBytes(), 1024 * 1024, "MB"),
+                    formatMetric(metrics.getGcPauseTime(), 1, "ms"),
+                    formatMetric(metrics.getChildPeakRss(), 1024 * 1024, "MB"),
+                    formatMetric(metrics.getReadBytes(), 1024 * 1024, "MB"),
+                    formatMetric(metrics.getWrittenBytes(), 1024 * 1024, "MB"),
+                    formatMetric(metrics.getWatchedCpuTime(), 1, "ms")));
+        }
+        if (stepCacheLookups > 0) {
+            this.logger.info("STEP CACHE: " + this.jobStatus.getStepCacheHits() + " hits / " + this.jobStatus.getStepCacheMisses() + " misses");
+        }
+        if (sharedMavenRepositoryLookups > 0) {
+            this.logger.info("SHARED MAVEN REPOSITORY: " + this.jobStatus.getSharedMavenRepositoryHits() + " hits / " + this.jobStatus.getSharedMavenRepositoryMisses() + " misses");
+        }
+    }
+
+    private static String formatMetric(long value, long unit, String unitName) {
+        return (value < 0) ? "-" : (value / unit) + " " + unitName;
+    }
+
 }
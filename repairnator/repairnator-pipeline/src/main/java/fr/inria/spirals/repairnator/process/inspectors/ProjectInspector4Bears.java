@@ -50,14 +50,16 @@ public class ProjectInspector4Bears extends ProjectInspector {
 
         if (this.getBuildToBeInspected().getStatus() == ScannedBuildStatus.FAILING_AND_PASSING) {
             cloneRepo.addNextStep(new CheckoutBuggyBuild(this, true, CheckoutBuggyBuild.class.getSimpleName()+"Candidate"))
-                    .addNextStep(new ComputeSourceDir(this, false, true))
-                    .addNextStep(new ComputeTestDir(this, false))
+                    .addNextStep(new StepGraph(this,
+                            new ComputeSourceDir(this, false, true),
+                            new ComputeTestDir(this, false)))
                     .addNextStep(new BuildProject(this, true, BuildProject.class.getSimpleName()+"BuggyBuildCandidate"))
                     .addNextStep(new TestProject(this, true, TestProject.class.getSimpleName()+"BuggyBuildCandidate"))
                     .addNextStep(new GatherTestInformation(this, true, new BuildShouldFail(), false, GatherTestInformation.class.getSimpleName()+"BuggyBuildCandidate"))
-                    .addNextStep(new InitRepoToPush(this))
-                    .addNextStep(new ComputeClasspath(this, false))
-                    .addNextStep(new ComputeModules(this, false))
+                    .addNextStep(new StepGraph(this,
+                            new InitRepoToPush(this),
+                            new ComputeClasspath(this, false),
+                            new ComputeModules(this, false)))
                     .addNextStep(new CheckoutPatchedBuild(this, true, CheckoutPatchedBuild.class.getSimpleName()+"Candidate"))
                     .addNextStep(new BuildProject(this, true, BuildProject.class.getSimpleName()+"PatchedBuildCandidate"))
                     .addNextStep(new TestProject(this, true, TestProject.class.getSimpleName()+"PatchedBuildCandidate"))
@@ -66,16 +68,18 @@ public class ProjectInspector4Bears extends ProjectInspector {
         } else {
             if (this.getBuildToBeInspected().getStatus() == ScannedBuildStatus.PASSING_AND_PASSING_WITH_TEST_CHANGES) {
                 cloneRepo.addNextStep(new CheckoutPatchedBuild(this, true, CheckoutPatchedBuild.class.getSimpleName()+"Candidate"))
-                        .addNextStep(new ComputeSourceDir(this, true, true))
-                        .addNextStep(new ComputeTestDir(this, true))
+                        .addNextStep(new StepGraph(this,
+                                new ComputeSourceDir(this, true, true),
+                                new ComputeTestDir(this, true)))
                         .addNextStep(new CheckoutBuggyBuildSourceCode(this, true, "CheckoutBuggyBuildCandidateSourceCode"))
                         .addNextStep(new BuildProject(this, true, BuildProject.class.getSimpleName()+"BuggyBuildCandidateSourceCode"))
                         .addNextStep(new TestProject(this, true, TestProject.class.getSimpleName()+"BuggyBuildCandidateSourceCode"))
                         .addNextStep(new GatherTestInformation(this, true, new BuildShouldFail(), false, GatherTestInformation.class.getSimpleName()+"BuggyBuildCandidateSourceCode"))
                         .addNextStep(new CheckoutBuggyBuildTestCode(this, true))
-                        .addNextStep(new InitRepoToPush(this))
-                        .addNextStep(new ComputeClasspath(this, false))
-                        .addNextStep(new ComputeModules(this, false))
+                        .addNextStep(new StepGraph(this,
+                                new InitRepoToPush(this),
+                                new ComputeClasspath(this, false),
+                                new ComputeModules(this, false)))
                         .addNextStep(new CheckoutBuggyBuildSourceCode(this, true, "CheckoutBuggyBuildCandidateSourceCode"))
                         .addNextStep(new CommitChangedTests(this))
                         .addNextStep(new CheckoutPatchedBuild(this, true, CheckoutPatchedBuild.class.getSimpleName()+"Candidate"))
@@ -101,10 +105,12 @@ public class ProjectInspector4Bears extends ProjectInspector {
         super.printPipeline();
 
         try {
-            cloneRepo.execute();
+            this.getStepToExecute(cloneRepo).execute();
         } catch (Exception e) {
             this.getJobStatus().addStepError("Unknown", e.getMessage());
             this.logger.debug("Exception catch while executing steps: ", e);
+        } finally {
+            this.getGitHelper().close();
         }
     }
 
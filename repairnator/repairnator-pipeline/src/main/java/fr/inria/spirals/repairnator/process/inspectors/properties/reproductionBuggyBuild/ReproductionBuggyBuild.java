@@ -40,11 +40,14 @@ public class ReproductionBuggyBuild {
         return processDurations;
     }
 
-    public void addStep(AbstractStep step) {
+    public synchronized void addStep(AbstractStep step) {
         if (this.reproductionDateBeginning == null) { // so this is the first step
             this.reproductionDateBeginning = step.getDateBegin();
         }
-        this.reproductionDateEnd = step.getDateEnd(); // so this will always save the end of the last step executed
+        // steps might be executed concurrently: we always save the end of the last step to finish
+        if (this.reproductionDateEnd == null || (step.getDateEnd() != null && step.getDateEnd().after(this.reproductionDateEnd))) {
+            this.reproductionDateEnd = step.getDateEnd();
+        }
         this.totalDuration += step.getDuration();
 
         this.processDurations.addGlobalStepInfo(step);
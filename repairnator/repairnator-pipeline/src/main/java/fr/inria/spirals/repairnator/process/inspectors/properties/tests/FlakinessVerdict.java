@@ -0,0 +1,89 @@
+package fr.inria.spirals.repairnator.process.inspectors.properties.tests;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+public class FlakinessVerdict {
+
+    public enum Verdict {
+        /**
+         * The test both passed and failed when it has been run again under the same conditions
+         */
+        FLAKY,
+
+        /**
+         * The test passed each time it has been run again alone: its failure is not reproduced,
+         * e.g. it depends on the other tests of the build
+         */
+        PASSING,
+
+        /**
+         * The test failed each time it has been run again
+         */
+        FAILING,
+
+        /**
+         * The test could not be run again
+         */
+        UNKNOWN
+    }
+
+    private String testClass;
+    private String testMethod;
+    private int numberReruns;
+    private int numberPassingReruns;
+    private Verdict verdict;
+    private Set<String> rerunFailures;
+
+    public FlakinessVerdict() {
+        this.rerunFailures = new TreeSet<>();
+    }
+
+    public String getTestClass() {
+        return testClass;
+    }
+
+    public void setTestClass(String testClass) {
+        this.testClass = testClass;
+    }
+
+    public String getTestMethod() {
+        return testMethod;
+    }
+
+    public void setTestMethod(String testMethod) {
+        this.testMethod = testMethod;
+    }
+
+    public int getNumberReruns() {
+        return numberReruns;
+    }
+
+    public void setNumberReruns(int numberReruns) {
+        this.numberReruns = numberReruns;
+    }
+
+    public int getNumberPassingReruns() {
+        return numberPassingReruns;
+    }
+
+    public void setNumberPassingReruns(int numberPassingReruns) {
+        this.numberPassingReruns = numberPassingReruns;
+    }
+
+    public Verdict getVerdict() {
+        return verdict;
+    }
+
+    public void setVerdict(Verdict verdict) {
+        this.verdict = verdict;
+    }
+
+    public Set<String> getRerunFailures() {
+        return rerunFailures;
+    }
+
+    public void addRerunFailure(String rerunFailure) {
+        this.rerunFailures.add(rerunFailure);
+    }
+}
@@ -9,11 +9,13 @@ public class Tests {
     private OverallMetrics overallMetrics;
     private Set<FailingClass> failingClasses;
     private Set<FailureDetail> failureDetails;
+    private Set<FlakinessVerdict> flakinessVerdicts;
 
     public Tests() {
         this.overallMetrics = new OverallMetrics();
         this.failingClasses = new HashSet<>();
         this.failureDetails = new HashSet<>();
+        this.flakinessVerdicts = new HashSet<>();
     }
 
     public String getFailingModule() {
@@ -51,4 +53,12 @@ public class Tests {
         this.failureDetails.add(failureDetail);
     }
 
+    public Set<FlakinessVerdict> getFlakinessVerdicts() {
+        return flakinessVerdicts;
+    }
+
+    public void addFlakinessVerdict(FlakinessVerdict flakinessVerdict) {
+        this.flakinessVerdicts.add(flakinessVerdict);
+    }
+
 }
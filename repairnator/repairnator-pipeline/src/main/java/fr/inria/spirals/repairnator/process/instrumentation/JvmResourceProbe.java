@@ -0,0 +1,82 @@
+package fr.inria.spirals.repairnator.process.instrumentation;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * This probe measures the wall time, and the resources used by the JVM:
+ * the CPU time and the bytes allocated by the current thread, the GC pauses and the disk I/O of the whole JVM.
+ */
+public class JvmResourceProbe implements ResourceProbe {
+    private long pid;
+    private long startTime;
+    private long startCpuTime;
+    private long startAllocatedBytes;
+    private long startGcPauseTime;
+    private long[] startIo;
+
+    @Override
+    public void start() {
+        this.pid = ProcFileSystem.getCurrentPid();
+        this.startTime = System.nanoTime();
+        this.startCpuTime = getCurrentThreadCpuTime();
+        this.startAllocatedBytes = getCurrentThreadAllocatedBytes();
+        this.startGcPauseTime = getGcPauseTime();
+        this.startIo = (this.pid > 0) ? ProcFileSystem.getIo(this.pid) : null;
+    }
+
+    @Override
+    public void stop(ResourceMetrics metrics) {
+        metrics.setWallTime((System.nanoTime() - this.startTime) / 1000000);
+
+        long cpuTime = getCurrentThreadCpuTime();
+        if (cpuTime >= 0 && this.startCpuTime >= 0) {
+            metrics.addCpuTime((cpuTime - this.startCpuTime) / 1000000);
+        }
+
+        long allocatedBytes = getCurrentThreadAllocatedBytes();
+        if (allocatedBytes >= 0 && this.startAllocatedBytes >= 0) {
+            metrics.setAllocatedBytes(allocatedBytes - this.startAllocatedBytes);
+        }
+
+        metrics.setGcPauseTime(getGcPauseTime() - this.startGcPauseTime);
+
+        if (this.startIo != null) {
+            long[] io = ProcFileSystem.getIo(this.pid);
+            if (io[0] >= 0 && this.startIo[0] >= 0) {
+                metrics.addReadBytes(io[0] - this.startIo[0]);
+            }
+            if (io[1] >= 0 && this.startIo[1] >= 0) {
+                metrics.addWrittenBytes(io[1] - this.startIo[1]);
+            }
+        }
+    }
+
+    private static long getCurrentThreadCpuTime() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean.isCurrentThreadCpuTimeSupported()) {
+            return threadMXBean.getCurrentThreadCpuTime();
+        }
+        return -1;
+    }
+
+    private static long getCurrentThreadAllocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported() && sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                return sunThreadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static long getGcPauseTime() {
+        long gcPauseTime = 0;
+        for (GarbageCollectorMXBean garbageCollectorMXBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcPauseTime += Math.max(garbageCollectorMXBean.getCollectionTime(), 0);
+        }
+        return gcPauseTime;
+    }
+}
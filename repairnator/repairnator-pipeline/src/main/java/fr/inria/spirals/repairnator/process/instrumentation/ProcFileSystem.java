@@ -0,0 +1,282 @@
+package fr.inria.spirals.repairnator.process.instrumentation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class reads the information given by the /proc file system on Linux.
+ * All methods return -1 or empty results when the information is not available.
+ */
+class ProcFileSystem {
+    private static final File PROC_DIR = new File("/proc");
+    private static final long DEFAULT_CLOCK_TICKS_PER_SECOND = 100;
+    private static final String TCP_ESTABLISHED = "01";
+    private static final String TCP_LISTEN = "0A";
+
+    private ProcFileSystem() {}
+
+    // the clock ticks per second of the kernel are only read when they are first needed
+    private static class ClockTicks {
+        private static final long PER_SECOND = readClockTicksPerSecond();
+    }
+
+    static boolean isAvailable() {
+        return new File(PROC_DIR, "self/stat").exists();
+    }
+
+    static long getCurrentPid() {
+        try {
+            return Long.parseLong(new File(PROC_DIR, "self").getCanonicalFile().getName());
+        } catch (IOException | NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String read(long pid, String fileName) {
+        try {
+            return new String(Files.readAllBytes(new File(PROC_DIR, pid + File.separator + fileName).toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the fields of /proc/[pid]/stat following the command name, starting with the state of the process.
+     */
+    private static String[] readStat(long pid) {
+        String stat = read(pid, "stat");
+        if (stat == null || stat.lastIndexOf(')') < 0) {
+            return null;
+        }
+        // the command name might contain spaces, so we only consider what follows it
+        return stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+    }
+
+    /**
+     * @return the pids of all the processes of the system.
+     */
+    static List<Long> getProcesses() {
+        List<Long> processes = new ArrayList<>();
+        File[] processDirs = PROC_DIR.listFiles((dir, name) -> name.chars().allMatch(Character::isDigit));
+        if (processDirs != null) {
+            for (File processDir : processDirs) {
+                processes.add(Long.parseLong(processDir.getName()));
+            }
+        }
+        return processes;
+    }
+
+    /**
+     * @return the pids of all the descendants of the given process.
+     */
+    static List<Long> getDescendants(long pid) {
+        Map<Long, List<Long>> children = new HashMap<>();
+        for (long childPid : getProcesses()) {
+            String[] stat = readStat(childPid);
+            if (stat != null && stat.length > 1) {
+                children.computeIfAbsent(Long.parseLong(stat[1]), parent -> new ArrayList<>()).add(childPid);
+            }
+        }
+
+        List<Long> descendants = new ArrayList<>();
+        List<Long> toVisit = new ArrayList<>();
+        toVisit.add(pid);
+        while (!toVisit.isEmpty()) {
+            List<Long> processChildren = children.get(toVisit.remove(0));
+            if (processChildren != null) {
+                descendants.addAll(processChildren);
+                toVisit.addAll(processChildren);
+            }
+        }
+        return descendants;
+    }
+
+    /**
+     * @return the value of the given environment variable of the process, or null if it is not defined or cannot be read,
+     * e.g. if the process belongs to another user.
+     */
+    static String getEnvironmentVariable(long pid, String name) {
+        String environment = read(pid, "environ");
+        if (environment == null) {
+            return null;
+        }
+        String prefix = name + "=";
+        for (String variable : environment.split("\0")) {
+            if (variable.startsWith(prefix)) {
+                return variable.substring(prefix.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the command line of the process, with its arguments separated by spaces, or null if it cannot be read.
+     */
+    static String getCommandLine(long pid) {
+        String commandLine = read(pid, "cmdline");
+        return (commandLine == null) ? null : commandLine.replace('\0', ' ').trim();
+    }
+
+    /**
+     * @return the ports to which the established TCP connections of the given processes are connected.
+     */
+    static Set<Integer> getConnectedPorts(List<Long> pids) {
+        return getPorts(pids, TCP_ESTABLISHED, 2);
+    }
+
+    /**
+     * @return the ports on which the process is listening for TCP connections.
+     */
+    static Set<Integer> getListeningPorts(long pid) {
+        List<Long> pids = new ArrayList<>();
+        pids.add(pid);
+        return getPorts(pids, TCP_LISTEN, 1);
+    }
+
+    /**
+     * @param addressField the field of the address of the port in /proc/net/tcp: 1 for the local address, 2 for the remote one
+     */
+    private static Set<Integer> getPorts(List<Long> pids, String state, int addressField) {
+        Set<Integer> ports = new HashSet<>();
+        Set<String> inodes = new HashSet<>();
+        for (long pid : pids) {
+            inodes.addAll(getSocketInodes(pid));
+        }
+        if (inodes.isEmpty()) {
+            return ports;
+        }
+
+        for (String table : new String[] { "net/tcp", "net/tcp6" }) {
+            String content = read(table);
+            if (content == null) {
+                continue;
+            }
+            // the first line is a header, then each line is "sl local_address rem_address st ... uid timeout inode ..."
+            String[] lines = content.split("\n");
+            for (int i = 1; i < lines.length; i++) {
+                String[] fields = lines[i].trim().split("\\s+");
+                if (fields.length > 9 && fields[3].equals(state) && inodes.contains(fields[9])) {
+                    String address = fields[addressField];
+                    ports.add(Integer.parseInt(address.substring(address.lastIndexOf(':') + 1), 16));
+                }
+            }
+        }
+        return ports;
+    }
+
+    /**
+     * @return the inodes of the sockets opened by the process.
+     */
+    private static Set<String> getSocketInodes(long pid) {
+        Set<String> inodes = new HashSet<>();
+        File[] fileDescriptors = new File(PROC_DIR, pid + File.separator + "fd").listFiles();
+        if (fileDescriptors != null) {
+            for (File fileDescriptor : fileDescriptors) {
+                try {
+                    String target = Files.readSymbolicLink(fileDescriptor.toPath()).toString();
+                    if (target.startsWith("socket:[")) {
+                        inodes.add(target.substring("socket:[".length(), target.length() - 1));
+                    }
+                } catch (IOException e) {
+                    // the file descriptor has been closed in the meantime
+                }
+            }
+        }
+        return inodes;
+    }
+
+    private static String read(String fileName) {
+        try {
+            return new String(Files.readAllBytes(new File(PROC_DIR, fileName).toPath()), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the clock ticks per second of the kernel given by getconf, in which the CPU times of /proc are expressed,
+     * or the usual value of 100 if it cannot be read.
+     */
+    static long getClockTicksPerSecond() {
+        return ClockTicks.PER_SECOND;
+    }
+
+    private static long readClockTicksPerSecond() {
+        try {
+            Process process = new ProcessBuilder("getconf", "CLK_TCK").redirectErrorStream(true).start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line = reader.readLine();
+                if (process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0 && line != null) {
+                    long clockTicks = Long.parseLong(line.trim());
+                    if (clockTicks > 0) {
+                        return clockTicks;
+                    }
+                }
+            } finally {
+                process.destroy();
+            }
+        } catch (IOException | NumberFormatException e) {
+            // getconf is not available: we use the default value
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return DEFAULT_CLOCK_TICKS_PER_SECOND;
+    }
+
+    /**
+     * @return the user and system CPU time used by the process, in ms.
+     */
+    static long getCpuTime(long pid) {
+        String[] stat = readStat(pid);
+        if (stat == null || stat.length < 13) {
+            return -1;
+        }
+        // utime and stime are the 14th and 15th fields of the stat file
+        long ticks = Long.parseLong(stat[11]) + Long.parseLong(stat[12]);
+        return ticks * 1000 / getClockTicksPerSecond();
+    }
+
+    /**
+     * @return the peak resident set size of the process, in bytes.
+     */
+    static long getPeakRss(long pid) {
+        long peakRss = readValue(read(pid, "status"), "VmHWM:");
+        return (peakRss < 0) ? -1 : peakRss * 1024;
+    }
+
+    /**
+     * @return the bytes read from and written to the storage by the process.
+     */
+    static long[] getIo(long pid) {
+        String io = read(pid, "io");
+        return new long[] { readValue(io, "read_bytes:"), readValue(io, "write_bytes:") };
+    }
+
+    private static long readValue(String content, String key) {
+        if (content == null) {
+            return -1;
+        }
+        for (String line : content.split("\n")) {
+            if (line.startsWith(key)) {
+                String value = line.substring(key.length()).trim().split("\\s+")[0];
+                try {
+                    return Long.parseLong(value);
+                } catch (NumberFormatException e) {
+                    return -1;
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,75 @@
+package fr.inria.spirals.repairnator.process.instrumentation;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This probe measures the resources used by the processes started by the JVM, like maven or the repair tools,
+ * from the samples of the /proc file system taken by the {@link ProcessTreeSampler}: the CPU time, the peak RSS
+ * and the disk I/O. The processes which already existed when the probe was started are not considered,
+ * and the last values of a process exiting between two samples are lost.
+ */
+public class ProcessTreeResourceProbe implements ResourceProbe {
+    private Set<Long> ignoredProcesses;
+    private Map<Long, Long> cpuTimes;
+    private Map<Long, long[]> ios;
+    private long peakRss;
+    private boolean started;
+
+    @Override
+    public void start() {
+        if (!ProcFileSystem.isAvailable()) {
+            return;
+        }
+        ProcessTreeSampler.getInstance().register(this);
+        this.started = true;
+    }
+
+    synchronized void setIgnoredProcesses(Set<Long> ignoredProcesses) {
+        this.ignoredProcesses = ignoredProcesses;
+        this.cpuTimes = new HashMap<>();
+        this.ios = new HashMap<>();
+        this.peakRss = -1;
+    }
+
+    synchronized void record(List<ProcessTreeSampler.ProcessSample> samples) {
+        for (ProcessTreeSampler.ProcessSample sample : samples) {
+            if (this.ignoredProcesses.contains(sample.getPid())) {
+                continue;
+            }
+            if (sample.getCpuTime() >= 0) {
+                this.cpuTimes.put(sample.getPid(), sample.getCpuTime());
+            }
+            this.peakRss = Math.max(this.peakRss, sample.getPeakRss());
+            long[] io = sample.getIo();
+            if (io[0] >= 0 || io[1] >= 0) {
+                this.ios.put(sample.getPid(), io);
+            }
+        }
+    }
+
+    @Override
+    public void stop(ResourceMetrics metrics) {
+        if (!this.started) {
+            return;
+        }
+        ProcessTreeSampler.getInstance().unregister(this);
+
+        synchronized (this) {
+            if (!this.cpuTimes.isEmpty()) {
+                long cpuTime = 0;
+                for (long processCpuTime : this.cpuTimes.values()) {
+                    cpuTime += processCpuTime;
+                }
+                metrics.addCpuTime(cpuTime);
+            }
+            metrics.setChildPeakRss(this.peakRss);
+            for (long[] io : this.ios.values()) {
+                metrics.addReadBytes(Math.max(io[0], 0));
+                metrics.addWrittenBytes(Math.max(io[1], 0));
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package fr.inria.spirals.repairnator.process.instrumentation;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class samples the /proc file system for all the {@link ProcessTreeResourceProbe} measuring at the same time,
+ * e.g. the probe of a step and the ones of the maven invocations of this step: the descendants of the JVM are
+ * listed and read once per period, whatever the number of probes. The sampling thread only runs while probes
+ * are registered.
+ */
+class ProcessTreeSampler {
+    private static final int SAMPLING_PERIOD = 500; // in ms
+
+    private static ProcessTreeSampler instance;
+
+    private final long pid;
+    private final Set<ProcessTreeResourceProbe> probes;
+    private ScheduledExecutorService executor;
+
+    private ProcessTreeSampler() {
+        this.pid = ProcFileSystem.getCurrentPid();
+        this.probes = new LinkedHashSet<>();
+    }
+
+    static synchronized ProcessTreeSampler getInstance() {
+        if (instance == null) {
+            instance = new ProcessTreeSampler();
+        }
+        return instance;
+    }
+
+    /**
+     * Start sending the samples to the given probe, which ignores the descendants of the JVM existing when it is registered.
+     */
+    synchronized void register(ProcessTreeResourceProbe probe) {
+        if (this.probes.isEmpty()) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "process-tree-sampler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.executor.scheduleAtFixedRate(this::sample, SAMPLING_PERIOD, SAMPLING_PERIOD, TimeUnit.MILLISECONDS);
+        }
+        probe.setIgnoredProcesses(new HashSet<>(ProcFileSystem.getDescendants(this.pid)));
+        this.probes.add(probe);
+    }
+
+    /**
+     * Send a last sample to the given probe, and stop sending it the samples.
+     */
+    synchronized void unregister(ProcessTreeResourceProbe probe) {
+        if (!this.probes.contains(probe)) {
+            return;
+        }
+        this.sample();
+        this.probes.remove(probe);
+        if (this.probes.isEmpty()) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+    }
+
+    synchronized int getNbProbes() {
+        return this.probes.size();
+    }
+
+    private synchronized void sample() {
+        List<ProcessSample> samples = new ArrayList<>();
+        for (long process : ProcFileSystem.getDescendants(this.pid)) {
+            samples.add(new ProcessSample(process, ProcFileSystem.getCpuTime(process), ProcFileSystem.getPeakRss(process), ProcFileSystem.getIo(process)));
+        }
+        for (ProcessTreeResourceProbe probe : this.probes) {
+            probe.record(samples);
+        }
+    }
+
+    /**
+     * The resources used by a process when it has been sampled, -1 for the values which cannot be read.
+     */
+    static class ProcessSample {
+        private final long pid;
+        private final long cpuTime;
+        private final long peakRss;
+        private final long[] io;
+
+        ProcessSample(long pid, long cpuTime, long peakRss, long[] io) {
+            this.pid = pid;
+            this.cpuTime = cpuTime;
+            this.peakRss = peakRss;
+            this.io = io;
+        }
+
+        long getPid() {
+            return pid;
+        }
+
+        long getCpuTime() {
+            return cpuTime;
+        }
+
+        long getPeakRss() {
+            return peakRss;
+        }
+
+        long[] getIo() {
+            return io;
+        }
+    }
+}
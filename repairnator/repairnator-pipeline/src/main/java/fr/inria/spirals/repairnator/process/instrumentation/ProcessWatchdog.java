@@ -0,0 +1,426 @@
+package fr.inria.spirals.repairnator.process.instrumentation;
+
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is a watchdog, shared by the whole JVM, for the processes started by the pipeline, like maven or git.
+ *
+ * Each watched execution has a marker, which must be given to the started process as the environment variable {@link #MARKER_VARIABLE}.
+ * As the environment is inherited, the marker identifies the whole tree of processes of the execution, including
+ * the processes which are not started by Repairnator, like the forked JVMs of surefire, and the ones which are
+ * not children of the JVM anymore.
+ *
+ * A single scheduled thread checks all the executions: when an execution did not produce any output for too long
+ * or exceeded its deadline, its whole process tree is killed. The processes still alive when an execution is closed
+ * are killed as well, as they are orphans, except the ones spared with {@link Execution#spare(String)}, like a daemon
+ * started by the execution which must outlive it.
+ * The process trees are only found on Linux, by reading the /proc file system: elsewhere only the timeouts are computed.
+ *
+ * The executions started by a thread while it has an open {@link Scope}, or by the threads it creates meanwhile,
+ * belong to this scope: they can all be stopped at once, e.g. to stop a repair tool which exceeded its time budget.
+ */
+public class ProcessWatchdog {
+    public static final String MARKER_VARIABLE = "REPAIRNATOR_WATCHDOG_ID";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessWatchdog.class);
+    private static final int CHECK_PERIOD = 1000; // in ms
+
+    private static ProcessWatchdog instance;
+
+    // the scope is inherited by the threads created in the scope, like the threads of the pools of a repair tool
+    private static final InheritableThreadLocal<Scope> CURRENT_SCOPE = new InheritableThreadLocal<>();
+
+    private final Map<String, Execution> executions;
+    private final boolean procAvailable;
+    private ScheduledExecutorService scheduler;
+
+    private ProcessWatchdog() {
+        this.executions = new ConcurrentHashMap<>();
+        this.procAvailable = ProcFileSystem.isAvailable();
+    }
+
+    public static synchronized ProcessWatchdog getInstance() {
+        if (instance == null) {
+            instance = new ProcessWatchdog();
+        }
+        return instance;
+    }
+
+    /**
+     * Start watching a new execution.
+     *
+     * @param name the name of the execution, used in the logs
+     * @param noOutputTimeout the maximum time without output, in ms: 0 or less to disable it
+     * @param timeout the maximum duration of the execution, in ms: 0 or less to disable it
+     */
+    public Execution watch(String name, long noOutputTimeout, long timeout) {
+        Execution execution = new Execution(name, noOutputTimeout, timeout);
+        this.executions.put(execution.getMarker(), execution);
+        Scope scope = CURRENT_SCOPE.get();
+        if (scope != null) {
+            scope.add(execution);
+        }
+        this.startScheduler();
+        return execution;
+    }
+
+    /**
+     * Open a scope for the current thread: the executions started from now on by this thread and the threads
+     * it creates belong to this scope, until it is closed.
+     */
+    public Scope openScope(String name) {
+        Scope scope = new Scope(name);
+        CURRENT_SCOPE.set(scope);
+        return scope;
+    }
+
+    /**
+     * Start the process of the given builder and wait for it, killing its process tree if it exceeds
+     * the timeout given by {@link RepairnatorConfig#getProcessTimeout()}.
+     *
+     * @return the process, which is finished.
+     */
+    public static Process runProcess(ProcessBuilder processBuilder, String name) throws IOException, InterruptedException {
+        long timeout = TimeUnit.MINUTES.toMillis(RepairnatorConfig.getInstance().getProcessTimeout());
+        try (Execution execution = getInstance().watch(name, 0, timeout)) {
+            Process process = execution.mark(processBuilder).start();
+            process.waitFor();
+            return process;
+        }
+    }
+
+    private synchronized void startScheduler() {
+        if (this.scheduler == null) {
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "process-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.scheduler.scheduleWithFixedDelay(this::check, CHECK_PERIOD, CHECK_PERIOD, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void check() {
+        if (this.executions.isEmpty()) {
+            return;
+        }
+        // the exceptions must not stop the scheduled task
+        try {
+            Map<String, List<Long>> processes = this.findMarkedProcesses();
+            long now = System.currentTimeMillis();
+            for (Execution execution : this.executions.values()) {
+                execution.check(now, processes.get(execution.getMarker()));
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Error while checking the watched processes", e);
+        }
+    }
+
+    /**
+     * @return the pids of the processes of each watched execution, indexed by their marker.
+     */
+    private Map<String, List<Long>> findMarkedProcesses() {
+        Map<String, List<Long>> processes = new HashMap<>();
+        if (!this.procAvailable) {
+            return processes;
+        }
+        for (long pid : ProcFileSystem.getProcesses()) {
+            String marker = ProcFileSystem.getEnvironmentVariable(pid, MARKER_VARIABLE);
+            if (marker != null && this.executions.containsKey(marker)) {
+                processes.computeIfAbsent(marker, key -> new ArrayList<>()).add(pid);
+            }
+        }
+        return processes;
+    }
+
+    private static void kill(Collection<Long> pids) {
+        if (pids == null || pids.isEmpty()) {
+            return;
+        }
+        List<String> command = new ArrayList<>();
+        command.add("kill");
+        command.add("-KILL");
+        for (long pid : pids) {
+            command.add(String.valueOf(pid));
+        }
+        try {
+            // the processes might have exited in the meantime: the exit code of kill is meaningless
+            new ProcessBuilder(command).start().waitFor(CHECK_PERIOD, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            LOGGER.warn("Error while killing the processes " + pids + ": " + e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A group of executions, which can be stopped together, including the executions started after the stop.
+     */
+    public class Scope implements AutoCloseable {
+        private final String name;
+        private final Set<Execution> scopeExecutions;
+        private volatile String stopReason;
+
+        private Scope(String name) {
+            this.name = name;
+            this.scopeExecutions = ConcurrentHashMap.newKeySet();
+        }
+
+        private void add(Execution execution) {
+            execution.scope = this;
+            this.scopeExecutions.add(execution);
+            // an execution started after the stop of its scope is killed at once
+            if (this.stopReason != null) {
+                execution.stop(this.stopReason);
+            }
+        }
+
+        /**
+         * Kill the processes of all the executions of this scope, at the next check of the watchdog.
+         */
+        public void stop(String reason) {
+            this.stopReason = reason;
+            LOGGER.info("Stop of the executions of " + this.name + ": " + reason);
+            for (Execution execution : this.scopeExecutions) {
+                execution.stop(reason);
+            }
+        }
+
+        /**
+         * The executions started from now on by the current thread do not belong to this scope anymore.
+         * The executions already started still belong to it.
+         */
+        @Override
+        public void close() {
+            if (CURRENT_SCOPE.get() == this) {
+                CURRENT_SCOPE.remove();
+            }
+        }
+    }
+
+    /**
+     * An execution watched by the watchdog, which is closed once the execution is finished.
+     */
+    public class Execution implements AutoCloseable {
+        private final String marker;
+        private final String name;
+        private final long noOutputTimeout;
+        private final long deadline;
+        private final Map<Long, Long> cpuTimes;
+        private final List<String> sparedCommands;
+        private volatile long lastOutputDate;
+        private volatile String timeoutReason;
+        private volatile String stopReason;
+        private volatile Scope scope;
+
+        private Execution(String name, long noOutputTimeout, long timeout) {
+            this.marker = UUID.randomUUID().toString();
+            this.name = name;
+            this.noOutputTimeout = noOutputTimeout;
+            this.lastOutputDate = System.currentTimeMillis();
+            this.deadline = (timeout > 0) ? this.lastOutputDate + timeout : Long.MAX_VALUE;
+            this.cpuTimes = new HashMap<>();
+            this.sparedCommands = new CopyOnWriteArrayList<>();
+        }
+
+        public String getMarker() {
+            return marker;
+        }
+
+        /**
+         * Give the marker of this execution to the processes started by the given builder.
+         */
+        public ProcessBuilder mark(ProcessBuilder processBuilder) {
+            processBuilder.environment().put(MARKER_VARIABLE, this.marker);
+            return processBuilder;
+        }
+
+        /**
+         * Do not kill the processes whose command line contains the given part when this execution is closed:
+         * for instance a daemon started by the execution, which inherits its marker but is shared with the next executions.
+         * Their CPU time is still measured.
+         * When the execution times out or is stopped, the spared processes serving it, i.e. the ones its processes
+         * are connected to through TCP, like the daemon executing its build, are killed with its processes:
+         * the other spared processes are kept.
+         */
+        public void spare(String commandLinePart) {
+            this.sparedCommands.add(commandLinePart);
+        }
+
+        private List<Long> getKillableProcesses(List<Long> processes) {
+            List<Long> killableProcesses = new ArrayList<>();
+            if (processes != null) {
+                for (long pid : processes) {
+                    if (!this.isSpared(pid)) {
+                        killableProcesses.add(pid);
+                    }
+                }
+            }
+            return killableProcesses;
+        }
+
+        /**
+         * @return the spared processes of the system listening on a port to which the given processes are connected.
+         */
+        private List<Long> findServingSparedProcesses(List<Long> processes) {
+            List<Long> servingProcesses = new ArrayList<>();
+            Set<Integer> connectedPorts = ProcFileSystem.getConnectedPorts(processes);
+            if (connectedPorts.isEmpty()) {
+                return servingProcesses;
+            }
+            for (long pid : ProcFileSystem.getProcesses()) {
+                if (!processes.contains(pid) && this.isSpared(pid)) {
+                    Set<Integer> listeningPorts = ProcFileSystem.getListeningPorts(pid);
+                    listeningPorts.retainAll(connectedPorts);
+                    if (!listeningPorts.isEmpty()) {
+                        servingProcesses.add(pid);
+                    }
+                }
+            }
+            return servingProcesses;
+        }
+
+        private boolean isSpared(long pid) {
+            if (this.sparedCommands.isEmpty()) {
+                return false;
+            }
+            String commandLine = ProcFileSystem.getCommandLine(pid);
+            if (commandLine != null) {
+                for (String sparedCommand : this.sparedCommands) {
+                    if (commandLine.contains(sparedCommand)) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        public void updateLastOutputDate() {
+            this.lastOutputDate = System.currentTimeMillis();
+        }
+
+        /**
+         * Ask to kill the processes of this execution, even if it did not time out: they are killed at the next check.
+         */
+        public void stop(String reason) {
+            if (this.stopReason == null) {
+                this.stopReason = reason;
+            }
+        }
+
+        public boolean isStopped() {
+            return this.stopReason != null;
+        }
+
+        public String getStopReason() {
+            return stopReason;
+        }
+
+        public boolean isTimedOut() {
+            return this.timeoutReason != null;
+        }
+
+        /**
+         * @return the reason of the timeout, or null if the execution did not time out.
+         */
+        public String getTimeoutReason() {
+            return timeoutReason;
+        }
+
+        /**
+         * @return the CPU time consumed by the processes of this execution, in ms, or -1 if the processes cannot be found.
+         * The CPU time consumed by a process after the last check is not counted.
+         */
+        public synchronized long getCpuTime() {
+            if (!procAvailable) {
+                return -1;
+            }
+            long cpuTime = 0;
+            for (long processCpuTime : this.cpuTimes.values()) {
+                cpuTime += processCpuTime;
+            }
+            return cpuTime;
+        }
+
+        private synchronized void check(long now, List<Long> markedProcesses) {
+            if (markedProcesses != null) {
+                for (long pid : markedProcesses) {
+                    long cpuTime = ProcFileSystem.getCpuTime(pid);
+                    if (cpuTime >= 0) {
+                        this.cpuTimes.put(pid, cpuTime);
+                    }
+                }
+            }
+
+            if (this.stopReason == null && this.timeoutReason == null) {
+                if (this.noOutputTimeout > 0 && now > this.lastOutputDate + this.noOutputTimeout) {
+                    this.timeoutReason = "no output has been received in the last " + TimeUnit.MILLISECONDS.toMinutes(this.noOutputTimeout) + " minutes.";
+                } else if (now > this.deadline) {
+                    this.timeoutReason = "the execution did not finish before its deadline.";
+                } else {
+                    return;
+                }
+                LOGGER.warn("Timeout of " + this.name + ": " + this.timeoutReason + " Its processes will be killed: " + this.getKillableProcesses(markedProcesses));
+            }
+
+            List<Long> processes = this.getKillableProcesses(markedProcesses);
+            if (!this.sparedCommands.isEmpty() && !processes.isEmpty()) {
+                processes.addAll(this.findServingSparedProcesses(processes));
+            }
+            if (this.stopReason != null && !processes.isEmpty()) {
+                LOGGER.info("Stop of " + this.name + ": " + this.stopReason + " Its processes will be killed: " + processes);
+            }
+            // the processes are killed at each check as some of them might have been started in the meantime
+            kill(processes);
+        }
+
+        /**
+         * Stop watching this execution, and kill its processes which are still alive.
+         */
+        @Override
+        public void close() {
+            executions.remove(this.marker);
+            if (this.scope != null) {
+                this.scope.scopeExecutions.remove(this);
+            }
+            if (procAvailable) {
+                List<Long> processes = new ArrayList<>();
+                for (long pid : ProcFileSystem.getProcesses()) {
+                    if (this.marker.equals(ProcFileSystem.getEnvironmentVariable(pid, MARKER_VARIABLE))) {
+                        processes.add(pid);
+                    }
+                }
+                synchronized (this) {
+                    for (long pid : processes) {
+                        long cpuTime = ProcFileSystem.getCpuTime(pid);
+                        if (cpuTime >= 0) {
+                            this.cpuTimes.put(pid, cpuTime);
+                        }
+                    }
+                }
+                List<Long> orphans = this.getKillableProcesses(processes);
+                if (!orphans.isEmpty()) {
+                    LOGGER.info("The processes " + orphans + " of " + this.name + " are still alive: they will be killed.");
+                    kill(orphans);
+                }
+            }
+            LOGGER.debug(this.name + " consumed " + TimeUnit.MILLISECONDS.toSeconds(this.getCpuTime()) + " CPU-seconds.");
+        }
+    }
+}
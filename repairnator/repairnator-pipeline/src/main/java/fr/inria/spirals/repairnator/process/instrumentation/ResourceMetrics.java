@@ -0,0 +1,146 @@
+package fr.inria.spirals.repairnator.process.instrumentation;
+
+/**
+ * This class contains the resources used during the execution of a step, of a maven invocation or of a git operation.
+ * A value of -1 means that the resource could not be measured on this platform.
+ * When steps are executed concurrently, the JVM-wide metrics (GC pauses, disk I/O of the JVM)
+ * and the metrics of child processes overlap between them.
+ */
+public class ResourceMetrics {
+    public enum Kind {
+        STEP,
+        MAVEN,
+        GIT
+    }
+
+    private String name;
+    private Kind kind;
+    private long wallTime; // in ms
+    private long cpuTime; // in ms, for the executing thread and the child processes
+    private long watchedCpuTime; // in ms, for the processes watched by the ProcessWatchdog, even if they are not child processes
+    private long allocatedBytes;
+    private long gcPauseTime; // in ms
+    private long childPeakRss; // in bytes
+    private long readBytes;
+    private long writtenBytes;
+
+    public ResourceMetrics(String name, Kind kind) {
+        this.name = name;
+        this.kind = kind;
+        this.wallTime = -1;
+        this.cpuTime = -1;
+        this.watchedCpuTime = -1;
+        this.allocatedBytes = -1;
+        this.gcPauseTime = -1;
+        this.childPeakRss = -1;
+        this.readBytes = -1;
+        this.writtenBytes = -1;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getWallTime() {
+        return wallTime;
+    }
+
+    public void setWallTime(long wallTime) {
+        this.wallTime = wallTime;
+    }
+
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    public void setCpuTime(long cpuTime) {
+        this.cpuTime = cpuTime;
+    }
+
+    /**
+     * Add some CPU time, for instance the one of the child processes, to the CPU time already measured.
+     */
+    public void addCpuTime(long cpuTime) {
+        this.cpuTime = Math.max(this.cpuTime, 0) + cpuTime;
+    }
+
+    /**
+     * @return the CPU time of the processes of the execution watched by the {@link ProcessWatchdog}, in ms: unlike
+     * {@link #getCpuTime()}, it includes the processes which are not children of the JVM, like the builds of a Maven daemon.
+     */
+    public long getWatchedCpuTime() {
+        return watchedCpuTime;
+    }
+
+    public void setWatchedCpuTime(long watchedCpuTime) {
+        this.watchedCpuTime = watchedCpuTime;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    public void setAllocatedBytes(long allocatedBytes) {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public long getGcPauseTime() {
+        return gcPauseTime;
+    }
+
+    public void setGcPauseTime(long gcPauseTime) {
+        this.gcPauseTime = gcPauseTime;
+    }
+
+    public long getChildPeakRss() {
+        return childPeakRss;
+    }
+
+    public void setChildPeakRss(long childPeakRss) {
+        this.childPeakRss = childPeakRss;
+    }
+
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    public void setReadBytes(long readBytes) {
+        this.readBytes = readBytes;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    public void setWrittenBytes(long writtenBytes) {
+        this.writtenBytes = writtenBytes;
+    }
+
+    public void addReadBytes(long readBytes) {
+        this.readBytes = Math.max(this.readBytes, 0) + readBytes;
+    }
+
+    public void addWrittenBytes(long writtenBytes) {
+        this.writtenBytes = Math.max(this.writtenBytes, 0) + writtenBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ResourceMetrics{" +
+                "name='" + name + '\'' +
+                ", kind=" + kind +
+                ", wallTime=" + wallTime +
+                ", cpuTime=" + cpuTime +
+                ", watchedCpuTime=" + watchedCpuTime +
+                ", allocatedBytes=" + allocatedBytes +
+                ", gcPauseTime=" + gcPauseTime +
+                ", childPeakRss=" + childPeakRss +
+                ", readBytes=" + readBytes +
+                ", writtenBytes=" + writtenBytes +
+                '}';
+    }
+}
@@ -0,0 +1,67 @@
+package fr.inria.spirals.repairnator.process.instrumentation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * This class measures the resources used during the execution of a step, of a maven invocation or of a git operation,
+ * using all the registered probes.
+ * Usage: <code>ResourceMonitor monitor = ResourceMonitor.start(name, kind); ... ResourceMetrics metrics = monitor.stop();</code>
+ */
+public class ResourceMonitor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceMonitor.class);
+
+    private static final List<Supplier<ResourceProbe>> PROBES = new CopyOnWriteArrayList<>(
+            Arrays.<Supplier<ResourceProbe>>asList(JvmResourceProbe::new, ProcessTreeResourceProbe::new));
+
+    private ResourceMetrics metrics;
+    private List<ResourceProbe> probes;
+
+    private ResourceMonitor(String name, ResourceMetrics.Kind kind) {
+        this.metrics = new ResourceMetrics(name, kind);
+        this.probes = new ArrayList<>();
+    }
+
+    /**
+     * Register a new kind of probe: a probe will be created with the given supplier for each measure.
+     */
+    public static void registerProbe(Supplier<ResourceProbe> probe) {
+        PROBES.add(probe);
+    }
+
+    static void unregisterProbe(Supplier<ResourceProbe> probe) {
+        PROBES.remove(probe);
+    }
+
+    public static ResourceMonitor start(String name, ResourceMetrics.Kind kind) {
+        ResourceMonitor monitor = new ResourceMonitor(name, kind);
+        for (Supplier<ResourceProbe> supplier : PROBES) {
+            ResourceProbe probe = supplier.get();
+            try {
+                probe.start();
+                monitor.probes.add(probe);
+            } catch (RuntimeException e) {
+                LOGGER.debug("Error while starting the probe " + probe.getClass().getSimpleName() + ": " + e);
+            }
+        }
+        return monitor;
+    }
+
+    public ResourceMetrics stop() {
+        for (ResourceProbe probe : this.probes) {
+            try {
+                probe.stop(this.metrics);
+            } catch (RuntimeException e) {
+                LOGGER.debug("Error while stopping the probe " + probe.getClass().getSimpleName() + ": " + e);
+            }
+        }
+        this.probes.clear();
+        return this.metrics;
+    }
+}
@@ -0,0 +1,16 @@
+package fr.inria.spirals.repairnator.process.instrumentation;
+
+/**
+ * A probe measures some resources between a call to {@link #start()} and a call to {@link #stop(ResourceMetrics)}.
+ * Both methods are called from the thread executing the measured step or maven invocation.
+ * A new probe is created for each measure (see {@link ResourceMonitor#registerProbe(java.util.function.Supplier)}).
+ */
+public interface ResourceProbe {
+
+    void start();
+
+    /**
+     * Stop measuring and record the measured resources in the given metrics.
+     */
+    void stop(ResourceMetrics metrics);
+}
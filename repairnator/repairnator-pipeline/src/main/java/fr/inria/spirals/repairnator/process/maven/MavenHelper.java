@@ -1,27 +1,48 @@
 package fr.inria.spirals.repairnator.process.maven;
 
+import fr.inria.spirals.repairnator.Utils;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.instrumentation.ProcessWatchdog;
+import fr.inria.spirals.repairnator.process.instrumentation.ResourceMetrics;
+import fr.inria.spirals.repairnator.process.instrumentation.ResourceMonitor;
 import fr.inria.spirals.repairnator.process.maven.output.MavenErrorHandler;
 import fr.inria.spirals.repairnator.process.maven.output.MavenFilterOutputHandler;
 import fr.inria.spirals.repairnator.process.maven.output.MavenMuteOutputHandler;
+import fr.inria.spirals.repairnator.process.maven.output.MavenOutputClassifier;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Dependency;
 import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.apache.maven.model.Resource;
 import org.apache.maven.model.building.DefaultModelBuilder;
 import org.apache.maven.model.building.DefaultModelBuilderFactory;
 import org.apache.maven.model.building.DefaultModelBuildingRequest;
 import org.apache.maven.model.building.ModelBuildingException;
 import org.apache.maven.model.building.ModelBuildingRequest;
 import org.apache.maven.model.building.ModelBuildingResult;
+import org.apache.maven.model.building.ModelCache;
 import org.apache.maven.shared.invoker.InvocationOutputHandler;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
 
 /**
  * This class intends to help the usage of maven goals in Repairnator
@@ -32,6 +53,7 @@ public class MavenHelper {
     public static final int MAVEN_ERROR = 1;
 
     public static final String SKIP_TEST_PROPERTY = "maven.test.skip.exec";
+    public static final String TEST_FAILURE_IGNORE_PROPERTY = "maven.test.failure.ignore";
 
     // all the goals we want to skip
     // fixme: make that list available in a config
@@ -58,7 +80,11 @@ public class MavenHelper {
     private Properties properties;
     private String name;
     private ProjectInspector inspector;
-    private Instant limitOutputDate;
+    private ProcessWatchdog.Execution execution;
+    private MavenOutputClassifier outputClassifier;
+    private List<String> projects;
+    private boolean offline;
+    private BooleanSupplier stopCondition;
 
     private InvocationOutputHandler errorHandler;
     private InvocationOutputHandler outputHandler;
@@ -69,6 +95,7 @@ public class MavenHelper {
         this.properties = properties;
         this.name = name;
         this.inspector = inspector;
+        this.outputClassifier = new MavenOutputClassifier();
 
         if (enableHandlers) {
             this.errorHandler = new MavenErrorHandler(this);
@@ -112,6 +139,13 @@ public class MavenHelper {
         return inspector;
     }
 
+    /**
+     * @return the classification of the output of the last execution of maven.
+     */
+    public MavenOutputClassifier getOutputClassifier() {
+        return outputClassifier;
+    }
+
     public InvocationOutputHandler getErrorHandler() {
         return errorHandler;
     }
@@ -120,8 +154,50 @@ public class MavenHelper {
         return outputHandler;
     }
 
+    public List<String> getProjects() {
+        return projects;
+    }
+
+    /**
+     * Restrict the build to the given modules, given relatively to the directory of the pom file, and to the modules depending on them.
+     */
+    public void setProjects(List<String> projects) {
+        this.projects = projects;
+    }
+
+    public boolean isOffline() {
+        return offline;
+    }
+
+    public void setOffline(boolean offline) {
+        this.offline = offline;
+    }
+
+    /**
+     * @return the execution of maven watched by the {@link ProcessWatchdog}, or null if maven is not running.
+     */
+    public ProcessWatchdog.Execution getExecution() {
+        return execution;
+    }
+
+    /**
+     * Set a condition checked every second while maven is running: maven is stopped as soon as it is true.
+     */
+    public void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * @return true if maven has been stopped because of the stop condition.
+     */
+    public boolean isStopped() {
+        return this.execution != null && this.execution.isStopped();
+    }
+
     public void updateLastOutputDate() {
-        this.limitOutputDate = new Date().toInstant().plus(TIMEOUT_WITHOUT_OUTPUT, ChronoUnit.MINUTES);
+        if (this.execution != null) {
+            this.execution.updateLastOutputDate();
+        }
     }
 
     public void setErrorHandler(InvocationOutputHandler errorHandler) {
@@ -133,13 +209,20 @@ public class MavenHelper {
     }
 
     public static Model readPomXml(File pomXml, String localMavenRepository) {
+        return readPomXml(pomXml, localMavenRepository, new DefaultModelBuilderFactory().newInstance(), null);
+    }
+
+    /**
+     * Build the effective model of the given pom.xml with the given model builder, which can be shared
+     * between the calls, and the given cache of models of the parents and imports, which can be null.
+     */
+    public static Model readPomXml(File pomXml, String localMavenRepository, DefaultModelBuilder defaultModelBuilder, ModelCache modelCache) {
         ModelBuildingRequest req = new DefaultModelBuildingRequest();
         req.setProcessPlugins(true);
         req.setPomFile(pomXml);
         req.setValidationLevel(ModelBuildingRequest.VALIDATION_LEVEL_MINIMAL);
         req.setModelResolver(new RepositoryModelResolver(localMavenRepository));
-
-        DefaultModelBuilder defaultModelBuilder = new DefaultModelBuilderFactory().newInstance();
+        req.setModelCache(modelCache);
 
         // we try to build the model, and if we fail, we try to get the raw model
         try {
@@ -152,22 +235,278 @@ public class MavenHelper {
 
     }
 
+    /**
+     * Add the errors kept by the output classifier to the errors of the step, with the number of lines
+     * of each category when some of them have not been kept.
+     */
+    private void reportErrors() {
+        for (MavenOutputClassifier.Category category : this.outputClassifier.getCategories()) {
+            List<String> lines = this.outputClassifier.getLines(category);
+            for (String line : lines) {
+                this.inspector.getJobStatus().addStepError(this.name, line);
+            }
+            int count = this.outputClassifier.getCount(category);
+            if (count > lines.size()) {
+                this.inspector.getJobStatus().addStepError(this.name, category + ": " + count + " lines, only the last " + lines.size() + " distinct ones are kept.");
+            }
+        }
+    }
+
+    /**
+     * Compute the modules containing the given changed files.
+     *
+     * A changed file must be in a source or resource directory declared by its module, or in the build directory
+     * of its module, whose files are outputs of the build: any other file (like a pom file, a file of .mvn/,
+     * a properties file or a resource filter out of those directories) might change the build of the whole project.
+     *
+     * @param repoDir the root of the git repository
+     * @param rootPomDir the directory of the pom file which will be built
+     * @param changedFiles the paths of the changed files relatively to repoDir
+     * @param modelService the service giving the models of the modules
+     * @param ignoredFiles the changed files which do not change the outputs of the build, like the ones created by Repairnator
+     * @return the paths of the modules relatively to rootPomDir, or null if the whole project has to be rebuilt,
+     * i.e. if a changed file is not in the source directories of its module or if a changed module is not under rootPomDir.
+     */
+    public static List<String> findChangedModules(File repoDir, File rootPomDir, List<String> changedFiles, ProjectModelService modelService, Predicate<String> ignoredFiles) {
+        Set<String> modules = new TreeSet<>();
+        Path rootPath = rootPomDir.getAbsoluteFile().toPath().normalize();
+
+        for (String changedFile : changedFiles) {
+            if (ignoredFiles.test(changedFile)) {
+                continue;
+            }
+            File file = new File(repoDir, changedFile);
+            if (file.getName().equals(Utils.POM_FILE)) {
+                return null;
+            }
+
+            File moduleDir = file.getParentFile();
+            while (moduleDir != null && !new File(moduleDir, Utils.POM_FILE).exists()) {
+                moduleDir = moduleDir.getParentFile();
+            }
+            if (moduleDir == null) {
+                return null;
+            }
+            Model model = modelService.getModel(new File(moduleDir, Utils.POM_FILE));
+            if (model == null) {
+                return null;
+            }
+
+            Path filePath = file.getAbsoluteFile().toPath().normalize();
+            if (filePath.startsWith(getBuildDirectory(moduleDir, model))) {
+                continue;
+            }
+            boolean inSourceRoot = false;
+            for (Path sourceRoot : getSourceRoots(moduleDir, model)) {
+                inSourceRoot |= filePath.startsWith(sourceRoot);
+            }
+            if (!inSourceRoot) {
+                return null;
+            }
+
+            Path modulePath = moduleDir.getAbsoluteFile().toPath().normalize();
+            if (modulePath.equals(rootPath)) {
+                modules.add(".");
+            } else if (modulePath.startsWith(rootPath)) {
+                modules.add(rootPath.relativize(modulePath).toString());
+            } else {
+                return null;
+            }
+        }
+        return new ArrayList<>(modules);
+    }
+
+    /**
+     * Compute the modules built by maven with the given modules and --also-make-dependents: the given modules and
+     * the modules of the project depending on them, directly or not, as a dependency, a plugin or a parent.
+     *
+     * @param rootPomDir the directory of the pom file which is built
+     * @param modules the paths of the modules relatively to rootPomDir
+     * @return the paths of the modules relatively to rootPomDir, sorted.
+     */
+    public static List<String> findDependentModules(File rootPomDir, List<String> modules, ProjectModelService modelService) {
+        Path rootPath = rootPomDir.getAbsoluteFile().toPath().normalize();
+        Map<String, Path> modulesByKey = new HashMap<>();
+        Map<Path, Model> models = new HashMap<>();
+        for (File moduleDir : modelService.loadModuleTree(new File(rootPomDir, Utils.POM_FILE))) {
+            Model model = modelService.getModel(new File(moduleDir, Utils.POM_FILE));
+            if (model != null) {
+                Path modulePath = moduleDir.toPath();
+                models.put(modulePath, model);
+                modulesByKey.put(getGroupId(model) + ":" + model.getArtifactId(), modulePath);
+            }
+        }
+
+        Set<Path> builtModules = new HashSet<>();
+        for (String module : modules) {
+            builtModules.add(getCanonicalPath(rootPath.resolve(module)));
+        }
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (Map.Entry<Path, Model> entry : models.entrySet()) {
+                if (builtModules.contains(entry.getKey())) {
+                    continue;
+                }
+                for (String key : getReactorDependencies(entry.getValue())) {
+                    if (modulesByKey.containsKey(key) && builtModules.contains(modulesByKey.get(key))) {
+                        builtModules.add(entry.getKey());
+                        changed = true;
+                        break;
+                    }
+                }
+            }
+        }
+
+        Path canonicalRootPath = getCanonicalPath(rootPath);
+        Set<String> result = new TreeSet<>();
+        for (Path modulePath : builtModules) {
+            result.add(modulePath.equals(canonicalRootPath) ? "." : canonicalRootPath.relativize(modulePath).toString());
+        }
+        return new ArrayList<>(result);
+    }
+
+    private static String getGroupId(Model model) {
+        if (model.getGroupId() == null && model.getParent() != null) {
+            return model.getParent().getGroupId();
+        }
+        return model.getGroupId();
+    }
+
+    private static List<String> getReactorDependencies(Model model) {
+        List<String> keys = new ArrayList<>();
+        if (model.getParent() != null) {
+            keys.add(model.getParent().getGroupId() + ":" + model.getParent().getArtifactId());
+        }
+        for (Dependency dependency : model.getDependencies()) {
+            keys.add(dependency.getGroupId() + ":" + dependency.getArtifactId());
+        }
+        if (model.getBuild() != null) {
+            for (Plugin plugin : model.getBuild().getPlugins()) {
+                keys.add(plugin.getGroupId() + ":" + plugin.getArtifactId());
+                for (Dependency dependency : plugin.getDependencies()) {
+                    keys.add(dependency.getGroupId() + ":" + dependency.getArtifactId());
+                }
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * @return the build directory of the given module, target/ by default.
+     */
+    public static Path getBuildDirectory(File moduleDir, Model model) {
+        Build build = model.getBuild();
+        return resolve(moduleDir, (build != null) ? build.getDirectory() : null, "target");
+    }
+
+    /**
+     * @return the source, test source and resource directories of the given module, with the default ones
+     * of maven for the directories which are not declared.
+     */
+    public static List<Path> getSourceRoots(File moduleDir, Model model) {
+        Build build = (model.getBuild() != null) ? model.getBuild() : new Build();
+        List<Path> sourceRoots = new ArrayList<>();
+        sourceRoots.add(resolve(moduleDir, build.getSourceDirectory(), "src/main/java"));
+        sourceRoots.add(resolve(moduleDir, build.getTestSourceDirectory(), "src/test/java"));
+        sourceRoots.add(resolve(moduleDir, build.getScriptSourceDirectory(), "src/main/scripts"));
+        if (build.getResources().isEmpty()) {
+            sourceRoots.add(resolve(moduleDir, null, "src/main/resources"));
+        }
+        for (Resource resource : build.getResources()) {
+            sourceRoots.add(resolve(moduleDir, resource.getDirectory(), "src/main/resources"));
+        }
+        if (build.getTestResources().isEmpty()) {
+            sourceRoots.add(resolve(moduleDir, null, "src/test/resources"));
+        }
+        for (Resource resource : build.getTestResources()) {
+            sourceRoots.add(resolve(moduleDir, resource.getDirectory(), "src/test/resources"));
+        }
+        return sourceRoots;
+    }
+
+    /**
+     * @param pluginKey the key of the plugin, on the form groupId:artifactId
+     * @param executionId the execution whose configuration overrides the one of the plugin
+     * @return the configuration of the given plugin in the given model, or null if the plugin is not configured.
+     */
+    public static Xpp3Dom getPluginConfiguration(Model model, String pluginKey, String executionId) {
+        if (model.getBuild() == null) {
+            return null;
+        }
+        Plugin plugin = model.getBuild().getPluginsAsMap().get(pluginKey);
+        if (plugin == null) {
+            return null;
+        }
+        Xpp3Dom configuration = (Xpp3Dom) plugin.getConfiguration();
+        PluginExecution execution = plugin.getExecutionsAsMap().get(executionId);
+        if (execution != null && execution.getConfiguration() != null) {
+            Xpp3Dom executionConfiguration = new Xpp3Dom((Xpp3Dom) execution.getConfiguration());
+            configuration = (configuration == null) ? executionConfiguration : Xpp3Dom.mergeXpp3Dom(executionConfiguration, configuration);
+        }
+        return configuration;
+    }
+
+    private static Path resolve(File moduleDir, String path, String defaultPath) {
+        // the paths of an effective model are absolute, but not the ones of a raw model
+        File file = new File((path != null) ? path : defaultPath);
+        if (!file.isAbsolute()) {
+            file = new File(moduleDir, file.getPath());
+        }
+        return file.getAbsoluteFile().toPath().normalize();
+    }
+
+    private static Path getCanonicalPath(Path path) {
+        try {
+            return path.toFile().getCanonicalFile().toPath();
+        } catch (IOException e) {
+            return path.toAbsolutePath().normalize();
+        }
+    }
+
     // we manage our own timeout
     public int run() throws InterruptedException {
+        SharedMavenRepository sharedMavenRepository = SharedMavenRepository.fromConfig();
+        if (sharedMavenRepository != null) {
+            // the dedicated Maven repository starts with the artifacts downloaded by the previous builds
+            sharedMavenRepository.seed(this.inspector.getM2LocalPath());
+        }
+
         RunnableMavenInvoker runnableMavenInvoker = new RunnableMavenInvoker(this);
         Thread t = new Thread(runnableMavenInvoker);
-        this.updateLastOutputDate();
+        // maven is executed in a child process: its resources are measured by the process tree probe,
+        // except when a Maven daemon is used as the build is then executed in the daemon
+        this.outputClassifier = new MavenOutputClassifier();
+        ResourceMonitor resourceMonitor = ResourceMonitor.start(this.name + " " + this.goal, ResourceMetrics.Kind.MAVEN);
+        // the watchdog kills the whole process tree of maven, including the forked JVMs of surefire, on timeout
+        this.execution = ProcessWatchdog.getInstance().watch(this.name + " " + this.goal,
+                TimeUnit.MINUTES.toMillis(TIMEOUT_WITHOUT_OUTPUT),
+                TimeUnit.MINUTES.toMillis(RepairnatorConfig.getInstance().getProcessTimeout()));
+        if (RunnableMavenInvoker.isMavenDaemonEnabled()) {
+            // a daemon started by this build must stay alive for the next builds, but on timeout the daemon executing
+            // this build is killed with its client, as interrupting the client does not stop the build in the daemon
+            this.execution.spare(RunnableMavenInvoker.MAVEN_DAEMON_MAIN_CLASS);
+        }
         t.start();
 
-        while (t.isAlive()) {
-            Instant now = new Date().toInstant();
-
-            if (now.isAfter(this.limitOutputDate)) {
-                t.interrupt();
-                throw new InterruptedException("Timeout occurred: no output has been received in the last "+TIMEOUT_WITHOUT_OUTPUT+" minutes.");
-            } else {
-                Thread.sleep(1000);
+        try {
+            while (t.isAlive()) {
+                if (this.execution.isTimedOut()) {
+                    t.interrupt();
+                    throw new InterruptedException("Timeout occurred: " + this.execution.getTimeoutReason());
+                }
+                if (this.stopCondition != null && !this.execution.isStopped() && this.stopCondition.getAsBoolean()) {
+                    // maven is killed by the watchdog, and ends as if it failed
+                    this.execution.stop("the stop condition of the execution has been met.");
+                }
+                t.join(1000);
             }
+        } finally {
+            this.execution.close();
+            ResourceMetrics metrics = resourceMonitor.stop();
+            metrics.setWatchedCpuTime(this.execution.getCpuTime());
+            this.inspector.getJobStatus().addResourceMetrics(metrics);
+            this.reportErrors();
         }
 
         return runnableMavenInvoker.getExitCode();
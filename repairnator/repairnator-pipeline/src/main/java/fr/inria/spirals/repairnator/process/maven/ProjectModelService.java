@@ -0,0 +1,189 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import fr.inria.spirals.repairnator.Utils;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.building.DefaultModelBuilder;
+import org.apache.maven.model.building.DefaultModelBuilderFactory;
+import org.apache.maven.model.building.ModelCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * This class gives the effective models of the pom.xml files of a project, for the steps which compute
+ * the modules and the source and test directories.
+ *
+ * Each model is only built once: the models are cached by the canonical path of their pom.xml, and built again
+ * only if the file has been modified since. The models of the parents and of the imported poms are cached as well,
+ * so that they are only resolved once for all the modules. As a model depends on its parents, which are cached by their
+ * coordinates, the cache must be cleared with {@link #clear()} each time the working tree is checked out.
+ * The tree of modules can be loaded at once: the modules are then traversed in parallel in a fork/join pool.
+ */
+public class ProjectModelService {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProjectModelService.class);
+
+    private final String localMavenRepository;
+    private final DefaultModelBuilder modelBuilder;
+    private final SharedModelCache modelCache;
+    private final Map<String, CachedModel> models;
+
+    public ProjectModelService(String localMavenRepository) {
+        this.localMavenRepository = localMavenRepository;
+        this.modelBuilder = new DefaultModelBuilderFactory().newInstance();
+        this.modelCache = new SharedModelCache();
+        this.models = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * @return the effective model of the given pom.xml, or null if it cannot be built.
+     */
+    public Model getModel(File pomFile) {
+        File canonicalPomFile = getCanonicalFile(pomFile);
+        String key = canonicalPomFile.getPath();
+        long lastModified = canonicalPomFile.lastModified();
+
+        while (true) {
+            CachedModel cachedModel = this.models.get(key);
+            if (cachedModel != null && cachedModel.lastModified == lastModified) {
+                // the model might be built by another thread: we wait for it
+                return cachedModel.model.join();
+            }
+
+            CachedModel newModel = new CachedModel(lastModified);
+            boolean owner = (cachedModel == null) ? this.models.putIfAbsent(key, newModel) == null : this.models.replace(key, cachedModel, newModel);
+            if (owner) {
+                Model model = null;
+                try {
+                    model = MavenHelper.readPomXml(canonicalPomFile, this.localMavenRepository, this.modelBuilder, this.modelCache);
+                } catch (RuntimeException e) {
+                    LOGGER.error("Error while building the model of " + canonicalPomFile, e);
+                } finally {
+                    newModel.model.complete(model);
+                }
+                return model;
+            }
+        }
+    }
+
+    /**
+     * Forget all the models: the model of a pom.xml which has not been modified might depend on a parent which has been,
+     * e.g. after a checkout. The models being built meanwhile are not affected.
+     */
+    public void clear() {
+        this.models.clear();
+        this.modelCache.clear();
+    }
+
+    /**
+     * Build the models of the given pom.xml and of all its modules, recursively, in parallel.
+     * The models are then given by {@link #getModel(File)} without being built again.
+     *
+     * @return the canonical directories of the given pom.xml and of all its modules, sorted.
+     */
+    public List<File> loadModuleTree(File rootPomFile) {
+        Set<String> visitedPomFiles = ConcurrentHashMap.newKeySet();
+        ForkJoinPool.commonPool().invoke(new LoadModuleTask(getCanonicalFile(rootPomFile), visitedPomFiles));
+
+        List<File> moduleDirs = new ArrayList<>();
+        for (String pomFile : visitedPomFiles) {
+            moduleDirs.add(new File(pomFile).getParentFile());
+        }
+        Collections.sort(moduleDirs);
+        return moduleDirs;
+    }
+
+    /**
+     * @return the pom.xml of the given module of the given pom.xml: a module can be given by its directory or by its pom file.
+     */
+    public static File getModulePomFile(File pomFile, String moduleName) {
+        File module = new File(pomFile.getParentFile(), moduleName);
+        if (module.isFile()) {
+            return module;
+        }
+        return new File(module, Utils.POM_FILE);
+    }
+
+    private static File getCanonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            LOGGER.warn("Error while getting the canonical path of " + file + ": " + e);
+            return file.getAbsoluteFile();
+        }
+    }
+
+    private class LoadModuleTask extends RecursiveAction {
+        private final File pomFile;
+        private final Set<String> visitedPomFiles;
+
+        LoadModuleTask(File pomFile, Set<String> visitedPomFiles) {
+            this.pomFile = pomFile;
+            this.visitedPomFiles = visitedPomFiles;
+        }
+
+        @Override
+        protected void compute() {
+            // the modules might reference each other: each pom.xml is only visited once
+            if (!this.pomFile.isFile() || !this.visitedPomFiles.add(this.pomFile.getPath())) {
+                return;
+            }
+
+            Model model = getModel(this.pomFile);
+            if (model == null || model.getModules() == null) {
+                return;
+            }
+
+            List<LoadModuleTask> subtasks = new ArrayList<>();
+            for (String moduleName : model.getModules()) {
+                subtasks.add(new LoadModuleTask(getCanonicalFile(getModulePomFile(this.pomFile, moduleName)), this.visitedPomFiles));
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    private static class CachedModel {
+        private final long lastModified;
+        private final CompletableFuture<Model> model;
+
+        CachedModel(long lastModified) {
+            this.lastModified = lastModified;
+            this.model = new CompletableFuture<>();
+        }
+    }
+
+    /**
+     * The cache of the models of the parents and of the imported poms, shared by all the builds of models.
+     */
+    private static class SharedModelCache implements ModelCache {
+        private final Map<String, Object> data = new ConcurrentHashMap<>();
+
+        private static String getKey(String groupId, String artifactId, String version, String tag) {
+            return groupId + ":" + artifactId + ":" + version + ":" + tag;
+        }
+
+        @Override
+        public void put(String groupId, String artifactId, String version, String tag, Object data) {
+            this.data.put(getKey(groupId, artifactId, version, tag), data);
+        }
+
+        @Override
+        public Object get(String groupId, String artifactId, String version, String tag) {
+            return this.data.get(getKey(groupId, artifactId, version, tag));
+        }
+
+        void clear() {
+            this.data.clear();
+        }
+    }
+}
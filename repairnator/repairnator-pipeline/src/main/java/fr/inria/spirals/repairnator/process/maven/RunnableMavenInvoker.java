@@ -1,5 +1,7 @@
 package fr.inria.spirals.repairnator.process.maven;
 
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.instrumentation.ProcessWatchdog;
 import org.apache.maven.shared.invoker.DefaultInvocationRequest;
 import org.apache.maven.shared.invoker.DefaultInvoker;
 import org.apache.maven.shared.invoker.InvocationRequest;
@@ -11,11 +13,20 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Properties;
 
 /**
  * This class allows us to run a Maven goal in a dedicated thread that we can interrupt for timeout
+ *
+ * If a Maven daemon is configured (see {@link RepairnatorConfig#getMavenDaemonPath()}), the goal is executed
+ * by the daemon instead of a new Maven process: the daemon keeps warm JVMs with the plugins and the project
+ * models already loaded, which saves the startup of Maven for each goal.
  */
 public class RunnableMavenInvoker implements Runnable {
+    private static final String MAVEN_DAEMON_RAW_STREAMS = "mvnd.rawStreams";
+    // the main class of the daemon, which is the same in all the versions of mvnd up to its package
+    static final String MAVEN_DAEMON_MAIN_CLASS = "mvnd.daemon.Server";
+
     private final Logger logger = LoggerFactory.getLogger(RunnableMavenInvoker.class);
 
     private MavenHelper mavenHelper;
@@ -30,12 +41,39 @@ public class RunnableMavenInvoker implements Runnable {
     public void run() {
         InvocationRequest request = new DefaultInvocationRequest();
         request.setPomFile(new File(this.mavenHelper.getPomFile()));
-        request.setGoals(Arrays.asList(this.mavenHelper.getGoal()));
-        request.setProperties(this.mavenHelper.getProperties());
+        // several goals can be given separated by spaces
+        request.setGoals(Arrays.asList(this.mavenHelper.getGoal().split(" ")));
         request.setBatchMode(true);
 
+        if (this.mavenHelper.getProjects() != null) {
+            // only build the given modules and the ones depending on them
+            request.setProjects(this.mavenHelper.getProjects());
+            request.setAlsoMakeDependents(true);
+        }
+        request.setOffline(this.mavenHelper.isOffline());
+
+        if (this.mavenHelper.getExecution() != null) {
+            // the marker is inherited by all the processes started by maven: when the client of the Maven daemon
+            // starts a new daemon, the daemon inherits it as well but is spared by the watchdog (see MavenHelper#run)
+            request.addShellEnvironment(ProcessWatchdog.MARKER_VARIABLE, this.mavenHelper.getExecution().getMarker());
+        }
+
         Invoker invoker = new DefaultInvoker();
 
+        if (isMavenDaemonEnabled()) {
+            invoker.setMavenExecutable(new File(RepairnatorConfig.getInstance().getMavenDaemonPath()));
+
+            // the daemon builds the modules in parallel by default and prints its own console:
+            // we want the same output as with a usual Maven to be able to analyze it
+            Properties properties = new Properties();
+            properties.putAll(this.mavenHelper.getProperties());
+            properties.setProperty(MAVEN_DAEMON_RAW_STREAMS, "true");
+            request.setProperties(properties);
+            request.setThreads("1");
+        } else {
+            request.setProperties(this.mavenHelper.getProperties());
+        }
+
         if (this.mavenHelper.getErrorHandler() != null) {
             invoker.setErrorHandler(this.mavenHelper.getErrorHandler());
         }
@@ -54,6 +92,11 @@ public class RunnableMavenInvoker implements Runnable {
         }
     }
 
+    static boolean isMavenDaemonEnabled() {
+        String mavenDaemonPath = RepairnatorConfig.getInstance().getMavenDaemonPath();
+        return mavenDaemonPath != null && !mavenDaemonPath.isEmpty();
+    }
+
     public int getExitCode() {
         return exitCode;
     }
@@ -0,0 +1,417 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is a maven repository shared by all the builds processed on a machine, to avoid downloading
+ * the dependencies of a project for each of its builds.
+ *
+ * Before the first maven goal of a build, the local repository of the build is seeded with the artifacts
+ * of the shared repository as hard links: any version of maven then finds them as if the build had downloaded them,
+ * and only downloads the missing ones in the local repository of the build. The files which maven rewrites in place,
+ * like _remote.repositories, are copied instead of linked. The shared repository must then be on the same file system
+ * as the local repositories of the builds: if it is not, it is not used and an error is logged.
+ *
+ * At the end of the build, the released artifacts downloaded by the build are promoted to the shared repository.
+ * The SNAPSHOT artifacts, which are built by the projects themselves, stay in the local repository of the build.
+ * A released artifact never changes: an artifact is only promoted if it is not already in the shared repository
+ * and if its files match their checksums.
+ *
+ * The seedings, the promotions and the evictions are done while holding a lock on the shared repository, as several
+ * pipelines might use it at the same time. When the shared repository is bigger than {@link RepairnatorConfig#getSharedMavenRepositoryMaxSize()},
+ * the least recently used artifacts of the classpaths of the builds are evicted. As a running build has its own links
+ * to the artifacts, evicting them from the shared repository never removes them from its classpath.
+ * The hits and misses of the shared repository are counted in the {@link fr.inria.spirals.repairnator.process.inspectors.JobStatus}
+ * of each build.
+ */
+public class SharedMavenRepository {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SharedMavenRepository.class);
+
+    private static final String LOCK_FILE = ".lock";
+    private static final String SEEDED_MARKER_FILE = ".seeded";
+    private static final String TMP_DIRECTORY = ".tmp";
+    private static final String SNAPSHOT_SUFFIX = "-SNAPSHOT";
+    private static final String SHA1_EXTENSION = ".sha1";
+    private static final String LAST_UPDATED_EXTENSION = ".lastUpdated";
+    // the files written in place by maven, which must not be shared by the builds
+    private static final List<String> REWRITTEN_EXTENSIONS = Arrays.asList(".repositories", ".properties");
+    private static final long DEFAULT_EVICTION_GRACE_PERIOD = TimeUnit.HOURS.toMillis(1);
+
+    // the lock of a file is held by the whole JVM: the pipelines of the same JVM are synchronized on this object
+    private static final Object JVM_LOCK = new Object();
+
+    private File repositoryDir;
+    private long maxSize;
+    private long evictionGracePeriod;
+
+    public SharedMavenRepository(String repositoryPath, long maxSize) {
+        this(repositoryPath, maxSize, DEFAULT_EVICTION_GRACE_PERIOD);
+    }
+
+    SharedMavenRepository(String repositoryPath, long maxSize, long evictionGracePeriod) {
+        this.repositoryDir = new File(repositoryPath).getAbsoluteFile();
+        this.maxSize = maxSize;
+        this.evictionGracePeriod = evictionGracePeriod;
+    }
+
+    /**
+     * @return the shared repository configured in {@link RepairnatorConfig} or null if no shared repository is configured.
+     */
+    public static SharedMavenRepository fromConfig() {
+        RepairnatorConfig config = RepairnatorConfig.getInstance();
+        if (config.getSharedMavenRepositoryPath() == null || config.getSharedMavenRepositoryPath().isEmpty()) {
+            return null;
+        }
+        return new SharedMavenRepository(config.getSharedMavenRepositoryPath(), config.getSharedMavenRepositoryMaxSize() * FileUtils.ONE_MB);
+    }
+
+    public String getPath() {
+        return this.repositoryDir.getPath();
+    }
+
+    /**
+     * Seed the given local repository of a build with the artifacts of the shared repository, if it has not been
+     * seeded yet: the artifacts already in the local repository are kept.
+     */
+    public void seed(String localRepositoryPath) {
+        File localRepositoryDir = new File(localRepositoryPath).getAbsoluteFile();
+        File seededMarker = new File(localRepositoryDir, SEEDED_MARKER_FILE);
+
+        synchronized (JVM_LOCK) {
+            if (seededMarker.exists()) {
+                return;
+            }
+            try {
+                Files.createDirectories(localRepositoryDir.toPath());
+                if (this.repositoryDir.isDirectory()) {
+                    if (!Files.getFileStore(localRepositoryDir.toPath()).equals(Files.getFileStore(this.repositoryDir.toPath()))) {
+                        LOGGER.error("The shared maven repository " + this.repositoryDir.getPath() + " cannot be linked in " + localRepositoryDir.getPath()
+                                + " as they are not on the same file system: the build will download all its artifacts.");
+                    } else {
+                        try (FileChannel channel = FileChannel.open(new File(this.repositoryDir, LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                             FileLock lock = channel.lock()) {
+                            int seeded = this.linkArtifacts(localRepositoryDir);
+                            LOGGER.info("Shared maven repository: " + seeded + " artifact(s) linked in " + localRepositoryDir.getPath() + ".");
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                LOGGER.warn("Error while seeding " + localRepositoryDir.getPath() + " with the shared maven repository: " + e);
+            }
+
+            // the seeding is not tried again for the next goals of the build, even if it failed
+            try {
+                Files.write(seededMarker.toPath(), new byte[0]);
+            } catch (IOException e) {
+                LOGGER.debug("Error while marking " + localRepositoryDir.getPath() + " as seeded: " + e);
+            }
+        }
+    }
+
+    private int linkArtifacts(File localRepositoryDir) throws IOException {
+        int linked = 0;
+        for (Path artifactDir : findArtifactDirectories(this.repositoryDir.toPath())) {
+            File localArtifactDir = new File(localRepositoryDir, this.repositoryDir.toPath().relativize(artifactDir).toString());
+            File[] files = artifactDir.toFile().listFiles();
+            if (localArtifactDir.exists() || files == null) {
+                continue;
+            }
+
+            Files.createDirectories(localArtifactDir.toPath());
+            for (File file : files) {
+                if (!file.isFile()) {
+                    continue;
+                }
+                Path localFile = new File(localArtifactDir, file.getName()).toPath();
+                if (isRewrittenByMaven(file)) {
+                    Files.copy(file.toPath(), localFile);
+                } else {
+                    Files.createLink(localFile, file.toPath());
+                }
+            }
+            linked++;
+        }
+        return linked;
+    }
+
+    /**
+     * Create a local repository with the files of the given one, as hard links, except the files which maven
+     * rewrites in place, which are copied: the two local repositories can then be used at the same time.
+     * A file is copied as well if it cannot be linked, e.g. if the repositories are on different file systems.
+     */
+    public static void linkLocalRepository(File localRepositoryDir, File targetDir) throws IOException {
+        Path source = localRepositoryDir.toPath();
+        Path target = targetDir.toPath();
+        Files.walkFileTree(source, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Files.createDirectories(target.resolve(source.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path targetFile = target.resolve(source.relativize(file));
+                if (!attrs.isRegularFile() || Files.exists(targetFile)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                if (isRewrittenByMaven(file.toFile())) {
+                    Files.copy(file, targetFile);
+                } else {
+                    try {
+                        Files.createLink(targetFile, file);
+                    } catch (IOException | UnsupportedOperationException e) {
+                        Files.copy(file, targetFile);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static boolean isRewrittenByMaven(File file) {
+        for (String extension : REWRITTEN_EXTENSIONS) {
+            if (file.getName().endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Promote the released artifacts of the local repository of the given inspector to the shared repository,
+     * and evict the least recently used artifacts if needed. The artifacts of the classpath found in the shared
+     * repository are counted as hits, and the released artifacts downloaded by the build as misses.
+     */
+    public void promote(ProjectInspector inspector) {
+        File localRepositoryDir = new File(inspector.getM2LocalPath());
+        List<URL> classpath = new ArrayList<>(inspector.getJobStatus().getRepairClassPath());
+
+        try {
+            Files.createDirectories(this.repositoryDir.toPath());
+            synchronized (JVM_LOCK) {
+                try (FileChannel channel = FileChannel.open(new File(this.repositoryDir, LOCK_FILE).toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     FileLock lock = channel.lock()) {
+                    int hits = this.touchUsedArtifacts(localRepositoryDir, classpath);
+                    int misses = 0;
+                    if (localRepositoryDir.isDirectory()) {
+                        misses = this.promoteArtifacts(localRepositoryDir);
+                    }
+                    inspector.getJobStatus().addSharedMavenRepositoryHits(hits);
+                    inspector.getJobStatus().addSharedMavenRepositoryMisses(misses);
+                    LOGGER.info("Shared maven repository: " + hits + " artifact(s) of the classpath reused, " + misses + " artifact(s) downloaded by the build.");
+
+                    this.evict();
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Error while promoting the artifacts of " + localRepositoryDir.getPath() + " to the shared maven repository: " + e);
+        }
+    }
+
+    /**
+     * The modification date of the directory of an artifact is its last usage date,
+     * used to evict the least recently used artifacts.
+     *
+     * @return the number of artifacts of the classpath which are in the shared repository.
+     */
+    private int touchUsedArtifacts(File localRepositoryDir, List<URL> classpath) {
+        Path localRepository = localRepositoryDir.getAbsoluteFile().toPath();
+        Set<File> artifactDirs = new HashSet<>();
+        for (URL url : classpath) {
+            try {
+                Path file = new File(url.toURI()).getAbsoluteFile().toPath();
+                if (file.startsWith(localRepository)) {
+                    File sharedArtifactDir = new File(this.repositoryDir, localRepository.relativize(file).toString()).getParentFile();
+                    if (sharedArtifactDir.isDirectory()) {
+                        artifactDirs.add(sharedArtifactDir);
+                    }
+                }
+            } catch (URISyntaxException | IllegalArgumentException e) {
+                LOGGER.debug("Error while reading the classpath entry " + url + ": " + e);
+            }
+        }
+
+        FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+        for (File artifactDir : artifactDirs) {
+            try {
+                Files.setLastModifiedTime(artifactDir.toPath(), now);
+            } catch (IOException e) {
+                LOGGER.debug("Error while updating the last usage date of " + artifactDir.getPath() + ": " + e);
+            }
+        }
+        return artifactDirs.size();
+    }
+
+    private int promoteArtifacts(File localRepositoryDir) throws IOException {
+        List<Path> artifactDirs = findArtifactDirectories(localRepositoryDir.toPath());
+        File tmpDir = new File(this.repositoryDir, TMP_DIRECTORY);
+
+        int downloaded = 0;
+        for (Path artifactDir : artifactDirs) {
+            if (artifactDir.getFileName().toString().endsWith(SNAPSHOT_SUFFIX)) {
+                continue;
+            }
+
+            Path relativePath = localRepositoryDir.toPath().relativize(artifactDir);
+            File sharedArtifactDir = new File(this.repositoryDir, relativePath.toString());
+            // the artifact has been linked from the shared repository
+            if (sharedArtifactDir.exists()) {
+                continue;
+            }
+            downloaded++;
+            if (!this.isValid(artifactDir)) {
+                LOGGER.debug("The artifact " + relativePath + " does not match its checksums: it is not promoted.");
+                continue;
+            }
+
+            // the artifact is copied then moved, so that a build never sees a partially copied artifact
+            File tmpArtifactDir = new File(tmpDir, UUID.randomUUID().toString());
+            try {
+                Files.createDirectories(tmpArtifactDir.toPath());
+                for (File file : artifactDir.toFile().listFiles()) {
+                    if (file.isFile() && !file.getName().endsWith(LAST_UPDATED_EXTENSION)) {
+                        Files.copy(file.toPath(), new File(tmpArtifactDir, file.getName()).toPath(), StandardCopyOption.COPY_ATTRIBUTES);
+                    }
+                }
+                Files.createDirectories(sharedArtifactDir.getParentFile().toPath());
+                Files.move(tmpArtifactDir.toPath(), sharedArtifactDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                LOGGER.debug("Error while promoting the artifact " + relativePath + ": " + e);
+                FileUtils.deleteQuietly(tmpArtifactDir);
+            }
+        }
+        return downloaded;
+    }
+
+    /**
+     * @return the directories of the artifacts of the given repository, i.e. the directories groupId/artifactId/version
+     * containing the file artifactId-version.pom.
+     */
+    static List<Path> findArtifactDirectories(Path repository) throws IOException {
+        List<Path> artifactDirs = new ArrayList<>();
+        Files.walkFileTree(repository, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (dir.getFileName() != null && dir.getFileName().toString().startsWith(".") && !dir.equals(repository)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Path parent = dir.getParent();
+                if (parent != null && !dir.equals(repository) && !parent.equals(repository)) {
+                    String version = dir.getFileName().toString();
+                    String artifactId = parent.getFileName().toString();
+                    if (Files.isRegularFile(dir.resolve(artifactId + "-" + version + ".pom"))) {
+                        artifactDirs.add(dir);
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return artifactDirs;
+    }
+
+    private boolean isValid(Path artifactDir) {
+        File[] files = artifactDir.toFile().listFiles();
+        if (files == null) {
+            return false;
+        }
+        for (File file : files) {
+            File checksumFile = new File(file.getPath() + SHA1_EXTENSION);
+            if (!file.isFile() || !checksumFile.isFile()) {
+                continue;
+            }
+            try {
+                String expected = new String(Files.readAllBytes(checksumFile.toPath()), StandardCharsets.UTF_8).trim().split("\\s+")[0];
+                if (!expected.equalsIgnoreCase(sha1(file))) {
+                    return false;
+                }
+            } catch (IOException | NoSuchAlgorithmException e) {
+                LOGGER.debug("Error while checking the checksum of " + file.getPath() + ": " + e);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String sha1(File file) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-1");
+        byte[] buffer = new byte[8192];
+        try (InputStream inputStream = Files.newInputStream(file.toPath())) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        StringBuilder result = new StringBuilder();
+        for (byte b : digest.digest()) {
+            result.append(String.format("%02x", b));
+        }
+        return result.toString();
+    }
+
+    private void evict() throws IOException {
+        // the temporary directory only exists if an artifact has been promoted
+        FileUtils.deleteQuietly(new File(this.repositoryDir, TMP_DIRECTORY));
+
+        List<File> artifactDirs = new ArrayList<>();
+        Map<File, Long> sizes = new HashMap<>();
+        long totalSize = 0;
+        for (Path artifactDir : findArtifactDirectories(this.repositoryDir.toPath())) {
+            long size = FileUtils.sizeOfDirectory(artifactDir.toFile());
+            artifactDirs.add(artifactDir.toFile());
+            sizes.put(artifactDir.toFile(), size);
+            totalSize += size;
+        }
+        if (totalSize <= this.maxSize) {
+            return;
+        }
+
+        long limitDate = System.currentTimeMillis() - this.evictionGracePeriod;
+        artifactDirs.sort(Comparator.comparingLong(File::lastModified));
+        int evicted = 0;
+        for (File artifactDir : artifactDirs) {
+            if (totalSize <= this.maxSize || artifactDir.lastModified() > limitDate) {
+                break;
+            }
+            FileHelper.deleteFile(artifactDir);
+            totalSize -= sizes.get(artifactDir);
+            evicted++;
+        }
+        LOGGER.info("Shared maven repository: " + evicted + " artifact(s) evicted, " + FileUtils.byteCountToDisplaySize(totalSize) + " used.");
+    }
+}
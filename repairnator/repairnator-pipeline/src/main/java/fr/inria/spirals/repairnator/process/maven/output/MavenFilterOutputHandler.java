@@ -17,8 +17,6 @@ public class MavenFilterOutputHandler extends MavenOutputHandler {
         super.consumeLine(s);
 
         this.getLogger().debug(s);
-        if (s.contains("[ERROR]")) {
-            this.inspector.getJobStatus().addStepError(name, s);
-        }
+        this.getOutputClassifier().consume(s);
     }
 }
@@ -15,5 +15,6 @@ public class MavenMuteOutputHandler extends MavenOutputHandler {
     public void consumeLine(String s) {
         super.consumeLine(s);
         this.getLogger().debug(s);
+        this.getOutputClassifier().consume(s);
     }
 }
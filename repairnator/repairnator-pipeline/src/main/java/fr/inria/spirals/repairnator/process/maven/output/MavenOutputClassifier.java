@@ -0,0 +1,273 @@
+package fr.inria.spirals.repairnator.process.maven.output;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class classifies the output of maven line by line, while it is produced, in categories of errors.
+ *
+ * Only the last lines of each category are kept, so that the memory used does not depend on the size of the output,
+ * and the consecutive duplicated lines are only counted. The compilation errors and the summary of the tests
+ * are also parsed, so that the steps can decide of their state from the cause of a failure of maven.
+ *
+ * Only the errors are classified: the warnings, e.g. of a deprecation or of an artifact missing in a mirror
+ * but found in the next one, are not causes of failure. The categories only explain a failure of maven:
+ * they never make a successful execution fail.
+ */
+public class MavenOutputClassifier {
+    public static final int MAX_LINES_PER_CATEGORY = 20;
+
+    private static final String ERROR_PREFIX = "[ERROR]";
+
+    // the lines printed by maven after each failure, which do not tell anything about the failure
+    private static final List<String> IGNORED_ERRORS = Arrays.asList(
+            "-> [Help 1]",
+            "To see the full stack trace of the errors",
+            "Re-run Maven using the -X switch",
+            "For more information about the errors and possible solutions",
+            "[Help 1]",
+            "After correcting the problems, you can resume the build",
+            "mvn <goals> -rf"
+    );
+
+    private static final Pattern COMPILATION_ERROR = Pattern.compile("^\\[ERROR\\] (.+\\.java):\\[(\\d+)(?:,\\d+)?\\] (.*)$");
+    private static final Pattern TESTS_SUMMARY = Pattern.compile("Tests run: (\\d+), Failures: (\\d+), Errors: (\\d+)(?:, Skipped: \\d+)?$");
+
+    public enum Category {
+        DEPENDENCY_RESOLUTION("Could not resolve dependencies", "Failed to collect dependencies", "Could not find artifact",
+                "Could not transfer artifact", "Non-resolvable parent POM", "Non-resolvable import POM", "Failure to find",
+                "in offline mode"),
+        COMPILATION("COMPILATION ERROR", "Compilation failure"),
+        TEST_FAILURE("There are test failures", "Failed tests:", "Tests in error:", "There was a timeout or other error in the fork"),
+        OUT_OF_MEMORY("java.lang.OutOfMemoryError", "GC overhead limit exceeded"),
+        PLUGIN_FAILURE("Failed to execute goal", "Plugin execution not covered", "Unknown lifecycle phase", "PluginResolutionException"),
+        OTHER();
+
+        private final List<String> markers;
+
+        Category(String... markers) {
+            this.markers = Arrays.asList(markers);
+        }
+
+        private boolean matches(String line) {
+            for (String marker : this.markers) {
+                if (line.contains(marker)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * An error of compilation given by the maven compiler plugin.
+     */
+    public static class CompilationError {
+        private final String file;
+        private final int line;
+        private final String message;
+
+        public CompilationError(String file, int line, String message) {
+            this.file = file;
+            this.line = line;
+            this.message = message;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return file + ":" + line + " " + message;
+        }
+    }
+
+    private final Map<Category, Deque<String>> lines;
+    private final Map<Category, Integer> counts;
+    private final Deque<CompilationError> compilationErrors;
+    private int nbCompilationErrors;
+    private int nbTestsRun;
+    private int nbTestFailures;
+    private int nbTestErrors;
+
+    public MavenOutputClassifier() {
+        this.lines = new EnumMap<>(Category.class);
+        this.counts = new EnumMap<>(Category.class);
+        this.compilationErrors = new ArrayDeque<>();
+    }
+
+    /**
+     * Classify a line of the standard output: only the errors are classified, in {@link Category#OTHER} if they
+     * do not belong to any category. The summaries of the tests are counted whatever their level.
+     */
+    public synchronized void consume(String line) {
+        if (!line.startsWith(ERROR_PREFIX)) {
+            Matcher testsMatcher = TESTS_SUMMARY.matcher(line);
+            if (testsMatcher.find() && this.countTests(testsMatcher)) {
+                this.record(Category.TEST_FAILURE, line);
+            }
+            return;
+        }
+
+        Category category = this.classify(line);
+        if (category == null && !this.isIgnoredError(line)) {
+            category = Category.OTHER;
+        }
+        if (category != null) {
+            this.record(category, line);
+        }
+    }
+
+    /**
+     * Classify a line of the error output: all the lines are considered as errors.
+     */
+    public synchronized void consumeError(String line) {
+        Category category = this.classify(line);
+        if (category == null && !this.isIgnoredError(line)) {
+            category = Category.OTHER;
+        }
+        if (category != null) {
+            this.record(category, line);
+        }
+    }
+
+    private boolean isIgnoredError(String line) {
+        String message = line.startsWith(ERROR_PREFIX) ? line.substring(ERROR_PREFIX.length()).trim() : line.trim();
+        if (message.isEmpty()) {
+            return true;
+        }
+        for (String ignoredError : IGNORED_ERRORS) {
+            if (message.startsWith(ignoredError)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Category classify(String line) {
+        Matcher compilationMatcher = COMPILATION_ERROR.matcher(line);
+        if (compilationMatcher.matches()) {
+            this.nbCompilationErrors++;
+            if (this.compilationErrors.size() == MAX_LINES_PER_CATEGORY) {
+                this.compilationErrors.removeFirst();
+            }
+            this.compilationErrors.addLast(new CompilationError(compilationMatcher.group(1), Integer.parseInt(compilationMatcher.group(2)), compilationMatcher.group(3)));
+            return Category.COMPILATION;
+        }
+
+        // the summary of the tests of a module is the only line without the time elapsed
+        Matcher testsMatcher = TESTS_SUMMARY.matcher(line);
+        if (testsMatcher.find()) {
+            return this.countTests(testsMatcher) ? Category.TEST_FAILURE : null;
+        }
+
+        // the order matters: a failure of a plugin is reported with its cause on the same line
+        for (Category category : Category.values()) {
+            if (category.matches(line)) {
+                return category;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Count the tests of the given summary.
+     *
+     * @return true if some tests failed.
+     */
+    private boolean countTests(Matcher testsMatcher) {
+        int failures = Integer.parseInt(testsMatcher.group(2));
+        int errors = Integer.parseInt(testsMatcher.group(3));
+        this.nbTestsRun += Integer.parseInt(testsMatcher.group(1));
+        this.nbTestFailures += failures;
+        this.nbTestErrors += errors;
+        return failures + errors > 0;
+    }
+
+    private void record(Category category, String line) {
+        this.counts.merge(category, 1, Integer::sum);
+
+        Deque<String> categoryLines = this.lines.computeIfAbsent(category, key -> new ArrayDeque<>());
+        if (line.equals(categoryLines.peekLast())) {
+            return;
+        }
+        if (categoryLines.size() == MAX_LINES_PER_CATEGORY) {
+            categoryLines.removeFirst();
+        }
+        categoryLines.addLast(line);
+    }
+
+    public synchronized Set<Category> getCategories() {
+        Set<Category> categories = EnumSet.noneOf(Category.class);
+        categories.addAll(this.counts.keySet());
+        return categories;
+    }
+
+    public synchronized boolean hasCategory(Category category) {
+        return this.counts.containsKey(category);
+    }
+
+    /**
+     * @return the number of lines classified in the given category, including the ones which are not kept.
+     */
+    public synchronized int getCount(Category category) {
+        return this.counts.getOrDefault(category, 0);
+    }
+
+    /**
+     * @return the last distinct lines classified in the given category.
+     */
+    public synchronized List<String> getLines(Category category) {
+        Deque<String> categoryLines = this.lines.get(category);
+        return (categoryLines == null) ? new ArrayList<>() : new ArrayList<>(categoryLines);
+    }
+
+    /**
+     * @return the last compilation errors.
+     */
+    public synchronized List<CompilationError> getCompilationErrors() {
+        return new ArrayList<>(this.compilationErrors);
+    }
+
+    public synchronized int getNbCompilationErrors() {
+        return nbCompilationErrors;
+    }
+
+    public synchronized int getNbTestsRun() {
+        return nbTestsRun;
+    }
+
+    public synchronized int getNbTestFailures() {
+        return nbTestFailures;
+    }
+
+    public synchronized int getNbTestErrors() {
+        return nbTestErrors;
+    }
+
+    /**
+     * @return true if the project cannot be built whatever the goal, because of its dependencies or of a compilation error.
+     * It only explains a failure of maven: it must not be checked when maven succeeded.
+     */
+    public synchronized boolean hasBlockingError() {
+        return this.hasCategory(Category.DEPENDENCY_RESOLUTION) || this.hasCategory(Category.COMPILATION);
+    }
+}
@@ -32,8 +32,16 @@ public abstract class MavenOutputHandler implements InvocationOutputHandler {
         return this.logger;
     }
 
+    protected MavenOutputClassifier getOutputClassifier() {
+        return this.mavenHelper.getOutputClassifier();
+    }
+
+    public static String getLogFileName(String name) {
+        return "repairnator.maven." + name.toLowerCase() + ".log";
+    }
+
     private void initFileWriter() {
-        String filename = "repairnator.maven." + name.toLowerCase() + ".log";
+        String filename = getLogFileName(name);
         String filePath = inspector.getRepoLocalPath() + "/" + filename;
 
         inspector.getJobStatus().addFileToPush(filename);
@@ -0,0 +1,400 @@
+package fr.inria.spirals.repairnator.process.push;
+
+import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.instrumentation.ProcessWatchdog;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.PushCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.PushResult;
+import org.eclipse.jgit.transport.RefSpec;
+import org.eclipse.jgit.transport.RemoteRefUpdate;
+import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class pushes the branches of the pipelines in the remote repository given by
+ * {@link RepairnatorConfig#getPushRemoteRepo()}.
+ *
+ * The existence of a branch is checked with a targeted ref advertisement: only the refs of the given branches
+ * are requested to the remote, instead of listing all its branches. This needs the version 2 of the git protocol,
+ * supported from git {@link #PROTOCOL_V2_GIT_VERSION}: with an older git, the refs are listed with JGit.
+ *
+ * When {@link RepairnatorConfig#getPushSpoolPath()} is given, the branches are spooled in a bare repository
+ * shared by the pipelines of the machine, then the pending branches of all the pipelines are pushed together,
+ * in batches of refs pushed over a single connection. Otherwise the branch is pushed alone.
+ * A failed push is retried with an exponential backoff; a branch rejected by the remote is not retried.
+ * A spooled branch whose push failed stays in the spool to be pushed with the branches of the next pipelines:
+ * it is then reported as {@link Result#SPOOLED}, not as pushed.
+ */
+public class BranchPushAggregator {
+    private static final Logger LOGGER = LoggerFactory.getLogger(BranchPushAggregator.class);
+
+    /**
+     * The result of the push of a branch.
+     */
+    public enum Result {
+        PUSHED,
+        // the push failed: the branch stays in the spool and is pushed with the next spooled branches
+        SPOOLED,
+        NOT_PUSHED
+    }
+
+    static final int[] PROTOCOL_V2_GIT_VERSION = {2, 18};
+    private static final String TOKEN_ENV = "REPAIRNATOR_GIT_TOKEN";
+    // the credential helper reads the token in the environment, so that it is not given in the command line
+    private static final String CREDENTIAL_HELPER = "!f() { test \"$1\" = get && echo \"username=$" + TOKEN_ENV + "\" && echo \"password=\"; }; f";
+
+    private static final int BATCH_SIZE = 50;
+    private static final int MAX_ATTEMPTS = 4;
+    private static final long INITIAL_BACKOFF = TimeUnit.SECONDS.toMillis(5);
+
+    private static final String SPOOL_REPOSITORY = "branches.git";
+    private static final String SPOOL_LOCK = "spool.lock";
+    private static final String FLUSH_LOCK = "flush.lock";
+    // the branches rejected by the remote are kept there until their pipeline reads the result of their push
+    private static final String R_REJECTED = "refs/rejected/";
+
+    // the file locks are held by the JVM: the threads of a same pipeline are synchronized apart
+    private static final Map<String, Object> LOCK_MONITORS = new ConcurrentHashMap<>();
+
+    private static int[] gitVersion;
+
+    private String remoteUrl;
+    private String githubToken;
+    private File spoolDir;
+
+    /**
+     * @param spoolPath the directory shared by the pipelines to spool their branches, or null to push the branches alone.
+     * @param githubToken the token used to authenticate on the remote, or null.
+     */
+    public BranchPushAggregator(String remoteUrl, String githubToken, String spoolPath) {
+        this.remoteUrl = remoteUrl;
+        this.githubToken = githubToken;
+        this.spoolDir = (spoolPath == null || spoolPath.isEmpty()) ? null : new File(spoolPath);
+    }
+
+    public static BranchPushAggregator fromConfig() {
+        RepairnatorConfig config = RepairnatorConfig.getInstance();
+        return new BranchPushAggregator(config.getPushRemoteRepo() + Utils.REMOTE_REPO_EXT, config.getGithubToken(), config.getPushSpoolPath());
+    }
+
+    /**
+     * Request the refs of the given branches to the remote, with the version 2 of the git protocol
+     * so that the remote only advertises the requested refs.
+     *
+     * @return the branches, among the given ones, which exist in the remote.
+     */
+    public Set<String> getExistingBranches(Collection<String> branchNames) throws IOException, InterruptedException {
+        Set<String> existingBranches = new HashSet<>();
+        if (!isAtLeast(getGitVersion(), PROTOCOL_V2_GIT_VERSION)) {
+            LOGGER.warn("The version 2 of the git protocol needs git " + PROTOCOL_V2_GIT_VERSION[0] + "." + PROTOCOL_V2_GIT_VERSION[1]
+                    + ": all the branches of the remote are listed.");
+            try {
+                for (Ref ref : Git.lsRemoteRepository().setRemote(this.remoteUrl).setHeads(true).setCredentialsProvider(this.getCredentialsProvider()).call()) {
+                    existingBranches.add(ref.getName().substring(Constants.R_HEADS.length()));
+                }
+            } catch (GitAPIException e) {
+                throw new IOException("Error while listing the branches of " + this.remoteUrl + ": " + e.getMessage(), e);
+            }
+            existingBranches.retainAll(branchNames);
+            return existingBranches;
+        }
+
+        List<String> names = new ArrayList<>(branchNames);
+        for (int i = 0; i < names.size(); i += BATCH_SIZE) {
+            List<String> command = new ArrayList<>(Arrays.asList("git", "-c", "protocol.version=2", "ls-remote", "--heads", this.remoteUrl));
+            for (String name : names.subList(i, Math.min(i + BATCH_SIZE, names.size()))) {
+                command.add(Constants.R_HEADS + name);
+            }
+            for (String line : this.runGitCommand("git ls-remote", command, null)) {
+                String[] fields = line.split("\t");
+                if (fields.length == 2 && fields[1].startsWith(Constants.R_HEADS)) {
+                    existingBranches.add(fields[1].substring(Constants.R_HEADS.length()));
+                }
+            }
+        }
+        // the remote advertises the refs by prefix
+        existingBranches.retainAll(branchNames);
+        return existingBranches;
+    }
+
+    /**
+     * Run a git command without prompt, with the credentials given by the environment, not by the command line.
+     *
+     * @return the lines of the standard output of the command.
+     */
+    private List<String> runGitCommand(String name, List<String> command, File directory) throws IOException, InterruptedException {
+        if (this.githubToken != null && !this.githubToken.isEmpty()) {
+            command = new ArrayList<>(command);
+            command.addAll(1, Arrays.asList("-c", "credential.helper=" + CREDENTIAL_HELPER));
+        }
+        ProcessBuilder processBuilder = new ProcessBuilder(command).directory(directory).redirectError(ProcessBuilder.Redirect.INHERIT);
+        processBuilder.environment().put("GIT_TERMINAL_PROMPT", "0");
+        if (this.githubToken != null && !this.githubToken.isEmpty()) {
+            processBuilder.environment().put(TOKEN_ENV, this.githubToken);
+        }
+
+        File output = File.createTempFile("git", ".out");
+        try {
+            processBuilder.redirectOutput(output);
+            Process process = ProcessWatchdog.runProcess(processBuilder, name);
+            if (process.exitValue() != 0) {
+                throw new IOException("The command " + name + " exited with the code " + process.exitValue());
+            }
+            return Files.readAllLines(output.toPath(), StandardCharsets.UTF_8);
+        } finally {
+            output.delete();
+        }
+    }
+
+    /**
+     * @return the version of the git command, as its major and minor numbers, or {0, 0} if it cannot be read.
+     */
+    static synchronized int[] getGitVersion() {
+        if (gitVersion == null) {
+            gitVersion = new int[] {0, 0};
+            File output = null;
+            try {
+                output = File.createTempFile("git", ".version");
+                ProcessBuilder processBuilder = new ProcessBuilder("git", "--version").redirectOutput(output).redirectError(ProcessBuilder.Redirect.INHERIT);
+                ProcessWatchdog.runProcess(processBuilder, "git --version");
+                gitVersion = parseGitVersion(new String(Files.readAllBytes(output.toPath()), StandardCharsets.UTF_8));
+            } catch (IOException | InterruptedException e) {
+                LOGGER.warn("The version of git cannot be read: " + e);
+            } finally {
+                if (output != null) {
+                    output.delete();
+                }
+            }
+        }
+        return gitVersion;
+    }
+
+    /**
+     * @return the major and minor numbers of the given output of git --version, e.g. "git version 2.11.0", or {0, 0}.
+     */
+    static int[] parseGitVersion(String output) {
+        Matcher matcher = Pattern.compile("git version (\\d+)\\.(\\d+)").matcher(output);
+        if (!matcher.find()) {
+            return new int[] {0, 0};
+        }
+        return new int[] {Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))};
+    }
+
+    static boolean isAtLeast(int[] version, int[] minimalVersion) {
+        return version[0] > minimalVersion[0] || (version[0] == minimalVersion[0] && version[1] >= minimalVersion[1]);
+    }
+
+    private CredentialsProvider getCredentialsProvider() {
+        if (this.githubToken == null || this.githubToken.isEmpty()) {
+            return null;
+        }
+        return new UsernamePasswordCredentialsProvider(this.githubToken, "");
+    }
+
+    /**
+     * Push the given branch of the given repository, with the branches spooled by the other pipelines if a spool is configured.
+     * If the push of the spooled branch fails, it is pushed again with the branches of the next pipelines.
+     *
+     * @return {@link Result#PUSHED} if the branch has been pushed, {@link Result#SPOOLED} if it will be pushed with the
+     * next spooled branches, or {@link Result#NOT_PUSHED} if it has been rejected or cannot be pushed.
+     */
+    public Result push(Git git, String branchName) throws IOException, InterruptedException {
+        if (this.spoolDir == null) {
+            return this.isPushed(this.pushBranches(git, Arrays.asList(branchName)).get(branchName)) ? Result.PUSHED : Result.NOT_PUSHED;
+        }
+
+        Files.createDirectories(this.spoolDir.toPath());
+        File spoolRepository = new File(this.spoolDir, SPOOL_REPOSITORY);
+        this.withLock(SPOOL_LOCK, () -> {
+            if (!spoolRepository.isDirectory()) {
+                Git.init().setBare(true).setDirectory(spoolRepository).call().close();
+            }
+            try (Git spoolGit = Git.open(spoolRepository)) {
+                RefSpec refSpec = new RefSpec("+" + Constants.R_HEADS + branchName + ":" + Constants.R_HEADS + branchName);
+                spoolGit.fetch().setRemote(git.getRepository().getDirectory().getAbsolutePath()).setRefSpecs(refSpec).call();
+            }
+            return null;
+        });
+        LOGGER.info("The branch " + branchName + " has been spooled to be pushed.");
+
+        return this.withLock(FLUSH_LOCK, () -> {
+            try (Git spoolGit = Git.open(spoolRepository)) {
+                Repository repository = spoolGit.getRepository();
+                // the branch might have been pushed with the branches of another pipeline while waiting for the lock
+                if (repository.exactRef(Constants.R_HEADS + branchName) != null) {
+                    this.flush(spoolGit);
+                }
+                if (repository.exactRef(Constants.R_HEADS + branchName) != null) {
+                    LOGGER.warn("The branch " + branchName + " has not been pushed: it will be pushed with the next spooled branches.");
+                    return Result.SPOOLED;
+                }
+                Ref rejectedRef = repository.exactRef(R_REJECTED + branchName);
+                if (rejectedRef != null) {
+                    this.withLock(SPOOL_LOCK, () -> this.deleteRef(repository, rejectedRef.getName()));
+                    return Result.NOT_PUSHED;
+                }
+                return Result.PUSHED;
+            }
+        });
+    }
+
+    /**
+     * Push all the branches of the spool: the pushed branches are removed from it and the rejected ones are moved
+     * under {@link #R_REJECTED}.
+     */
+    private void flush(Git spoolGit) throws Exception {
+        Repository repository = spoolGit.getRepository();
+        Map<String, ObjectId> pendingBranches = this.withLock(SPOOL_LOCK, () -> {
+            Map<String, ObjectId> branches = new HashMap<>();
+            for (Map.Entry<String, Ref> entry : repository.getRefDatabase().getRefs(Constants.R_HEADS).entrySet()) {
+                branches.put(entry.getKey(), entry.getValue().getObjectId());
+            }
+            return branches;
+        });
+        LOGGER.info("Push the " + pendingBranches.size() + " spooled branches.");
+
+        Map<String, RemoteRefUpdate.Status> statuses = this.pushBranches(spoolGit, new ArrayList<>(pendingBranches.keySet()));
+
+        this.withLock(SPOOL_LOCK, () -> {
+            for (Map.Entry<String, RemoteRefUpdate.Status> entry : statuses.entrySet()) {
+                String branchName = entry.getKey();
+                Ref ref = repository.exactRef(Constants.R_HEADS + branchName);
+                // a branch spooled again meanwhile is pushed by the next flush
+                if (ref == null || !ref.getObjectId().equals(pendingBranches.get(branchName))) {
+                    continue;
+                }
+                if (this.isRejected(entry.getValue())) {
+                    RefUpdate refUpdate = repository.updateRef(R_REJECTED + branchName);
+                    refUpdate.setNewObjectId(ref.getObjectId());
+                    refUpdate.setForceUpdate(true);
+                    refUpdate.update();
+                    this.deleteRef(repository, ref.getName());
+                } else if (this.isPushed(entry.getValue())) {
+                    this.deleteRef(repository, ref.getName());
+                }
+            }
+            return null;
+        });
+
+        // the objects of the pushed branches are pruned with the default expiry, which is safe for the concurrent spools
+        try {
+            this.runGitCommand("git gc", Arrays.asList("git", "gc", "--auto", "--quiet"), repository.getDirectory());
+        } catch (IOException e) {
+            LOGGER.warn("Error while collecting the garbage of the spool: " + e);
+        }
+    }
+
+    private Void deleteRef(Repository repository, String refName) throws IOException {
+        RefUpdate refUpdate = repository.updateRef(refName);
+        refUpdate.setForceUpdate(true);
+        refUpdate.delete();
+        return null;
+    }
+
+    /**
+     * Push the given branches of the given repository, by batches pushed over a single connection.
+     *
+     * @return the status of the push of each branch, or null for the branches whose batch failed.
+     */
+    private Map<String, RemoteRefUpdate.Status> pushBranches(Git git, List<String> branchNames) throws InterruptedException {
+        Map<String, RemoteRefUpdate.Status> statuses = new HashMap<>();
+        for (int i = 0; i < branchNames.size(); i += BATCH_SIZE) {
+            List<RefSpec> refSpecs = new ArrayList<>();
+            for (String branchName : branchNames.subList(i, Math.min(i + BATCH_SIZE, branchNames.size()))) {
+                refSpecs.add(new RefSpec(Constants.R_HEADS + branchName + ":" + Constants.R_HEADS + branchName));
+            }
+
+            try {
+                for (PushResult pushResult : this.pushWithRetries(git, refSpecs)) {
+                    for (RemoteRefUpdate update : pushResult.getRemoteUpdates()) {
+                        String branchName = update.getRemoteName().substring(Constants.R_HEADS.length());
+                        statuses.put(branchName, update.getStatus());
+                        if (!this.isPushed(update.getStatus())) {
+                            LOGGER.warn("The branch " + branchName + " has not been pushed: " + update.getStatus()
+                                    + (update.getMessage() != null ? " (" + update.getMessage() + ")" : ""));
+                        }
+                    }
+                }
+            } catch (GitAPIException e) {
+                LOGGER.error("Error while pushing " + refSpecs.size() + " branches: " + e);
+            }
+        }
+        return statuses;
+    }
+
+    private Iterable<PushResult> pushWithRetries(Git git, List<RefSpec> refSpecs) throws GitAPIException, InterruptedException {
+        long backoff = INITIAL_BACKOFF;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                PushCommand pushCommand = git.push().setRemote(this.remoteUrl).setRefSpecs(refSpecs);
+                pushCommand.setCredentialsProvider(this.getCredentialsProvider());
+                return pushCommand.call();
+            } catch (TransportException e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw e;
+                }
+                // the jitter avoids that the pipelines of the machine retry all together
+                long delay = backoff + ThreadLocalRandom.current().nextLong(backoff / 2);
+                LOGGER.warn("Error while pushing (attempt " + attempt + "/" + MAX_ATTEMPTS + "), new attempt in " + (delay / 1000) + "s: " + e.getMessage());
+                Thread.sleep(delay);
+                backoff *= 2;
+            }
+        }
+    }
+
+    private boolean isPushed(RemoteRefUpdate.Status status) {
+        return status == RemoteRefUpdate.Status.OK || status == RemoteRefUpdate.Status.UP_TO_DATE;
+    }
+
+    private boolean isRejected(RemoteRefUpdate.Status status) {
+        return status == RemoteRefUpdate.Status.REJECTED_NONFASTFORWARD
+                || status == RemoteRefUpdate.Status.REJECTED_REMOTE_CHANGED
+                || status == RemoteRefUpdate.Status.REJECTED_OTHER_REASON;
+    }
+
+    private <T> T withLock(String lockName, Callable<T> callable) throws IOException, InterruptedException {
+        File lockFile = new File(this.spoolDir, lockName);
+        synchronized (LOCK_MONITORS.computeIfAbsent(lockFile.getAbsolutePath(), key -> new Object())) {
+            try (FileChannel channel = FileChannel.open(lockFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                 FileLock lock = channel.lock()) {
+                return callable.call();
+            } catch (IOException | InterruptedException | RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Error while using the spool " + this.spoolDir + ": " + e, e);
+            }
+        }
+    }
+}
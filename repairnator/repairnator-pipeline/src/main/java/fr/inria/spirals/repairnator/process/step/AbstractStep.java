@@ -7,6 +7,9 @@ import fr.inria.spirals.repairnator.notifier.AbstractNotifier;
 import fr.inria.spirals.repairnator.process.inspectors.*;
 import fr.inria.spirals.repairnator.process.inspectors.properties.machineInfo.MachineInfo;
 import fr.inria.spirals.repairnator.process.inspectors.properties.reproductionBuggyBuild.ReproductionBuggyBuild;
+import fr.inria.spirals.repairnator.process.instrumentation.ResourceMetrics;
+import fr.inria.spirals.repairnator.process.instrumentation.ResourceMonitor;
+import fr.inria.spirals.repairnator.process.maven.SharedMavenRepository;
 import fr.inria.spirals.repairnator.serializer.AbstractDataSerializer;
 import fr.inria.spirals.repairnator.states.LauncherMode;
 import fr.inria.spirals.repairnator.states.PushState;
@@ -128,6 +131,20 @@ public abstract class AbstractStep {
         return stepStatus;
     }
 
+    /**
+     * Restore the status of a step executed by a previous execution of the pipeline, when it is resumed.
+     */
+    public void restoreStepStatus(StepStatus.StatusKind status, String diagnostic, Date dateBegin, Date dateEnd) {
+        this.stepStatus = new StepStatus(this, status, diagnostic);
+        this.dateBegin = dateBegin;
+        this.dateEnd = dateEnd;
+        this.inspector.getJobStatus().addStepStatus(this.stepStatus);
+    }
+
+    public AbstractStep getNextStep() {
+        return nextStep;
+    }
+
     public void setDataSerializer(List<AbstractDataSerializer> serializers) {
         if (serializers != null) {
             this.serializers = serializers;
@@ -184,6 +201,7 @@ public abstract class AbstractStep {
     protected void executeNextStep() {
         this.observeAndNotify();
         if (this.nextStep != null) {
+            this.inspector.saveCheckpoint(this.nextStep);
             this.nextStep.execute();
         } else {
             this.terminatePipeline();
@@ -293,6 +311,10 @@ public abstract class AbstractStep {
 
     protected void cleanMavenArtifactsAndLocalRepo() {
         if (this.inspector.getM2LocalPath() != null) {
+            SharedMavenRepository sharedMavenRepository = SharedMavenRepository.fromConfig();
+            if (sharedMavenRepository != null) {
+                sharedMavenRepository.promote(this.inspector);
+            }
             try {
                 FileUtils.deleteDirectory(this.inspector.getM2LocalPath());
             } catch (IOException e) {
@@ -315,23 +337,73 @@ public abstract class AbstractStep {
     public void setProjectInspector(ProjectInspector inspector) {
         if (inspector != null) {
             this.inspector = inspector;
-            this.inspector.registerStep(this);
+            if (this.isRegisteredInPipeline()) {
+                this.inspector.registerStep(this);
+            }
             this.initStates();
         }
     }
 
+    /**
+     * By default a step is registered in the inspector: it will be part of the pipeline summary.
+     * Steps only used to orchestrate other steps can override this to be left out.
+     */
+    protected boolean isRegisteredInPipeline() {
+        return true;
+    }
+
     public boolean isShouldStop() {
         return this.shouldStop;
     }
 
+    protected void setShouldStop(boolean shouldStop) {
+        this.shouldStop = shouldStop;
+    }
+
+    /**
+     * @return the data of the job status read by this step.
+     * By default a step is considered to read all data, so it won't be run concurrently with any other step.
+     */
+    public Set<StepData> getInputs() {
+        return EnumSet.allOf(StepData.class);
+    }
+
+    /**
+     * @return the data of the job status written by this step.
+     * By default a step is considered to write all data, so it won't be run concurrently with any other step.
+     */
+    public Set<StepData> getOutputs() {
+        return EnumSet.allOf(StepData.class);
+    }
+
     public void execute() {
+        this.runStep();
+
+        if (!this.shouldStop) {
+            this.getLogger().debug("EXECUTE NEXT STEP");
+            this.executeNextStep();
+        } else {
+            this.getLogger().debug("TERMINATE PIPELINE");
+            this.terminatePipeline();
+        }
+    }
+
+    /**
+     * Execute the business of this step and record its status, without executing the next step.
+     */
+    public void runStep() {
         List<AbstractStep> steps = this.inspector.getSteps();
         this.getLogger().debug("----------------------------------------------------------------------");
         this.getLogger().debug("STEP "+ (steps.indexOf(this) + 1)+"/"+ steps.size() +": "+this.name);
         this.getLogger().debug("----------------------------------------------------------------------");
 
         this.dateBegin = new Date();
-        this.stepStatus = this.businessExecute();
+        ResourceMonitor resourceMonitor = ResourceMonitor.start(this.name, ResourceMetrics.Kind.STEP);
+        try {
+            this.stepStatus = this.businessExecute();
+        } finally {
+            this.inspector.getJobStatus().addResourceMetrics(resourceMonitor.stop());
+        }
         this.dateEnd = new Date();
 
         this.getLogger().debug("STEP STATUS: "+this.stepStatus);
@@ -346,16 +418,9 @@ public abstract class AbstractStep {
         this.inspector.getJobStatus().addStepStatus(this.stepStatus);
 
         this.shouldStop = this.shouldStop || (this.isBlockingStep() && !this.stepStatus.isSuccess());
-        if (!this.shouldStop) {
-            this.getLogger().debug("EXECUTE NEXT STEP");
-            this.executeNextStep();
-        } else {
-            this.getLogger().debug("TERMINATE PIPELINE");
-            this.terminatePipeline();
-        }
     }
 
-    private void terminatePipeline() {
+    protected void terminatePipeline() {
         if (!this.inspector.isPipelineEnding()) {
             this.inspector.setPipelineEnding(true);
             this.recordMachineInfo();
@@ -377,6 +442,7 @@ public abstract class AbstractStep {
                 }
             }
             this.serializeData();
+            this.inspector.deleteCheckpoint();
             this.cleanMavenArtifactsAndLocalRepo();
             this.inspector.printPipelineEnd();
         }
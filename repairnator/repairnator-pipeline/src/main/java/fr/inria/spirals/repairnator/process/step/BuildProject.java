@@ -1,15 +1,29 @@
 package fr.inria.spirals.repairnator.process.step;
 
+import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.process.git.GitHelper;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
+import fr.inria.spirals.repairnator.process.maven.ProjectModelService;
+import fr.inria.spirals.repairnator.process.step.paths.ComputeClasspath;
 import fr.inria.spirals.repairnator.states.PipelineState;
+import org.apache.maven.model.Model;
+import org.eclipse.jgit.api.Git;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 /**
  * Created by urli on 03/01/2017.
  */
 public class BuildProject extends AbstractStep {
+    // the files created by Repairnator in the repository, like its logs, do not change the outputs of the build
+    private static final String REPAIRNATOR_FILE_PREFIX = "repairnator.";
 
     public BuildProject(ProjectInspector inspector) {
         super(inspector, true);
@@ -20,6 +34,36 @@ public class BuildProject extends AbstractStep {
     }
 
     protected StepStatus businessExecute() {
+        JobStatus jobStatus = this.getInspector().getJobStatus();
+        jobStatus.setTestsRunDuringBuild(false);
+        jobStatus.setClasspathExportedDuringBuild(false);
+        jobStatus.setIncrementalBuildModules(null);
+
+        String previousBuiltCommit = jobStatus.getLastBuiltCommit();
+        // the outputs in target/ cannot be trusted anymore until the build succeeds
+        jobStatus.setLastBuiltCommit(null);
+        String currentCommit = this.getCurrentCommit();
+
+        if (this.getConfig().isIncrementalBuild() && previousBuiltCommit != null && currentCommit != null) {
+            if (this.buildIncrementally(previousBuiltCommit, currentCommit)) {
+                jobStatus.setLastBuiltCommit(currentCommit);
+                return StepStatus.buildSuccess(this);
+            }
+            jobStatus.setIncrementalBuildModules(null);
+            this.getLogger().info("The incremental build failed: the whole project will be built.");
+        }
+
+        if (this.getConfig().isSinglePassBuild()) {
+            StepStatus singlePassStatus = this.buildInSinglePass();
+            if (singlePassStatus != null) {
+                if (singlePassStatus.isSuccess()) {
+                    jobStatus.setLastBuiltCommit(currentCommit);
+                }
+                return singlePassStatus;
+            }
+            this.getLogger().info("The single pass build failed: the project will be built without running the tests.");
+        }
+
         this.getLogger().debug("Building project by installing artifacts with maven (skip test execution)...");
 
         Properties properties = new Properties();
@@ -36,11 +80,139 @@ public class BuildProject extends AbstractStep {
         }
 
         if (result == MavenHelper.MAVEN_SUCCESS) {
+            jobStatus.setLastBuiltCommit(currentCommit);
             return StepStatus.buildSuccess(this);
         } else {
-            this.addStepError("Repository " + this.getInspector().getRepoSlug() + " cannot be built.");
+            this.addStepError("Repository " + this.getInspector().getRepoSlug() + " cannot be built: " + helper.getOutputClassifier().getCategories());
             return StepStatus.buildError(this, PipelineState.NOTBUILDABLE);
         }
     }
 
+    private static String toGitPath(Path repoPath, Path path) {
+        return repoPath.relativize(path).toString().replace(File.separatorChar, '/');
+    }
+
+    private String getCurrentCommit() {
+        try (Git git = this.getInspector().getGitHelper().openGit(new File(this.getInspector().getRepoLocalPath()))) {
+            return this.getInspector().getGitHelper().getHeadCommit(git);
+        } catch (IOException e) {
+            this.getLogger().warn("Error while getting the current commit of the repository: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Rebuild only the modules changed since the previous successful build of the same repository and the modules
+     * depending on them: the other modules keep the outputs of the previous build in their target directory,
+     * and their artifacts are already installed in the local maven repository, so the build is run offline.
+     *
+     * A change of a pom file, or of any file out of the source directories of the modules, requires the whole project
+     * to be built.
+     *
+     * @return false if the project cannot be built incrementally or if the maven execution failed.
+     */
+    private boolean buildIncrementally(String previousBuiltCommit, String currentCommit) {
+        JobStatus jobStatus = this.getInspector().getJobStatus();
+        File repoDir = new File(this.getInspector().getRepoLocalPath());
+        File rootPomDir = new File(jobStatus.getPomDirPath());
+        ProjectModelService modelService = this.getInspector().getProjectModelService();
+
+        List<String> changedFiles = new ArrayList<>();
+        try (Git git = this.getInspector().getGitHelper().openGit(repoDir)) {
+            GitHelper gitHelper = this.getInspector().getGitHelper();
+            changedFiles.addAll(gitHelper.getChangedFiles(git, previousBuiltCommit, currentCommit));
+
+            // only the modules are looked for uncommitted changes, without their build directories
+            // and the local maven repository, which might be huge
+            Path repoPath = repoDir.getCanonicalFile().toPath();
+            List<String> modulePaths = new ArrayList<>();
+            List<String> excludedPaths = new ArrayList<>();
+            for (File moduleDir : modelService.loadModuleTree(new File(rootPomDir, Utils.POM_FILE))) {
+                Model model = modelService.getModel(new File(moduleDir, Utils.POM_FILE));
+                if (!moduleDir.toPath().startsWith(repoPath) || model == null) {
+                    this.getLogger().info("The module " + moduleDir + " cannot be checked for changes: the project cannot be built incrementally.");
+                    return false;
+                }
+                modulePaths.add(toGitPath(repoPath, moduleDir.toPath()));
+                Path buildDirectory = MavenHelper.getBuildDirectory(moduleDir, model);
+                if (buildDirectory.startsWith(repoPath) && !buildDirectory.equals(repoPath)) {
+                    excludedPaths.add(toGitPath(repoPath, buildDirectory));
+                }
+            }
+            Path m2Path = new File(this.getInspector().getM2LocalPath()).getCanonicalFile().toPath();
+            if (m2Path.startsWith(repoPath) && !m2Path.equals(repoPath)) {
+                excludedPaths.add(toGitPath(repoPath, m2Path));
+            }
+            changedFiles.addAll(gitHelper.getUncommittedChanges(git, modulePaths, excludedPaths));
+        } catch (IOException e) {
+            this.getLogger().warn("Error while computing the files changed since commit " + previousBuiltCommit + ": " + e);
+            return false;
+        }
+
+        List<String> modules = MavenHelper.findChangedModules(repoDir, rootPomDir, changedFiles, modelService,
+                path -> jobStatus.isCreatedFileToPush(path) || new File(path).getName().startsWith(REPAIRNATOR_FILE_PREFIX));
+        if (modules == null) {
+            this.getLogger().info("A file out of the source directories of the modules changed since commit " + previousBuiltCommit + ": the project cannot be built incrementally.");
+            return false;
+        }
+
+        this.getInspector().getJobStatus().setIncrementalBuildModules(modules);
+        if (modules.isEmpty()) {
+            this.getLogger().info("No module changed since commit " + previousBuiltCommit + ": the outputs of the previous build are used.");
+            return true;
+        }
+
+        this.getLogger().debug("Building incrementally the modules " + modules + " and their dependents (skip test execution)...");
+
+        Properties properties = new Properties();
+        properties.setProperty(MavenHelper.SKIP_TEST_PROPERTY, "true");
+
+        MavenHelper helper = new MavenHelper(this.getPom(), "install", properties, this.getClass().getSimpleName(), this.getInspector(), true);
+        helper.setProjects(modules);
+        helper.setOffline(true);
+
+        try {
+            return helper.run() == MavenHelper.MAVEN_SUCCESS;
+        } catch (InterruptedException e) {
+            this.addStepError("Error while building incrementally", e);
+            return false;
+        }
+    }
+
+    /**
+     * Build the project, run its tests and export the classpath of each module in a single maven execution,
+     * instead of the three executions of this step, {@link TestProject} and {@link ComputeClasspath}.
+     * Test failures do not fail the build: they are analyzed afterwards from the test reports.
+     *
+     * @return the status of the step, or null if the maven execution failed without telling if the project
+     * cannot be built or if the tests cannot be run.
+     */
+    private StepStatus buildInSinglePass() {
+        this.getLogger().debug("Building project, running tests and computing the classpath with maven in a single pass...");
+
+        Properties properties = new Properties();
+        properties.setProperty(MavenHelper.TEST_FAILURE_IGNORE_PROPERTY, "true");
+        properties.setProperty(ComputeClasspath.OUTPUT_FILE_PROPERTY, ComputeClasspath.CLASSPATH_FILE_PATH);
+
+        MavenHelper helper = new MavenHelper(this.getPom(), "install " + ComputeClasspath.GOAL, properties, this.getClass().getSimpleName(), this.getInspector(), true);
+
+        try {
+            if (helper.run() != MavenHelper.MAVEN_SUCCESS) {
+                if (helper.getOutputClassifier().hasBlockingError()) {
+                    // building without running the tests would fail for the same reason
+                    this.addStepError("Repository " + this.getInspector().getRepoSlug() + " cannot be built: " + helper.getOutputClassifier().getCategories());
+                    return StepStatus.buildError(this, PipelineState.NOTBUILDABLE);
+                }
+                return null;
+            }
+        } catch (InterruptedException e) {
+            this.addStepError("Error while building in a single pass", e);
+            return null;
+        }
+
+        this.getInspector().getJobStatus().setTestsRunDuringBuild(true);
+        this.getInspector().getJobStatus().setClasspathExportedDuringBuild(true);
+        return StepStatus.buildSuccess(this);
+    }
+
 }
@@ -1,12 +1,19 @@
 package fr.inria.spirals.repairnator.process.step;
 
 import fr.inria.jtravis.entities.Build;
+import fr.inria.jtravis.entities.PullRequest;
 import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.process.cache.RepositoryMirrorCache;
+import fr.inria.spirals.repairnator.process.files.FileHelper;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.states.PipelineState;
 import org.eclipse.jgit.api.Git;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
 
 /**
  * Created by urli on 03/01/2017.
@@ -25,11 +32,35 @@ public class CloneRepository extends AbstractStep {
         String repoSlug = this.build.getRepository().getSlug();
         String repoRemotePath = Utils.getCompleteGithubRepoUrl(repoSlug);
         String repoLocalPath = this.getInspector().getRepoLocalPath();
+        int cloneDepth = this.getConfig().getCloneDepth();
 
         try {
+            RepositoryMirrorCache mirrorCache = RepositoryMirrorCache.fromConfig(this.getInspector().getGitHelper());
+            if (mirrorCache != null) {
+                this.getLogger().debug("Cloning repository " + repoSlug + " from its mirror in the following directory: " + repoLocalPath);
+                if (mirrorCache.cloneFromMirror(repoSlug, repoRemotePath, new File(repoLocalPath))) {
+                    return StepStatus.buildSuccess(this);
+                }
+                this.getLogger().warn("The repository cannot be cloned from its mirror: it will be cloned from GitHub.");
+                this.deleteLocalRepository(repoLocalPath);
+            }
+
+            if (cloneDepth > 0) {
+                Set<String> commits = this.getCommitsToFetch();
+                if (!commits.isEmpty()) {
+                    this.getLogger().debug("Shallow cloning repository " + repoSlug + " in the following directory: " + repoLocalPath);
+                    if (this.getInspector().getGitHelper().shallowClone(repoRemotePath, new File(repoLocalPath), cloneDepth, commits)) {
+                        return StepStatus.buildSuccess(this);
+                    }
+                    this.getLogger().warn("The commits cannot be fetched with a shallow clone: the whole repository will be cloned.");
+                    this.deleteLocalRepository(repoLocalPath);
+                }
+            }
+
             this.getLogger().debug("Cloning repository " + repoSlug + " in the following directory: " + repoLocalPath);
 
-            Git.cloneRepository().setCloneSubmodules(true).setURI(repoRemotePath).setDirectory(new File(repoLocalPath)).call();
+            // with a depth, the submodules are only initialized when the build references them, after the checkout
+            Git.cloneRepository().setCloneSubmodules(cloneDepth <= 0).setURI(repoRemotePath).setDirectory(new File(repoLocalPath)).call();
 
             return StepStatus.buildSuccess(this);
         } catch (Exception e) {
@@ -38,4 +69,38 @@ public class CloneRepository extends AbstractStep {
         }
     }
 
+    private void deleteLocalRepository(String repoLocalPath) throws IOException {
+        File repoLocalDir = new File(repoLocalPath);
+        if (repoLocalDir.exists()) {
+            FileHelper.deleteFile(repoLocalDir);
+        }
+    }
+
+    /**
+     * @return the commits checked out by the pipeline: the commits of the builds, or the head and base commits of the PRs.
+     * The set is empty if a commit cannot be known.
+     */
+    private Set<String> getCommitsToFetch() {
+        Set<String> commits = new LinkedHashSet<>();
+        boolean known = this.addCommitsToFetch(this.build, commits);
+        if (known && this.getInspector().getPatchedBuild() != null) {
+            known = this.addCommitsToFetch(this.getInspector().getPatchedBuild(), commits);
+        }
+        return known ? commits : new LinkedHashSet<>();
+    }
+
+    private boolean addCommitsToFetch(Build build, Set<String> commits) {
+        if (build.isPullRequest()) {
+            Optional<PullRequest> prInformation = this.getConfig().getJTravis().pullRequest().fromBuild(build);
+            if (!prInformation.isPresent()) {
+                this.getLogger().warn("The information of the PR of the build " + build.getId() + " cannot be retrieved: the whole repository will be cloned.");
+                return false;
+            }
+            commits.add(prInformation.get().getHead().getSHA1());
+            commits.add(prInformation.get().getBase().getSHA1());
+        } else {
+            commits.add(build.getCommit().getSha());
+        }
+        return true;
+    }
 }
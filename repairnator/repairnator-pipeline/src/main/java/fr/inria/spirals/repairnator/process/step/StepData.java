@@ -0,0 +1,31 @@
+package fr.inria.spirals.repairnator.process.step;
+
+/**
+ * This enum defines the pieces of data of the {@link fr.inria.spirals.repairnator.process.inspectors.JobStatus}
+ * that a step can read or write.
+ * Steps declare them through {@link AbstractStep#getInputs()} and {@link AbstractStep#getOutputs()}
+ * so that a {@link StepGraph} can decide which steps are independent from each other.
+ */
+public enum StepData {
+    /**
+     * The local clone of the repository and its checked out working tree
+     */
+    REPOSITORY,
+
+    /**
+     * The failing module, the failure locations and the test metrics
+     */
+    TEST_INFORMATION,
+
+    CLASSPATH,
+    SOURCE_DIRS,
+    TEST_DIRS,
+    MODULES,
+
+    /**
+     * The local repository used to push the results
+     */
+    REPOSITORY_TO_PUSH,
+
+    PATCHES
+}
@@ -0,0 +1,203 @@
+package fr.inria.spirals.repairnator.process.step;
+
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * This step groups several steps and executes them as a graph instead of a chain:
+ * a step is started as soon as all the steps it depends on are finished,
+ * and independent steps are executed concurrently on a bounded pool of threads.
+ *
+ * A step depends on a previously added step if one of them writes a data read or written by the other,
+ * according to {@link AbstractStep#getInputs()} and {@link AbstractStep#getOutputs()}.
+ * As for a chain, if a blocking step fails no other step of the graph is started, and the pipeline is stopped
+ * once the running steps are finished.
+ *
+ * The graph itself is not part of the pipeline summary: the grouped steps are registered as usual.
+ */
+public class StepGraph extends AbstractStep {
+
+    private List<AbstractStep> steps;
+    private Map<AbstractStep, Set<AbstractStep>> dependencies;
+    private int poolSize;
+
+    public StepGraph(ProjectInspector inspector, AbstractStep... steps) {
+        this(inspector, Math.min(steps.length, Runtime.getRuntime().availableProcessors()), steps);
+    }
+
+    public StepGraph(ProjectInspector inspector, int poolSize, AbstractStep... steps) {
+        super(inspector, true);
+        this.poolSize = Math.max(1, poolSize);
+        this.steps = new ArrayList<>();
+        this.dependencies = new HashMap<>();
+
+        for (AbstractStep step : steps) {
+            this.addStep(step);
+        }
+    }
+
+    @Override
+    protected boolean isRegisteredInPipeline() {
+        return false;
+    }
+
+    private void addStep(AbstractStep step) {
+        Set<AbstractStep> stepDependencies = new HashSet<>();
+        for (AbstractStep previousStep : this.steps) {
+            if (this.areConflicting(previousStep, step)) {
+                stepDependencies.add(previousStep);
+            }
+        }
+        this.steps.add(step);
+        this.dependencies.put(step, stepDependencies);
+    }
+
+    private boolean areConflicting(AbstractStep step, AbstractStep otherStep) {
+        return intersects(step.getOutputs(), otherStep.getInputs())
+                || intersects(step.getInputs(), otherStep.getOutputs())
+                || intersects(step.getOutputs(), otherStep.getOutputs());
+    }
+
+    private static boolean intersects(Set<StepData> data, Set<StepData> otherData) {
+        for (StepData stepData : data) {
+            if (otherData.contains(stepData)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public List<AbstractStep> getSteps() {
+        return steps;
+    }
+
+    public Set<AbstractStep> getDependencies(AbstractStep step) {
+        return this.dependencies.get(step);
+    }
+
+    @Override
+    public Set<StepData> getInputs() {
+        Set<StepData> inputs = EnumSet.noneOf(StepData.class);
+        for (AbstractStep step : this.steps) {
+            inputs.addAll(step.getInputs());
+        }
+        return inputs;
+    }
+
+    @Override
+    public Set<StepData> getOutputs() {
+        Set<StepData> outputs = EnumSet.noneOf(StepData.class);
+        for (AbstractStep step : this.steps) {
+            outputs.addAll(step.getOutputs());
+        }
+        return outputs;
+    }
+
+    @Override
+    public void execute() {
+        this.businessExecute();
+
+        if (!this.isShouldStop()) {
+            this.getLogger().debug("EXECUTE NEXT STEP");
+            this.executeNextStep();
+        } else {
+            this.getLogger().debug("TERMINATE PIPELINE");
+            this.terminatePipeline();
+        }
+    }
+
+    @Override
+    protected StepStatus businessExecute() {
+        this.getLogger().debug("Executing the following steps as a graph with " + this.poolSize + " thread(s): " + Arrays.toString(this.getStepNames()));
+
+        ExecutorService executorService = Executors.newFixedThreadPool(this.poolSize);
+        CompletionService<AbstractStep> completionService = new ExecutorCompletionService<>(executorService);
+
+        Set<AbstractStep> pendingSteps = new LinkedHashSet<>(this.steps);
+        Set<AbstractStep> finishedSteps = new HashSet<>();
+        int runningSteps = 0;
+        Throwable stepException = null;
+
+        try {
+            while (!pendingSteps.isEmpty() || runningSteps > 0) {
+                if (!this.isShouldStop()) {
+                    Iterator<AbstractStep> iterator = pendingSteps.iterator();
+                    while (iterator.hasNext()) {
+                        final AbstractStep step = iterator.next();
+                        if (finishedSteps.containsAll(this.dependencies.get(step))) {
+                            iterator.remove();
+                            completionService.submit(() -> {
+                                step.runStep();
+                                return step;
+                            });
+                            runningSteps++;
+                        }
+                    }
+                }
+
+                if (runningSteps == 0) {
+                    break;
+                }
+
+                Future<AbstractStep> future = completionService.take();
+                runningSteps--;
+                try {
+                    AbstractStep step = future.get();
+                    finishedSteps.add(step);
+                    if (step.isShouldStop()) {
+                        this.getLogger().debug("Step " + step.getName() + " stops the pipeline: no other step of the graph will be started.");
+                        this.setShouldStop(true);
+                    }
+                } catch (ExecutionException e) {
+                    stepException = e.getCause();
+                    this.setShouldStop(true);
+                }
+            }
+        } catch (InterruptedException e) {
+            this.addStepError("The execution of the steps has been interrupted.", e);
+            this.setShouldStop(true);
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            executorService.shutdown();
+        }
+
+        if (stepException != null) {
+            if (stepException instanceof RuntimeException) {
+                throw (RuntimeException) stepException;
+            } else {
+                throw new RuntimeException(stepException);
+            }
+        }
+
+        if (this.isShouldStop()) {
+            return StepStatus.buildSkipped(this, "A blocking step failed.");
+        } else {
+            return StepStatus.buildSuccess(this);
+        }
+    }
+
+    private String[] getStepNames() {
+        String[] names = new String[this.steps.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = this.steps.get(i).getName();
+        }
+        return names;
+    }
+}
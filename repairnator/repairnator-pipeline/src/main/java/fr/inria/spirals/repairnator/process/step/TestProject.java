@@ -1,15 +1,40 @@
 package fr.inria.spirals.repairnator.process.step;
 
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
 import fr.inria.spirals.repairnator.process.maven.output.MavenFilterOutputHandler;
+import fr.inria.spirals.repairnator.process.maven.output.MavenOutputClassifier;
+import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutType;
+import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
+import fr.inria.spirals.repairnator.process.testinformation.LiveTestResultsWatcher;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestClassReport;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportsFinder;
 import fr.inria.spirals.repairnator.states.PipelineState;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
 /**
  * This step only launch mvn test. IT DOES NOT PROCESS THE RESULTS OF THE TEST.
  * See {@link fr.inria.spirals.repairnator.process.step.gatherinfo.GatherTestInformation} for the process of the tests.
  */
 public class TestProject extends AbstractStep {
+    private static final String TEST_PROPERTY = "test";
+    private static final String FAIL_IF_NO_TESTS_PROPERTY = "failIfNoTests";
+    private static final String FAIL_IF_NO_SPECIFIED_TESTS_PROPERTY = "surefire.failIfNoSpecifiedTests";
+    private static final String SKIP_AFTER_FAILURE_COUNT_PROPERTY = "surefire.skipAfterFailureCount";
+    private static final String SUREFIRE_TEST_GOAL = "surefire:test";
+
+    private boolean expectingFailures;
 
     public TestProject(ProjectInspector inspector) {
         super(inspector, true);
@@ -19,24 +44,202 @@ public class TestProject extends AbstractStep {
         super(inspector, blockingStep, stepName);
     }
 
+    /**
+     * @param expectingFailures true if the tests are expected to fail, like for a buggy build: the test reports are then read
+     *                          while the tests are running if it is configured, and the tests can be stopped as soon as enough
+     *                          test classes failed.
+     */
+    public TestProject(ProjectInspector inspector, boolean blockingStep, String stepName, boolean expectingFailures) {
+        this(inspector, blockingStep, stepName);
+        this.expectingFailures = expectingFailures;
+    }
+
     protected StepStatus businessExecute() {
+        if (this.getInspector().getJobStatus().isTestsRunDuringBuild()) {
+            this.getLogger().info("The tests have already been run while building the project: maven won't be launched.");
+            this.getInspector().getJobStatus().setTestsRunDuringBuild(false);
+            this.getInspector().getJobStatus().setPartialTestReports(false);
+            return StepStatus.buildSuccess(this);
+        }
+
+        JobStatus jobStatus = this.getInspector().getJobStatus();
+        if (this.getConfig().isTargetedTests() && this.getInspector().getCheckoutType() == CheckoutType.CHECKOUT_PATCHED_BUILD
+                && jobStatus.getFailureLocations() != null && !jobStatus.getFailureLocations().isEmpty()) {
+            this.getLogger().debug("Launching the tests which failed in the buggy build with maven...");
+
+            // the reports of the other tests are deleted
+            jobStatus.setPartialTestReports(true);
+            int result;
+            try {
+                result = this.runTargetedTests(jobStatus.getFailureLocations());
+            } catch (InterruptedException e) {
+                this.addStepError("Error while testing the project.", e);
+                return StepStatus.buildError(this, PipelineState.NOTTESTABLE);
+            }
+
+            // the selection of methods needs surefire 2.19: an older surefire might select no test at all and succeed
+            Set<String> classesNotRun = getTestClassesNotRun(jobStatus.getFailureLocations(), this.readTestReports());
+            if (!classesNotRun.isEmpty()) {
+                this.getLogger().warn("The targeted tests of " + classesNotRun + " have not been run: the whole test suite will be run.");
+            } else if (result != MavenHelper.MAVEN_SUCCESS || !this.getConfig().isFullTestSuiteAfterTargetedTests()) {
+                // the reports of the targeted tests are the only ones: they tell if the failing tests now pass
+                return StepStatus.buildSuccess(this);
+            }
+            // the whole test suite is run below and overwrites the reports of the targeted tests
+            jobStatus.setIncrementalBuildModules(null);
+        }
+
+        if (jobStatus.getIncrementalBuildModules() != null && jobStatus.isPartialTestReports()) {
+            this.getLogger().info("The previous test run did not run the whole test suite: its test reports cannot be reused, all the tests will be run.");
+            jobStatus.setIncrementalBuildModules(null);
+        }
+
+        List<String> incrementalBuildModules = jobStatus.getIncrementalBuildModules();
+        if (incrementalBuildModules != null && incrementalBuildModules.isEmpty()) {
+            this.getLogger().info("No module changed since the previous build: the test reports of the previous build are used.");
+            return StepStatus.buildSuccess(this);
+        }
+
         this.getLogger().debug("Launching tests with maven...");
 
         MavenHelper helper = new MavenHelper(this.getPom(), "test", null, this.getClass().getSimpleName(), this.getInspector(), false);
 
+        if (incrementalBuildModules != null) {
+            // the reports of the tests which do not exist anymore in the changed modules, and in the modules depending
+            // on them which are tested again, must not be gathered
+            File rootPomDir = new File(jobStatus.getPomDirPath());
+            for (String module : MavenHelper.findDependentModules(rootPomDir, incrementalBuildModules, this.getInspector().getProjectModelService())) {
+                File reportsDir = new File(rootPomDir, module + File.separator + SurefireReportsFinder.TARGET_DIR + File.separator + SurefireReportsFinder.SUREFIRE_REPORTS_DIR);
+                try {
+                    if (reportsDir.isDirectory()) {
+                        FileHelper.deleteFile(reportsDir);
+                    }
+                } catch (IOException e) {
+                    this.getLogger().warn("Error while deleting the test reports of module " + module + ": " + e);
+                }
+            }
+            helper.setProjects(incrementalBuildModules);
+            helper.setOffline(true);
+        }
+
         MavenFilterOutputHandler outputFilter = new MavenFilterOutputHandler(helper);
         helper.setOutputHandler(outputFilter);
 
+        int stopAfterFailingClasses = this.getConfig().getStopTestsAfterFailingClasses();
+        LiveTestResultsWatcher watcher = null;
+        if (this.expectingFailures && (this.getConfig().isLiveTestResults() || stopAfterFailingClasses > 0)) {
+            watcher = new LiveTestResultsWatcher(this.getInspector(), new File(jobStatus.getPomDirPath()));
+            LiveTestResultsWatcher liveWatcher = watcher;
+            helper.setStopCondition(() -> {
+                liveWatcher.poll();
+                return stopAfterFailingClasses > 0 && liveWatcher.getFailingClasses().size() >= stopAfterFailingClasses;
+            });
+        }
+
         // we cannot rely on the bash result of the command here: it is erroring (!= 0) if the mvn test fail
         // but it might mean a success for us
-        // so we consider this step is always successful unless it has been interrupted.
+        // so we consider this step is always successful unless it has been interrupted
+        // or no test could be run because of the dependencies or of a compilation error.
+        int result;
         try {
-            helper.run();
+            result = helper.run();
         } catch (InterruptedException e) {
             this.addStepError("Error while testing the project.", e);
             return StepStatus.buildError(this, PipelineState.NOTTESTABLE);
         }
+        jobStatus.setPartialTestReports(helper.isStopped());
+
+        if (helper.isStopped()) {
+            // the reports of the test classes finished before the stop are the only ones gathered
+            this.getLogger().info("The tests have been stopped after the failure of the test classes " + watcher.getFailingClasses()
+                    + ": " + watcher.getNbRunningTests() + " tests have been run.");
+            return StepStatus.buildSuccess(this);
+        }
+
+        MavenOutputClassifier outputClassifier = helper.getOutputClassifier();
+        if (result != MavenHelper.MAVEN_SUCCESS && outputClassifier.getNbTestsRun() == 0 && outputClassifier.hasBlockingError()) {
+            this.addStepError("The tests cannot be run: " + outputClassifier.getCategories());
+            return StepStatus.buildError(this, PipelineState.NOTTESTABLE);
+        }
         return StepStatus.buildSuccess(this);
     }
 
+    /**
+     * Run only the given failing tests, with the test classes compiled by {@link BuildProject}, and stop at the first failure.
+     * The failure locations do not tell in which module they are, so the tests are selected in all the modules:
+     * the modules without any of those tests do not launch any test.
+     * All the test reports are deleted before, in order to only gather the results of those tests.
+     *
+     * @return the exit code of maven, which is {@link MavenHelper#MAVEN_SUCCESS} only if all the tests passed.
+     */
+    private int runTargetedTests(Set<FailureLocation> failureLocations) throws InterruptedException {
+        this.deleteTestReports(new File(this.getInspector().getJobStatus().getPomDirPath()));
+
+        Properties properties = new Properties();
+        properties.setProperty(TEST_PROPERTY, getTestFilter(failureLocations));
+        properties.setProperty(FAIL_IF_NO_TESTS_PROPERTY, "false");
+        properties.setProperty(FAIL_IF_NO_SPECIFIED_TESTS_PROPERTY, "false");
+        properties.setProperty(SKIP_AFTER_FAILURE_COUNT_PROPERTY, "1");
+
+        // the project has just been built: the goal is executed directly, without the other phases of the lifecycle
+        MavenHelper helper = new MavenHelper(this.getPom(), SUREFIRE_TEST_GOAL, properties, this.getClass().getSimpleName(), this.getInspector(), false);
+        helper.setOffline(true);
+        helper.setOutputHandler(new MavenFilterOutputHandler(helper));
+        return helper.run();
+    }
+
+    private List<TestClassReport> readTestReports() {
+        File rootDir = new File(this.getInspector().getJobStatus().getPomDirPath());
+        return new SurefireReportStreamParser().parseDirectories(new SurefireReportsFinder(this.getInspector()).findSurefireReportsDirs(rootDir));
+    }
+
+    /**
+     * @return the classes of the given failure locations without any test run in the given reports.
+     */
+    public static Set<String> getTestClassesNotRun(Collection<FailureLocation> failureLocations, List<TestClassReport> reports) {
+        Set<String> classesRun = new HashSet<>();
+        for (TestClassReport report : reports) {
+            if (report.getNumberOfTests() - report.getNumberOfSkipped() > 0) {
+                classesRun.add(report.getFullClassName());
+            }
+        }
+
+        Set<String> classesNotRun = new TreeSet<>();
+        for (FailureLocation failureLocation : failureLocations) {
+            if (!classesRun.contains(failureLocation.getClassName())) {
+                classesNotRun.add(failureLocation.getClassName());
+            }
+        }
+        return classesNotRun;
+    }
+
+    private void deleteTestReports(File rootDir) {
+        for (File reportsDir : new SurefireReportsFinder(this.getInspector()).findSurefireReportsDirs(rootDir)) {
+            try {
+                FileHelper.deleteFile(reportsDir);
+            } catch (IOException e) {
+                this.getLogger().warn("Error while deleting the test reports: " + e);
+            }
+        }
+    }
+
+    /**
+     * @return the value of the surefire test parameter selecting the failing methods of the given locations,
+     * e.g. "org.example.FooTest#testA+testB,org.example.BarTest". A class without failing or erroring method is entirely selected.
+     */
+    public static String getTestFilter(Collection<FailureLocation> failureLocations) {
+        Set<String> tests = new TreeSet<>();
+        for (FailureLocation failureLocation : failureLocations) {
+            Set<String> methods = new TreeSet<>(failureLocation.getFailingMethods());
+            methods.addAll(failureLocation.getErroringMethods());
+
+            if (methods.isEmpty()) {
+                tests.add(failureLocation.getClassName());
+            } else {
+                tests.add(failureLocation.getClassName() + "#" + String.join("+", methods));
+            }
+        }
+        return String.join(",", tests);
+    }
+
 }
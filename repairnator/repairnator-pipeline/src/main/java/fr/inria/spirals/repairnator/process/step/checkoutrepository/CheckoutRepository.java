@@ -48,7 +48,7 @@ public abstract class CheckoutRepository extends AbstractStep {
         Git git;
         try {
 
-            git = Git.open(new File(this.getInspector().getRepoLocalPath()));
+            git = this.getInspector().getGitHelper().openGit(new File(this.getInspector().getRepoLocalPath()));
             GitHelper gitHelper = this.getInspector().getGitHelper();
             Build build;
 
@@ -143,7 +143,15 @@ public abstract class CheckoutRepository extends AbstractStep {
                 }
             }
 
-            gitHelper.initAllSubmodules(git);
+            // the pom.xml files, and the parents of the modules, might have changed with the checkout
+            this.getInspector().getProjectModelService().clear();
+
+            if (this.getConfig().getCloneDepth() > 0) {
+                File rootPomFile = new File(this.getInspector().getRepoLocalPath(), Utils.POM_FILE);
+                gitHelper.initReferencedSubmodules(git, this.getInspector().getProjectModelService().loadModuleTree(rootPomFile));
+            } else {
+                gitHelper.initAllSubmodules(git);
+            }
         } catch (IOException | GitAPIException e) {
             this.addStepError("Exception while getting the commit to checkout from the repo.", e);
             return StepStatus.buildError(this, PipelineState.BUILDNOTCHECKEDOUT);
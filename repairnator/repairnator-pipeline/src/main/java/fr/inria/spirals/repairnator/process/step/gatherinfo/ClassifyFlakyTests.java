@@ -0,0 +1,512 @@
+package fr.inria.spirals.repairnator.process.step.gatherinfo;
+
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.inspectors.properties.tests.FailureDetail;
+import fr.inria.spirals.repairnator.process.inspectors.properties.tests.FlakinessVerdict;
+import fr.inria.spirals.repairnator.process.instrumentation.ProcessWatchdog;
+import fr.inria.spirals.repairnator.process.maven.MavenHelper;
+import fr.inria.spirals.repairnator.process.step.AbstractStep;
+import fr.inria.spirals.repairnator.process.step.StepData;
+import fr.inria.spirals.repairnator.process.step.StepStatus;
+import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
+import fr.inria.spirals.repairnator.process.testinformation.FailureType;
+import fr.inria.spirals.repairnator.process.testinformation.SingleTestRunner;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.model.Model;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+/**
+ * This step runs again each failing test method of the buggy build several times, in forked JVMs
+ * using the classpath computed by {@link fr.inria.spirals.repairnator.process.step.paths.ComputeClasspath}.
+ *
+ * The reruns of a test method use the configuration of surefire in the failing module (argLine, system properties,
+ * environment variables and working directory). The reruns of the methods of a test class are run one after the other,
+ * and the test classes are only run in parallel if surefire runs them in parallel forks: otherwise the reruns could
+ * interfere with each other through the working directory, the files or the ports they share.
+ * A test whose reruns both pass and fail is flaky: its failure is removed from the failure locations,
+ * so that the repair tools do not spend their time trying to fix it. A test whose reruns all pass is not flaky,
+ * as its failure might depend on the other tests of the build: its failure is kept.
+ * The verdict of each test method is recorded in the test properties, with the failures of its reruns.
+ */
+public class ClassifyFlakyTests extends AbstractStep {
+    private static final long RERUN_TIMEOUT = TimeUnit.MINUTES.toMillis(2);
+    private static final int MAX_CLASSIFIED_METHODS = 50;
+    private static final String CLASSPATH_JAR = "classpath.jar";
+    private static final String SUREFIRE_PLUGIN = "org.apache.maven.plugins:maven-surefire-plugin";
+    private static final String SUREFIRE_EXECUTION = "default-test";
+    private static final int MAX_RERUN_FAILURES = 5;
+
+    public ClassifyFlakyTests(ProjectInspector inspector) {
+        super(inspector, false);
+    }
+
+    @Override
+    public Set<StepData> getInputs() {
+        return EnumSet.of(StepData.REPOSITORY, StepData.TEST_INFORMATION, StepData.CLASSPATH);
+    }
+
+    @Override
+    public Set<StepData> getOutputs() {
+        return EnumSet.of(StepData.TEST_INFORMATION);
+    }
+
+    @Override
+    protected StepStatus businessExecute() {
+        JobStatus jobStatus = this.getInspector().getJobStatus();
+        Set<FailureLocation> failureLocations = jobStatus.getFailureLocations();
+        if (failureLocations == null || failureLocations.isEmpty()) {
+            return StepStatus.buildSkipped(this, "No failing test.");
+        }
+        if (jobStatus.getRepairClassPath() == null || jobStatus.getRepairClassPath().isEmpty()) {
+            return StepStatus.buildSkipped(this, "No classpath computed.");
+        }
+
+        // the failing methods, indexed by their class, in a stable order
+        Map<String, Set<String>> failingMethods = new TreeMap<>();
+        int nbMethods = 0;
+        for (FailureLocation failureLocation : failureLocations) {
+            Set<String> methods = new HashSet<>(failureLocation.getFailingMethods());
+            methods.addAll(failureLocation.getErroringMethods());
+            for (String method : methods) {
+                if (nbMethods < MAX_CLASSIFIED_METHODS) {
+                    failingMethods.computeIfAbsent(failureLocation.getClassName(), key -> new TreeSet<>()).add(method);
+                    nbMethods++;
+                }
+            }
+        }
+        if (nbMethods == 0) {
+            return StepStatus.buildSkipped(this, "No failing test method.");
+        }
+        if (nbMethods == MAX_CLASSIFIED_METHODS) {
+            this.getLogger().info("Only the first " + MAX_CLASSIFIED_METHODS + " failing methods are classified.");
+        }
+
+        int nbReruns = this.getConfig().getFlakyTestReruns();
+        File workDir = null;
+        try {
+            workDir = Files.createTempDirectory("repairnator_flaky").toFile();
+            String classPath = this.prepareRunnerClassPath(workDir, jobStatus.getRepairClassPath());
+            File moduleDir = new File(jobStatus.getFailingModulePath());
+            ForkConfiguration forkConfiguration = ForkConfiguration.fromModel(moduleDir,
+                    this.getInspector().getProjectModelService().getModel(new File(moduleDir, "pom.xml")));
+
+            // the methods of a class are run one after the other, as in a fork of surefire
+            int nbThreads = forkConfiguration.isParallelForks() ? Math.min(Runtime.getRuntime().availableProcessors(), failingMethods.size()) : 1;
+            Map<String, Future<Map<String, List<RerunResult>>>> reruns = new LinkedHashMap<>();
+            ExecutorService executor = Executors.newFixedThreadPool(nbThreads);
+            try {
+                for (Map.Entry<String, Set<String>> entry : failingMethods.entrySet()) {
+                    reruns.put(entry.getKey(), executor.submit(() -> {
+                        Map<String, List<RerunResult>> results = new LinkedHashMap<>();
+                        for (String method : entry.getValue()) {
+                            List<RerunResult> methodResults = new ArrayList<>();
+                            for (int i = 0; i < nbReruns; i++) {
+                                methodResults.add(this.rerun(classPath, forkConfiguration, entry.getKey(), method));
+                            }
+                            results.put(method, methodResults);
+                        }
+                        return results;
+                    }));
+                }
+
+                Set<String> flakyMethods = new HashSet<>();
+                for (Map.Entry<String, Future<Map<String, List<RerunResult>>>> entry : reruns.entrySet()) {
+                    Map<String, List<RerunResult>> classResults;
+                    try {
+                        classResults = entry.getValue().get();
+                    } catch (ExecutionException e) {
+                        this.getLogger().warn("Error while running the methods of " + entry.getKey() + ": " + e.getCause());
+                        classResults = Collections.emptyMap();
+                    }
+                    for (String method : failingMethods.get(entry.getKey())) {
+                        String testName = entry.getKey() + "#" + method;
+                        FlakinessVerdict verdict = this.computeVerdict(testName, nbReruns, classResults.getOrDefault(method, Collections.emptyList()));
+                        jobStatus.getProperties().getTests().addFlakinessVerdict(verdict);
+                        if (verdict.getVerdict() == FlakinessVerdict.Verdict.FLAKY) {
+                            flakyMethods.add(testName);
+                        }
+                    }
+                }
+
+                if (!flakyMethods.isEmpty()) {
+                    this.getLogger().info("The following failing tests are flaky and will not be repaired: " + flakyMethods);
+                    jobStatus.setFailureLocations(removeFlakyFailures(failureLocations, jobStatus.getProperties().getTests().getFailureDetails(), flakyMethods));
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        } catch (IOException e) {
+            this.addStepError("Error while preparing the runs of the failing tests.", e);
+        } catch (InterruptedException e) {
+            this.addStepError("Interrupted while running the failing tests.", e);
+        } finally {
+            if (workDir != null) {
+                try {
+                    FileHelper.deleteFile(workDir);
+                } catch (IOException e) {
+                    this.getLogger().warn("Error while deleting " + workDir + ": " + e);
+                }
+            }
+        }
+        return StepStatus.buildSuccess(this);
+    }
+
+    /**
+     * Copy the class file of the runner in the given directory, and create a jar whose manifest references
+     * the classpath of the project, as the classpath might be too long for the command line.
+     *
+     * @return the classpath of the forked JVMs.
+     */
+    private String prepareRunnerClassPath(File workDir, List<URL> projectClassPath) throws IOException {
+        String runnerPath = SingleTestRunner.class.getName().replace('.', '/') + ".class";
+        File runnerDir = new File(workDir, "runner");
+        try (InputStream runnerClass = SingleTestRunner.class.getClassLoader().getResourceAsStream(runnerPath)) {
+            if (runnerClass == null) {
+                throw new IOException("The class file of " + SingleTestRunner.class.getName() + " cannot be found.");
+            }
+            FileUtils.copyInputStreamToFile(runnerClass, new File(runnerDir, runnerPath));
+        }
+
+        StringBuilder manifestClassPath = new StringBuilder();
+        for (URL url : projectClassPath) {
+            if (manifestClassPath.length() > 0) {
+                manifestClassPath.append(' ');
+            }
+            manifestClassPath.append(url.toExternalForm());
+        }
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(Attributes.Name.CLASS_PATH, manifestClassPath.toString());
+        File classPathJar = new File(workDir, CLASSPATH_JAR);
+        try (JarOutputStream jarOutputStream = new JarOutputStream(new FileOutputStream(classPathJar), manifest)) {
+            // the jar only contains its manifest
+        }
+
+        return runnerDir.getAbsolutePath() + File.pathSeparator + classPathJar.getAbsolutePath();
+    }
+
+    /**
+     * Run the given test method once in a forked JVM, and read the failures printed by the {@link SingleTestRunner}.
+     */
+    private RerunResult rerun(String classPath, ForkConfiguration forkConfiguration, String className, String method) throws IOException, InterruptedException {
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        List<String> command = new ArrayList<>();
+        command.add(java);
+        command.addAll(forkConfiguration.getJvmArguments());
+        command.addAll(Arrays.asList("-cp", classPath, SingleTestRunner.class.getName(), className, method));
+        ProcessBuilder processBuilder = new ProcessBuilder(command)
+                .directory(forkConfiguration.getWorkingDirectory())
+                .redirectErrorStream(true);
+        processBuilder.environment().putAll(forkConfiguration.getEnvironment());
+        File output = File.createTempFile("rerun", ".log");
+        processBuilder.redirectOutput(output);
+
+        try (ProcessWatchdog.Execution execution = ProcessWatchdog.getInstance().watch("rerun of " + className + "#" + method, 0, RERUN_TIMEOUT)) {
+            Process process = execution.mark(processBuilder).start();
+            process.waitFor();
+            if (execution.isTimedOut()) {
+                return new RerunResult(SingleTestRunner.RUNNER_ERROR, Collections.singletonList("Timeout after " + RERUN_TIMEOUT + " ms"));
+            }
+            return new RerunResult(process.exitValue(), readFailures(output));
+        } finally {
+            output.delete();
+        }
+    }
+
+    /**
+     * @return the failures printed by the {@link SingleTestRunner} in the given output, or its last line
+     * if the test could not be run.
+     */
+    private static List<String> readFailures(File output) throws IOException {
+        List<String> failures = new ArrayList<>();
+        String lastLine = null;
+        try (BufferedReader reader = Files.newBufferedReader(output.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(SingleTestRunner.FAILURE_PREFIX)) {
+                    failures.add(line.substring(SingleTestRunner.FAILURE_PREFIX.length()));
+                } else if (!line.trim().isEmpty()) {
+                    lastLine = line;
+                }
+            }
+        }
+        if (failures.isEmpty() && lastLine != null) {
+            failures.add(lastLine);
+        }
+        return failures;
+    }
+
+    private FlakinessVerdict computeVerdict(String testName, int nbReruns, List<RerunResult> reruns) {
+        FlakinessVerdict verdict = new FlakinessVerdict();
+        verdict.setTestClass(testName.substring(0, testName.indexOf('#')));
+        verdict.setTestMethod(testName.substring(testName.indexOf('#') + 1));
+        verdict.setNumberReruns(nbReruns);
+
+        int nbPassing = 0;
+        int nbFailing = 0;
+        for (RerunResult result : reruns) {
+            if (result.exitCode == SingleTestRunner.TEST_PASSED) {
+                nbPassing++;
+            } else if (result.exitCode == SingleTestRunner.TEST_FAILED) {
+                nbFailing++;
+            } else {
+                this.getLogger().warn("Error while running " + testName + ": " + result.failures);
+            }
+            for (String failure : result.failures) {
+                if (verdict.getRerunFailures().size() < MAX_RERUN_FAILURES) {
+                    verdict.addRerunFailure(failure);
+                }
+            }
+        }
+
+        verdict.setNumberPassingReruns(nbPassing);
+        verdict.setVerdict(computeVerdict(nbReruns, nbPassing, nbFailing));
+        this.getLogger().debug(testName + " passed " + nbPassing + " times and failed " + nbFailing + " times out of " + nbReruns + ": " + verdict.getVerdict());
+        return verdict;
+    }
+
+    /**
+     * A test is only flaky if its reruns disagree with each other: a test which always passes when it is run alone
+     * is not flaky, as its failure in the build might come from the other tests.
+     */
+    public static FlakinessVerdict.Verdict computeVerdict(int nbReruns, int nbPassing, int nbFailing) {
+        if (nbPassing > 0 && nbFailing > 0) {
+            return FlakinessVerdict.Verdict.FLAKY;
+        } else if (nbPassing == nbReruns) {
+            return FlakinessVerdict.Verdict.PASSING;
+        } else if (nbFailing == nbReruns) {
+            return FlakinessVerdict.Verdict.FAILING;
+        } else {
+            return FlakinessVerdict.Verdict.UNKNOWN;
+        }
+    }
+
+    /**
+     * Remove the given flaky methods from the failure locations. The failures of a location are rebuilt
+     * from the failure details of its remaining methods, and a location without remaining method is removed.
+     *
+     * @param flakyMethods the flaky methods, on the form "class#method"
+     */
+    public static Set<FailureLocation> removeFlakyFailures(Set<FailureLocation> failureLocations, Collection<FailureDetail> failureDetails, Set<String> flakyMethods) {
+        Set<FailureLocation> result = new HashSet<>();
+        for (FailureLocation failureLocation : failureLocations) {
+            String className = failureLocation.getClassName();
+            FailureLocation filteredLocation = new FailureLocation(className);
+            for (String method : failureLocation.getFailingMethods()) {
+                if (!flakyMethods.contains(className + "#" + method)) {
+                    filteredLocation.addFailingMethod(method);
+                }
+            }
+            for (String method : failureLocation.getErroringMethods()) {
+                if (!flakyMethods.contains(className + "#" + method)) {
+                    filteredLocation.addErroringMethod(method);
+                }
+            }
+            if (filteredLocation.getFailingMethods().isEmpty() && filteredLocation.getErroringMethods().isEmpty()) {
+                continue;
+            }
+
+            for (FailureDetail failureDetail : failureDetails) {
+                if (className.equals(failureDetail.getTestClass()) && !flakyMethods.contains(className + "#" + failureDetail.getTestMethod())) {
+                    filteredLocation.addFailure(new FailureType(failureDetail.getFailureName(), failureDetail.getDetail(), failureDetail.getIsError()));
+                }
+            }
+            result.add(filteredLocation);
+        }
+        return result;
+    }
+
+    private static class RerunResult {
+        private final int exitCode;
+        private final List<String> failures;
+
+        private RerunResult(int exitCode, List<String> failures) {
+            this.exitCode = exitCode;
+            this.failures = failures;
+        }
+    }
+
+    /**
+     * The configuration of the JVMs forked by surefire in a module: the reruns must be run under the same conditions
+     * as the tests of the build.
+     */
+    public static class ForkConfiguration {
+        private final List<String> jvmArguments;
+        private final Map<String, String> environment;
+        private final File workingDirectory;
+        private final boolean parallelForks;
+
+        private ForkConfiguration(List<String> jvmArguments, Map<String, String> environment, File workingDirectory, boolean parallelForks) {
+            this.jvmArguments = jvmArguments;
+            this.environment = environment;
+            this.workingDirectory = workingDirectory;
+            this.parallelForks = parallelForks;
+        }
+
+        /**
+         * Read the configuration of surefire in the given effective model. The arguments which still contain
+         * a property after the interpolation of the model (e.g. @{argLine} or ${jacocoArgLine}) are ignored,
+         * as they are only defined during the build.
+         *
+         * @param model the effective model of the module, or null if it cannot be built
+         */
+        public static ForkConfiguration fromModel(File moduleDir, Model model) {
+            List<String> jvmArguments = new ArrayList<>();
+            Map<String, String> environment = new TreeMap<>();
+            File workingDirectory = moduleDir;
+            boolean parallelForks = false;
+
+            Xpp3Dom configuration = (model != null) ? MavenHelper.getPluginConfiguration(model, SUREFIRE_PLUGIN, SUREFIRE_EXECUTION) : null;
+            if (configuration != null) {
+                Xpp3Dom argLine = configuration.getChild("argLine");
+                if (argLine != null && argLine.getValue() != null) {
+                    for (String argument : splitArguments(argLine.getValue())) {
+                        if (!isUnresolved(argument)) {
+                            jvmArguments.add(argument);
+                        }
+                    }
+                }
+                Xpp3Dom systemProperties = configuration.getChild("systemPropertyVariables");
+                if (systemProperties != null) {
+                    for (Xpp3Dom property : systemProperties.getChildren()) {
+                        String value = (property.getValue() != null) ? property.getValue() : "";
+                        if (!isUnresolved(value)) {
+                            jvmArguments.add("-D" + property.getName() + "=" + value);
+                        }
+                    }
+                }
+                Xpp3Dom environmentVariables = configuration.getChild("environmentVariables");
+                if (environmentVariables != null) {
+                    for (Xpp3Dom variable : environmentVariables.getChildren()) {
+                        String value = (variable.getValue() != null) ? variable.getValue() : "";
+                        if (!isUnresolved(value)) {
+                            environment.put(variable.getName(), value);
+                        }
+                    }
+                }
+                Xpp3Dom forkCount = configuration.getChild("forkCount");
+                if (forkCount != null && forkCount.getValue() != null && !isUnresolved(forkCount.getValue())) {
+                    parallelForks = getNbForks(forkCount.getValue().trim()) > 1;
+                }
+                Xpp3Dom workingDirectoryValue = configuration.getChild("workingDirectory");
+                if (workingDirectoryValue != null && workingDirectoryValue.getValue() != null && isUnresolved(workingDirectoryValue.getValue())) {
+                    // e.g. a working directory per fork with ${surefire.forkNumber}: the forks must not share the same one
+                    parallelForks = false;
+                } else if (workingDirectoryValue != null && workingDirectoryValue.getValue() != null) {
+                    workingDirectory = new File(workingDirectoryValue.getValue().trim());
+                    if (!workingDirectory.isAbsolute()) {
+                        workingDirectory = new File(moduleDir, workingDirectory.getPath());
+                    }
+                    // surefire creates its working directory
+                    workingDirectory.mkdirs();
+                }
+            }
+            return new ForkConfiguration(jvmArguments, environment, workingDirectory, parallelForks);
+        }
+
+        /**
+         * @return the number of forks of the given surefire forkCount, e.g. "2" or "1.5C" which is multiplied
+         * by the number of processors, or 1 if it cannot be parsed.
+         */
+        private static double getNbForks(String forkCount) {
+            try {
+                if (forkCount.endsWith("C")) {
+                    return Double.parseDouble(forkCount.substring(0, forkCount.length() - 1)) * Runtime.getRuntime().availableProcessors();
+                }
+                return Integer.parseInt(forkCount);
+            } catch (NumberFormatException e) {
+                return 1;
+            }
+        }
+
+        private static boolean isUnresolved(String value) {
+            return value.contains("${") || value.contains("@{");
+        }
+
+        /**
+         * Split the given command line on the whitespaces which are not quoted.
+         */
+        private static List<String> splitArguments(String commandLine) {
+            List<String> arguments = new ArrayList<>();
+            StringBuilder argument = new StringBuilder();
+            boolean inArgument = false;
+            char quote = 0;
+            for (char c : commandLine.toCharArray()) {
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    } else {
+                        argument.append(c);
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                    inArgument = true;
+                } else if (Character.isWhitespace(c)) {
+                    if (inArgument) {
+                        arguments.add(argument.toString());
+                        argument.setLength(0);
+                        inArgument = false;
+                    }
+                } else {
+                    argument.append(c);
+                    inArgument = true;
+                }
+            }
+            if (inArgument) {
+                arguments.add(argument.toString());
+            }
+            return arguments;
+        }
+
+        public List<String> getJvmArguments() {
+            return jvmArguments;
+        }
+
+        public Map<String, String> getEnvironment() {
+            return environment;
+        }
+
+        public File getWorkingDirectory() {
+            return workingDirectory;
+        }
+
+        /**
+         * @return true if surefire runs the test classes of the module in several forks at the same time:
+         * the tests are then expected not to interfere with each other.
+         */
+        public boolean isParallelForks() {
+            return parallelForks;
+        }
+    }
+}
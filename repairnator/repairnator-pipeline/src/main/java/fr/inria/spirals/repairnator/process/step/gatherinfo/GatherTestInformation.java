@@ -8,18 +8,13 @@ import fr.inria.spirals.repairnator.process.inspectors.properties.Properties;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
 import fr.inria.spirals.repairnator.process.testinformation.FailureType;
-import org.apache.maven.plugins.surefire.report.ReportTestCase;
-import org.apache.maven.plugins.surefire.report.ReportTestSuite;
-import org.apache.maven.plugins.surefire.report.SurefireReportParser;
-import org.apache.maven.reporting.MavenReportException;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestCaseFailure;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestClassReport;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportsFinder;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.SimpleFileVisitor;
-import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 
 /**
@@ -27,8 +22,6 @@ import java.util.*;
  */
 public class GatherTestInformation extends AbstractStep {
 
-    private static final String SUREFIREREPORT_PATH = "/target/surefire-reports";
-
     private int nbTotalTests;
     private int nbRunningTests;
     private int nbPassingTests;
@@ -90,114 +83,96 @@ public class GatherTestInformation extends AbstractStep {
         this.getLogger().debug("Contract: " + this.contract.getClass().getSimpleName());
 
         File rootRepo = new File(this.getInspector().getJobStatus().getPomDirPath());
-        final List<File> surefireDirs = new ArrayList<File>();
-
-        try {
-            Files.walkFileTree(rootRepo.toPath(), new SimpleFileVisitor<Path>() {
-                public FileVisitResult preVisitDirectory(Path file, BasicFileAttributes attrs) throws IOException {
-                    if (file.toString().endsWith(SUREFIREREPORT_PATH)) {
-                        surefireDirs.add(file.toFile());
-                        return FileVisitResult.SKIP_SUBTREE;
-                    } else {
-                        return FileVisitResult.CONTINUE;
-                    }
-                }
-            });
-        } catch (IOException e) {
-            this.getLogger().warn("Error while traversing files to get surefire reports: " + e);
-            this.addStepError(e.getMessage());
+        List<File> surefireDirs = new SurefireReportsFinder(this.getInspector()).findSurefireReportsDirs(rootRepo);
+
+        JobStatus jobStatus = this.getInspector().getJobStatus();
+        SurefireReportStreamParser parser = new SurefireReportStreamParser();
+        List<TestClassReport> testClassReports = parser.parseDirectories(surefireDirs);
+        for (String error : parser.getErrors()) {
+            this.addStepError(error);
         }
 
+        // the failure locations are indexed by class name, as a class might be reported by several reports
+        Map<String, FailureLocation> failureLocationsByClassName = new LinkedHashMap<>();
+        for (FailureLocation failureLocation : this.failureLocations) {
+            failureLocationsByClassName.put(failureLocation.getClassName(), failureLocation);
+        }
 
-        JobStatus jobStatus = this.getInspector().getJobStatus();
-        for (File surefireDir : surefireDirs) {
-            SurefireReportParser parser = new SurefireReportParser(Arrays.asList(new File[] { surefireDir }),
-                    Locale.ENGLISH, null);
-            try {
-                List<ReportTestSuite> testSuites = parser.parseXMLReportFiles();
-                for (ReportTestSuite testSuite : testSuites) {
-                    this.nbTotalTests += testSuite.getNumberOfTests();
-                    int runningTests = testSuite.getNumberOfTests() - testSuite.getNumberOfSkipped();
-                    this.nbRunningTests += runningTests;
-                    this.nbPassingTests += runningTests - testSuite.getNumberOfFailures() - testSuite.getNumberOfErrors();
-                    this.nbFailingTests += testSuite.getNumberOfFailures();
-                    this.nbErroringTests += testSuite.getNumberOfErrors();
-                    this.nbSkippingTests += testSuite.getNumberOfSkipped();
-
-                    if (testSuite.getNumberOfFailures() > 0 || testSuite.getNumberOfErrors() > 0) {
-                        File failingModule = surefireDir.getParentFile().getParentFile();
-                        this.failingModulePath = failingModule.getCanonicalPath();
-
-                        if (!this.skipSettingStatusInformation) {
-                            jobStatus.setFailingModulePath(this.failingModulePath);
-                            getLogger().info("Get the following failing module path: " + failingModulePath);
-
-                            Properties properties = jobStatus.getProperties();
-                            FailingClass failingClass = properties.getTests().addFailingClass(testSuite.getFullClassName());
-                            failingClass.setNumberRunning(testSuite.getNumberOfTests() - testSuite.getNumberOfSkipped());
-                            failingClass.setNumberPassing(testSuite.getNumberOfTests() - testSuite.getNumberOfSkipped() - testSuite.getNumberOfFailures() - testSuite.getNumberOfErrors());
-                            failingClass.setNumberFailing(testSuite.getNumberOfFailures());
-                            failingClass.setNumberErroring(testSuite.getNumberOfErrors());
-                            failingClass.setNumberSkipping(testSuite.getNumberOfSkipped());
-                        }
-
-                        for (ReportTestCase testCase : testSuite.getTestCases()) {
-                            if (testCase.hasFailure() || testCase.hasError()) {
-
-                                // sometimes surefire reports a failureType on the form:
-                                // "java.lang.NullPointerException:" we should avoid this case
-                                String failureType = testCase.getFailureType();
-
-                                if (failureType.endsWith(":")) {
-                                    failureType = failureType.substring(0, failureType.length() - 1);
-                                }
-
-                                this.failureNames.add(failureType);
-                                FailureType typeTof = new FailureType(failureType, testCase.getFailureMessage(), testCase.hasError());
-                                FailureLocation failureLocation = null;
-
-                                for (FailureLocation location : this.failureLocations) {
-                                    if (location.getClassName().equals(testCase.getFullClassName())) {
-                                        failureLocation = location;
-                                        break;
-                                    }
-                                }
-
-                                if (failureLocation == null) {
-                                    failureLocation = new FailureLocation(testCase.getFullClassName());
-                                    this.failureLocations.add(failureLocation);
-                                }
-                                failureLocation.addFailure(typeTof);
-
-                                if (testCase.hasError()) {
-                                    failureLocation.addErroringMethod(testCase.getName());
-                                } else {
-                                    failureLocation.addFailingMethod(testCase.getName());
-                                }
-
-                                if (!this.skipSettingStatusInformation) {
-                                    Properties properties = this.getInspector().getJobStatus().getProperties();
-                                    properties.getTests().getOverallMetrics().addFailure(typeTof.getFailureName(), typeTof.isError());
-
-                                    FailureDetail failureDetail = new FailureDetail();
-                                    failureDetail.setTestClass(failureLocation.getClassName());
-                                    failureDetail.setTestMethod(testCase.getName());
-                                    failureDetail.setFailureName(typeTof.getFailureName());
-                                    failureDetail.setDetail(typeTof.getFailureDetail());
-                                    failureDetail.setError(typeTof.isError());
-                                    properties.getTests().addFailureDetail(failureDetail);
-                                }
-                            }
-                        }
+        for (TestClassReport testSuite : testClassReports) {
+            this.nbTotalTests += testSuite.getNumberOfTests();
+            int runningTests = testSuite.getNumberOfTests() - testSuite.getNumberOfSkipped();
+            this.nbRunningTests += runningTests;
+            this.nbPassingTests += runningTests - testSuite.getNumberOfFailures() - testSuite.getNumberOfErrors();
+            this.nbFailingTests += testSuite.getNumberOfFailures();
+            this.nbErroringTests += testSuite.getNumberOfErrors();
+            this.nbSkippingTests += testSuite.getNumberOfSkipped();
+
+            if (testSuite.getNumberOfFailures() > 0 || testSuite.getNumberOfErrors() > 0) {
+                File failingModule = testSuite.getSurefireDir().getParentFile().getParentFile();
+                try {
+                    this.failingModulePath = failingModule.getCanonicalPath();
+                } catch (IOException e) {
+                    this.addStepError("Error while getting the failing module path.", e);
+                    continue;
+                }
+
+                if (!this.skipSettingStatusInformation) {
+                    jobStatus.setFailingModulePath(this.failingModulePath);
+                    getLogger().info("Get the following failing module path: " + failingModulePath);
+
+                    Properties properties = jobStatus.getProperties();
+                    FailingClass failingClass = properties.getTests().addFailingClass(testSuite.getFullClassName());
+                    failingClass.setNumberRunning(testSuite.getNumberOfTests() - testSuite.getNumberOfSkipped());
+                    failingClass.setNumberPassing(testSuite.getNumberOfTests() - testSuite.getNumberOfSkipped() - testSuite.getNumberOfFailures() - testSuite.getNumberOfErrors());
+                    failingClass.setNumberFailing(testSuite.getNumberOfFailures());
+                    failingClass.setNumberErroring(testSuite.getNumberOfErrors());
+                    failingClass.setNumberSkipping(testSuite.getNumberOfSkipped());
+                }
+
+                for (TestCaseFailure testCase : testSuite.getFailures()) {
+                    // sometimes surefire reports a failureType on the form:
+                    // "java.lang.NullPointerException:" we should avoid this case
+                    String failureType = testCase.getFailureType();
+
+                    if (failureType.endsWith(":")) {
+                        failureType = failureType.substring(0, failureType.length() - 1);
+                    }
+
+                    this.failureNames.add(failureType);
+                    FailureType typeTof = new FailureType(failureType, testCase.getFailureMessage(), testCase.isError());
+
+                    FailureLocation failureLocation = failureLocationsByClassName.get(testSuite.getFullClassName());
+                    if (failureLocation == null) {
+                        failureLocation = new FailureLocation(testSuite.getFullClassName());
+                        failureLocationsByClassName.put(failureLocation.getClassName(), failureLocation);
+                    }
+                    failureLocation.addFailure(typeTof);
+
+                    if (testCase.isError()) {
+                        failureLocation.addErroringMethod(testCase.getTestName());
+                    } else {
+                        failureLocation.addFailingMethod(testCase.getTestName());
+                    }
+
+                    if (!this.skipSettingStatusInformation) {
+                        Properties properties = this.getInspector().getJobStatus().getProperties();
+                        properties.getTests().getOverallMetrics().addFailure(typeTof.getFailureName(), typeTof.isError());
+
+                        FailureDetail failureDetail = new FailureDetail();
+                        failureDetail.setTestClass(failureLocation.getClassName());
+                        failureDetail.setTestMethod(testCase.getTestName());
+                        failureDetail.setFailureName(typeTof.getFailureName());
+                        failureDetail.setDetail(typeTof.getFailureDetail());
+                        failureDetail.setError(typeTof.isError());
+                        properties.getTests().addFailureDetail(failureDetail);
                     }
                 }
-            } catch (MavenReportException e) {
-                this.addStepError("Error while parsing files to get test information.", e);
-            } catch (IOException e) {
-                this.addStepError("Error while getting the failing module path.", e);
             }
         }
 
+        // the failure locations are only added to the set once complete, as their hash code depends on their failures
+        this.failureLocations = new HashSet<>(failureLocationsByClassName.values());
+
         if (!this.skipSettingStatusInformation) {
             jobStatus.setFailureLocations(this.failureLocations);
 
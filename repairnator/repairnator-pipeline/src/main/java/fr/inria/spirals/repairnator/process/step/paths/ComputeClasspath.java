@@ -1,11 +1,14 @@
 package fr.inria.spirals.repairnator.process.step.paths;
 
 import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.process.cache.StepResultCache;
+import fr.inria.spirals.repairnator.process.step.StepData;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.states.PipelineState;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.maven.MavenHelper;
+import org.apache.commons.io.FileUtils;
 
 import java.io.BufferedReader;
 import java.io.File;
@@ -13,17 +16,24 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Properties;
+import java.util.Set;
 
 /**
  * Created by urli on 08/02/2017.
  */
 public class ComputeClasspath extends AbstractStep {
-    private static final String goal = "dependency:build-classpath";
+    public static final String GOAL = "dependency:build-classpath";
+    public static final String OUTPUT_FILE_PROPERTY = "mdep.outputFile";
+    public static final String CLASSPATH_FILENAME = "classpath.info";
+    // the classpath file is written in the build directory of the module, which is not copied in the repository to push
+    public static final String CLASSPATH_FILE_PATH = "target" + File.separator + CLASSPATH_FILENAME;
 
-    private static final String CLASSPATH_FILENAME = "classpath.info";
     private static final String DEFAULT_CLASSES_DIR = "/target/classes";
     private static final String DEFAULT_TEST_CLASSES_DIR = "/target/test-classes";
 
@@ -34,6 +44,16 @@ public class ComputeClasspath extends AbstractStep {
         this.classPath = new ArrayList<>();
     }
 
+    @Override
+    public Set<StepData> getInputs() {
+        return EnumSet.of(StepData.REPOSITORY, StepData.TEST_INFORMATION);
+    }
+
+    @Override
+    public Set<StepData> getOutputs() {
+        return EnumSet.of(StepData.CLASSPATH);
+    }
+
     private void addFileToClassPath(File file) {
         if (file.exists()) {
             try {
@@ -57,7 +77,7 @@ public class ComputeClasspath extends AbstractStep {
     }
 
     private int runMavenGoal(String pomPath, Properties properties) {
-        MavenHelper helper = new MavenHelper(pomPath, goal, properties, this.getClass().getSimpleName(),
+        MavenHelper helper = new MavenHelper(pomPath, GOAL, properties, this.getClass().getSimpleName(),
                 this.getInspector(), true);
 
         int result = MavenHelper.MAVEN_ERROR;
@@ -81,7 +101,6 @@ public class ComputeClasspath extends AbstractStep {
                     File jarFile = new File(jar);
                     this.addFileToClassPath(jarFile);
                 }
-                this.getInspector().getJobStatus().addFileToPush(CLASSPATH_FILENAME);
             } else {
                 this.addStepError("The classpath file is empty.");
             }
@@ -90,6 +109,30 @@ public class ComputeClasspath extends AbstractStep {
         }
     }
 
+    private void writeClasspathFile(String classpathFilePath, File[] jars) {
+        StringBuilder classpathLine = new StringBuilder();
+        for (File jar : jars) {
+            if (classpathLine.length() > 0) {
+                classpathLine.append(":");
+            }
+            classpathLine.append(jar.getAbsolutePath());
+        }
+        try {
+            Files.createDirectories(new File(classpathFilePath).getParentFile().toPath());
+            Files.write(new File(classpathFilePath).toPath(), classpathLine.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            this.addStepError("Problem while writing classpath file.", e);
+        }
+    }
+
+    private File[] getClassPathFiles() {
+        List<File> files = new ArrayList<>();
+        for (URL url : this.classPath) {
+            files.add(FileUtils.toFile(url));
+        }
+        return files.toArray(new File[files.size()]);
+    }
+
     private void checkJUnitInClasspath() {
         boolean containJunit = false;
         for (URL url : this.classPath) {
@@ -109,18 +152,31 @@ public class ComputeClasspath extends AbstractStep {
         String incriminatedModule = this.getInspector().getJobStatus().getFailingModulePath();
 
         Properties properties = new Properties();
-        properties.setProperty("mdep.outputFile", CLASSPATH_FILENAME);
+        properties.setProperty(OUTPUT_FILE_PROPERTY, CLASSPATH_FILE_PATH);
 
         String pomModule = incriminatedModule + File.separator + Utils.POM_FILE;
-        String classpathFilePath = incriminatedModule + File.separator + CLASSPATH_FILENAME;
-
-        if (this.runMavenGoal(pomModule, properties) != MavenHelper.MAVEN_SUCCESS) {
+        String classpathFilePath = incriminatedModule + File.separator + CLASSPATH_FILE_PATH;
+
+        StepResultCache cache = StepResultCache.fromConfig();
+        String cacheKey = (cache != null) ? cache.computeKey(this.getInspector(), this.getName(), new File(this.getPom()), incriminatedModule) : null;
+        boolean exportedDuringBuild = this.getInspector().getJobStatus().isClasspathExportedDuringBuild() && new File(classpathFilePath).exists();
+        File[] cachedJars = (!exportedDuringBuild && cacheKey != null) ? cache.getFiles(this.getInspector(), cacheKey) : null;
+
+        if (exportedDuringBuild) {
+            this.getLogger().info("The classpath has been computed while building the project: maven won't be launched.");
+        } else if (cachedJars != null) {
+            this.getLogger().info("The classpath has been retrieved from the cache: maven won't be launched.");
+            this.writeClasspathFile(classpathFilePath, cachedJars);
+        } else if (this.runMavenGoal(pomModule, properties) != MavenHelper.MAVEN_SUCCESS) {
             this.addStepError("Error while computing classpath maven.");
             return StepStatus.buildError(this, PipelineState.CLASSPATHERROR);
         }
 
         // Only jars will be added in the classpath here, which is the number of libraries of the failing module
         this.addJarFilesToClassPath(classpathFilePath);
+        if (cachedJars == null && cacheKey != null && !this.classPath.isEmpty()) {
+            cache.putFiles(this.getInspector(), cacheKey, this.getClassPathFiles());
+        }
         this.getInspector().getJobStatus().getProperties().getProjectMetrics().setNumberLibrariesFailingModule(this.classPath.size());
 
         this.checkJUnitInClasspath();
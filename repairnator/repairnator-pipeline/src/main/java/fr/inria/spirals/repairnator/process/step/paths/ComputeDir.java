@@ -1,8 +1,8 @@
 package fr.inria.spirals.repairnator.process.step.paths;
 
+import fr.inria.spirals.repairnator.process.cache.StepResultCache;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
-import fr.inria.spirals.repairnator.process.maven.MavenHelper;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import org.apache.commons.io.FileUtils;
 import org.apache.maven.model.Build;
@@ -73,7 +73,7 @@ public class ComputeDir extends AbstractStep {
         }
 
         Model model;
-        model = MavenHelper.readPomXml(pomOfCurrentDirPath, this.getInspector().getM2LocalPath());
+        model = this.getInspector().getProjectModelService().getModel(pomOfCurrentDirPath);
         if (model == null) {
             this.addStepError("Error while building pom.xml model: no model has been retrieved.");
             return null;
@@ -179,7 +179,26 @@ public class ComputeDir extends AbstractStep {
 
     @Override
     protected StepStatus businessExecute() {
-        this.resultDirs = this.searchForDirs(this.rootDirPath, true);
+        StepResultCache cache = StepResultCache.fromConfig();
+        String cacheKey = null;
+        if (cache != null && this.computeDirType != null) {
+            // the search stops at the default dir of a module when it exists: the result depends on which ones exist
+            cacheKey = cache.computeKey(this.getInspector(), ComputeDir.class.getSimpleName(), new File(this.getPom()),
+                    Collections.singletonList(this.defaultDir), this.computeDirType.name(), this.rootDirPath,
+                    String.valueOf(this.allModules), String.valueOf(new File(this.rootDirPath, this.defaultDir).exists()));
+        }
+
+        this.resultDirs = (cacheKey != null) ? cache.getFiles(this.getInspector(), cacheKey) : null;
+        if (this.resultDirs != null) {
+            this.getLogger().info("The " + dirTypeName + " dirs have been retrieved from the cache.");
+        } else {
+            // the models of all the modules are built in parallel before the search, which then reads them from the cache
+            this.getInspector().getProjectModelService().loadModuleTree(new File(this.getPom()));
+            this.resultDirs = this.searchForDirs(this.rootDirPath, true);
+            if (cacheKey != null && this.resultDirs != null && this.resultDirs.length > 0) {
+                cache.putFiles(this.getInspector(), cacheKey, this.resultDirs);
+            }
+        }
 
         if (this.resultDirs == null || this.resultDirs.length == 0) {
             this.addStepError("Fail to find " + dirTypeName + " directories.");
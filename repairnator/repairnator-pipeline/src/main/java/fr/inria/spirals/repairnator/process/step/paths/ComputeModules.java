@@ -1,9 +1,10 @@
 package fr.inria.spirals.repairnator.process.step.paths;
 
 import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.process.cache.StepResultCache;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.step.StepData;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
-import fr.inria.spirals.repairnator.process.maven.MavenHelper;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.states.PipelineState;
 import org.apache.maven.model.Model;
@@ -11,7 +12,9 @@ import org.apache.maven.model.Model;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public class ComputeModules extends AbstractStep {
 
@@ -19,11 +22,21 @@ public class ComputeModules extends AbstractStep {
         super(inspector, blockingStep);
     }
 
+    @Override
+    public Set<StepData> getInputs() {
+        return EnumSet.of(StepData.REPOSITORY);
+    }
+
+    @Override
+    public Set<StepData> getOutputs() {
+        return EnumSet.of(StepData.MODULES);
+    }
+
     private File[] findModules(String pomPath, boolean rootCall) {
         List<File> modules = new ArrayList<>();
 
         File pomFile = new File(pomPath);
-        Model model = MavenHelper.readPomXml(pomFile, this.getInspector().getM2LocalPath());
+        Model model = this.getInspector().getProjectModelService().getModel(pomFile);
         if (model == null) {
             this.addStepError("Error while building model: no model has been retrieved.");
             return null;
@@ -54,7 +67,20 @@ public class ComputeModules extends AbstractStep {
         this.getLogger().debug("Computing project modules...");
 
         String mainPomPath = this.getPom();
-        File[] modules = this.findModules(mainPomPath, true);
+
+        StepResultCache cache = StepResultCache.fromConfig();
+        String cacheKey = (cache != null) ? cache.computeKey(this.getInspector(), this.getName(), new File(mainPomPath), mainPomPath) : null;
+        File[] modules = (cacheKey != null) ? cache.getFiles(this.getInspector(), cacheKey) : null;
+
+        if (modules != null) {
+            this.getLogger().info("The modules have been retrieved from the cache.");
+        } else {
+            this.getInspector().getProjectModelService().loadModuleTree(new File(mainPomPath));
+            modules = this.findModules(mainPomPath, true);
+            if (cacheKey != null && modules != null && modules.length > 0) {
+                cache.putFiles(this.getInspector(), cacheKey, modules);
+            }
+        }
 
         if (modules == null || modules.length == 0) {
             this.getLogger().info("No module was computed.");
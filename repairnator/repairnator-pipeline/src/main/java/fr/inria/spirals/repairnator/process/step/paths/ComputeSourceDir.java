@@ -3,14 +3,18 @@ package fr.inria.spirals.repairnator.process.step.paths;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
+import fr.inria.spirals.repairnator.process.step.StepData;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.states.PipelineState;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.instrumentation.ProcessWatchdog;
 
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Created by urli on 08/02/2017.
@@ -26,6 +30,16 @@ public class ComputeSourceDir extends ComputeDir {
         this.allModules = allModules;
     }
 
+    @Override
+    public Set<StepData> getInputs() {
+        return EnumSet.of(StepData.REPOSITORY, StepData.TEST_INFORMATION);
+    }
+
+    @Override
+    public Set<StepData> getOutputs() {
+        return EnumSet.of(StepData.SOURCE_DIRS);
+    }
+
     private void computeMetricsOnSourceDirs(File[] dirs) {
         int numberSourceFiles = super.computeMetricsOnDirs(dirs);
         this.getInspector().getJobStatus().getProperties().getProjectMetrics().setNumberSourceFiles(numberSourceFiles);
@@ -37,9 +51,8 @@ public class ComputeSourceDir extends ComputeDir {
                 .directory(new File(this.getInspector().getRepoLocalPath()));
 
         try {
-            Process p = processBuilder.start();
+            Process p = ProcessWatchdog.runProcess(processBuilder, "cloc");
             BufferedReader stdin = new BufferedReader(new InputStreamReader(p.getInputStream()));
-            p.waitFor();
 
             this.getLogger().debug("Get result from cloc process...");
             String processReturn = "";
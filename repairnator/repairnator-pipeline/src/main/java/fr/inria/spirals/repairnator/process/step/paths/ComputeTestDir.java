@@ -1,10 +1,13 @@
 package fr.inria.spirals.repairnator.process.step.paths;
 
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.step.StepData;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.states.PipelineState;
 
 import java.io.File;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * Created by urli on 08/02/2017.
@@ -15,6 +18,16 @@ public class ComputeTestDir extends ComputeDir {
         super(inspector, blockingStep);
     }
 
+    @Override
+    public Set<StepData> getInputs() {
+        return EnumSet.of(StepData.REPOSITORY);
+    }
+
+    @Override
+    public Set<StepData> getOutputs() {
+        return EnumSet.of(StepData.TEST_DIRS);
+    }
+
     private void computeMetricsOnTestDirs(File[] dirs) {
         int numberTestFiles = super.computeMetricsOnDirs(dirs);
         this.getInspector().getJobStatus().getProperties().getProjectMetrics().setNumberTestFiles(numberTestFiles);
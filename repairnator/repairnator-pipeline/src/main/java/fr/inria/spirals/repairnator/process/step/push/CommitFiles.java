@@ -28,6 +28,10 @@ public class CommitFiles extends AbstractStep {
         super(inspector, false, stepName);
     }
 
+    protected String[] getExcludedFileNames() {
+        return new String[] {".git", ".m2"};
+    }
+
     @Override
     protected StepStatus businessExecute() {
         if (this.getConfig().isPush()) {
@@ -37,11 +41,11 @@ public class CommitFiles extends AbstractStep {
 
             GitHelper gitHelper = this.getInspector().getGitHelper();
 
-            String[] excludedFileNames = {".git", ".m2"};
+            String[] excludedFileNames = this.getExcludedFileNames();
             if (this.commitType == CommitType.COMMIT_BUGGY_BUILD) {
-                FileHelper.copyDirectory(sourceDir, targetDir, excludedFileNames, true, this);
+                FileHelper.synchronizeDirectory(sourceDir, targetDir, excludedFileNames, true, this);
             } else {
-                FileHelper.copyDirectory(sourceDir, targetDir, excludedFileNames, false, this);
+                FileHelper.synchronizeDirectory(sourceDir, targetDir, excludedFileNames, false, this);
             }
 
             FileHelper.removeNotificationFromTravisYML(targetDir, this);
@@ -54,7 +58,7 @@ public class CommitFiles extends AbstractStep {
                 if (this.commitType == CommitType.COMMIT_BUGGY_BUILD) {
                     git = Git.init().setDirectory(targetDir).call();
                 } else {
-                    git = Git.open(targetDir);
+                    git = this.getInspector().getGitHelper().openGit(targetDir);
                 }
 
                 git.add().addFilepattern(".").call();
@@ -40,7 +40,7 @@ public class CommitPatch extends CommitFiles {
             super.setCommitType(this.commitType);
 
             try {
-                Git git = Git.open(new File(this.getInspector().getRepoToPushLocalPath()));
+                Git git = this.getInspector().getGitHelper().openGit(new File(this.getInspector().getRepoToPushLocalPath()));
                 Ref oldHeadRef = git.getRepository().exactRef("HEAD");
 
                 RevWalk revWalk = new RevWalk(git.getRepository());
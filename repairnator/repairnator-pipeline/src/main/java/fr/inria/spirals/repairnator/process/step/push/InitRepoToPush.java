@@ -1,9 +1,16 @@
 package fr.inria.spirals.repairnator.process.step.push;
 
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.maven.output.MavenOutputHandler;
+import fr.inria.spirals.repairnator.process.step.StepData;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
+import fr.inria.spirals.repairnator.process.step.paths.ComputeClasspath;
 import fr.inria.spirals.repairnator.states.PushState;
 
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Set;
+
 /**
  * Created by urli on 26/04/2017.
  */
@@ -13,6 +20,25 @@ public class InitRepoToPush extends CommitFiles {
         super(inspector);
     }
 
+    @Override
+    public Set<StepData> getInputs() {
+        return EnumSet.of(StepData.REPOSITORY);
+    }
+
+    @Override
+    public Set<StepData> getOutputs() {
+        return EnumSet.of(StepData.REPOSITORY_TO_PUSH);
+    }
+
+    @Override
+    protected String[] getExcludedFileNames() {
+        // ComputeClasspath may run maven while the repository is copied: its log is only pushed with the next commits
+        String[] excludedFileNames = super.getExcludedFileNames();
+        String[] result = Arrays.copyOf(excludedFileNames, excludedFileNames.length + 1);
+        result[excludedFileNames.length] = MavenOutputHandler.getLogFileName(ComputeClasspath.class.getSimpleName());
+        return result;
+    }
+
     @Override
     protected StepStatus businessExecute() {
         if (this.getConfig().isPush()) {
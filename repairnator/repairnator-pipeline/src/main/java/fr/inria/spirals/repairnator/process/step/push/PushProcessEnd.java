@@ -3,19 +3,18 @@ package fr.inria.spirals.repairnator.process.step.push;
 import fr.inria.spirals.repairnator.Utils;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector4Bears;
+import fr.inria.spirals.repairnator.process.push.BranchPushAggregator;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import fr.inria.spirals.repairnator.states.PushState;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.RemoteAddCommand;
 import org.eclipse.jgit.api.errors.GitAPIException;
-import org.eclipse.jgit.lib.Ref;
-import org.eclipse.jgit.transport.CredentialsProvider;
 import org.eclipse.jgit.transport.URIish;
-import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 
 import java.io.*;
 import java.net.URISyntaxException;
+import java.util.Collections;
 
 public class PushProcessEnd extends AbstractStep {
 
@@ -58,7 +57,7 @@ public class PushProcessEnd extends AbstractStep {
                 }
 
                 try {
-                    Git git = Git.open(new File(this.getInspector().getRepoToPushLocalPath()));
+                    Git git = this.getInspector().getGitHelper().openGit(new File(this.getInspector().getRepoToPushLocalPath()));
 
                     this.getLogger().debug("Add the remote repository to push the current pipeline state...");
 
@@ -67,37 +66,35 @@ public class PushProcessEnd extends AbstractStep {
                     remoteAdd.setUri(new URIish(remoteRepo));
                     remoteAdd.call();
 
-                    CredentialsProvider credentialsProvider = new UsernamePasswordCredentialsProvider(this.getConfig().getGithubToken(), "");
+                    BranchPushAggregator pushAggregator = BranchPushAggregator.fromConfig();
 
                     this.getLogger().debug("Check if a branch already exists in the remote repository...");
-                    ProcessBuilder processBuilder = new ProcessBuilder("/bin/sh", "-c", "git remote show " + REMOTE_NAME + " | grep " + branchName)
-                            .directory(new File(this.getInspector().getRepoLocalPath()));
-
-                    Process p = processBuilder.start();
-                    BufferedReader stdin = new BufferedReader(new InputStreamReader(p.getInputStream()));
-                    p.waitFor();
-
-                    this.getLogger().debug("Get result from grep process...");
-                    String processReturn = "";
-                    String line;
-                    while (stdin.ready() && (line = stdin.readLine()) != null) {
-                        processReturn += line;
-                    }
-
-                    if (!processReturn.equals("")) {
-                        this.getLogger().warn("A branch already exists in the remote repo with the following name: " + branchName);
-                        this.getLogger().debug("Here the grep return: " + processReturn);
-                        return StepStatus.buildSkipped(this, "A branch already exists in the remote repo with the following name: " + branchName);
+                    try {
+                        if (!pushAggregator.getExistingBranches(Collections.singleton(branchName)).isEmpty()) {
+                            this.getLogger().warn("A branch already exists in the remote repo with the following name: " + branchName);
+                            return StepStatus.buildSkipped(this, "A branch already exists in the remote repo with the following name: " + branchName);
+                        }
+                    } catch (IOException e) {
+                        // the push of an existing branch is rejected by the remote anyway
+                        this.getLogger().warn("The existence of the branch cannot be checked: " + e.getMessage());
                     }
 
                     this.getLogger().debug("Prepare the branch and push...");
-                    Ref branch = git.checkout().setCreateBranch(true).setName(branchName).call();
+                    git.checkout().setCreateBranch(true).setName(branchName).call();
 
-                    git.push().setRemote(REMOTE_NAME).add(branch).setCredentialsProvider(credentialsProvider).call();
-
-                    this.getInspector().getJobStatus().setHasBeenPushed(true);
+                    BranchPushAggregator.Result pushResult = pushAggregator.push(git, branchName);
+                    if (pushResult == BranchPushAggregator.Result.NOT_PUSHED) {
+                        this.setPushState(PushState.REPO_NOT_PUSHED);
+                        return StepStatus.buildSkipped(this, "The branch " + branchName + " has not been pushed.");
+                    }
 
                     this.getInspector().getJobStatus().setGitBranchUrl(this.remoteRepoUrl + "/tree/" + branchName);
+                    if (pushResult == BranchPushAggregator.Result.SPOOLED) {
+                        this.setPushState(PushState.REPO_SPOOLED);
+                        return StepStatus.buildSkipped(this, "The branch " + branchName + " has been spooled to be pushed by a next pipeline.");
+                    }
+
+                    this.getInspector().getJobStatus().setHasBeenPushed(true);
                     this.setPushState(PushState.REPO_PUSHED);
                     return StepStatus.buildSuccess(this);
                 } catch (IOException e) {
@@ -107,7 +104,7 @@ public class PushProcessEnd extends AbstractStep {
                 } catch (GitAPIException e) {
                     this.addStepError("Error while executing a JGit operation.", e);
                 } catch (InterruptedException e) {
-                    this.addStepError("Error while executing git command to check branch existence.", e);
+                    this.addStepError("Interrupted while pushing the branch.", e);
                 }
                 this.setPushState(PushState.REPO_NOT_PUSHED);
                 return StepStatus.buildSkipped(this, "Error while pushing.");
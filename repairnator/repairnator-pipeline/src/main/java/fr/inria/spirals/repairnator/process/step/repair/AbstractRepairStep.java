@@ -7,6 +7,7 @@ import fr.inria.spirals.repairnator.notifier.PatchNotifier;
 import fr.inria.spirals.repairnator.process.git.GitHelper;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.inspectors.RepairPatch;
+import fr.inria.spirals.repairnator.process.step.StepData;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.step.AbstractStep;
 import org.eclipse.jgit.api.Git;
@@ -25,7 +26,9 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public abstract class AbstractRepairStep extends AbstractStep {
 
@@ -45,6 +48,25 @@ public abstract class AbstractRepairStep extends AbstractStep {
         this.setName(this.getRepairToolName());
     }
 
+    @Override
+    public Set<StepData> getInputs() {
+        return EnumSet.of(StepData.REPOSITORY, StepData.TEST_INFORMATION, StepData.CLASSPATH, StepData.SOURCE_DIRS, StepData.TEST_DIRS);
+    }
+
+    @Override
+    public Set<StepData> getOutputs() {
+        return EnumSet.of(StepData.REPOSITORY, StepData.PATCHES);
+    }
+
+    /**
+     * Repair steps from the same isolation group are never executed concurrently by {@link ParallelRepair},
+     * for instance because the underlying tool relies on a static state.
+     * By default, each repair tool has its own group.
+     */
+    public String getIsolationGroup() {
+        return this.getRepairToolName();
+    }
+
     @Override
     public void execute() {
         if (this.getConfig().getRepairTools().contains(this.getRepairToolName())) {
@@ -142,7 +164,7 @@ public abstract class AbstractRepairStep extends AbstractStep {
         }
 
         // we will work directly in the
-        Git git = Git.open(new File(this.getInspector().getRepoLocalPath()));
+        Git git = this.getInspector().getGitHelper().openGit(new File(this.getInspector().getRepoLocalPath()));
 
 
         for (int i = 0; i < nbPatch && i < patchList.size(); i++) {
@@ -151,14 +173,8 @@ public abstract class AbstractRepairStep extends AbstractStep {
             String branchName = "repairnator-patch-" + Utils.formatFilenameDate(new Date()) + "-" + i;
             int status = GitHelper.gitCreateNewBranchAndCheckoutIt(this.getInspector().getRepoLocalPath(), branchName);
             if (status == 0) {
-                ProcessBuilder processBuilder = new ProcessBuilder("git", "apply", patch.getAbsolutePath())
-                        .directory(new File(this.getInspector().getRepoLocalPath())).inheritIO();
-
-                try {
-                    Process p = processBuilder.start();
-                    p.waitFor();
-                } catch (InterruptedException|IOException e) {
-                    this.addStepError("Error while executing git command to apply patch " + patch.getPath(), e);
+                if (!this.getInspector().getGitHelper().gitApply(patch, git)) {
+                    this.addStepError("Error while applying patch " + patch.getPath());
                 }
                 git.commit().setAll(true).setAuthor(GitHelper.getCommitterIdent()).setCommitter(GitHelper.getCommitterIdent()).setMessage("Proposal for a patch").call();
 
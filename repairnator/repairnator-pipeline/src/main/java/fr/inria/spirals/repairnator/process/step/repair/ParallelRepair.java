@@ -0,0 +1,187 @@
+package fr.inria.spirals.repairnator.process.step.repair;
+
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.instrumentation.ProcessWatchdog;
+import fr.inria.spirals.repairnator.process.step.AbstractStep;
+import fr.inria.spirals.repairnator.process.step.StepData;
+import fr.inria.spirals.repairnator.process.step.StepStatus;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This step executes several repair steps concurrently, each of them in its own copy of the local repository
+ * (see {@link RepairWorkspace}), so that the repair tools cannot interfere with each other.
+ *
+ * All the repair steps share a global time budget (see {@link fr.inria.spirals.repairnator.config.RepairnatorConfig#getRepairTimeBudget()}):
+ * when it is exhausted, the running repair steps are interrupted, the processes they started are killed
+ * through the {@link ProcessWatchdog}, and the others are not started: the results of the interrupted repair steps are ignored.
+ * If {@link fr.inria.spirals.repairnator.config.RepairnatorConfig#isStopAtFirstPatch()} is set, the other repair steps
+ * are cancelled as soon as one of them found a patch.
+ *
+ * Repair steps of the same isolation group (see {@link AbstractRepairStep#getIsolationGroup()}) are executed one after the other.
+ * The results of the repair steps are merged in the job status of the inspector once they are finished.
+ */
+public class ParallelRepair extends AbstractStep {
+    private static final int GRACE_PERIOD = 60; // in seconds
+
+    private List<AbstractRepairStep> repairSteps;
+    private ExecutorService executorService;
+    private Set<ProcessWatchdog.Scope> scopes;
+    private volatile boolean cancelled;
+    private boolean merging;
+
+    public ParallelRepair(ProjectInspector inspector, List<AbstractRepairStep> repairSteps) {
+        super(inspector, false);
+        this.repairSteps = repairSteps;
+    }
+
+    @Override
+    protected boolean isRegisteredInPipeline() {
+        return false;
+    }
+
+    public List<AbstractRepairStep> getRepairSteps() {
+        return repairSteps;
+    }
+
+    @Override
+    public Set<StepData> getInputs() {
+        return EnumSet.of(StepData.REPOSITORY, StepData.TEST_INFORMATION, StepData.CLASSPATH, StepData.SOURCE_DIRS, StepData.TEST_DIRS);
+    }
+
+    @Override
+    public Set<StepData> getOutputs() {
+        return EnumSet.of(StepData.REPOSITORY, StepData.PATCHES);
+    }
+
+    @Override
+    public void execute() {
+        this.businessExecute();
+
+        // repair steps are never blocking
+        this.getLogger().debug("EXECUTE NEXT STEP");
+        this.executeNextStep();
+    }
+
+    @Override
+    protected StepStatus businessExecute() {
+        Map<String, List<AbstractRepairStep>> groups = new LinkedHashMap<>();
+        for (AbstractRepairStep repairStep : this.repairSteps) {
+            groups.computeIfAbsent(repairStep.getIsolationGroup(), group -> new ArrayList<>()).add(repairStep);
+        }
+
+        int timeBudget = this.getConfig().getRepairTimeBudget();
+        this.getLogger().info("Start to repair with " + this.repairSteps.size() + " repair tool(s) in " + groups.size() + " isolation group(s), with a time budget of " + (timeBudget > 0 ? timeBudget + " minutes." : "no limit."));
+
+        this.cancelled = false;
+        this.merging = true;
+        this.scopes = ConcurrentHashMap.newKeySet();
+        this.executorService = Executors.newFixedThreadPool(groups.size());
+        for (List<AbstractRepairStep> group : groups.values()) {
+            this.executorService.submit(() -> this.runGroup(group));
+        }
+        this.executorService.shutdown();
+
+        try {
+            boolean finished;
+            if (timeBudget > 0) {
+                finished = this.executorService.awaitTermination(timeBudget, TimeUnit.MINUTES);
+            } else {
+                finished = this.executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            }
+
+            if (!finished) {
+                this.addStepError("The time budget of the repair tools has been exhausted: the remaining repair tools are stopped.");
+                this.stopMerging();
+                this.cancel();
+                if (!this.executorService.awaitTermination(GRACE_PERIOD, TimeUnit.SECONDS)) {
+                    this.getLogger().warn("Some repair tools did not stop after being interrupted, their results are ignored.");
+                }
+            }
+        } catch (InterruptedException e) {
+            this.addStepError("The execution of the repair tools has been interrupted.", e);
+            this.stopMerging();
+            this.cancel();
+            Thread.currentThread().interrupt();
+        }
+
+        this.stopMerging();
+
+        if (this.getInspector().getJobStatus().isHasBeenPatched()) {
+            return StepStatus.buildSuccess(this);
+        } else {
+            return StepStatus.buildSkipped(this, "No patch found.");
+        }
+    }
+
+    private synchronized void stopMerging() {
+        this.merging = false;
+    }
+
+    private void cancel() {
+        this.cancelled = true;
+        this.executorService.shutdownNow();
+        // the repair tools might ignore the interruption, but not the processes they started
+        for (ProcessWatchdog.Scope scope : this.scopes) {
+            scope.stop("the repair tools have been stopped.");
+        }
+    }
+
+    private void runGroup(List<AbstractRepairStep> group) {
+        for (AbstractRepairStep repairStep : group) {
+            if (this.cancelled) {
+                this.skip(repairStep);
+                continue;
+            }
+
+            RepairWorkspace workspace = new RepairWorkspace(this.getInspector(), repairStep.getRepairToolName());
+            try {
+                workspace.create();
+            } catch (IOException e) {
+                this.addStepError("Error while creating the workspace of " + repairStep.getRepairToolName(), e);
+                this.skip(repairStep);
+                workspace.delete();
+                continue;
+            }
+
+            repairStep.setProjectInspector(workspace.getInspector());
+            try (ProcessWatchdog.Scope scope = ProcessWatchdog.getInstance().openScope(repairStep.getRepairToolName())) {
+                this.scopes.add(scope);
+                if (this.cancelled) {
+                    scope.stop("the repair tools have been stopped.");
+                }
+                repairStep.runStep();
+            } catch (RuntimeException e) {
+                workspace.getInspector().getJobStatus().addStepError(repairStep.getName(), "Error while executing the repair tool: " + e);
+                this.getLogger().error("Error while executing " + repairStep.getRepairToolName(), e);
+            }
+
+            boolean patchFound = !workspace.getInspector().getJobStatus().getAllPatches().isEmpty();
+            synchronized (this) {
+                if (this.merging) {
+                    workspace.mergeResults();
+                }
+            }
+            workspace.delete();
+
+            if (patchFound && this.getConfig().isStopAtFirstPatch() && !this.cancelled) {
+                this.getLogger().info(repairStep.getRepairToolName() + " found a patch: the other repair tools are stopped.");
+                this.cancel();
+            }
+        }
+    }
+
+    private void skip(AbstractRepairStep repairStep) {
+        this.getInspector().getJobStatus().addStepStatus(StepStatus.buildSkipped(repairStep, "The repair tools have been stopped."));
+    }
+}
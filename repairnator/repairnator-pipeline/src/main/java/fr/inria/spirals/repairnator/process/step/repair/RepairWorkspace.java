@@ -0,0 +1,227 @@
+package fr.inria.spirals.repairnator.process.step.repair;
+
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.inspectors.RepairPatch;
+import fr.inria.spirals.repairnator.process.instrumentation.ResourceMetrics;
+import fr.inria.spirals.repairnator.process.maven.SharedMavenRepository;
+import fr.inria.spirals.repairnator.process.step.StepStatus;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This class manages a copy of the local repository of an inspector,
+ * in which a repair step can be executed without interfering with the other repair steps.
+ * The copy comes with its own inspector and job status: the paths computed by the previous steps
+ * are translated to the copy, and the results of the repair step are merged back
+ * in the original job status afterwards.
+ *
+ * The copy has its own local maven repository, made of hard links to the artifacts of the original one,
+ * so that the repair tools running maven concurrently do not write in the same local repository.
+ */
+public class RepairWorkspace {
+    private static final String M2_DIRECTORY = ".m2";
+    private static final String[] EXCLUDED_FILES = new String[]{M2_DIRECTORY};
+
+    private ProjectInspector originalInspector;
+    private ProjectInspector inspector;
+    private String originalPath;
+    private String path;
+
+    public RepairWorkspace(ProjectInspector originalInspector, String name) {
+        this.originalInspector = originalInspector;
+        this.originalPath = originalInspector.getRepoLocalPath();
+        this.path = this.originalPath + "_" + name;
+    }
+
+    private static Logger getLogger() {
+        return LoggerFactory.getLogger(RepairWorkspace.class);
+    }
+
+    public ProjectInspector getInspector() {
+        return inspector;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Copy the local repository and create the inspector working on it.
+     */
+    public void create() throws IOException {
+        File copyDir = new File(this.path);
+        if (copyDir.exists()) {
+            FileUtils.deleteDirectory(copyDir);
+        }
+        FileHelper.copyDirectoryCopyOnWrite(new File(this.originalPath), copyDir, EXCLUDED_FILES);
+        File m2Dir = new File(this.originalInspector.getM2LocalPath());
+        if (m2Dir.isDirectory()) {
+            SharedMavenRepository.linkLocalRepository(m2Dir, new File(copyDir, M2_DIRECTORY));
+        }
+
+        JobStatus originalStatus = this.originalInspector.getJobStatus();
+        JobStatus jobStatus = new JobStatus(this.toCopy(originalStatus.getPomDirPath()));
+        jobStatus.setFailingModulePath(this.toCopy(originalStatus.getFailingModulePath()));
+        jobStatus.setFailureLocations(originalStatus.getFailureLocations());
+        jobStatus.setReproducedAsFail(originalStatus.isReproducedAsFail());
+        jobStatus.setRepairSourceDir(this.toCopy(originalStatus.getRepairSourceDir()));
+        jobStatus.setTestDir(this.toCopy(originalStatus.getTestDir()));
+        jobStatus.setModules(this.toCopy(originalStatus.getModules()));
+        jobStatus.setHasBeenForked(originalStatus.isHasBeenForked());
+        jobStatus.setForkURL(originalStatus.getForkURL());
+
+        List<URL> classPath = new ArrayList<>();
+        if (originalStatus.getRepairClassPath() != null) {
+            for (URL url : originalStatus.getRepairClassPath()) {
+                classPath.add(this.toCopy(url));
+            }
+        }
+        jobStatus.setRepairClassPath(classPath);
+
+        this.inspector = new ProjectInspector(this.originalInspector, this.path, jobStatus);
+    }
+
+    /**
+     * Merge the results of the steps executed in the copy in the job status of the original inspector.
+     * Created files are copied back in the original local repository, except the ones written directly
+     * in the repository to push, which is shared with the original inspector.
+     */
+    public void mergeResults() {
+        JobStatus originalStatus = this.originalInspector.getJobStatus();
+        JobStatus jobStatus = this.inspector.getJobStatus();
+
+        for (Map.Entry<String, List<RepairPatch>> entry : jobStatus.getListOfPatches().entrySet()) {
+            List<RepairPatch> patches = new ArrayList<>();
+            for (RepairPatch patch : entry.getValue()) {
+                patches.add(new RepairPatch(patch.getToolname(), this.toOriginal(patch.getFilePath()), patch.getDiff()));
+            }
+            originalStatus.addPatches(entry.getKey(), patches);
+        }
+
+        for (String toolName : jobStatus.getToolDiagnostic().keySet()) {
+            originalStatus.addToolDiagnostic(toolName, jobStatus.getToolDiagnostic().get(toolName));
+        }
+
+        for (ResourceMetrics metrics : jobStatus.getResourceMetrics()) {
+            originalStatus.addResourceMetrics(metrics);
+        }
+
+        for (Map.Entry<String, List<String>> entry : jobStatus.getStepErrors().entrySet()) {
+            for (String error : entry.getValue()) {
+                originalStatus.addStepError(entry.getKey(), error);
+            }
+        }
+
+        for (String fileToPush : jobStatus.getCreatedFilesToPush()) {
+            File createdFile = new File(this.path, fileToPush);
+            if (createdFile.exists()) {
+                try {
+                    if (createdFile.isDirectory()) {
+                        FileUtils.copyDirectory(createdFile, new File(this.originalPath, fileToPush));
+                    } else {
+                        FileUtils.copyFile(createdFile, new File(this.originalPath, fileToPush));
+                    }
+                } catch (IOException e) {
+                    getLogger().error("Error while copying back the file " + createdFile.getPath(), e);
+                }
+            } else if (!new File(this.inspector.getRepoToPushLocalPath(), fileToPush).exists()) {
+                getLogger().warn("The file to push " + fileToPush + " has not been found in " + this.path + " nor in the repository to push.");
+                continue;
+            }
+            originalStatus.addFileToPush(fileToPush);
+        }
+
+        if (jobStatus.isHasBeenPatched()) {
+            originalStatus.setHasBeenPatched(true);
+        }
+        if (jobStatus.isHasBeenForked() && !originalStatus.isHasBeenForked()) {
+            originalStatus.setHasBeenForked(true);
+            originalStatus.setForkURL(jobStatus.getForkURL());
+        }
+        for (String prURL : jobStatus.getPRCreated()) {
+            originalStatus.addPRCreated(prURL);
+        }
+
+        for (StepStatus stepStatus : jobStatus.getStepStatuses()) {
+            originalStatus.addStepStatus(stepStatus);
+            originalStatus.getProperties().getReproductionBuggyBuild().addStep(stepStatus.getStep());
+        }
+        for (Map.Entry<String, Integer> entry : jobStatus.getStepsDurationsInSeconds().entrySet()) {
+            originalStatus.addStepDuration(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Long> entry : jobStatus.getFreeMemoryByStep().entrySet()) {
+            originalStatus.addFreeMemoryByStep(entry.getKey(), entry.getValue());
+        }
+    }
+
+    public void delete() {
+        this.inspector.getGitHelper().close();
+        try {
+            FileUtils.deleteDirectory(new File(this.path));
+        } catch (IOException e) {
+            getLogger().warn("Error while deleting the repair workspace " + this.path + ": " + e);
+        }
+    }
+
+    private String translate(String filePath, String from, String to) {
+        if (filePath == null) {
+            return null;
+        }
+        if (isInDirectory(filePath, from)) {
+            return to + filePath.substring(from.length());
+        }
+        String absoluteFrom = new File(from).getAbsolutePath();
+        if (isInDirectory(filePath, absoluteFrom)) {
+            return new File(to).getAbsolutePath() + filePath.substring(absoluteFrom.length());
+        }
+        return filePath;
+    }
+
+    private static boolean isInDirectory(String filePath, String directory) {
+        return filePath.equals(directory) || filePath.startsWith(directory + File.separator);
+    }
+
+    private String toCopy(String filePath) {
+        return this.translate(filePath, this.originalPath, this.path);
+    }
+
+    private String toOriginal(String filePath) {
+        return this.translate(filePath, this.path, this.originalPath);
+    }
+
+    private File[] toCopy(File[] files) {
+        if (files == null) {
+            return null;
+        }
+        File[] result = new File[files.length];
+        for (int i = 0; i < files.length; i++) {
+            result[i] = new File(this.toCopy(files[i].getPath()));
+        }
+        return result;
+    }
+
+    private URL toCopy(URL url) {
+        if (!"file".equals(url.getProtocol())) {
+            return url;
+        }
+        try {
+            File file = new File(this.toCopy(new File(url.toURI()).getAbsolutePath()));
+            return file.toURI().toURL();
+        } catch (MalformedURLException | URISyntaxException | IllegalArgumentException e) {
+            getLogger().warn("Error while translating the classpath entry " + url, e);
+            return url;
+        }
+    }
+}
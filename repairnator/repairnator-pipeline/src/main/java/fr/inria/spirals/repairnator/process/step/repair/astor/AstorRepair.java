@@ -38,6 +38,12 @@ public abstract class AstorRepair extends AbstractRepairStep {
 
     public abstract String getAstorMode();
 
+    @Override
+    public String getIsolationGroup() {
+        // Astor relies on static configuration properties
+        return "Astor";
+    }
+
     @Override
     protected StepStatus businessExecute() {
         this.getLogger().info("Start to repair using " + this.getRepairToolName());
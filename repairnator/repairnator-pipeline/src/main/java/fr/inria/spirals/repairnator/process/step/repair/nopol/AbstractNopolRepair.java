@@ -3,42 +3,41 @@ package fr.inria.spirals.repairnator.process.step.repair.nopol;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
-import fr.inria.lille.commons.synthesis.smt.solver.SolverFactory;
-import fr.inria.lille.repair.common.config.NopolContext;
-import fr.inria.lille.repair.common.patch.Patch;
-import fr.inria.lille.repair.common.synth.RepairType;
-import fr.inria.lille.repair.nopol.NoPol;
-import fr.inria.lille.repair.nopol.NopolResult;
 import fr.inria.spirals.repairnator.GsonPathTypeAdapter;
 import fr.inria.spirals.repairnator.process.files.FileHelper;
 import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.RepairPatch;
+import fr.inria.spirals.repairnator.process.instrumentation.ProcessWatchdog;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.nopol.IgnoreStatus;
 import fr.inria.spirals.repairnator.process.nopol.NopolInformation;
 import fr.inria.spirals.repairnator.process.nopol.NopolStatus;
 import fr.inria.spirals.repairnator.process.step.repair.AbstractRepairStep;
 import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
-import spoon.SpoonException;
-import spoon.reflect.factory.Factory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
-
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * This step is used to launch Nopol using a repair strategy by trying first all test
@@ -48,7 +47,14 @@ public abstract class AbstractNopolRepair extends AbstractRepairStep {
     public static int TOTAL_MAX_TIME = 60 * 4; // We expect it to run 4
                                                       // hours top.
     private static final int MIN_TIMEOUT = 2;
-    private int passingTime;
+    private static final long FORK_GRACE_PERIOD = TimeUnit.MINUTES.toMillis(2);
+    // the maximum heap of each JVM of Nopol, which bounds the number of JVMs launched at a time
+    private static final long FORK_MAX_HEAP = 2L * 1024 * 1024 * 1024;
+    // the options of the JVM of the pipeline given to the JVMs of Nopol, like the configuration of the logs:
+    // the other ones, like the heap size, the agents or the debugger, are not relevant or would conflict
+    private static final List<String> FORWARDED_JVM_OPTIONS = Arrays.asList("-Dlogback.", "-Dfile.encoding=", "-Djava.io.tmpdir=",
+            "-Djava.library.path=", "-Xss", "-XX:MaxMetaspaceSize=", "-XX:+Use", "-XX:-Use");
+    private static final String NOPOL_LOG_FILENAME = "debug.log";
     private Gson gson;
     private List<URL> classPath;
     private File[] sources;
@@ -56,12 +62,23 @@ public abstract class AbstractNopolRepair extends AbstractRepairStep {
     private List<RepairPatch> repairPatches;
     private boolean patchCreated;
     private JsonArray toolDiag;
+    private List<NopolInformation> nopolInformations;
+    private List<NopolRunner.Input> nopolInputs;
+    private Map<File, String> nopolLogs;
 
     public AbstractNopolRepair() {
         this.repairPatches = new ArrayList<>();
         this.toolDiag = new JsonArray();
         this.gson = new GsonBuilder().registerTypeAdapter(Path.class, new GsonPathTypeAdapter()).create();
-        this.passingTime = 0;
+        this.nopolInformations = new ArrayList<>();
+        this.nopolInputs = new ArrayList<>();
+        this.nopolLogs = new LinkedHashMap<>();
+    }
+
+    @Override
+    public String getIsolationGroup() {
+        // the runs of Nopol of a step already use all the available processors
+        return "Nopol";
     }
 
     public void setClassPath(List<URL> classPath) {
@@ -95,165 +112,291 @@ public abstract class AbstractNopolRepair extends AbstractRepairStep {
         return classPath;
     }
 
-    protected void runNopol(Set<FailureLocation> failureLocation, List<String> testsToIgnore, boolean ignoreError) {
-        NopolInformation nopolInformation;
-        if (testsToIgnore.isEmpty()) {
-            nopolInformation = new NopolInformation(failureLocation, IgnoreStatus.NOTHING_TO_IGNORE);
-        } else {
-            if (ignoreError) {
-                nopolInformation = new NopolInformation(failureLocation, IgnoreStatus.IGNORE_ERRORING);
-                ignoreError = false;
-            } else {
-                nopolInformation = new NopolInformation(failureLocation, IgnoreStatus.IGNORE_FAILING);
-            }
-        }
-
-        nopolInformation.setStatus(NopolStatus.RUNNING);
-
+    /**
+     * Add a run of Nopol on the given failure locations, which is executed by {@link #runNopolRuns()}.
+     */
+    protected void addNopolRun(Set<FailureLocation> failureLocation, List<String> testsToIgnore, IgnoreStatus ignoreStatus) {
         List<String> testClass = new ArrayList<>();
-
         for (FailureLocation location : failureLocation) {
             testClass.add(location.getClassName());
         }
 
-        int timeout = (TOTAL_MAX_TIME - this.passingTime) / 2;
-        if (timeout < MIN_TIMEOUT) {
-            timeout = MIN_TIMEOUT;
+        // the JVM of Nopol is executed in its own working directory: it is only given absolute paths
+        File[] absoluteSources = new File[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            absoluteSources[i] = sources[i].getAbsoluteFile();
         }
+        String solverPath = this.getConfig().getZ3solverPath();
+
+        NopolRunner.Input input = new NopolRunner.Input(absoluteSources, classPath, testClass, testsToIgnore);
+        input.setSolverPath((solverPath != null) ? new File(solverPath).getAbsolutePath() : null);
+        input.setOutputFolder(new File(patchDir, "run" + this.nopolLogs.size()).getAbsolutePath());
+        input.setRootProject(new File(this.getInspector().getRepoLocalPath()).getAbsolutePath());
+        this.nopolLogs.put(new File(getWorkingDirectory(input), NOPOL_LOG_FILENAME), "Nopol on " + failureLocation);
+
+        NopolInformation nopolInformation = new NopolInformation(failureLocation, testsToIgnore.isEmpty() ? IgnoreStatus.NOTHING_TO_IGNORE : ignoreStatus);
+        nopolInformation.setStatus(NopolStatus.NOTLAUNCHED);
+        this.nopolInformations.add(nopolInformation);
+        this.nopolInputs.add(input);
+    }
 
-        nopolInformation.setAllocatedTime(timeout);
+    /**
+     * Execute the added runs of Nopol concurrently, each of them in its own JVM (see {@link NopolRunner}) and its own
+     * working directory, with at most {@link fr.inria.spirals.repairnator.config.RepairnatorConfig#getNopolParallelism()}
+     * runs at a time, or by default as many runs as processors within the physical memory.
+     *
+     * The runs share the time budget {@link #TOTAL_MAX_TIME}: each run is given a share of the remaining budget
+     * according to the number of runs still waiting, and the runs which did not start before its end are not launched.
+     * The results are merged in the order the runs have been added.
+     */
+    protected void runNopolRuns() {
+        int nbRuns = this.nopolInputs.size();
+        if (nbRuns == 0) {
+            return;
+        }
+        int parallelism = this.getConfig().getNopolParallelism();
+        if (parallelism <= 0) {
+            parallelism = computeDefaultParallelism(Runtime.getRuntime().availableProcessors(), getPhysicalMemory(), Runtime.getRuntime().maxMemory());
+        }
+        parallelism = Math.min(parallelism, nbRuns);
+        this.getLogger().info("Launching " + nbRuns + " runs of Nopol, " + parallelism + " at a time, within " + TOTAL_MAX_TIME + " minutes.");
 
-        this.getLogger().debug("Launching repair with Nopol for following test class: " + testClass
-                + " (should timeout in " + timeout + " minutes)");
+        long deadline = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(TOTAL_MAX_TIME);
+        AtomicInteger pendingRuns = new AtomicInteger(nbRuns);
+        List<Future<NopolRunner.Result>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        try {
+            int nbSlots = parallelism;
+            for (int i = 0; i < nbRuns; i++) {
+                NopolInformation nopolInformation = this.nopolInformations.get(i);
+                NopolRunner.Input input = this.nopolInputs.get(i);
+                results.add(executor.submit(() -> this.forkNopol(nopolInformation, input, deadline, pendingRuns, nbSlots)));
+            }
+            executor.shutdown();
 
-        NopolContext nopolContext = new NopolContext(sources, classPath.toArray(new URL[classPath.size()]), testClass.toArray(new String[0]), testsToIgnore);
-        nopolContext.setComplianceLevel(8);
-        nopolContext.setTimeoutTestExecution(300);
-        nopolContext.setMaxTimeEachTypeOfFixInMinutes(15);
-        nopolContext.setMaxTimeInMinutes(timeout);
-        nopolContext.setLocalizer(NopolContext.NopolLocalizer.COCOSPOON);
-        nopolContext.setSolverPath(this.getConfig().getZ3solverPath());
-        nopolContext.setSynthesis(NopolContext.NopolSynthesis.DYNAMOTH);
-        nopolContext.setType(RepairType.COND_THEN_PRE);
-        nopolContext.setOnlyOneSynthesisResult(false);
-        nopolContext.setOutputFolder(patchDir.getAbsolutePath());
-
-        String repoLocalPath = this.getInspector().getRepoLocalPath();
-        if (repoLocalPath.startsWith("./")) {
-            repoLocalPath = repoLocalPath.substring(2);
+            for (int i = 0; i < nbRuns; i++) {
+                this.mergeResult(this.nopolInformations.get(i), results.get(i));
+            }
+        } catch (InterruptedException e) {
+            this.addStepError("The runs of Nopol have been interrupted.", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            // the JVMs of the interrupted runs are killed by the watchdog
+            executor.shutdownNow();
+            this.nopolInformations.clear();
+            this.nopolInputs.clear();
         }
+    }
 
-        nopolContext.setRootProject(new File(repoLocalPath).toPath());
+    /**
+     * @return the time allocated to a run, in minutes, when the given number of runs, including it, are still waiting.
+     * A share of the budget is kept for the next runs, as they are executed when a slot is available.
+     */
+    static int computeTimeout(long remainingMinutes, int pendingRuns, int parallelism) {
+        int nbWaves = (pendingRuns + parallelism - 1) / parallelism;
+        return (int) Math.max(MIN_TIMEOUT, remainingMinutes / (nbWaves + 1));
+    }
 
-        nopolInformation.setNopolContext(nopolContext);
+    /**
+     * @return the number of processors, bounded by the number of JVMs of Nopol fitting in the physical memory
+     * left by the JVM of the pipeline, if the physical memory is known.
+     */
+    static int computeDefaultParallelism(int nbProcessors, long physicalMemory, long pipelineMaxHeap) {
+        if (physicalMemory <= 0) {
+            return nbProcessors;
+        }
+        long nbForks = (physicalMemory - pipelineMaxHeap) / FORK_MAX_HEAP;
+        return (int) Math.max(1, Math.min(nbProcessors, nbForks));
+    }
 
-        SolverFactory.setSolver(nopolContext.getSolver(), nopolContext.getSolverPath());
+    private static long getPhysicalMemory() {
+        OperatingSystemMXBean operatingSystemMXBean = ManagementFactory.getOperatingSystemMXBean();
+        if (operatingSystemMXBean instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) operatingSystemMXBean).getTotalPhysicalMemorySize();
+        }
+        return -1;
+    }
 
-        long beforeNopol = new Date().getTime();
+    private static File getWorkingDirectory(NopolRunner.Input input) {
+        return new File(input.getOutputFolder() + ".workdir");
+    }
 
-        try {
-            final NoPol nopol = new NoPol(nopolContext);
-            Factory spoonFactory = nopol.getSpooner().spoonFactory();
-
-            final ExecutorService executor = Executors.newSingleThreadExecutor();
-            final Future<NopolResult> nopolExecution = executor.submit(new Callable<NopolResult>() {
-                @Override
-                public NopolResult call() throws Exception {
-                    NopolResult result = null;
-                    try {
-                        result = nopol.build();
-                    } catch (RuntimeException e) {
-                        addStepError("Got runtime exception while running Nopol", e);
-                    }
-                    return result;
+    /**
+     * @return the command line of a JVM of Nopol: its heap is bounded, and it is given the relevant options
+     * of the JVM of the pipeline.
+     */
+    static List<String> getNopolCommand(List<String> pipelineJvmOptions, String classPath) {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Xmx" + (FORK_MAX_HEAP / (1024 * 1024)) + "m");
+        for (String option : pipelineJvmOptions) {
+            for (String forwardedOption : FORWARDED_JVM_OPTIONS) {
+                if (option.startsWith(forwardedOption)) {
+                    command.add(toAbsoluteOption(option));
+                    break;
                 }
-            });
+            }
+        }
 
-            try {
-                executor.shutdown();
-                NopolResult result = nopolExecution.get(nopolContext.getMaxTimeInMinutes(), TimeUnit.MINUTES);
+        // the JVM of Nopol is executed in another working directory
+        List<String> absoluteClassPath = new ArrayList<>();
+        for (String entry : classPath.split(File.pathSeparator)) {
+            absoluteClassPath.add(new File(entry).getAbsolutePath());
+        }
+        command.add("-cp");
+        command.add(String.join(File.pathSeparator, absoluteClassPath));
+        command.add(NopolRunner.class.getName());
+        return command;
+    }
 
-                if (result == null) {
-                    result = nopol.getNopolResult();
-                }
-                nopolInformation.setNbStatements(result.getNbStatements());
-                nopolInformation.setNbAngelicValues(result.getNbAngelicValues());
+    /**
+     * @return the given option, with its value as an absolute path if it is the relative path of an existing file,
+     * like the path of the configuration of the logs.
+     */
+    private static String toAbsoluteOption(String option) {
+        int separator = option.indexOf('=');
+        if (option.startsWith("-D") && separator > 0) {
+            File file = new File(option.substring(separator + 1));
+            if (!file.isAbsolute() && file.exists()) {
+                return option.substring(0, separator + 1) + file.getAbsolutePath();
+            }
+        }
+        return option;
+    }
 
-                StringBuilder failureLocationWithoutDots = new StringBuilder();
-                for (FailureLocation location : failureLocation) {
-                    failureLocationWithoutDots.append(location.getClassName().replace('.', '/'));
-                    failureLocationWithoutDots.append(':');
+    private NopolRunner.Result forkNopol(NopolInformation nopolInformation, NopolRunner.Input input, long deadline, AtomicInteger pendingRuns, int parallelism) throws IOException, InterruptedException {
+        long remainingMinutes = TimeUnit.MILLISECONDS.toMinutes(deadline - System.currentTimeMillis());
+        int timeout = computeTimeout(remainingMinutes, pendingRuns.getAndDecrement(), parallelism);
+        if (remainingMinutes <= 0) {
+            this.getLogger().warn("The time budget of Nopol is exhausted: the run on " + nopolInformation.getLocation() + " is not launched.");
+            return null;
+        }
+
+        input.setTimeout(timeout);
+        nopolInformation.setAllocatedTime(timeout);
+        nopolInformation.setNopolContext(input.toNopolContext());
+        nopolInformation.setStatus(NopolStatus.RUNNING);
+        this.getLogger().debug("Launching repair with Nopol for following failure locations: " + nopolInformation.getLocation()
+                + " (should timeout in " + timeout + " minutes)");
+
+        File inputFile = File.createTempFile("nopol", ".json");
+        File resultFile = File.createTempFile("nopol", ".result.json");
+        long beforeNopol = new Date().getTime();
+        try {
+            Files.write(inputFile.toPath(), this.gson.toJson(input).getBytes(StandardCharsets.UTF_8));
+
+            // Nopol writes its log in its working directory: each run has its own one
+            File workingDirectory = getWorkingDirectory(input);
+            workingDirectory.mkdirs();
+            List<String> command = getNopolCommand(ManagementFactory.getRuntimeMXBean().getInputArguments(), System.getProperty("java.class.path"));
+            command.add(inputFile.getAbsolutePath());
+            command.add(resultFile.getAbsolutePath());
+            ProcessBuilder processBuilder = new ProcessBuilder(command)
+                    .directory(workingDirectory)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.INHERIT);
+
+            long watchdogTimeout = TimeUnit.MINUTES.toMillis(timeout) + FORK_GRACE_PERIOD;
+            try (ProcessWatchdog.Execution execution = ProcessWatchdog.getInstance().watch("nopol on " + nopolInformation.getLocation(), 0, watchdogTimeout)) {
+                Process process = execution.mark(processBuilder).start();
+                try {
+                    process.waitFor();
+                } finally {
+                    process.destroyForcibly();
                 }
 
-                List<Patch> patches = result.getPatches();
-                if (patches != null && !patches.isEmpty()) {
-                    for (Patch patch : patches) {
-                        String diff = patch.toDiff(spoonFactory, nopolContext);
-                        int i = 0;
-                        File patchFile;
-                        do {
-                            File sourceFolder = getSources()[i];
-                            patchFile = patch.getFile(sourceFolder);
-                        } while (i < getSources().length && (patchFile == null || !patchFile.exists()));
-
-                        RepairPatch repairPatch = new RepairPatch(this.getRepairToolName(), patchFile.getPath(), diff);
-                        repairPatches.add(repairPatch);
-                    }
-                    nopolInformation.setStatus(NopolStatus.PATCH);
-                    patchCreated = true;
-                } else {
-                    nopolInformation.setStatus(NopolStatus.NOPATCH);
+                if (execution.isTimedOut()) {
+                    NopolRunner.Result result = new NopolRunner.Result();
+                    result.getErrors().add("Timeout: the JVM of Nopol has been killed: " + execution.getTimeoutReason());
+                    return result;
                 }
-            } catch (TimeoutException exception) {
-                this.addStepError("Timeout: execution time > " + nopolContext.getMaxTimeInMinutes() + " " + TimeUnit.MINUTES);
-                nopolExecution.cancel(true);
-                executor.shutdownNow();
-                nopolInformation.setStatus(NopolStatus.TIMEOUT);
+                if (process.exitValue() != 0 || resultFile.length() == 0) {
+                    throw new IOException("The JVM of Nopol exited with the code " + process.exitValue() + " without result.");
+                }
+            }
+            return this.gson.fromJson(new String(Files.readAllBytes(resultFile.toPath()), StandardCharsets.UTF_8), NopolRunner.Result.class);
+        } finally {
+            nopolInformation.setPassingTime(Math.round((new Date().getTime() - beforeNopol) / 60000));
+            inputFile.delete();
+            resultFile.delete();
+        }
+    }
 
-                NopolResult result = nopol.getNopolResult();
+    void mergeResult(NopolInformation nopolInformation, Future<NopolRunner.Result> execution) throws InterruptedException {
+        try {
+            NopolRunner.Result result = execution.get();
+            if (result != null) {
+                for (String error : result.getErrors()) {
+                    this.addStepError(error);
+                }
+                nopolInformation.setStatus(result.getStatus() != null ? result.getStatus() : NopolStatus.TIMEOUT);
                 nopolInformation.setNbStatements(result.getNbStatements());
                 nopolInformation.setNbAngelicValues(result.getNbAngelicValues());
+                nopolInformation.setExceptionDetail(result.getExceptionDetail());
 
-            } catch (InterruptedException | ExecutionException e) {
-                this.addStepError(e.getMessage());
-                nopolExecution.cancel(true);
-                executor.shutdownNow();
-                nopolInformation.setStatus(NopolStatus.EXCEPTION);
-                nopolInformation.setExceptionDetail(e.getMessage());
-
-                NopolResult result = nopol.getNopolResult();
-                nopolInformation.setNbStatements(result.getNbStatements());
-                nopolInformation.setNbAngelicValues(result.getNbAngelicValues());
+                for (NopolRunner.PatchResult patch : result.getPatches()) {
+                    this.repairPatches.add(new RepairPatch(this.getRepairToolName(), this.toPipelinePath(patch.getFilePath()), patch.getDiff()));
+                    this.patchCreated = true;
+                }
             }
-        } catch (SpoonException e) {
-            this.addStepError(e.getMessage());
+        } catch (ExecutionException e) {
+            this.addStepError("Error while running Nopol on " + nopolInformation.getLocation(), e.getCause());
             nopolInformation.setStatus(NopolStatus.EXCEPTION);
-            nopolInformation.setExceptionDetail(e.getMessage());
+            nopolInformation.setExceptionDetail(String.valueOf(e.getCause().getMessage()));
         }
+        this.toolDiag.add(this.gson.toJsonTree(nopolInformation));
+    }
 
+    /**
+     * @return the given path of a patch found by Nopol, which is given absolute paths, relatively to the working directory
+     * of the pipeline if the source directories are relative.
+     */
+    private String toPipelinePath(String filePath) {
+        File file = new File(filePath);
+        boolean relativeSources = false;
+        for (File source : this.sources) {
+            relativeSources |= !source.isAbsolute();
+        }
+        Path workingDirectory = new File("").getAbsoluteFile().toPath();
+        if (relativeSources && file.isAbsolute() && file.toPath().startsWith(workingDirectory)) {
+            return workingDirectory.relativize(file.toPath()).toString();
+        }
+        return filePath;
+    }
 
-        long afterNopol = new Date().getTime();
-
-        int localPassingTime = Math.round((afterNopol - beforeNopol) / 60000);
-        nopolInformation.setPassingTime(localPassingTime);
+    List<RepairPatch> getRepairPatches() {
+        return repairPatches;
+    }
 
-        this.toolDiag.add(gson.toJsonTree(nopolInformation));
+    /**
+     * Gather the logs written by the runs of Nopol in their working directory in a single file of the repository.
+     */
+    private void recordNopolLogs() {
+        String nopolDestName = "repairnator.nopol.log";
+        File nopolDest = new File(this.getInspector().getRepoLocalPath(), nopolDestName);
+        boolean logRecorded = false;
+        try (OutputStream output = Files.newOutputStream(nopolDest.toPath(), StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (Map.Entry<File, String> nopolLog : this.nopolLogs.entrySet()) {
+                if (nopolLog.getKey().isFile()) {
+                    output.write(("===== " + nopolLog.getValue() + " =====" + System.lineSeparator()).getBytes(StandardCharsets.UTF_8));
+                    Files.copy(nopolLog.getKey().toPath(), output);
+                    logRecorded = true;
+                }
+            }
+        } catch (IOException e) {
+            getLogger().error("Error while gathering the logs of Nopol", e);
+        }
 
-        passingTime += localPassingTime;
+        if (logRecorded) {
+            this.getInspector().getJobStatus().addFileToPush(nopolDestName);
+        } else if (nopolDest.length() == 0) {
+            nopolDest.delete();
+        }
+        this.nopolLogs.clear();
     }
 
     protected StepStatus recordResults() {
-        File nopolLog = new File(System.getProperty("user.dir"), "debug.log");
-        if (nopolLog.exists()) {
-            String nopolDestName = "repairnator.nopol.log";
-            File nopolDest = new File(this.getInspector().getRepoLocalPath(), nopolDestName);
-            try {
-                Files.move(nopolLog.toPath(), nopolDest.toPath());
-                this.getInspector().getJobStatus().addFileToPush(nopolDestName);
-            } catch (IOException e) {
-                getLogger().error("Error while renaming nopol log", e);
-            }
-        }
+        this.recordNopolLogs();
 
         this.recordPatches(repairPatches);
         this.recordToolDiagnostic(toolDiag);
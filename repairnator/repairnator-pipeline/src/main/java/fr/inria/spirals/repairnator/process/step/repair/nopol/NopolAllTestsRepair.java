@@ -1,5 +1,6 @@
 package fr.inria.spirals.repairnator.process.step.repair.nopol;
 
+import fr.inria.spirals.repairnator.process.nopol.IgnoreStatus;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 
 import java.util.Collections;
@@ -18,8 +19,9 @@ public class NopolAllTestsRepair extends AbstractNopolRepair {
         this.initWithJobStatus();
 
         if (this.getClassPath() != null && this.getSources() != null) {
-            this.runNopol(this.getInspector().getJobStatus().getFailureLocations(), Collections.EMPTY_LIST, true);
+            this.addNopolRun(this.getInspector().getJobStatus().getFailureLocations(), Collections.emptyList(), IgnoreStatus.NOTHING_TO_IGNORE);
 
+            this.runNopolRuns();
             return this.recordResults();
         } else {
             this.addStepError("No classpath or sources directory has been given. Nopol can't be launched.");
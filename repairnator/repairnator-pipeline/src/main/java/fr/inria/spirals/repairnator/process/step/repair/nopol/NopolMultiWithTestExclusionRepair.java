@@ -1,5 +1,6 @@
 package fr.inria.spirals.repairnator.process.step.repair.nopol;
 
+import fr.inria.spirals.repairnator.process.nopol.IgnoreStatus;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.testinformation.ComparatorFailureLocation;
 import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
@@ -28,26 +29,18 @@ public class NopolMultiWithTestExclusionRepair extends AbstractNopolRepair {
                 Set<String> erroringTests = failureLocation.getErroringMethods();
                 Set<String> failingTests = failureLocation.getFailingMethods();
 
-                // this one is used to loop on Nopol over tests to ignore. It can be a list containing an empty list.
-                List<List<String>> listOfTestToIgnore = new ArrayList<>();
-
-                boolean ignoreError = false;
                 // in that case: no tests to ignore
                 if (erroringTests.isEmpty() || failingTests.isEmpty()) {
-                    listOfTestToIgnore.add(new ArrayList<>());
-                // then we will first try to ignore erroring tests, then to ignore failing tests
+                    this.addNopolRun(Collections.singleton(failureLocation), new ArrayList<>(), IgnoreStatus.NOTHING_TO_IGNORE);
+                // then we will try to ignore erroring tests, and to ignore failing tests
                 } else {
-                    listOfTestToIgnore.add(new ArrayList<>(erroringTests));
-                    listOfTestToIgnore.add(new ArrayList<>(failingTests));
-
-                    ignoreError = true;
-                }
-
-                for (List<String> testsToIgnore : listOfTestToIgnore) {
-                    this.runNopol(Collections.singleton(failureLocation), testsToIgnore, ignoreError);
+                    this.addNopolRun(Collections.singleton(failureLocation), new ArrayList<>(erroringTests), IgnoreStatus.IGNORE_ERRORING);
+                    this.addNopolRun(Collections.singleton(failureLocation), new ArrayList<>(failingTests), IgnoreStatus.IGNORE_FAILING);
                 }
             }
 
+            // the runs on the failure locations and their test exclusions are independent
+            this.runNopolRuns();
             return this.recordResults();
         } else {
             this.addStepError("No classpath or sources directory has been given. Nopol can't be launched.");
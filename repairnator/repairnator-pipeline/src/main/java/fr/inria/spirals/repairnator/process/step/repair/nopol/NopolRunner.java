@@ -0,0 +1,270 @@
+package fr.inria.spirals.repairnator.process.step.repair.nopol;
+
+import com.google.gson.Gson;
+import fr.inria.lille.commons.synthesis.smt.solver.SolverFactory;
+import fr.inria.lille.repair.common.config.NopolContext;
+import fr.inria.lille.repair.common.patch.Patch;
+import fr.inria.lille.repair.common.synth.RepairType;
+import fr.inria.lille.repair.nopol.NoPol;
+import fr.inria.lille.repair.nopol.NopolResult;
+import fr.inria.spirals.repairnator.process.nopol.NopolStatus;
+import spoon.SpoonException;
+import spoon.reflect.factory.Factory;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class runs Nopol once, in a JVM forked by {@link AbstractNopolRepair} with the classpath of Repairnator.
+ *
+ * Nopol relies on a static configuration, e.g. for its solver: a JVM per run lets the runs be executed concurrently,
+ * each of them with its own Z3 process.
+ * The run is read from a JSON file given as first argument, and its result is written as JSON in the file given as second argument.
+ */
+public class NopolRunner {
+    public static final int RUNNER_ERROR = 1;
+
+    private NopolRunner() {}
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: " + NopolRunner.class.getName() + " <run file> <result file>");
+            System.exit(RUNNER_ERROR);
+        }
+
+        Gson gson = new Gson();
+        try {
+            Input input = gson.fromJson(new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8), Input.class);
+            Result result = run(input);
+            Files.write(Paths.get(args[1]), gson.toJson(result).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            System.exit(RUNNER_ERROR);
+        }
+        // the threads of Nopol might still be running after a timeout
+        System.exit(0);
+    }
+
+    static Result run(Input input) throws MalformedURLException {
+        Result result = new Result();
+        NopolContext nopolContext = input.toNopolContext();
+        SolverFactory.setSolver(nopolContext.getSolver(), nopolContext.getSolverPath());
+
+        try {
+            final NoPol nopol = new NoPol(nopolContext);
+            Factory spoonFactory = nopol.getSpooner().spoonFactory();
+
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            final Future<NopolResult> nopolExecution = executor.submit(() -> {
+                NopolResult nopolResult = null;
+                try {
+                    nopolResult = nopol.build();
+                } catch (RuntimeException e) {
+                    result.errors.add("Got runtime exception while running Nopol: " + e);
+                }
+                return nopolResult;
+            });
+
+            try {
+                executor.shutdown();
+                NopolResult nopolResult = nopolExecution.get(nopolContext.getMaxTimeInMinutes(), TimeUnit.MINUTES);
+
+                if (nopolResult == null) {
+                    nopolResult = nopol.getNopolResult();
+                }
+                result.setNopolResult(nopolResult);
+
+                List<Patch> patches = nopolResult.getPatches();
+                if (patches != null && !patches.isEmpty()) {
+                    for (Patch patch : patches) {
+                        result.patches.add(new PatchResult(getPatchFile(patch, input.getSourceFiles()), patch.toDiff(spoonFactory, nopolContext)));
+                    }
+                    result.status = NopolStatus.PATCH;
+                } else {
+                    result.status = NopolStatus.NOPATCH;
+                }
+            } catch (TimeoutException exception) {
+                result.errors.add("Timeout: execution time > " + nopolContext.getMaxTimeInMinutes() + " " + TimeUnit.MINUTES);
+                nopolExecution.cancel(true);
+                executor.shutdownNow();
+                result.status = NopolStatus.TIMEOUT;
+                result.setNopolResult(nopol.getNopolResult());
+            } catch (InterruptedException | ExecutionException e) {
+                result.errors.add(e.getMessage());
+                nopolExecution.cancel(true);
+                executor.shutdownNow();
+                result.status = NopolStatus.EXCEPTION;
+                result.exceptionDetail = e.getMessage();
+                result.setNopolResult(nopol.getNopolResult());
+            }
+        } catch (SpoonException e) {
+            result.errors.add(e.getMessage());
+            result.status = NopolStatus.EXCEPTION;
+            result.exceptionDetail = e.getMessage();
+        }
+        return result;
+    }
+
+    /**
+     * @return the path of the file of the patch, in the first source folder which contains it.
+     */
+    private static String getPatchFile(Patch patch, File[] sourceFolders) {
+        File patchFile = null;
+        for (File sourceFolder : sourceFolders) {
+            File candidate = patch.getFile(sourceFolder);
+            if (candidate != null && candidate.exists()) {
+                return candidate.getPath();
+            }
+            if (patchFile == null) {
+                patchFile = candidate;
+            }
+        }
+        return (patchFile != null) ? patchFile.getPath() : "";
+    }
+
+    /**
+     * A run of Nopol, given to the forked JVM.
+     */
+    public static class Input {
+        private List<String> sources = new ArrayList<>();
+        private List<String> classPath = new ArrayList<>();
+        private List<String> testClasses = new ArrayList<>();
+        private List<String> testsToIgnore = new ArrayList<>();
+        private int timeout;
+        private String solverPath;
+        private String outputFolder;
+        private String rootProject;
+
+        public Input(File[] sources, List<URL> classPath, List<String> testClasses, List<String> testsToIgnore) {
+            for (File source : sources) {
+                this.sources.add(source.getPath());
+            }
+            for (URL url : classPath) {
+                this.classPath.add(url.toExternalForm());
+            }
+            this.testClasses.addAll(testClasses);
+            this.testsToIgnore.addAll(testsToIgnore);
+        }
+
+        public void setTimeout(int timeout) {
+            this.timeout = timeout;
+        }
+
+        public void setSolverPath(String solverPath) {
+            this.solverPath = solverPath;
+        }
+
+        public void setOutputFolder(String outputFolder) {
+            this.outputFolder = outputFolder;
+        }
+
+        public String getOutputFolder() {
+            return outputFolder;
+        }
+
+        public void setRootProject(String rootProject) {
+            this.rootProject = rootProject;
+        }
+
+        public File[] getSourceFiles() {
+            File[] sourceFiles = new File[this.sources.size()];
+            for (int i = 0; i < sourceFiles.length; i++) {
+                sourceFiles[i] = new File(this.sources.get(i));
+            }
+            return sourceFiles;
+        }
+
+        public NopolContext toNopolContext() throws MalformedURLException {
+            URL[] classPathUrls = new URL[this.classPath.size()];
+            for (int i = 0; i < classPathUrls.length; i++) {
+                classPathUrls[i] = new URL(this.classPath.get(i));
+            }
+
+            NopolContext nopolContext = new NopolContext(this.getSourceFiles(), classPathUrls, this.testClasses.toArray(new String[0]), this.testsToIgnore);
+            nopolContext.setComplianceLevel(8);
+            nopolContext.setTimeoutTestExecution(300);
+            nopolContext.setMaxTimeEachTypeOfFixInMinutes(15);
+            nopolContext.setMaxTimeInMinutes(this.timeout);
+            nopolContext.setLocalizer(NopolContext.NopolLocalizer.COCOSPOON);
+            nopolContext.setSolverPath(this.solverPath);
+            nopolContext.setSynthesis(NopolContext.NopolSynthesis.DYNAMOTH);
+            nopolContext.setType(RepairType.COND_THEN_PRE);
+            nopolContext.setOnlyOneSynthesisResult(false);
+            nopolContext.setOutputFolder(this.outputFolder);
+            nopolContext.setRootProject(Paths.get(this.rootProject));
+            return nopolContext;
+        }
+    }
+
+    /**
+     * The result of a run of Nopol, given back by the forked JVM.
+     */
+    public static class Result {
+        private NopolStatus status;
+        private int nbStatements;
+        private int nbAngelicValues;
+        private String exceptionDetail;
+        private List<PatchResult> patches = new ArrayList<>();
+        private List<String> errors = new ArrayList<>();
+
+        private void setNopolResult(NopolResult nopolResult) {
+            this.nbStatements = nopolResult.getNbStatements();
+            this.nbAngelicValues = nopolResult.getNbAngelicValues();
+        }
+
+        public NopolStatus getStatus() {
+            return status;
+        }
+
+        public int getNbStatements() {
+            return nbStatements;
+        }
+
+        public int getNbAngelicValues() {
+            return nbAngelicValues;
+        }
+
+        public String getExceptionDetail() {
+            return exceptionDetail;
+        }
+
+        public List<PatchResult> getPatches() {
+            return patches;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+
+    public static class PatchResult {
+        private String filePath;
+        private String diff;
+
+        public PatchResult(String filePath, String diff) {
+            this.filePath = filePath;
+            this.diff = diff;
+        }
+
+        public String getFilePath() {
+            return filePath;
+        }
+
+        public String getDiff() {
+            return diff;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package fr.inria.spirals.repairnator.process.step.repair.nopol;
 
+import fr.inria.spirals.repairnator.process.nopol.IgnoreStatus;
 import fr.inria.spirals.repairnator.process.step.StepStatus;
 import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
 
@@ -20,9 +21,10 @@ public class NopolSingleTestRepair extends AbstractNopolRepair {
 
         if (this.getClassPath() != null && this.getSources() != null) {
             for (FailureLocation failureLocation : this.getInspector().getJobStatus().getFailureLocations()) {
-                this.runNopol(Collections.singleton(failureLocation), Collections.EMPTY_LIST, true);
+                this.addNopolRun(Collections.singleton(failureLocation), Collections.emptyList(), IgnoreStatus.NOTHING_TO_IGNORE);
             }
 
+            this.runNopolRuns();
             return this.recordResults();
         } else {
             this.addStepError("No classpath or sources directory has been given. Nopol can't be launched.");
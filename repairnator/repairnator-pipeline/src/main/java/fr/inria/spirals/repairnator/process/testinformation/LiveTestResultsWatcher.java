@@ -0,0 +1,157 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.inspectors.properties.tests.OverallMetrics;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestClassReport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * This class reads the surefire reports while the tests are running, in order to know the results of the tests
+ * before the end of maven: surefire writes the report of a test class as soon as its tests are finished.
+ *
+ * The reports existing when the watcher is created are ignored, as they come from a previous execution.
+ * The reports still being written cannot be parsed: they are read again at the next poll.
+ */
+public class LiveTestResultsWatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LiveTestResultsWatcher.class);
+
+    private final ProjectInspector inspector;
+    private final List<File> surefireDirs;
+    private final SurefireReportStreamParser parser;
+    private final Map<File, Long> ignoredReports;
+    private final Map<File, Long> readDates;
+    private final Map<File, List<TestClassReport>> readReports;
+
+    private int nbRunningTests;
+    private int nbPassingTests;
+    private int nbFailingTests;
+    private int nbErroringTests;
+    private int nbSkippingTests;
+    private Set<String> failingClasses;
+
+    /**
+     * @param rootDir the directory of the root pom.xml of the project: the reports are searched in all its modules.
+     */
+    public LiveTestResultsWatcher(ProjectInspector inspector, File rootDir) {
+        this.inspector = inspector;
+        this.parser = new SurefireReportStreamParser();
+        this.readDates = new HashMap<>();
+        this.readReports = new LinkedHashMap<>();
+        this.failingClasses = new TreeSet<>();
+
+        this.surefireDirs = new ArrayList<>();
+        for (File moduleDir : inspector.getProjectModelService().loadModuleTree(new File(rootDir, Utils.POM_FILE))) {
+            this.surefireDirs.add(new File(moduleDir, SurefireReportsFinder.TARGET_DIR + File.separator + SurefireReportsFinder.SUREFIRE_REPORTS_DIR));
+        }
+
+        this.ignoredReports = new HashMap<>();
+        for (File report : this.listReports()) {
+            this.ignoredReports.put(report, report.lastModified());
+        }
+    }
+
+    private List<File> listReports() {
+        List<File> reports = new ArrayList<>();
+        for (File surefireDir : this.surefireDirs) {
+            File[] files = surefireDir.listFiles((dir, name) -> name.endsWith(".xml"));
+            if (files != null) {
+                for (File file : files) {
+                    reports.add(file);
+                }
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Read the reports written since the last poll, and update the test metrics of the job status.
+     */
+    public synchronized void poll() {
+        boolean updated = false;
+        for (File report : this.listReports()) {
+            long lastModified = report.lastModified();
+            Long ignoredDate = this.ignoredReports.get(report);
+            Long readDate = this.readDates.get(report);
+            if ((ignoredDate != null && ignoredDate == lastModified) || (readDate != null && readDate == lastModified)) {
+                continue;
+            }
+
+            try {
+                this.readReports.put(report, this.parser.parseReport(report));
+                this.readDates.put(report, lastModified);
+                updated = true;
+            } catch (IOException | XMLStreamException e) {
+                LOGGER.debug("The report " + report + " cannot be read yet: " + e.getMessage());
+            }
+        }
+
+        if (updated) {
+            this.computeMetrics();
+        }
+    }
+
+    private void computeMetrics() {
+        this.nbRunningTests = 0;
+        this.nbPassingTests = 0;
+        this.nbFailingTests = 0;
+        this.nbErroringTests = 0;
+        this.nbSkippingTests = 0;
+        this.failingClasses = new TreeSet<>();
+
+        for (List<TestClassReport> reports : this.readReports.values()) {
+            for (TestClassReport report : reports) {
+                int runningTests = report.getNumberOfTests() - report.getNumberOfSkipped();
+                this.nbRunningTests += runningTests;
+                this.nbPassingTests += runningTests - report.getNumberOfFailures() - report.getNumberOfErrors();
+                this.nbFailingTests += report.getNumberOfFailures();
+                this.nbErroringTests += report.getNumberOfErrors();
+                this.nbSkippingTests += report.getNumberOfSkipped();
+                if (report.getNumberOfFailures() + report.getNumberOfErrors() > 0) {
+                    this.failingClasses.add(report.getFullClassName());
+                }
+            }
+        }
+
+        OverallMetrics overallMetrics = this.inspector.getJobStatus().getProperties().getTests().getOverallMetrics();
+        overallMetrics.setNumberRunning(this.nbRunningTests);
+        overallMetrics.setNumberPassing(this.nbPassingTests);
+        overallMetrics.setNumberFailing(this.nbFailingTests);
+        overallMetrics.setNumberErroring(this.nbErroringTests);
+        overallMetrics.setNumberSkipping(this.nbSkippingTests);
+
+        LOGGER.info("Tests run so far: " + this.nbRunningTests + ", failures: " + this.nbFailingTests + ", errors: "
+                + this.nbErroringTests + ", failing classes: " + this.failingClasses.size());
+    }
+
+    public synchronized int getNbRunningTests() {
+        return nbRunningTests;
+    }
+
+    public synchronized int getNbFailingTests() {
+        return nbFailingTests;
+    }
+
+    public synchronized int getNbErroringTests() {
+        return nbErroringTests;
+    }
+
+    /**
+     * @return the names of the test classes with at least a failing or erroring test, sorted.
+     */
+    public synchronized Set<String> getFailingClasses() {
+        return new TreeSet<>(this.failingClasses);
+    }
+}
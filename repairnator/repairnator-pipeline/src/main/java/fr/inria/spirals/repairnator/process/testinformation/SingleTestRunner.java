@@ -0,0 +1,65 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * This class runs a single test method with JUnit 4, in a JVM forked with the classpath of the project.
+ *
+ * Its class file is copied alone next to the classpath of the project: it must only use the JDK,
+ * and JUnit is loaded by reflection from the classpath of the project, not from the one of Repairnator.
+ * The result is given by the exit code of the JVM, and the first line of each failure is printed
+ * with the {@link #FAILURE_PREFIX}, to be told apart from the output of the test.
+ */
+public class SingleTestRunner {
+    public static final int TEST_PASSED = 0;
+    public static final int TEST_FAILED = 1;
+    public static final int TEST_NOT_RUN = 2;
+    public static final int RUNNER_ERROR = 3;
+    public static final String FAILURE_PREFIX = "[repairnator failure] ";
+
+    private static final String FILTER_CLASS = "org.junit.runner.manipulation.Filter";
+
+    private SingleTestRunner() {}
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            System.err.println("Usage: " + SingleTestRunner.class.getName() + " <test class> <test method>");
+            System.exit(RUNNER_ERROR);
+        }
+        System.exit(run(args[0], args[1]));
+    }
+
+    static int run(String className, String methodName) {
+        try {
+            Class<?> testClass = Class.forName(className);
+            Class<?> requestClass = Class.forName("org.junit.runner.Request");
+            Class<?> junitCoreClass = Class.forName("org.junit.runner.JUnitCore");
+
+            Object request = requestClass.getMethod("method", Class.class, String.class).invoke(null, testClass, methodName);
+            Object result = junitCoreClass.getMethod("run", requestClass).invoke(junitCoreClass.getConstructor().newInstance(), request);
+
+            int runCount = (Integer) result.getClass().getMethod("getRunCount").invoke(result);
+            boolean successful = (Boolean) result.getClass().getMethod("wasSuccessful").invoke(result);
+            if (runCount == 0) {
+                return TEST_NOT_RUN;
+            }
+            if (!successful) {
+                for (Object failure : (Iterable<?>) result.getClass().getMethod("getFailures").invoke(result)) {
+                    System.out.println(FAILURE_PREFIX + failure.toString().split("\\R", 2)[0]);
+                    // JUnit reports a test method which does not exist as the failure of a filter
+                    Object description = failure.getClass().getMethod("getDescription").invoke(failure);
+                    if (FILTER_CLASS.equals(description.getClass().getMethod("getClassName").invoke(description))) {
+                        return TEST_NOT_RUN;
+                    }
+                }
+            }
+            return successful ? TEST_PASSED : TEST_FAILED;
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InstantiationException e) {
+            System.err.println("The test cannot be run with JUnit 4: " + e);
+            return RUNNER_ERROR;
+        } catch (InvocationTargetException e) {
+            System.err.println("Error while running the test: " + e.getCause());
+            return RUNNER_ERROR;
+        }
+    }
+}
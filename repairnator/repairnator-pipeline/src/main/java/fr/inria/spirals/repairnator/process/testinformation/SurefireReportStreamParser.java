@@ -0,0 +1,339 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * This class parses the XML reports produced by surefire with a streaming parser.
+ *
+ * Contrary to the parser of surefire, the whole reports are never kept in memory: only the counts of tests
+ * and the failures of each test class are kept. The output captured during the tests and the stack traces
+ * are skipped, unless the captured output is explicitly asked.
+ * The reports of several directories are parsed in parallel.
+ */
+public class SurefireReportStreamParser {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SurefireReportStreamParser.class);
+
+    private static final String TESTSUITES = "testsuites";
+    private static final String TESTSUITE = "testsuite";
+    private static final String TESTCASE = "testcase";
+    private static final String FAILURE = "failure";
+    private static final String ERROR = "error";
+    private static final String SKIPPED = "skipped";
+    private static final String SYSTEM_OUT = "system-out";
+    private static final String SYSTEM_ERR = "system-err";
+
+    private final boolean keepCapturedOutput;
+    private final XMLInputFactory inputFactory;
+    private final List<String> errors;
+
+    /**
+     * @param keepCapturedOutput if true, the output captured during the failing tests is kept in their {@link TestCaseFailure}.
+     */
+    public SurefireReportStreamParser(boolean keepCapturedOutput) {
+        this.keepCapturedOutput = keepCapturedOutput;
+        this.inputFactory = XMLInputFactory.newInstance();
+        this.inputFactory.setProperty(XMLInputFactory.IS_COALESCING, false);
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        this.errors = Collections.synchronizedList(new ArrayList<>());
+    }
+
+    public SurefireReportStreamParser() {
+        this(false);
+    }
+
+    /**
+     * Parse in parallel all the XML reports of the given surefire directories.
+     * The reports which cannot be parsed are ignored, and their error is given by {@link #getErrors()}.
+     *
+     * @return the reports of each test class, in the order of the directories and of the names of the reports.
+     */
+    public List<TestClassReport> parseDirectories(List<File> surefireDirs) {
+        List<File> reportFiles = new ArrayList<>();
+        for (File surefireDir : surefireDirs) {
+            File[] files = surefireDir.listFiles((dir, name) -> name.endsWith(".xml"));
+            if (files != null) {
+                Arrays.sort(files);
+                reportFiles.addAll(Arrays.asList(files));
+            }
+        }
+
+        return reportFiles.parallelStream()
+                .map(this::parseReportQuietly)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    private List<TestClassReport> parseReportQuietly(File reportFile) {
+        try {
+            return this.parseReport(reportFile);
+        } catch (IOException | XMLStreamException e) {
+            LOGGER.warn("Error while parsing the surefire report " + reportFile + ": " + e.getMessage());
+            this.errors.add("Error while parsing the surefire report " + reportFile.getName() + ": " + e.getMessage());
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Parse a single XML report: a report contains usually a single test class, but the test cases
+     * are grouped by their own class name, as some providers put several classes in a report.
+     * An XML file which is not a report of tests is ignored.
+     */
+    public List<TestClassReport> parseReport(File reportFile) throws IOException, XMLStreamException {
+        Map<String, TestClassReport> reports = new LinkedHashMap<>();
+        File surefireDir = reportFile.getParentFile();
+
+        try (InputStream inputStream = Files.newInputStream(reportFile.toPath())) {
+            XMLStreamReader reader = this.inputFactory.createXMLStreamReader(inputStream);
+            try {
+                String suiteName = null;
+                TestClassReport currentReport = null;
+                String currentTestName = null;
+                TestCaseFailure currentFailure = null;
+
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.END_ELEMENT && TESTCASE.equals(reader.getLocalName())) {
+                        if (currentFailure != null) {
+                            currentReport.failures.add(currentFailure);
+                        }
+                        currentReport = null;
+                        currentFailure = null;
+                        continue;
+                    }
+                    if (event != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+
+                    String element = reader.getLocalName();
+                    if (suiteName == null && !TESTSUITE.equals(element) && !TESTSUITES.equals(element)) {
+                        LOGGER.debug("The file " + reportFile + " is not a surefire report: it is ignored.");
+                        return new ArrayList<>();
+                    }
+
+                    switch (element) {
+                        case TESTSUITE:
+                            suiteName = (reader.getAttributeValue(null, "name") != null) ? reader.getAttributeValue(null, "name") : "";
+                            break;
+
+                        case TESTCASE:
+                            String className = reader.getAttributeValue(null, "classname");
+                            if (className == null || className.isEmpty()) {
+                                className = suiteName;
+                            }
+                            currentReport = reports.get(className);
+                            if (currentReport == null) {
+                                currentReport = new TestClassReport(className, surefireDir);
+                                reports.put(className, currentReport);
+                            }
+                            currentReport.nbTests++;
+                            currentTestName = reader.getAttributeValue(null, "name");
+                            break;
+
+                        case FAILURE:
+                        case ERROR:
+                            if (currentReport == null) {
+                                this.skipElement(reader);
+                            } else if (currentFailure == null) {
+                                boolean isError = ERROR.equals(element);
+                                if (isError) {
+                                    currentReport.nbErrors++;
+                                } else {
+                                    currentReport.nbFailures++;
+                                }
+                                currentFailure = new TestCaseFailure(currentTestName, reader.getAttributeValue(null, "type"),
+                                        reader.getAttributeValue(null, "message"), isError);
+                                // the stack trace is not used
+                                this.skipElement(reader);
+                            } else {
+                                this.skipElement(reader);
+                            }
+                            break;
+
+                        case SKIPPED:
+                            if (currentReport != null) {
+                                currentReport.nbSkipped++;
+                            }
+                            this.skipElement(reader);
+                            break;
+
+                        case SYSTEM_OUT:
+                        case SYSTEM_ERR:
+                            if (this.keepCapturedOutput && currentReport != null) {
+                                String output = reader.getElementText();
+                                if (SYSTEM_OUT.equals(element)) {
+                                    currentReport.capturedOutputs.put(currentTestName, output);
+                                } else {
+                                    currentReport.capturedErrors.put(currentTestName, output);
+                                }
+                            } else {
+                                this.skipElement(reader);
+                            }
+                            break;
+
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        for (TestClassReport report : reports.values()) {
+            if (this.keepCapturedOutput) {
+                for (TestCaseFailure failure : report.failures) {
+                    failure.systemOut = report.capturedOutputs.get(failure.testName);
+                    failure.systemErr = report.capturedErrors.get(failure.testName);
+                }
+            }
+            report.capturedOutputs = null;
+            report.capturedErrors = null;
+        }
+        return new ArrayList<>(reports.values());
+    }
+
+    /**
+     * Skip the current element and all its content, without keeping its text.
+     */
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * @return the errors which occurred while parsing the reports.
+     */
+    public List<String> getErrors() {
+        synchronized (this.errors) {
+            return new ArrayList<>(this.errors);
+        }
+    }
+
+    /**
+     * The results of the tests of a test class.
+     */
+    public static class TestClassReport {
+        private final String fullClassName;
+        private final File surefireDir;
+        private final List<TestCaseFailure> failures;
+        private int nbTests;
+        private int nbFailures;
+        private int nbErrors;
+        private int nbSkipped;
+        private Map<String, String> capturedOutputs;
+        private Map<String, String> capturedErrors;
+
+        TestClassReport(String fullClassName, File surefireDir) {
+            this.fullClassName = fullClassName;
+            this.surefireDir = surefireDir;
+            this.failures = new ArrayList<>();
+            this.capturedOutputs = new LinkedHashMap<>();
+            this.capturedErrors = new LinkedHashMap<>();
+        }
+
+        public String getFullClassName() {
+            return fullClassName;
+        }
+
+        /**
+         * @return the surefire directory containing the report.
+         */
+        public File getSurefireDir() {
+            return surefireDir;
+        }
+
+        public List<TestCaseFailure> getFailures() {
+            return failures;
+        }
+
+        public int getNumberOfTests() {
+            return nbTests;
+        }
+
+        public int getNumberOfFailures() {
+            return nbFailures;
+        }
+
+        public int getNumberOfErrors() {
+            return nbErrors;
+        }
+
+        public int getNumberOfSkipped() {
+            return nbSkipped;
+        }
+    }
+
+    /**
+     * The failure or the error of a test case.
+     */
+    public static class TestCaseFailure {
+        private final String testName;
+        private final String failureType;
+        private final String failureMessage;
+        private final boolean error;
+        private String systemOut;
+        private String systemErr;
+
+        TestCaseFailure(String testName, String failureType, String failureMessage, boolean error) {
+            this.testName = testName;
+            this.failureType = (failureType != null) ? failureType : "";
+            this.failureMessage = failureMessage;
+            this.error = error;
+        }
+
+        public String getTestName() {
+            return testName;
+        }
+
+        public String getFailureType() {
+            return failureType;
+        }
+
+        public String getFailureMessage() {
+            return failureMessage;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+
+        /**
+         * @return the standard output captured during the test, only if it has been asked to the parser.
+         */
+        public String getSystemOut() {
+            return systemOut;
+        }
+
+        /**
+         * @return the error output captured during the test, only if it has been asked to the parser.
+         */
+        public String getSystemErr() {
+            return systemErr;
+        }
+    }
+}
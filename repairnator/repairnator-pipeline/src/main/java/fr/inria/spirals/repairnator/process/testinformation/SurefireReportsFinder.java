@@ -0,0 +1,115 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+/**
+ * This class finds the directories of the surefire reports of a project.
+ *
+ * The reports are searched in the modules of the reactor given by the pom.xml files, in parallel, which might be
+ * outside of the project. The project is traversed as well, for the modules missing from the reactor, like
+ * the modules activated by a profile: the traversal enters neither the local maven repository, which is inside
+ * the repository of the inspector, nor the directories of the tools like git, nor the target directories.
+ */
+public class SurefireReportsFinder {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SurefireReportsFinder.class);
+
+    public static final String TARGET_DIR = "target";
+    public static final String SUREFIRE_REPORTS_DIR = "surefire-reports";
+
+    private static final List<String> EXCLUDED_DIRS = Arrays.asList(".git", ".svn", ".hg", ".m2", ".idea", ".gradle",
+            ".settings", "node_modules", "bower_components");
+
+    private final ProjectInspector inspector;
+
+    public SurefireReportsFinder(ProjectInspector inspector) {
+        this.inspector = inspector;
+    }
+
+    /**
+     * @return the existing surefire reports directories of the project whose root pom.xml is in the given directory, sorted.
+     */
+    public List<File> findSurefireReportsDirs(File rootDir) {
+        List<File> moduleDirs = this.inspector.getProjectModelService().loadModuleTree(new File(rootDir, Utils.POM_FILE));
+
+        Set<File> surefireDirs = moduleDirs.parallelStream()
+                .map(moduleDir -> new File(moduleDir, TARGET_DIR + File.separator + SUREFIRE_REPORTS_DIR))
+                .filter(File::isDirectory)
+                .map(SurefireReportsFinder::toCanonicalFile)
+                .collect(Collectors.toCollection(TreeSet::new));
+        int nbModuleReportsDirs = surefireDirs.size();
+
+        for (File surefireDir : this.walkForSurefireReportsDirs(rootDir)) {
+            surefireDirs.add(toCanonicalFile(surefireDir));
+        }
+        if (surefireDirs.size() > nbModuleReportsDirs) {
+            LOGGER.debug((surefireDirs.size() - nbModuleReportsDirs) + " surefire reports directories have been found outside of the " + moduleDirs.size() + " modules of the reactor.");
+        }
+        return new ArrayList<>(surefireDirs);
+    }
+
+    private static File toCanonicalFile(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    private List<File> walkForSurefireReportsDirs(File rootDir) {
+        List<File> surefireDirs = new ArrayList<>();
+        String m2LocalPath = this.inspector.getM2LocalPath();
+        Path localRepository = (m2LocalPath != null) ? Paths.get(m2LocalPath).toAbsolutePath().normalize() : null;
+
+        try {
+            Files.walkFileTree(rootDir.toPath().toAbsolutePath().normalize(), new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    Path fileName = dir.getFileName();
+                    if (dir.equals(localRepository) || (fileName != null && EXCLUDED_DIRS.contains(fileName.toString()))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+
+                    // the content of the target directories, like the compiled classes, is never traversed
+                    if (fileName != null && TARGET_DIR.equals(fileName.toString())) {
+                        File surefireDir = dir.resolve(SUREFIRE_REPORTS_DIR).toFile();
+                        if (surefireDir.isDirectory()) {
+                            surefireDirs.add(surefireDir);
+                        }
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exc) {
+                    LOGGER.debug("Error while visiting " + file + ": " + exc);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOGGER.warn("Error while traversing files to get surefire reports: " + e);
+        }
+
+        Collections.sort(surefireDirs);
+        return surefireDirs;
+    }
+}
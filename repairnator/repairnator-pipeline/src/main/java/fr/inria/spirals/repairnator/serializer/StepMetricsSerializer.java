@@ -0,0 +1,76 @@
+package fr.inria.spirals.repairnator.serializer;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import fr.inria.spirals.repairnator.BuildToBeInspected;
+import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.instrumentation.ResourceMetrics;
+import fr.inria.spirals.repairnator.serializer.engines.SerializedData;
+import fr.inria.spirals.repairnator.serializer.engines.SerializerEngine;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+public class StepMetricsSerializer extends AbstractDataSerializer {
+    public StepMetricsSerializer(List<SerializerEngine> engines) {
+        super(engines, SerializerType.STEP_METRICS);
+    }
+
+    private List<Object> serializeAsList(ProjectInspector inspector, ResourceMetrics metrics) {
+        BuildToBeInspected buildToBeInspected = inspector.getBuildToBeInspected();
+
+        List<Object> result = new ArrayList<>();
+        result.add(Utils.formatCompleteDate(new Date()));
+        result.add(buildToBeInspected.getRunId());
+        result.add(buildToBeInspected.getBuggyBuild().getId());
+        result.add(metrics.getName());
+        result.add(metrics.getKind().name());
+        result.add(metrics.getWallTime());
+        result.add(metrics.getCpuTime());
+        result.add(metrics.getAllocatedBytes());
+        result.add(metrics.getGcPauseTime());
+        result.add(metrics.getChildPeakRss());
+        result.add(metrics.getReadBytes());
+        result.add(metrics.getWrittenBytes());
+        result.add(metrics.getWatchedCpuTime());
+        return result;
+    }
+
+    private JsonElement serializeAsJson(ProjectInspector inspector, ResourceMetrics metrics) {
+        BuildToBeInspected buildToBeInspected = inspector.getBuildToBeInspected();
+        JsonObject data = new JsonObject();
+        data.addProperty("date", Utils.formatCompleteDate(new Date()));
+        this.addDate(data, "dateStr", new Date());
+        data.addProperty("runId", buildToBeInspected.getRunId());
+        data.addProperty("buildId", buildToBeInspected.getBuggyBuild().getId());
+        data.addProperty("name", metrics.getName());
+        data.addProperty("kind", metrics.getKind().name());
+        data.addProperty("wallTime", metrics.getWallTime());
+        data.addProperty("cpuTime", metrics.getCpuTime());
+        data.addProperty("allocatedBytes", metrics.getAllocatedBytes());
+        data.addProperty("gcPauseTime", metrics.getGcPauseTime());
+        data.addProperty("childPeakRss", metrics.getChildPeakRss());
+        data.addProperty("readBytes", metrics.getReadBytes());
+        data.addProperty("writtenBytes", metrics.getWrittenBytes());
+        data.addProperty("watchedCpuTime", metrics.getWatchedCpuTime());
+        return data;
+    }
+
+    @Override
+    public void serializeData(ProjectInspector inspector) {
+        List<SerializedData> data = new ArrayList<>();
+
+        for (ResourceMetrics metrics : new ArrayList<>(inspector.getJobStatus().getResourceMetrics())) {
+            SerializedData serializedData = new SerializedData(this.serializeAsList(inspector, metrics), this.serializeAsJson(inspector, metrics));
+            data.add(serializedData);
+        }
+
+        if (!data.isEmpty()) {
+            for (SerializerEngine engine : this.getEngines()) {
+                engine.serialize(data, this.getType());
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package fr.inria.spirals.repairnator.pipeline;
+
+import fr.inria.spirals.repairnator.process.step.repair.AbstractRepairStep;
+import fr.inria.spirals.repairnator.process.step.repair.NPERepair;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class TestRepairToolsManager {
+
+    @Test
+    public void testEachPipelineGetsItsOwnRepairStep() {
+        AbstractRepairStep firstStep = RepairToolsManager.getStepFromName("NPEFix");
+        AbstractRepairStep secondStep = RepairToolsManager.getStepFromName("NPEFix");
+
+        assertThat(firstStep, instanceOf(NPERepair.class));
+        assertThat(secondStep, instanceOf(NPERepair.class));
+        assertThat(firstStep, not(sameInstance(secondStep)));
+    }
+
+    @Test
+    public void testUnknownRepairTool() {
+        assertThat(RepairToolsManager.getStepFromName("unknown"), is(nullValue()));
+    }
+}
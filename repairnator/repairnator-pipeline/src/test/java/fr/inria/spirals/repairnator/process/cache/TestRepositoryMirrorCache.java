@@ -0,0 +1,79 @@
+package fr.inria.spirals.repairnator.process.cache;
+
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.git.GitHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestRepositoryMirrorCache {
+
+    private File tmpDir;
+    private GitHelper gitHelper;
+
+    @Before
+    public void setup() throws IOException {
+        this.tmpDir = Files.createTempDirectory("test_mirrorcache").toFile();
+        this.gitHelper = new GitHelper();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileHelper.deleteFile(this.tmpDir);
+    }
+
+    private String createOriginRepository(String name) {
+        File originDir = new File(this.tmpDir, name);
+        originDir.mkdirs();
+        this.gitHelper.executeGitCommand(new String[] {"git", "init"}, originDir);
+        this.commit(originDir, "first commit");
+        return "file://" + originDir.getAbsolutePath();
+    }
+
+    private void commit(File originDir, String message) {
+        this.gitHelper.executeGitCommand(new String[] {"git", "-c", "user.name=test", "-c", "user.email=test@test.com",
+                "commit", "--allow-empty", "-m", message}, originDir);
+    }
+
+    @Test
+    public void testRepositoryIsClonedFromItsUpdatedMirror() {
+        RepositoryMirrorCache cache = new RepositoryMirrorCache(new File(this.tmpDir, "cache").getPath(), Long.MAX_VALUE, this.gitHelper);
+        String remoteUrl = this.createOriginRepository("origin");
+
+        File firstBuild = new File(this.tmpDir, "build1");
+        assertThat(cache.cloneFromMirror("surli/origin", remoteUrl, firstBuild), is(true));
+        assertThat(new File(this.tmpDir, "cache/surli-origin.git").isDirectory(), is(true));
+        assertThat(this.gitHelper.executeGitCommand(new String[] {"git", "log", "-1", "--grep=first commit"}, firstBuild), is(true));
+
+        this.commit(new File(this.tmpDir, "origin"), "second commit");
+
+        File secondBuild = new File(this.tmpDir, "build2");
+        assertThat(cache.cloneFromMirror("surli/origin", remoteUrl, secondBuild), is(true));
+        // the mirror has been updated with the new commit
+        assertThat(this.gitHelper.executeGitCommand(new String[] {"git", "cat-file", "-e", "HEAD~1"}, secondBuild), is(true));
+        // the remote of the clone is the original repository
+        assertThat(this.gitHelper.executeGitCommand(new String[] {"git", "ls-remote", "origin"}, secondBuild), is(true));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedMirrorIsEvicted() {
+        RepositoryMirrorCache cache = new RepositoryMirrorCache(new File(this.tmpDir, "cache").getPath(), 0, this.gitHelper);
+        String firstRemoteUrl = this.createOriginRepository("origin1");
+        String secondRemoteUrl = this.createOriginRepository("origin2");
+
+        assertThat(cache.cloneFromMirror("surli/origin1", firstRemoteUrl, new File(this.tmpDir, "build1")), is(true));
+        assertThat(cache.cloneFromMirror("surli/origin2", secondRemoteUrl, new File(this.tmpDir, "build2")), is(true));
+
+        assertThat(new File(this.tmpDir, "cache/surli-origin1.git").exists(), is(false));
+        assertThat(new File(this.tmpDir, "cache/surli-origin2.git").isDirectory(), is(true));
+        // the clone does not depend on its evicted mirror
+        assertThat(this.gitHelper.executeGitCommand(new String[] {"git", "fsck"}, new File(this.tmpDir, "build1")), is(true));
+    }
+}
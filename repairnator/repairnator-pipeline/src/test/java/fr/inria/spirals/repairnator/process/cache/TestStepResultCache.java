@@ -0,0 +1,177 @@
+package fr.inria.spirals.repairnator.process.cache;
+
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class TestStepResultCache {
+
+    private File tmpDir;
+
+    @Before
+    public void setup() throws IOException {
+        this.tmpDir = Files.createTempDirectory("test_stepresultcache").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileHelper.deleteFile(this.tmpDir);
+    }
+
+    private ProjectInspector createRepository(String name, String pomContent) throws IOException {
+        File repoDir = new File(this.tmpDir, name);
+        new File(repoDir, "src/main/java").mkdirs();
+        new File(repoDir, ".m2/junit/junit/4.12").mkdirs();
+        Files.write(new File(repoDir, ".m2/junit/junit/4.12/junit-4.12.jar").toPath(), new byte[0]);
+        Files.write(new File(repoDir, "pom.xml").toPath(), pomContent.getBytes());
+
+        ProjectInspector inspector = ProjectInspectorMocker.mockProjectInspector(new JobStatus(repoDir.getAbsolutePath()), repoDir.getAbsolutePath());
+        when(inspector.getM2LocalPath()).thenReturn(new File(repoDir, ".m2").getAbsolutePath());
+        return inspector;
+    }
+
+    private File getRootPom(ProjectInspector inspector) {
+        return new File(inspector.getRepoLocalPath(), "pom.xml");
+    }
+
+    @Test
+    public void testEntryIsReusedForAnotherBuildOfTheSameProject() throws IOException {
+        StepResultCache cache = new StepResultCache(new File(this.tmpDir, "cache").getPath(), 10);
+        ProjectInspector firstBuild = this.createRepository("build1", "<project/>");
+        ProjectInspector secondBuild = this.createRepository("build2", "<project/>");
+
+        String key = cache.computeKey(firstBuild, "ComputeClasspath", this.getRootPom(firstBuild), firstBuild.getRepoLocalPath());
+        assertThat(cache.getFiles(firstBuild, key), nullValue());
+
+        cache.putFiles(firstBuild, key, new File[] {
+                new File(firstBuild.getM2LocalPath(), "junit/junit/4.12/junit-4.12.jar"),
+                new File(firstBuild.getRepoLocalPath(), "src/main/java")
+        });
+
+        String otherKey = cache.computeKey(secondBuild, "ComputeClasspath", this.getRootPom(secondBuild), secondBuild.getRepoLocalPath());
+        assertThat(otherKey, is(key));
+
+        File[] files = cache.getFiles(secondBuild, otherKey);
+        assertThat(files, notNullValue());
+        assertThat(files.length, is(2));
+        assertThat(files[0], is(new File(secondBuild.getM2LocalPath(), "junit/junit/4.12/junit-4.12.jar")));
+        assertThat(files[1], is(new File(secondBuild.getRepoLocalPath(), "src/main/java")));
+    }
+
+    @Test
+    public void testKeyDependsOnPomFilesAndStep() throws IOException {
+        StepResultCache cache = new StepResultCache(new File(this.tmpDir, "cache").getPath(), 10);
+        ProjectInspector firstBuild = this.createRepository("build1", "<project/>");
+        ProjectInspector secondBuild = this.createRepository("build2", "<project><modules/></project>");
+
+        String key = cache.computeKey(firstBuild, "ComputeModules", this.getRootPom(firstBuild));
+        assertThat(cache.computeKey(secondBuild, "ComputeModules", this.getRootPom(secondBuild)), not(key));
+        assertThat(cache.computeKey(firstBuild, "ComputeTestDir", this.getRootPom(firstBuild)), not(key));
+    }
+
+    @Test
+    public void testEntryWithMissingFilesIsNotUsed() throws IOException {
+        StepResultCache cache = new StepResultCache(new File(this.tmpDir, "cache").getPath(), 10);
+        ProjectInspector inspector = this.createRepository("build1", "<project/>");
+
+        String key = cache.computeKey(inspector, "ComputeTestDir", this.getRootPom(inspector));
+        cache.putFiles(inspector, key, new File[] { new File(inspector.getRepoLocalPath(), "src/test/java") });
+        assertThat(cache.getFiles(inspector, key), nullValue());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+        File cacheDir = new File(this.tmpDir, "cache");
+        StepResultCache cache = new StepResultCache(cacheDir.getPath(), 2);
+        ProjectInspector inspector = this.createRepository("build1", "<project/>");
+        File[] files = new File[] { new File(inspector.getRepoLocalPath(), "src/main/java") };
+
+        String firstKey = cache.computeKey(inspector, "first", this.getRootPom(inspector));
+        cache.putFiles(inspector, firstKey, files);
+        new File(cacheDir, firstKey + ".json").setLastModified(System.currentTimeMillis() - 10000);
+        String secondKey = cache.computeKey(inspector, "second", this.getRootPom(inspector));
+        cache.putFiles(inspector, secondKey, files);
+        String thirdKey = cache.computeKey(inspector, "third", this.getRootPom(inspector));
+        cache.putFiles(inspector, thirdKey, files);
+
+        assertThat(cache.getFiles(inspector, firstKey), nullValue());
+        assertThat(cache.getFiles(inspector, secondKey), notNullValue());
+        assertThat(cache.getFiles(inspector, thirdKey), notNullValue());
+    }
+
+    @Test
+    public void testKeyOnlyDependsOnPomFilesOfTheProject() throws IOException {
+        StepResultCache cache = new StepResultCache(new File(this.tmpDir, "cache").getPath(), 10);
+        ProjectInspector inspector = this.createRepository("build1", "<project><modules><module>core</module></modules></project>");
+        File repoDir = new File(inspector.getRepoLocalPath());
+        new File(repoDir, "core").mkdirs();
+        Files.write(new File(repoDir, "core/pom.xml").toPath(), "<project/>".getBytes());
+        new File(repoDir, "src/test/resources/sample").mkdirs();
+        Files.write(new File(repoDir, "src/test/resources/sample/pom.xml").toPath(), "<project/>".getBytes());
+
+        String key = cache.computeKey(inspector, "ComputeModules", this.getRootPom(inspector));
+        assertThat(key, notNullValue());
+
+        // neither the pom.xml files which are not part of the project nor the other files change the key
+        Files.write(new File(repoDir, "src/test/resources/sample/pom.xml").toPath(), "<project><modules/></project>".getBytes());
+        Files.write(new File(repoDir, "README.md").toPath(), "readme".getBytes());
+        assertThat(cache.computeKey(inspector, "ComputeModules", this.getRootPom(inspector)), is(key));
+
+        Files.write(new File(repoDir, "core/pom.xml").toPath(), "<project><modules/></project>".getBytes());
+        assertThat(cache.computeKey(inspector, "ComputeModules", this.getRootPom(inspector)), not(key));
+    }
+
+    @Test
+    public void testKeyDependsOnTheExistenceOfTheModulePaths() throws IOException {
+        StepResultCache cache = new StepResultCache(new File(this.tmpDir, "cache").getPath(), 10);
+        ProjectInspector inspector = this.createRepository("build1", "<project><modules><module>core</module></modules></project>");
+        File repoDir = new File(inspector.getRepoLocalPath());
+        new File(repoDir, "core").mkdirs();
+        Files.write(new File(repoDir, "core/pom.xml").toPath(), "<project/>".getBytes());
+
+        List<String> defaultDirs = Collections.singletonList("src/test/java");
+        String key = cache.computeKey(inspector, "ComputeTestDir", this.getRootPom(inspector), defaultDirs);
+        assertThat(key, notNullValue());
+        assertThat(cache.computeKey(inspector, "ComputeTestDir", this.getRootPom(inspector), defaultDirs), is(key));
+
+        // a module gets a default test dir: the dirs computed before are not the right ones anymore
+        new File(repoDir, "core/src/test/java").mkdirs();
+        String otherKey = cache.computeKey(inspector, "ComputeTestDir", this.getRootPom(inspector), defaultDirs);
+        assertThat(otherKey, not(key));
+
+        // the other dirs do not change the key
+        new File(repoDir, "core/src/test/resources").mkdirs();
+        assertThat(cache.computeKey(inspector, "ComputeTestDir", this.getRootPom(inspector), defaultDirs), is(otherKey));
+    }
+
+    @Test
+    public void testHitsAndMissesAreCountedInTheJobStatus() throws IOException {
+        StepResultCache cache = new StepResultCache(new File(this.tmpDir, "cache").getPath(), 10);
+        ProjectInspector inspector = this.createRepository("build1", "<project/>");
+
+        String key = cache.computeKey(inspector, "ComputeSourceDir", this.getRootPom(inspector));
+        assertThat(cache.getFiles(inspector, key), nullValue());
+        cache.putFiles(inspector, key, new File[] { new File(inspector.getRepoLocalPath(), "src/main/java") });
+        assertThat(cache.getFiles(inspector, key), notNullValue());
+
+        assertThat(inspector.getJobStatus().getStepCacheHits(), is(1));
+        assertThat(inspector.getJobStatus().getStepCacheMisses(), is(1));
+    }
+}
@@ -53,6 +53,59 @@ public class FileHelperTest {
         assertTrue(nextLevelIsLowestLevel(lines, getIndexOfFirstLineAfterConsecutiveHashes(lines, i)));
     }
 
+    @Test
+    public void testCopyDirectoryCopyOnWriteSkipsExcludedFiles() throws IOException {
+        tmpDir = Files.createTempDirectory("test_copyDirectoryCopyOnWrite").toFile();
+        File sourceDir = new File(tmpDir, "source");
+        File targetDir = new File(tmpDir, "target");
+        FileUtils.write(new File(sourceDir, "src/main/java/Foo.java"), "class Foo {}", "UTF-8");
+        FileUtils.write(new File(sourceDir, ".m2/repository/foo.jar"), "jar", "UTF-8");
+
+        FileHelper.copyDirectoryCopyOnWrite(sourceDir, targetDir, new String[]{".m2"});
+
+        File copiedFile = new File(targetDir, "src/main/java/Foo.java");
+        assertTrue(copiedFile.exists());
+        assertEquals("class Foo {}", FileUtils.readFileToString(copiedFile, "UTF-8"));
+        assertFalse(new File(targetDir, ".m2").exists());
+
+        // the copy must be independent from the original
+        FileUtils.write(copiedFile, "class Bar {}", "UTF-8");
+        assertEquals("class Foo {}", FileUtils.readFileToString(new File(sourceDir, "src/main/java/Foo.java"), "UTF-8"));
+    }
+
+    @Test
+    public void testSynchronizeDirectoryOnlyCopiesChangedFiles() throws IOException {
+        tmpDir = Files.createTempDirectory("test_synchronizeDirectory").toFile();
+        File sourceDir = new File(tmpDir, "source");
+        File targetDir = new File(tmpDir, "target");
+        FileUtils.write(new File(sourceDir, "pom.xml"), "<project/>", "UTF-8");
+        FileUtils.write(new File(sourceDir, "src/main/java/Foo.java"), "class Foo {}", "UTF-8");
+        FileUtils.write(new File(sourceDir, "src/main/java/target/Bar.java"), "class Bar {}", "UTF-8");
+        FileUtils.write(new File(sourceDir, "target/classes/Foo.class"), "bytecode", "UTF-8");
+        FileUtils.write(new File(sourceDir, ".git/HEAD"), "ref: refs/heads/master", "UTF-8");
+
+        JobStatus jobStatus = new JobStatus(tmpDir.getAbsolutePath());
+        CloneRepository step = new CloneRepository(ProjectInspectorMocker.mockProjectInspector(jobStatus, tmpDir.getAbsolutePath()));
+        FileHelper.synchronizeDirectory(sourceDir, targetDir, new String[]{".git", ".m2"}, true, step);
+
+        assertEquals("class Foo {}", FileUtils.readFileToString(new File(targetDir, "src/main/java/Foo.java"), "UTF-8"));
+        // only the build outputs of the modules are excluded
+        assertTrue(new File(targetDir, "src/main/java/target/Bar.java").exists());
+        assertFalse(new File(targetDir, "target").exists());
+        assertFalse(new File(targetDir, ".git").exists());
+
+        // an unchanged file is not copied again
+        File pushedFile = new File(targetDir, "pom.xml");
+        FileUtils.write(pushedFile, "<PROJECT/>", "UTF-8");
+        Files.setLastModifiedTime(pushedFile.toPath(), Files.getLastModifiedTime(new File(sourceDir, "pom.xml").toPath()));
+        FileUtils.write(new File(sourceDir, "src/main/java/Foo.java"), "class Foo { int i; }", "UTF-8");
+
+        FileHelper.synchronizeDirectory(sourceDir, targetDir, new String[]{".git", ".m2"}, false, step);
+
+        assertEquals("<PROJECT/>", FileUtils.readFileToString(pushedFile, "UTF-8"));
+        assertEquals("class Foo { int i; }", FileUtils.readFileToString(new File(targetDir, "src/main/java/Foo.java"), "UTF-8"));
+    }
+
     public static boolean lineBeginsWithHash(List<String> lines, int index) {
         String line = lines.get(index);
         if (line.trim().startsWith("#")) {
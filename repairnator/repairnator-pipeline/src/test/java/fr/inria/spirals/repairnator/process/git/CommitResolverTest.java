@@ -0,0 +1,196 @@
+package fr.inria.spirals.repairnator.process.git;
+
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.kohsuke.github.GHCommit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CommitResolverTest {
+
+    private static final String MISSING_COMMIT = "1111111111111111111111111111111111111111";
+    private static final String MISSING_PARENT = "2222222222222222222222222222222222222222";
+
+    private File tmpDir;
+    private GitHelper gitHelper;
+
+    @Before
+    public void setup() throws IOException {
+        this.tmpDir = Files.createTempDirectory("test_commitresolver").toFile();
+        this.gitHelper = new GitHelper();
+        RepairnatorConfig.getInstance().setGithubUserEmail("noreply@github.com");
+        RepairnatorConfig.getInstance().setGithubUserName("repairnator");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RepairnatorConfig.deleteInstance();
+        FileHelper.deleteFile(this.tmpDir);
+    }
+
+    private void commit(File repoDir, String message) {
+        this.gitHelper.executeGitCommand(new String[] {"git", "-c", "user.name=test", "-c", "user.email=test@test.com",
+                "commit", "--allow-empty", "-m", message}, repoDir);
+    }
+
+    @Test
+    public void testCommitOfDeletedBranchIsFetchedBySha() throws IOException, GitAPIException {
+        File originDir = new File(this.tmpDir, "origin");
+        originDir.mkdirs();
+        this.gitHelper.executeGitCommand(new String[] {"git", "init"}, originDir);
+        this.gitHelper.executeGitCommand(new String[] {"git", "config", "uploadpack.allowAnySHA1InWant", "true"}, originDir);
+        this.commit(originDir, "first commit");
+
+        File repoDir = new File(this.tmpDir, "clone");
+        this.gitHelper.executeGitCommand(new String[] {"git", "clone", "file://" + originDir.getAbsolutePath(), repoDir.getAbsolutePath()}, this.tmpDir);
+
+        // the commit is only in a branch deleted after the clone, as for a force-push
+        this.gitHelper.executeGitCommand(new String[] {"git", "checkout", "-b", "feature"}, originDir);
+        this.commit(originDir, "deleted commit");
+        String deletedCommit;
+        try (Git origin = Git.open(originDir)) {
+            deletedCommit = this.gitHelper.getHeadCommit(origin);
+        }
+        this.gitHelper.executeGitCommand(new String[] {"git", "checkout", "-"}, originDir);
+        this.gitHelper.executeGitCommand(new String[] {"git", "branch", "-D", "feature"}, originDir);
+
+        CommitGraphStore commitGraphStore = new CommitGraphStore(new File(this.tmpDir, "graph.commits"));
+        try (Git git = Git.open(repoDir)) {
+            String resolvedCommit = new CommitResolver(this.gitHelper, commitGraphStore).resolve(git, deletedCommit, "surli/origin", null);
+            assertEquals(deletedCommit, resolvedCommit);
+            assertTrue(this.gitHelper.commitExists(git, deletedCommit));
+        }
+    }
+
+    @Test
+    public void testCommitGraphIsReusedWithoutFetchingAgain() throws IOException, GitAPIException {
+        File originDir = new File(this.tmpDir, "origin");
+        originDir.mkdirs();
+        this.gitHelper.executeGitCommand(new String[] {"git", "init"}, originDir);
+        this.commit(originDir, "first commit");
+
+        File repoDir = new File(this.tmpDir, "repo");
+        this.gitHelper.executeGitCommand(new String[] {"git", "clone", "file://" + originDir.getAbsolutePath(), repoDir.getAbsolutePath()}, this.tmpDir);
+
+        File storeFile = new File(this.tmpDir, "graph.commits");
+        CommitGraphStore commitGraphStore = new CommitGraphStore(storeFile);
+        commitGraphStore.addParents(MISSING_COMMIT, Collections.singletonList(MISSING_PARENT));
+        commitGraphStore.addParents(MISSING_PARENT, Collections.emptyList());
+
+        try (Git git = Git.open(repoDir)) {
+            // the parents are known: the GitHub API is not requested
+            assertNull(new CommitResolver(this.gitHelper, commitGraphStore).resolve(git, MISSING_COMMIT, "surli/repo", null));
+        }
+
+        CommitGraphStore reloadedStore = new CommitGraphStore(storeFile);
+        assertEquals(Collections.singletonList(MISSING_PARENT), reloadedStore.getParents(MISSING_COMMIT));
+        assertEquals(Collections.emptyList(), reloadedStore.getParents(MISSING_PARENT));
+        assertTrue(reloadedStore.isUnfetchable(MISSING_COMMIT));
+        assertTrue(reloadedStore.isUnfetchable(MISSING_PARENT));
+    }
+
+    @Test
+    public void testFailedFetchIsNotRecordedAsUnfetchable() throws IOException, GitAPIException {
+        File repoDir = new File(this.tmpDir, "repo");
+        repoDir.mkdirs();
+        this.gitHelper.executeGitCommand(new String[] {"git", "init"}, repoDir);
+        this.commit(repoDir, "first commit");
+        // the remote cannot be reached, as for a network failure
+        this.gitHelper.executeGitCommand(new String[] {"git", "remote", "add", "origin", "file://" + new File(this.tmpDir, "unreachable").getAbsolutePath()}, repoDir);
+
+        CommitGraphStore commitGraphStore = new CommitGraphStore(new File(this.tmpDir, "graph.commits"));
+        commitGraphStore.addParents(MISSING_COMMIT, Collections.emptyList());
+        try (Git git = Git.open(repoDir)) {
+            assertNull(new CommitResolver(this.gitHelper, commitGraphStore).resolve(git, MISSING_COMMIT, "surli/repo", null));
+        }
+        assertFalse(commitGraphStore.isUnfetchable(MISSING_COMMIT));
+    }
+
+    @Test
+    public void testCommitIsRecreatedWithoutMovingHead() throws IOException {
+        File repoDir = new File(this.tmpDir, "repo");
+        repoDir.mkdirs();
+        this.gitHelper.executeGitCommand(new String[] {"git", "init"}, repoDir);
+        this.commit(repoDir, "first commit");
+        this.commit(repoDir, "current build");
+
+        try (Git git = Git.open(repoDir)) {
+            String headCommit = this.gitHelper.getHeadCommit(git);
+            String ancestorCommit = git.getRepository().resolve("HEAD~1").getName();
+
+            String patch = "diff --git a/Bar.java b/Bar.java\n"
+                    + "new file mode 100644\n"
+                    + "--- /dev/null\n"
+                    + "+++ b/Bar.java\n"
+                    + "@@ -0,0 +1 @@\n+class Bar {}\n";
+            PersonIdent author = new PersonIdent("author", "author@test.com");
+            String recreatedCommit = new CommitResolver(this.gitHelper, null).commitPatch(git, ancestorCommit, patch, author, "recreated commit");
+
+            // the repository stays on the current build
+            assertEquals(headCommit, this.gitHelper.getHeadCommit(git));
+            assertFalse(new File(repoDir, "Bar.java").exists());
+
+            try (RevWalk revWalk = new RevWalk(git.getRepository())) {
+                RevCommit commit = revWalk.parseCommit(ObjectId.fromString(recreatedCommit));
+                assertEquals(ancestorCommit, commit.getParent(0).getName());
+                assertEquals("author", commit.getAuthorIdent().getName());
+                assertNotNull(TreeWalk.forPath(git.getRepository(), "Bar.java", commit.getTree()));
+            }
+        }
+    }
+
+    @Test
+    public void testPatchIsBuiltFromGitHubFiles() {
+        GHCommit.File modifiedFile = mock(GHCommit.File.class);
+        when(modifiedFile.getFileName()).thenReturn("src/Foo.java");
+        when(modifiedFile.getStatus()).thenReturn("modified");
+        when(modifiedFile.getLinesChanged()).thenReturn(2);
+        when(modifiedFile.getPatch()).thenReturn("@@ -1 +1 @@\n-class Foo {}\n+class Foo { }");
+
+        GHCommit.File addedFile = mock(GHCommit.File.class);
+        when(addedFile.getFileName()).thenReturn("src/Bar.java");
+        when(addedFile.getStatus()).thenReturn("added");
+        when(addedFile.getLinesChanged()).thenReturn(1);
+        when(addedFile.getPatch()).thenReturn("@@ -0,0 +1 @@\n+class Bar {}");
+
+        assertEquals("diff --git a/src/Foo.java b/src/Foo.java\n"
+                + "--- a/src/Foo.java\n"
+                + "+++ b/src/Foo.java\n"
+                + "@@ -1 +1 @@\n-class Foo {}\n+class Foo { }\n"
+                + "diff --git a/src/Bar.java b/src/Bar.java\n"
+                + "new file mode 100644\n"
+                + "--- /dev/null\n"
+                + "+++ b/src/Bar.java\n"
+                + "@@ -0,0 +1 @@\n+class Bar {}\n", CommitResolver.toPatch(Arrays.asList(modifiedFile, addedFile)));
+
+        GHCommit.File binaryFile = mock(GHCommit.File.class);
+        when(binaryFile.getFileName()).thenReturn("logo.png");
+        when(binaryFile.getStatus()).thenReturn("modified");
+        when(binaryFile.getLinesChanged()).thenReturn(0);
+        when(binaryFile.getPatch()).thenReturn(null);
+        // the content of a binary file is not given by GitHub
+        assertNull(CommitResolver.toPatch(Collections.singletonList(binaryFile)));
+    }
+}
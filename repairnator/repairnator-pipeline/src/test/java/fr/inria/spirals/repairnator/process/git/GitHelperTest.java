@@ -4,8 +4,12 @@ import fr.inria.spirals.repairnator.process.files.FileHelper;
 import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.properties.Properties;
 import fr.inria.spirals.repairnator.process.inspectors.properties.patchDiff.PatchDiff;
+import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.Status;
 import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.dircache.DirCache;
+import org.eclipse.jgit.dircache.DirCacheEntry;
 import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevWalk;
@@ -14,8 +18,14 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 public class GitHelperTest {
 
@@ -53,4 +63,70 @@ public class GitHelperTest {
         assertEquals(405, patchDiff.getLines().getNumberAdded());
         assertEquals(104, patchDiff.getLines().getNumberDeleted());
     }
+
+    @Test
+    public void testShallowCloneFetchesMissingCommits() throws GitAPIException, IOException {
+        tmpDir = java.nio.file.Files.createTempDirectory("shallow_clone").toFile();
+        File originDir = new File(tmpDir, "origin");
+        Git origin = Git.init().setDirectory(originDir).call();
+
+        String[] commits = new String[3];
+        for (int i = 0; i < commits.length; i++) {
+            FileUtils.write(new File(originDir, "file.txt"), "version " + i, StandardCharsets.UTF_8);
+            origin.add().addFilepattern("file.txt").call();
+            commits[i] = origin.commit().setMessage("commit " + i).setAuthor("test", "test@test.com").call().getName();
+        }
+
+        File cloneDir = new File(tmpDir, "clone");
+        GitHelper gitHelper = new GitHelper();
+        assertTrue(gitHelper.shallowClone("file://" + originDir.getAbsolutePath(), cloneDir, 1, Collections.singletonList(commits[2])));
+
+        Git git = Git.open(cloneDir);
+        assertTrue(GitHelper.isShallow(git));
+        assertTrue(git.getRepository().hasObject(ObjectId.fromString(commits[2])));
+        assertFalse(git.getRepository().hasObject(ObjectId.fromString(commits[0])));
+
+        assertTrue(gitHelper.fetchMissingCommit(git, commits[0]));
+        assertTrue(git.getRepository().hasObject(ObjectId.fromString(commits[0])));
+    }
+
+    @Test
+    public void testGitAddForcesIgnoredFilesInOneOperation() throws GitAPIException, IOException {
+        tmpDir = java.nio.file.Files.createTempDirectory("git_add").toFile();
+        Git git = Git.init().setDirectory(tmpDir).call();
+        FileUtils.write(new File(tmpDir, ".gitignore"), "*.log\n", StandardCharsets.UTF_8);
+        FileUtils.write(new File(tmpDir, "repairnator.maven.buildproject.log"), "build log", StandardCharsets.UTF_8);
+        FileUtils.write(new File(tmpDir, "repairnator-patches/patch1.patch"), "patch 1", StandardCharsets.UTF_8);
+        FileUtils.write(new File(tmpDir, "repairnator-patches/patch2.patch"), "patch 2", StandardCharsets.UTF_8);
+
+        GitHelper gitHelper = new GitHelper();
+        gitHelper.gitAdd(Arrays.asList("repairnator.maven.buildproject.log", "repairnator-patches/", "repairnator.maven.buildproject.log"), git);
+
+        Status status = git.status().call();
+        assertEquals(new HashSet<>(Arrays.asList("repairnator.maven.buildproject.log", "repairnator-patches/patch1.patch", "repairnator-patches/patch2.patch")), status.getAdded());
+        assertEquals(Collections.singleton(".gitignore"), status.getUntracked());
+
+        git.commit().setMessage("add files").setAuthor("test", "test@test.com").call();
+        new File(tmpDir, "repairnator-patches/patch2.patch").delete();
+        gitHelper.gitAdd(Collections.singletonList("repairnator-patches/patch2.patch"), git);
+
+        assertEquals(Collections.singleton("repairnator-patches/patch2.patch"), git.status().call().getRemoved());
+    }
+
+    @Test
+    public void testGitAddAppliesTheAttributesAndSkipsGitDirectories() throws GitAPIException, IOException {
+        tmpDir = java.nio.file.Files.createTempDirectory("git_add").toFile();
+        Git git = Git.init().setDirectory(tmpDir).call();
+        FileUtils.write(new File(tmpDir, ".gitattributes"), "*.log text eol=lf\n", StandardCharsets.UTF_8);
+        FileUtils.write(new File(tmpDir, "repairnator.maven.buildproject.log"), "line 1\r\nline 2\r\n", StandardCharsets.UTF_8);
+        Git.init().setDirectory(new File(tmpDir, "submodule")).call().close();
+
+        GitHelper gitHelper = new GitHelper();
+        gitHelper.gitAdd(Arrays.asList("repairnator.maven.buildproject.log", "submodule/.git"), git);
+
+        DirCache dirCache = git.getRepository().readDirCache();
+        assertEquals(1, dirCache.getEntryCount());
+        DirCacheEntry entry = dirCache.getEntry("repairnator.maven.buildproject.log");
+        assertEquals("line 1\nline 2\n", new String(git.getRepository().open(entry.getObjectId()).getBytes(), StandardCharsets.UTF_8));
+    }
 }
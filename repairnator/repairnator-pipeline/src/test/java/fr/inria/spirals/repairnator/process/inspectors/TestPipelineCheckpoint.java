@@ -0,0 +1,236 @@
+package fr.inria.spirals.repairnator.process.inspectors;
+
+import ch.qos.logback.classic.Level;
+import fr.inria.jtravis.entities.Build;
+import fr.inria.jtravis.entities.Repository;
+import fr.inria.spirals.repairnator.BuildToBeInspected;
+import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.step.AbstractStep;
+import fr.inria.spirals.repairnator.process.step.StepStatus;
+import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutType;
+import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestPipelineCheckpoint {
+
+    public class SimpleStep extends AbstractStep {
+        public SimpleStep(ProjectInspector inspector, String name) {
+            super(inspector, true, name);
+        }
+
+        @Override
+        protected StepStatus businessExecute() {
+            return StepStatus.buildSuccess(this);
+        }
+    }
+
+    private File tmpDir;
+    private File repoDir;
+    private Build build;
+
+    @Before
+    public void setup() throws IOException, GitAPIException {
+        Utils.setLoggersLevel(Level.ERROR);
+        this.tmpDir = Files.createTempDirectory("test_checkpoint").toFile();
+        this.repoDir = new File(this.tmpDir, "repo");
+        this.commitFile("README.md", "first version");
+
+        this.build = mock(Build.class);
+        when(this.build.getId()).thenReturn(42L);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RepairnatorConfig.deleteInstance();
+        FileHelper.deleteFile(this.tmpDir);
+    }
+
+    private void commitFile(String fileName, String content) throws IOException, GitAPIException {
+        this.commitFile(this.repoDir, fileName, content);
+    }
+
+    private void commitFile(File repoDir, String fileName, String content) throws IOException, GitAPIException {
+        repoDir.mkdirs();
+        Files.write(new File(repoDir, fileName).toPath(), content.getBytes());
+        try (Git git = Git.init().setDirectory(repoDir).call()) {
+            git.add().addFilepattern(fileName).call();
+            git.commit().setMessage("Update " + fileName).setAuthor("repairnator", "noreply@github.com").setCommitter("repairnator", "noreply@github.com").call();
+        }
+    }
+
+    private ProjectInspector mockInspector(JobStatus jobStatus) {
+        ProjectInspector inspector = ProjectInspectorMocker.mockProjectInspector(jobStatus, this.repoDir.getAbsolutePath());
+        when(inspector.getBuggyBuild()).thenReturn(this.build);
+        return inspector;
+    }
+
+    private ProjectInspector executeFirstStepAndSave() {
+        JobStatus jobStatus = new JobStatus(this.repoDir.getAbsolutePath());
+        jobStatus.setFailingModulePath(this.repoDir.getAbsolutePath() + "/module");
+        jobStatus.setRepairSourceDir(new File[] { new File(this.repoDir, "src/main/java") });
+        jobStatus.addPatches("Nopol", Collections.singletonList(new RepairPatch("Nopol", "src/main/java/Foo.java", "diff")));
+        ProjectInspector inspector = this.mockInspector(jobStatus);
+        when(inspector.getCheckoutType()).thenReturn(CheckoutType.CHECKOUT_BUGGY_BUILD);
+
+        AbstractStep firstStep = new SimpleStep(inspector, "first");
+        AbstractStep secondStep = new SimpleStep(inspector, "second");
+        firstStep.addNextStep(secondStep);
+        when(inspector.getSteps()).thenReturn(Arrays.asList(firstStep, secondStep));
+
+        firstStep.runStep();
+        PipelineCheckpoint.save(inspector, 1, secondStep);
+        return inspector;
+    }
+
+    @Test
+    public void testCheckpointRestoresJobStatusAndSteps() {
+        this.executeFirstStepAndSave();
+        assertThat(PipelineCheckpoint.getCheckpointFile(this.mockInspector(null)).exists(), is(true));
+
+        ProjectInspector inspector = this.mockInspector(new JobStatus(this.repoDir.getAbsolutePath()));
+        AbstractStep firstStep = new SimpleStep(inspector, "first");
+        AbstractStep secondStep = new SimpleStep(inspector, "second");
+        firstStep.addNextStep(secondStep);
+        when(inspector.getSteps()).thenReturn(Arrays.asList(firstStep, secondStep));
+
+        PipelineCheckpoint checkpoint = PipelineCheckpoint.load(inspector);
+        assertThat(checkpoint.restore(inspector, firstStep), sameInstance(secondStep));
+
+        ArgumentCaptor<JobStatus> jobStatusCaptor = ArgumentCaptor.forClass(JobStatus.class);
+        verify(inspector).setJobStatus(jobStatusCaptor.capture());
+        verify(inspector).setCheckoutType(CheckoutType.CHECKOUT_BUGGY_BUILD);
+
+        JobStatus restoredStatus = jobStatusCaptor.getValue();
+        assertThat(restoredStatus.getFailingModulePath(), is(this.repoDir.getAbsolutePath() + "/module"));
+        assertThat(restoredStatus.getRepairSourceDir()[0], is(new File(this.repoDir, "src/main/java")));
+        assertThat(restoredStatus.getAllPatches().size(), is(1));
+        assertThat(restoredStatus.getAllPatches().get(0).getFilePath(), is("src/main/java/Foo.java"));
+        assertThat(firstStep.getStepStatus().isSuccess(), is(true));
+        assertThat(secondStep.getStepStatus(), nullValue());
+    }
+
+    @Test
+    public void testCheckpointIsIgnoredWhenTheRepositoryChanged() throws IOException, GitAPIException {
+        this.executeFirstStepAndSave();
+        this.commitFile("README.md", "second version");
+
+        ProjectInspector inspector = this.mockInspector(new JobStatus(this.repoDir.getAbsolutePath()));
+        AbstractStep firstStep = new SimpleStep(inspector, "first");
+        AbstractStep secondStep = new SimpleStep(inspector, "second");
+        firstStep.addNextStep(secondStep);
+        when(inspector.getSteps()).thenReturn(Arrays.asList(firstStep, secondStep));
+
+        PipelineCheckpoint checkpoint = PipelineCheckpoint.load(inspector);
+        assertThat(checkpoint.restore(inspector, firstStep), nullValue());
+        verify(inspector, never()).setJobStatus(any(JobStatus.class));
+    }
+
+    @Test
+    public void testCheckpointIsIgnoredWhenTheWorkspaceChanged() throws IOException {
+        this.executeFirstStepAndSave();
+        Files.write(new File(this.repoDir, "README.md").toPath(), "uncommitted version".getBytes());
+
+        ProjectInspector inspector = this.mockInspector(new JobStatus(this.repoDir.getAbsolutePath()));
+        AbstractStep firstStep = new SimpleStep(inspector, "first");
+        AbstractStep secondStep = new SimpleStep(inspector, "second");
+        firstStep.addNextStep(secondStep);
+        when(inspector.getSteps()).thenReturn(Arrays.asList(firstStep, secondStep));
+
+        PipelineCheckpoint checkpoint = PipelineCheckpoint.load(inspector);
+        assertThat(checkpoint.restore(inspector, firstStep), nullValue());
+        verify(inspector, never()).setJobStatus(any(JobStatus.class));
+    }
+
+    @Test
+    public void testCheckpointIsIgnoredWhenTheRepositoryToPushChanged() throws IOException, GitAPIException {
+        File repoToPushDir = new File(this.tmpDir, "repo_topush");
+        this.commitFile(repoToPushDir, "README.md", "first version");
+
+        JobStatus jobStatus = new JobStatus(this.repoDir.getAbsolutePath());
+        ProjectInspector inspector = this.mockInspector(jobStatus);
+        when(inspector.getRepoToPushLocalPath()).thenReturn(repoToPushDir.getAbsolutePath());
+        AbstractStep firstStep = new SimpleStep(inspector, "first");
+        AbstractStep secondStep = new SimpleStep(inspector, "second");
+        firstStep.addNextStep(secondStep);
+        when(inspector.getSteps()).thenReturn(Arrays.asList(firstStep, secondStep));
+        firstStep.runStep();
+        PipelineCheckpoint.save(inspector, 1, secondStep);
+
+        this.commitFile(repoToPushDir, "README.md", "second version");
+
+        inspector = this.mockInspector(new JobStatus(this.repoDir.getAbsolutePath()));
+        when(inspector.getRepoToPushLocalPath()).thenReturn(repoToPushDir.getAbsolutePath());
+        firstStep = new SimpleStep(inspector, "first");
+        secondStep = new SimpleStep(inspector, "second");
+        firstStep.addNextStep(secondStep);
+        when(inspector.getSteps()).thenReturn(Arrays.asList(firstStep, secondStep));
+
+        PipelineCheckpoint checkpoint = PipelineCheckpoint.load(inspector);
+        assertThat(checkpoint.restore(inspector, firstStep), nullValue());
+        verify(inspector, never()).setJobStatus(any(JobStatus.class));
+    }
+
+    private ProjectInspector createInspector() {
+        Repository repository = mock(Repository.class);
+        when(repository.getSlug()).thenReturn("surli/failingProject");
+        when(this.build.getRepository()).thenReturn(repository);
+        BuildToBeInspected buildToBeInspected = mock(BuildToBeInspected.class);
+        when(buildToBeInspected.getBuggyBuild()).thenReturn(this.build);
+        return new ProjectInspector(buildToBeInspected, this.tmpDir.getAbsolutePath(), Collections.emptyList(), Collections.emptyList());
+    }
+
+    @Test
+    public void testCheckpointIsOnlySavedInResumeMode() {
+        ProjectInspector inspector = this.createInspector();
+        AbstractStep firstStep = new SimpleStep(inspector, "first");
+        AbstractStep secondStep = new SimpleStep(inspector, "second");
+        firstStep.addNextStep(secondStep);
+
+        assertThat(inspector.getStepToExecute(firstStep), sameInstance(firstStep));
+        inspector.saveCheckpoint(secondStep);
+        assertThat(PipelineCheckpoint.getCheckpointFile(inspector).exists(), is(false));
+
+        RepairnatorConfig.getInstance().setResume(true);
+        inspector.saveCheckpoint(secondStep);
+        assertThat(PipelineCheckpoint.getCheckpointFile(inspector).exists(), is(true));
+    }
+
+    @Test
+    public void testGitHelperRecordsInTheRestoredJobStatus() throws IOException, GitAPIException {
+        ProjectInspector inspector = this.createInspector();
+        JobStatus initialStatus = inspector.getJobStatus();
+        JobStatus restoredStatus = new JobStatus(inspector.getRepoLocalPath());
+        inspector.setJobStatus(restoredStatus);
+
+        Files.write(new File(this.repoDir, "README.md").toPath(), "second version".getBytes());
+        try (Git git = Git.open(this.repoDir)) {
+            inspector.getGitHelper().gitAdd(Collections.singletonList("README.md"), git);
+        }
+
+        assertThat(initialStatus.getResourceMetrics().isEmpty(), is(true));
+        assertThat(restoredStatus.getResourceMetrics().size(), is(1));
+    }
+}
@@ -0,0 +1,120 @@
+package fr.inria.spirals.repairnator.process.instrumentation;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class TestProcessWatchdog {
+
+    @Test
+    public void testProcessTreeIsKilledAfterDeadline() throws Exception {
+        assumeTrue(ProcFileSystem.isAvailable());
+
+        try (ProcessWatchdog.Execution execution = ProcessWatchdog.getInstance().watch("sleep", 0, 1000)) {
+            // the shell starts a child process which must be killed as well
+            Process process = execution.mark(new ProcessBuilder("/bin/sh", "-c", "sleep 60; echo done")).start();
+
+            assertThat(process.waitFor(10, TimeUnit.SECONDS), is(true));
+            assertThat(execution.isTimedOut(), is(true));
+            assertThat(ProcFileSystem.getProcesses().stream()
+                    .anyMatch(pid -> execution.getMarker().equals(ProcFileSystem.getEnvironmentVariable(pid, ProcessWatchdog.MARKER_VARIABLE))), is(false));
+        }
+    }
+
+    @Test
+    public void testStoppedExecutionIsKilled() throws Exception {
+        assumeTrue(ProcFileSystem.isAvailable());
+
+        try (ProcessWatchdog.Execution execution = ProcessWatchdog.getInstance().watch("stopped", 0, 0)) {
+            Process process = execution.mark(new ProcessBuilder("/bin/sh", "-c", "sleep 60; echo done")).start();
+            execution.stop("enough results.");
+
+            assertThat(process.waitFor(10, TimeUnit.SECONDS), is(true));
+            assertThat(execution.isStopped(), is(true));
+            assertThat(execution.isTimedOut(), is(false));
+        }
+    }
+
+    @Test
+    public void testSparedProcessOutlivesExecution() throws Exception {
+        assumeTrue(ProcFileSystem.isAvailable());
+
+        Process spared;
+        ProcessWatchdog.Execution execution = ProcessWatchdog.getInstance().watch("daemon", 0, 0);
+        try {
+            execution.spare("sleep 61");
+            spared = execution.mark(new ProcessBuilder("sleep", "61")).start();
+            Process orphan = execution.mark(new ProcessBuilder("sleep", "62")).start();
+
+            execution.close();
+            assertThat(orphan.waitFor(10, TimeUnit.SECONDS), is(true));
+            assertThat(spared.isAlive(), is(true));
+        } finally {
+            execution.close();
+        }
+        spared.destroyForcibly().waitFor();
+    }
+
+    @Test
+    public void testExecutionsOfStoppedScopeAreKilled() throws Exception {
+        assumeTrue(ProcFileSystem.isAvailable());
+
+        ProcessWatchdog.Scope scope = ProcessWatchdog.getInstance().openScope("repair tool");
+        ProcessWatchdog.Execution[] executions = new ProcessWatchdog.Execution[1];
+        Process[] processes = new Process[1];
+        // the executions started by the threads created in the scope belong to it
+        Thread thread = new Thread(() -> {
+            executions[0] = ProcessWatchdog.getInstance().watch("tool process", 0, 0);
+            try {
+                processes[0] = executions[0].mark(new ProcessBuilder("sleep", "60")).start();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        scope.close();
+
+        try (ProcessWatchdog.Execution otherExecution = ProcessWatchdog.getInstance().watch("other process", 0, 0)) {
+            Process otherProcess = otherExecution.mark(new ProcessBuilder("sleep", "60")).start();
+            scope.stop("the time budget is exhausted.");
+
+            assertThat(processes[0].waitFor(10, TimeUnit.SECONDS), is(true));
+            assertThat(executions[0].isStopped(), is(true));
+            assertThat(otherExecution.isStopped(), is(false));
+            otherProcess.destroyForcibly().waitFor();
+        } finally {
+            executions[0].close();
+        }
+    }
+
+    @Test
+    public void testExecutionWithoutOutputTimesOut() throws Exception {
+        try (ProcessWatchdog.Execution execution = ProcessWatchdog.getInstance().watch("no output", 1000, 0)) {
+            Thread.sleep(500);
+            execution.updateLastOutputDate();
+            Thread.sleep(800);
+            assertThat(execution.isTimedOut(), is(false));
+
+            Thread.sleep(2500);
+            assertThat(execution.isTimedOut(), is(true));
+        }
+    }
+
+    @Test
+    public void testCpuTimeIsMeasured() throws Exception {
+        assumeTrue(ProcFileSystem.isAvailable());
+
+        try (ProcessWatchdog.Execution execution = ProcessWatchdog.getInstance().watch("busy", 0, 0)) {
+            Process process = execution.mark(new ProcessBuilder("/bin/sh", "-c", "i=0; while [ $i -lt 300000 ]; do i=$((i+1)); done; sleep 2")).start();
+            process.waitFor();
+            assertThat(execution.getCpuTime() > 0, is(true));
+            assertThat(execution.isTimedOut(), is(false));
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package fr.inria.spirals.repairnator.process.instrumentation;
+
+import org.junit.Test;
+
+import java.util.function.Supplier;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+public class TestResourceMonitor {
+
+    @Test
+    public void testMonitorUsesRegisteredProbes() {
+        Supplier<ResourceProbe> probe = () -> new ResourceProbe() {
+            @Override
+            public void start() {
+            }
+
+            @Override
+            public void stop(ResourceMetrics metrics) {
+                metrics.setChildPeakRss(42);
+            }
+        };
+        ResourceMonitor.registerProbe(probe);
+        try {
+            ResourceMetrics metrics = ResourceMonitor.start("test", ResourceMetrics.Kind.STEP).stop();
+            assertThat(metrics.getName(), is("test"));
+            assertThat(metrics.getKind(), is(ResourceMetrics.Kind.STEP));
+            assertThat(metrics.getWallTime() >= 0, is(true));
+            assertThat(metrics.getGcPauseTime() >= 0, is(true));
+            assertThat(metrics.getChildPeakRss() >= 42, is(true));
+        } finally {
+            ResourceMonitor.unregisterProbe(probe);
+        }
+    }
+
+    @Test
+    public void testChildProcessesAreMeasured() throws Exception {
+        assumeTrue(ProcFileSystem.isAvailable());
+
+        ResourceMonitor monitor = ResourceMonitor.start("sleep", ResourceMetrics.Kind.MAVEN);
+        Process process = new ProcessBuilder("sleep", "2").start();
+        process.waitFor();
+        ResourceMetrics metrics = monitor.stop();
+
+        assertThat(metrics.getWallTime() >= 2000, is(true));
+        assertThat(metrics.getChildPeakRss() > 0, is(true));
+    }
+
+    @Test
+    public void testNestedMonitorsShareTheSampler() {
+        assumeTrue(ProcFileSystem.isAvailable());
+        assertThat(ProcFileSystem.getClockTicksPerSecond() > 0, is(true));
+
+        int nbProbes = ProcessTreeSampler.getInstance().getNbProbes();
+        ResourceMonitor stepMonitor = ResourceMonitor.start("step", ResourceMetrics.Kind.STEP);
+        ResourceMonitor mavenMonitor = ResourceMonitor.start("maven", ResourceMetrics.Kind.MAVEN);
+        assertThat(ProcessTreeSampler.getInstance().getNbProbes(), is(nbProbes + 2));
+
+        mavenMonitor.stop();
+        stepMonitor.stop();
+        assertThat(ProcessTreeSampler.getInstance().getNbProbes(), is(nbProbes));
+    }
+}
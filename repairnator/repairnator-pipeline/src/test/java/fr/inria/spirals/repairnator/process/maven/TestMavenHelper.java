@@ -6,9 +6,14 @@ import org.apache.maven.model.building.ModelBuildingException;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Predicate;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 public class TestMavenHelper {
 	@Test
@@ -21,4 +26,60 @@ public class TestMavenHelper {
 
 		assertEquals(8, model.getModules().size());
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testFindChangedModules() throws IOException {
+		File repoDir = Files.createTempDir();
+		new File(repoDir, "core/src/main/java").mkdirs();
+		new File(repoDir, "app/src/test/java").mkdirs();
+		new File(repoDir, "lib/sources").mkdirs();
+		Files.write("<project/>".getBytes(), new File(repoDir, "pom.xml"));
+		Files.write("<project/>".getBytes(), new File(repoDir, "core/pom.xml"));
+		Files.write("<project/>".getBytes(), new File(repoDir, "app/pom.xml"));
+		Files.write("<project><build><sourceDirectory>sources</sourceDirectory></build></project>".getBytes(), new File(repoDir, "lib/pom.xml"));
+		ProjectModelService modelService = new ProjectModelService(new File(repoDir, ".m2").getPath());
+		Predicate<String> ignoredFiles = path -> path.startsWith("repairnator.");
+
+		assertEquals(Arrays.asList("app", "core"), MavenHelper.findChangedModules(repoDir, repoDir,
+				Arrays.asList("core/src/main/java/Foo.java", "app/src/test/java/FooTest.java", "repairnator.json"), modelService, ignoredFiles));
+		assertEquals(Collections.emptyList(), MavenHelper.findChangedModules(repoDir, repoDir,
+				Arrays.asList("core/target/classes/Foo.class", "repairnator.maven.buildproject.log"), modelService, ignoredFiles));
+		assertEquals(Collections.singletonList("."), MavenHelper.findChangedModules(repoDir, new File(repoDir, "core"),
+				Collections.singletonList("core/src/main/java/Foo.java"), modelService, ignoredFiles));
+		assertEquals(Collections.singletonList("lib"), MavenHelper.findChangedModules(repoDir, repoDir,
+				Collections.singletonList("lib/sources/Foo.java"), modelService, ignoredFiles));
+		assertNull(MavenHelper.findChangedModules(repoDir, repoDir,
+				Arrays.asList("core/src/main/java/Foo.java", "core/pom.xml"), modelService, ignoredFiles));
+		assertNull(MavenHelper.findChangedModules(repoDir, new File(repoDir, "core"),
+				Collections.singletonList("app/src/test/java/FooTest.java"), modelService, ignoredFiles));
+		// the files out of the declared source and resource directories might change the build of any module
+		assertNull(MavenHelper.findChangedModules(repoDir, repoDir,
+				Collections.singletonList("lib/src/main/java/Foo.java"), modelService, ignoredFiles));
+		assertNull(MavenHelper.findChangedModules(repoDir, repoDir,
+				Collections.singletonList("core/src/main/filters/filter.properties"), modelService, ignoredFiles));
+		assertNull(MavenHelper.findChangedModules(repoDir, repoDir,
+				Collections.singletonList(".mvn/jvm.config"), modelService, ignoredFiles));
+		assertNull(MavenHelper.findChangedModules(repoDir, repoDir,
+				Collections.singletonList("build.properties"), modelService, ignoredFiles));
+	}
+
+	private static void writePom(File dir, String artifactId, String content) throws IOException {
+		dir.mkdirs();
+		Files.write(("<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId><artifactId>" + artifactId
+				+ "</artifactId><version>1.0</version>" + content + "</project>").getBytes(), new File(dir, "pom.xml"));
+	}
+
+	@Test
+	public void testFindDependentModules() throws IOException {
+		File repoDir = Files.createTempDir();
+		writePom(repoDir, "root", "<packaging>pom</packaging><modules><module>core</module><module>app</module><module>lib</module></modules>");
+		writePom(new File(repoDir, "core"), "core", "");
+		writePom(new File(repoDir, "app"), "app", "<dependencies><dependency><groupId>org.example</groupId><artifactId>core</artifactId><version>1.0</version></dependency></dependencies>");
+		writePom(new File(repoDir, "lib"), "lib", "");
+		ProjectModelService modelService = new ProjectModelService(new File(repoDir, ".m2").getPath());
+
+		assertEquals(Arrays.asList("app", "core"), MavenHelper.findDependentModules(repoDir, Collections.singletonList("core"), modelService));
+		assertEquals(Collections.singletonList("app"), MavenHelper.findDependentModules(repoDir, Collections.singletonList("app"), modelService));
+		assertEquals(Collections.singletonList("lib"), MavenHelper.findDependentModules(repoDir, Collections.singletonList("lib"), modelService));
+	}
+}
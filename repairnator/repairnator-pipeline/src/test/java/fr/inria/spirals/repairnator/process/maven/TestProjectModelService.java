@@ -0,0 +1,112 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import org.apache.maven.model.Model;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class TestProjectModelService {
+
+    private File tmpDir;
+
+    @Before
+    public void setup() throws IOException {
+        this.tmpDir = Files.createTempDirectory("test_projectmodelservice").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileHelper.deleteFile(this.tmpDir);
+    }
+
+    private File writePom(File dir, String artifactId, String... modules) throws IOException {
+        StringBuilder content = new StringBuilder();
+        content.append("<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId>");
+        content.append("<artifactId>").append(artifactId).append("</artifactId><version>1.0</version>");
+        if (modules.length > 0) {
+            content.append("<packaging>pom</packaging><modules>");
+            for (String module : modules) {
+                content.append("<module>").append(module).append("</module>");
+            }
+            content.append("</modules>");
+        }
+        content.append("</project>");
+
+        dir.mkdirs();
+        File pomFile = new File(dir, "pom.xml");
+        Files.write(pomFile.toPath(), content.toString().getBytes());
+        return pomFile;
+    }
+
+    @Test
+    public void testModelIsBuiltAgainOnlyWhenThePomIsModified() throws IOException {
+        File pomFile = this.writePom(this.tmpDir, "project");
+        ProjectModelService service = new ProjectModelService(new File(this.tmpDir, ".m2").getPath());
+
+        Model model = service.getModel(pomFile);
+        assertThat(model.getArtifactId(), is("project"));
+        assertThat(service.getModel(new File(this.tmpDir, "./pom.xml")), sameInstance(model));
+
+        this.writePom(this.tmpDir, "modified");
+        pomFile.setLastModified(pomFile.lastModified() + 10000);
+        Model modifiedModel = service.getModel(pomFile);
+        assertThat(modifiedModel, not(sameInstance(model)));
+        assertThat(modifiedModel.getArtifactId(), is("modified"));
+    }
+
+    @Test
+    public void testModuleTreeIsLoadedInTheCache() throws IOException {
+        File rootPom = this.writePom(this.tmpDir, "root", "core", "lib");
+        File corePom = this.writePom(new File(this.tmpDir, "core"), "core", "plugin");
+        File pluginPom = this.writePom(new File(this.tmpDir, "core/plugin"), "plugin", "../../lib");
+        File libPom = this.writePom(new File(this.tmpDir, "lib"), "lib");
+        ProjectModelService service = new ProjectModelService(new File(this.tmpDir, ".m2").getPath());
+
+        service.loadModuleTree(rootPom);
+
+        // the cached models are given even if the files cannot be read anymore, as long as they are not modified
+        for (File pomFile : new File[] { corePom, pluginPom, libPom }) {
+            long lastModified = pomFile.lastModified();
+            Files.write(pomFile.toPath(), "not a pom".getBytes());
+            pomFile.setLastModified(lastModified);
+        }
+        assertThat(service.getModel(corePom).getArtifactId(), is("core"));
+        assertThat(service.getModel(pluginPom).getArtifactId(), is("plugin"));
+        assertThat(service.getModel(libPom).getArtifactId(), is("lib"));
+    }
+
+    @Test
+    public void testModelsAreBuiltAgainWithTheNewParentWhenCleared() throws IOException {
+        File parentPom = new File(this.tmpDir, "pom.xml");
+        String parentContent = "<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId>"
+                + "<artifactId>parent</artifactId><version>1.0</version><packaging>pom</packaging>"
+                + "<description>%s</description><modules><module>child</module></modules></project>";
+        Files.write(parentPom.toPath(), String.format(parentContent, "first version").getBytes());
+        File childDir = new File(this.tmpDir, "child");
+        childDir.mkdirs();
+        File childPom = new File(childDir, "pom.xml");
+        Files.write(childPom.toPath(), ("<project><modelVersion>4.0.0</modelVersion>"
+                + "<parent><groupId>org.example</groupId><artifactId>parent</artifactId><version>1.0</version></parent>"
+                + "<artifactId>child</artifactId></project>").getBytes());
+        ProjectModelService service = new ProjectModelService(new File(this.tmpDir, ".m2").getPath());
+
+        service.loadModuleTree(parentPom);
+        assertThat(service.getModel(childPom).getDescription(), is("first version"));
+
+        // as after a checkout, the parent is modified but not the child
+        Files.write(parentPom.toPath(), String.format(parentContent, "second version").getBytes());
+        parentPom.setLastModified(parentPom.lastModified() + 10000);
+        service.clear();
+        assertThat(service.getModel(childPom).getDescription(), is("second version"));
+    }
+}
@@ -0,0 +1,146 @@
+package fr.inria.spirals.repairnator.process.maven;
+
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class TestSharedMavenRepository {
+
+    private File tmpDir;
+    private File sharedDir;
+
+    @Before
+    public void setup() throws IOException {
+        this.tmpDir = Files.createTempDirectory("test_sharedmavenrepository").toFile();
+        this.sharedDir = new File(this.tmpDir, "shared");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileHelper.deleteFile(this.tmpDir);
+    }
+
+    private ProjectInspector createBuild(String name) {
+        File repoDir = new File(this.tmpDir, name);
+        ProjectInspector inspector = ProjectInspectorMocker.mockProjectInspector(new JobStatus(repoDir.getAbsolutePath()), repoDir.getAbsolutePath());
+        when(inspector.getM2LocalPath()).thenReturn(new File(repoDir, ".m2").getAbsolutePath());
+        return inspector;
+    }
+
+    private File createArtifact(ProjectInspector inspector, String groupPath, String artifactId, String version, byte[] content) throws IOException {
+        File artifactDir = new File(inspector.getM2LocalPath(), groupPath + "/" + artifactId + "/" + version);
+        artifactDir.mkdirs();
+        Files.write(new File(artifactDir, artifactId + "-" + version + ".pom").toPath(), "<project/>".getBytes());
+        Files.write(new File(artifactDir, artifactId + "-" + version + ".jar").toPath(), content);
+        return artifactDir;
+    }
+
+    @Test
+    public void testReleasedArtifactsArePromoted() throws IOException {
+        SharedMavenRepository repository = new SharedMavenRepository(this.sharedDir.getPath(), 1024 * 1024);
+        ProjectInspector inspector = this.createBuild("build1");
+        this.createArtifact(inspector, "junit", "junit", "4.12", new byte[10]);
+        this.createArtifact(inspector, "org/example", "project", "1.0-SNAPSHOT", new byte[10]);
+
+        repository.promote(inspector);
+
+        assertThat(new File(this.sharedDir, "junit/junit/4.12/junit-4.12.jar").exists(), is(true));
+        assertThat(new File(this.sharedDir, "org/example/project/1.0-SNAPSHOT").exists(), is(false));
+    }
+
+    @Test
+    public void testArtifactNotMatchingItsChecksumIsNotPromoted() throws IOException {
+        SharedMavenRepository repository = new SharedMavenRepository(this.sharedDir.getPath(), 1024 * 1024);
+        ProjectInspector inspector = this.createBuild("build1");
+        File artifactDir = this.createArtifact(inspector, "junit", "junit", "4.12", new byte[10]);
+        Files.write(new File(artifactDir, "junit-4.12.jar.sha1").toPath(), "0000000000000000000000000000000000000000".getBytes());
+
+        repository.promote(inspector);
+
+        assertThat(new File(this.sharedDir, "junit/junit/4.12").exists(), is(false));
+    }
+
+    @Test
+    public void testSharedArtifactsAreLinkedInTheNextBuilds() throws IOException {
+        SharedMavenRepository repository = new SharedMavenRepository(this.sharedDir.getPath(), 1024 * 1024);
+        ProjectInspector firstBuild = this.createBuild("build1");
+        File artifactDir = this.createArtifact(firstBuild, "junit", "junit", "4.12", new byte[10]);
+        Files.write(new File(artifactDir, "_remote.repositories").toPath(), "junit-4.12.jar>central=".getBytes());
+        repository.promote(firstBuild);
+
+        ProjectInspector secondBuild = this.createBuild("build2");
+        repository.seed(secondBuild.getM2LocalPath());
+
+        File sharedArtifactDir = new File(this.sharedDir, "junit/junit/4.12");
+        File linkedArtifactDir = new File(secondBuild.getM2LocalPath(), "junit/junit/4.12");
+        assertThat(Files.isSameFile(new File(linkedArtifactDir, "junit-4.12.jar").toPath(), new File(sharedArtifactDir, "junit-4.12.jar").toPath()), is(true));
+        // maven rewrites this file in place: it must not be shared
+        assertThat(Files.isSameFile(new File(linkedArtifactDir, "_remote.repositories").toPath(), new File(sharedArtifactDir, "_remote.repositories").toPath()), is(false));
+
+        // the artifacts of a running build are kept when they are evicted from the shared repository
+        new SharedMavenRepository(this.sharedDir.getPath(), 0, 0).promote(this.createBuild("build3"));
+        assertThat(sharedArtifactDir.exists(), is(false));
+        assertThat(new File(linkedArtifactDir, "junit-4.12.jar").exists(), is(true));
+    }
+
+    @Test
+    public void testBuildWithOnlySharedArtifactsIsPromoted() throws IOException {
+        SharedMavenRepository repository = new SharedMavenRepository(this.sharedDir.getPath(), 1024 * 1024);
+        ProjectInspector firstBuild = this.createBuild("build1");
+        this.createArtifact(firstBuild, "junit", "junit", "4.12", new byte[10]);
+        repository.promote(firstBuild);
+
+        // all the artifacts of the second build come from the shared repository: nothing is promoted
+        ProjectInspector secondBuild = this.createBuild("build2");
+        repository.seed(secondBuild.getM2LocalPath());
+        repository.promote(secondBuild);
+
+        assertThat(new File(this.sharedDir, "junit/junit/4.12/junit-4.12.jar").exists(), is(true));
+        assertThat(new File(this.sharedDir, ".tmp").exists(), is(false));
+        assertThat(firstBuild.getJobStatus().getSharedMavenRepositoryMisses(), is(1));
+        assertThat(secondBuild.getJobStatus().getSharedMavenRepositoryMisses(), is(0));
+    }
+
+    @Test
+    public void testLocalRepositoryIsLinked() throws IOException {
+        ProjectInspector build = this.createBuild("build1");
+        File artifactDir = this.createArtifact(build, "junit", "junit", "4.12", new byte[10]);
+        Files.write(new File(artifactDir, "_remote.repositories").toPath(), "junit-4.12.jar>central=".getBytes());
+
+        File copyDir = new File(this.tmpDir, "copy");
+        SharedMavenRepository.linkLocalRepository(new File(build.getM2LocalPath()), copyDir);
+
+        File linkedArtifactDir = new File(copyDir, "junit/junit/4.12");
+        assertThat(Files.isSameFile(new File(linkedArtifactDir, "junit-4.12.jar").toPath(), new File(artifactDir, "junit-4.12.jar").toPath()), is(true));
+        assertThat(Files.isSameFile(new File(linkedArtifactDir, "_remote.repositories").toPath(), new File(artifactDir, "_remote.repositories").toPath()), is(false));
+        assertThat(new File(linkedArtifactDir, "_remote.repositories").exists(), is(true));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedArtifactsAreEvicted() throws IOException {
+        SharedMavenRepository repository = new SharedMavenRepository(this.sharedDir.getPath(), 1500, 0);
+        ProjectInspector firstBuild = this.createBuild("build1");
+        this.createArtifact(firstBuild, "org/example", "first", "1.0", new byte[1000]);
+        repository.promote(firstBuild);
+        new File(this.sharedDir, "org/example/first/1.0").setLastModified(System.currentTimeMillis() - 10000);
+
+        ProjectInspector secondBuild = this.createBuild("build2");
+        this.createArtifact(secondBuild, "org/example", "second", "1.0", new byte[1000]);
+        repository.promote(secondBuild);
+
+        assertThat(new File(this.sharedDir, "org/example/first/1.0").exists(), is(false));
+        assertThat(new File(this.sharedDir, "org/example/second/1.0").exists(), is(true));
+    }
+}
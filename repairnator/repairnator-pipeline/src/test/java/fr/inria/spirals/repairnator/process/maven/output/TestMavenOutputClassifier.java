@@ -0,0 +1,84 @@
+package fr.inria.spirals.repairnator.process.maven.output;
+
+import org.junit.Test;
+
+import java.util.EnumSet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestMavenOutputClassifier {
+
+    @Test
+    public void testCompilationErrorsAreParsed() {
+        MavenOutputClassifier classifier = new MavenOutputClassifier();
+        classifier.consume("[INFO] Compiling 12 source files to /tmp/repo/target/classes");
+        classifier.consume("[ERROR] COMPILATION ERROR : ");
+        classifier.consume("[ERROR] /tmp/repo/src/main/java/Foo.java:[12,5] cannot find symbol");
+        classifier.consume("[ERROR] Failed to execute goal org.apache.maven.plugins:maven-compiler-plugin:3.1:compile (default-compile) on project foo: Compilation failure");
+        classifier.consume("[ERROR] -> [Help 1]");
+        classifier.consume("[ERROR] ");
+
+        assertThat(classifier.getCategories(), is(EnumSet.of(MavenOutputClassifier.Category.COMPILATION)));
+        assertThat(classifier.getCount(MavenOutputClassifier.Category.COMPILATION), is(3));
+        assertThat(classifier.getNbCompilationErrors(), is(1));
+        assertThat(classifier.getCompilationErrors().get(0).getFile(), is("/tmp/repo/src/main/java/Foo.java"));
+        assertThat(classifier.getCompilationErrors().get(0).getLine(), is(12));
+        assertThat(classifier.getCompilationErrors().get(0).getMessage(), is("cannot find symbol"));
+        assertThat(classifier.hasBlockingError(), is(true));
+    }
+
+    @Test
+    public void testTestFailuresAreSummed() {
+        MavenOutputClassifier classifier = new MavenOutputClassifier();
+        classifier.consume("[ERROR] Tests run: 3, Failures: 1, Errors: 0, Skipped: 0, Time elapsed: 0.1 s <<< FAILURE! - in FooTest");
+        classifier.consume("[ERROR] Tests run: 3, Failures: 1, Errors: 0, Skipped: 0");
+        classifier.consume("[INFO] Tests run: 5, Failures: 0, Errors: 0, Skipped: 1");
+        classifier.consume("[ERROR] Failed to execute goal org.apache.maven.plugins:maven-surefire-plugin:2.20:test (default-test) on project foo: There are test failures.");
+
+        assertThat(classifier.getNbTestsRun(), is(8));
+        assertThat(classifier.getNbTestFailures(), is(1));
+        assertThat(classifier.getNbTestErrors(), is(0));
+        assertThat(classifier.getCategories(), is(EnumSet.of(MavenOutputClassifier.Category.TEST_FAILURE, MavenOutputClassifier.Category.OTHER)));
+        assertThat(classifier.hasBlockingError(), is(false));
+    }
+
+    @Test
+    public void testDependencyAndMemoryErrorsAreRecognized() {
+        MavenOutputClassifier classifier = new MavenOutputClassifier();
+        classifier.consume("[ERROR] Failed to execute goal on project foo: Could not resolve dependencies for project org.example:foo:jar:1.0");
+        classifier.consumeError("Exception in thread \"main\" java.lang.OutOfMemoryError: Java heap space");
+        classifier.consumeError("\tat java.util.Arrays.copyOf(Arrays.java:3332)");
+
+        assertThat(classifier.hasCategory(MavenOutputClassifier.Category.DEPENDENCY_RESOLUTION), is(true));
+        assertThat(classifier.hasCategory(MavenOutputClassifier.Category.OUT_OF_MEMORY), is(true));
+        assertThat(classifier.getCount(MavenOutputClassifier.Category.OTHER), is(1));
+    }
+
+    @Test
+    public void testWarningsAreNotClassified() {
+        MavenOutputClassifier classifier = new MavenOutputClassifier();
+        classifier.consume("[WARNING] /tmp/repo/src/main/java/Foo.java:[12,3] deprecated() in Bar has been deprecated");
+        classifier.consume("[WARNING] Could not transfer artifact org.example:bar:pom:1.0 from/to mirror (http://mirror.example.org): Connection reset");
+        classifier.consume("[WARNING] Failure to find org.example:baz:jar:1.0 in http://mirror.example.org was cached in the local repository");
+        classifier.consume("Tests run: 4, Failures: 0, Errors: 0, Skipped: 0");
+
+        assertThat(classifier.getCategories().isEmpty(), is(true));
+        assertThat(classifier.getNbCompilationErrors(), is(0));
+        assertThat(classifier.getNbTestsRun(), is(4));
+        assertThat(classifier.hasBlockingError(), is(false));
+    }
+
+    @Test
+    public void testLinesAreBounded() {
+        MavenOutputClassifier classifier = new MavenOutputClassifier();
+        for (int i = 0; i < 1000; i++) {
+            classifier.consume("[ERROR] error " + i);
+            classifier.consume("[ERROR] error " + i);
+        }
+
+        assertThat(classifier.getCount(MavenOutputClassifier.Category.OTHER), is(2000));
+        assertThat(classifier.getLines(MavenOutputClassifier.Category.OTHER).size(), is(MavenOutputClassifier.MAX_LINES_PER_CATEGORY));
+        assertThat(classifier.getLines(MavenOutputClassifier.Category.OTHER).get(MavenOutputClassifier.MAX_LINES_PER_CATEGORY - 1), is("[ERROR] error 999"));
+    }
+}
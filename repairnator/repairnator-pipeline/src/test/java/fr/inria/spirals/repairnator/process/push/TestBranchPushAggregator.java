@@ -0,0 +1,104 @@
+package fr.inria.spirals.repairnator.process.push;
+
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.git.GitHelper;
+import org.eclipse.jgit.api.Git;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestBranchPushAggregator {
+
+    private File tmpDir;
+    private GitHelper gitHelper;
+    private String remoteUrl;
+
+    @Before
+    public void setup() throws IOException {
+        this.tmpDir = Files.createTempDirectory("test_pushaggregator").toFile();
+        this.gitHelper = new GitHelper();
+
+        File remoteDir = new File(this.tmpDir, "remote.git");
+        remoteDir.mkdirs();
+        this.gitHelper.executeGitCommand(new String[] {"git", "init", "--bare"}, remoteDir);
+        this.remoteUrl = "file://" + remoteDir.getAbsolutePath();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileHelper.deleteFile(this.tmpDir);
+    }
+
+    private Git createRepositoryWithBranch(String name, String branchName) throws IOException {
+        File repoDir = new File(this.tmpDir, name);
+        repoDir.mkdirs();
+        this.gitHelper.executeGitCommand(new String[] {"git", "init"}, repoDir);
+        this.gitHelper.executeGitCommand(new String[] {"git", "-c", "user.name=test", "-c", "user.email=test@test.com",
+                "commit", "--allow-empty", "-m", "commit of " + name}, repoDir);
+        this.gitHelper.executeGitCommand(new String[] {"git", "branch", branchName}, repoDir);
+        return Git.open(repoDir);
+    }
+
+    @Test
+    public void testSpooledBranchesArePushed() throws Exception {
+        BranchPushAggregator pushAggregator = new BranchPushAggregator(this.remoteUrl, null, new File(this.tmpDir, "spool").getPath());
+
+        try (Git git = this.createRepositoryWithBranch("repo1", "branch1")) {
+            assertThat(pushAggregator.getExistingBranches(Collections.singleton("branch1")).isEmpty(), is(true));
+            assertThat(pushAggregator.push(git, "branch1"), is(BranchPushAggregator.Result.PUSHED));
+        }
+        assertThat(pushAggregator.getExistingBranches(Arrays.asList("branch1", "branch2")), is(Collections.singleton("branch1")));
+
+        try (Git git = this.createRepositoryWithBranch("repo2", "branch2")) {
+            assertThat(pushAggregator.push(git, "branch2"), is(BranchPushAggregator.Result.PUSHED));
+        }
+        assertThat(pushAggregator.getExistingBranches(Arrays.asList("branch1", "branch2")), is(new HashSet<>(Arrays.asList("branch1", "branch2"))));
+    }
+
+    @Test
+    public void testRejectedBranchIsNotPushedAgain() throws Exception {
+        BranchPushAggregator pushAggregator = new BranchPushAggregator(this.remoteUrl, null, new File(this.tmpDir, "spool").getPath());
+
+        try (Git git = this.createRepositoryWithBranch("repo1", "branch1")) {
+            assertThat(pushAggregator.push(git, "branch1"), is(BranchPushAggregator.Result.PUSHED));
+        }
+        // the remote branch has another history
+        try (Git git = this.createRepositoryWithBranch("repo2", "branch1")) {
+            assertThat(pushAggregator.push(git, "branch1"), is(BranchPushAggregator.Result.NOT_PUSHED));
+        }
+        // the rejected branch does not prevent the push of the next branches
+        try (Git git = this.createRepositoryWithBranch("repo3", "branch3")) {
+            assertThat(pushAggregator.push(git, "branch3"), is(BranchPushAggregator.Result.PUSHED));
+        }
+    }
+
+    @Test
+    public void testBranchIsPushedWithoutSpool() throws Exception {
+        BranchPushAggregator pushAggregator = new BranchPushAggregator(this.remoteUrl, null, null);
+
+        try (Git git = this.createRepositoryWithBranch("repo1", "branch1")) {
+            assertThat(pushAggregator.push(git, "branch1"), is(BranchPushAggregator.Result.PUSHED));
+        }
+        assertThat(pushAggregator.getExistingBranches(Collections.singleton("branch1")), is(Collections.singleton("branch1")));
+    }
+
+    @Test
+    public void testGitVersionIsParsed() {
+        int[] stretchVersion = BranchPushAggregator.parseGitVersion("git version 2.11.0\n");
+        assertThat(stretchVersion[0], is(2));
+        assertThat(stretchVersion[1], is(11));
+        assertThat(BranchPushAggregator.isAtLeast(stretchVersion, BranchPushAggregator.PROTOCOL_V2_GIT_VERSION), is(false));
+        assertThat(BranchPushAggregator.isAtLeast(BranchPushAggregator.parseGitVersion("git version 2.20.1"), BranchPushAggregator.PROTOCOL_V2_GIT_VERSION), is(true));
+        assertThat(BranchPushAggregator.isAtLeast(BranchPushAggregator.parseGitVersion("unknown"), BranchPushAggregator.PROTOCOL_V2_GIT_VERSION), is(false));
+    }
+}
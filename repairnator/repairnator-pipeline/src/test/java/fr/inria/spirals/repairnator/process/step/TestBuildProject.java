@@ -8,9 +8,12 @@ import fr.inria.spirals.repairnator.config.RepairnatorConfig;
 import fr.inria.spirals.repairnator.process.files.FileHelper;
 import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.instrumentation.ResourceMetrics;
 import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutBuggyBuild;
 import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutType;
+import fr.inria.spirals.repairnator.process.step.paths.ComputeClasspath;
 import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import fr.inria.spirals.repairnator.states.PipelineState;
 import fr.inria.spirals.repairnator.states.ScannedBuildStatus;
 import org.hamcrest.core.Is;
 import org.hamcrest.core.IsNull;
@@ -108,6 +111,76 @@ public class TestBuildProject {
         }
     }
 
+    @Test
+    public void testBuildProjectInSinglePass() throws IOException {
+        long buildId = 207924136; // surli/failingProject build
+
+        Build build = this.checkBuildAndReturn(buildId, false);
+        RepairnatorConfig.getInstance().setSinglePassBuild(true);
+
+        tmpDir = Files.createTempDirectory("test_build_single_pass").toFile();
+
+        BuildToBeInspected toBeInspected = new BuildToBeInspected(build, null, ScannedBuildStatus.ONLY_FAIL, "");
+
+        JobStatus jobStatus = new JobStatus(tmpDir.getAbsolutePath()+"/repo");
+
+        ProjectInspector inspector = ProjectInspectorMocker.mockProjectInspector(jobStatus, tmpDir, toBeInspected, CheckoutType.CHECKOUT_BUGGY_BUILD);
+
+        CloneRepository cloneStep = new CloneRepository(inspector);
+        BuildProject buildStep = new BuildProject(inspector);
+
+        cloneStep.addNextStep(new CheckoutBuggyBuild(inspector, true)).addNextStep(buildStep);
+        cloneStep.execute();
+
+        // the failing tests do not fail the single pass build
+        assertThat(buildStep.isShouldStop(), is(false));
+        List<StepStatus> stepStatusList = jobStatus.getStepStatuses();
+        assertThat(stepStatusList.size(), is(3));
+        StepStatus statusBuild = stepStatusList.get(2);
+        assertThat(statusBuild.getStep(), is(buildStep));
+        assertThat(statusBuild.isSuccess(), is(true));
+
+        assertThat(jobStatus.isTestsRunDuringBuild(), is(true));
+        assertThat(jobStatus.isClasspathExportedDuringBuild(), is(true));
+        assertThat(new File(jobStatus.getPomDirPath(), ComputeClasspath.CLASSPATH_FILE_PATH).exists(), is(true));
+    }
+
+    @Test
+    public void testSinglePassBuildOfNotBuildableProject() throws IOException {
+        long buildId = 228303218; // surli/failingProject only-one-failing
+
+        Build build = this.checkBuildAndReturn(buildId, false);
+        RepairnatorConfig.getInstance().setSinglePassBuild(true);
+
+        tmpDir = Files.createTempDirectory("test_build_single_pass").toFile();
+
+        BuildToBeInspected toBeInspected = new BuildToBeInspected(build, null, ScannedBuildStatus.ONLY_FAIL, "");
+
+        JobStatus jobStatus = new JobStatus(tmpDir.getAbsolutePath()+"/repo");
+
+        ProjectInspector inspector = ProjectInspectorMocker.mockProjectInspector(jobStatus, tmpDir, toBeInspected, CheckoutType.CHECKOUT_BUGGY_BUILD);
+
+        CloneRepository cloneStep = new CloneRepository(inspector);
+        BuildProject buildStep = new BuildProject(inspector);
+
+        cloneStep.addNextStep(new CheckoutBuggyBuild(inspector, true)).addNextStep(buildStep);
+        cloneStep.execute();
+
+        List<StepStatus> stepStatusList = jobStatus.getStepStatuses();
+        assertThat(stepStatusList.size(), is(3));
+        StepStatus statusBuild = stepStatusList.get(2);
+        assertThat(statusBuild.getStep(), is(buildStep));
+        assertThat(statusBuild.getStatus(), is(StepStatus.StatusKind.FAILURE));
+        assertThat(statusBuild.getDiagnostic(), is(PipelineState.NOTBUILDABLE.name()));
+        assertThat(jobStatus.isTestsRunDuringBuild(), is(false));
+
+        // the compilation error is blocking: the project is not built again without running the tests
+        long nbMavenRuns = jobStatus.getResourceMetrics().stream()
+                .filter(metrics -> metrics.getKind() == ResourceMetrics.Kind.MAVEN)
+                .count();
+        assertThat(nbMavenRuns, is(1L));
+    }
+
     private Build checkBuildAndReturn(long buildId, boolean isPR) {
         Optional<Build> optionalBuild = RepairnatorConfig.getInstance().getJTravis().build().fromId(buildId);
         assertTrue(optionalBuild.isPresent());
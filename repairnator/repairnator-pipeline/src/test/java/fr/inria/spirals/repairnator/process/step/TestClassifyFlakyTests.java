@@ -0,0 +1,153 @@
+package fr.inria.spirals.repairnator.process.step;
+
+import fr.inria.spirals.repairnator.process.inspectors.properties.tests.FailureDetail;
+import fr.inria.spirals.repairnator.process.inspectors.properties.tests.FlakinessVerdict;
+import fr.inria.spirals.repairnator.process.step.gatherinfo.ClassifyFlakyTests;
+import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
+import fr.inria.spirals.repairnator.process.testinformation.FailureType;
+import org.apache.maven.model.Build;
+import org.apache.maven.model.Model;
+import org.apache.maven.model.Plugin;
+import org.apache.maven.model.PluginExecution;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TestClassifyFlakyTests {
+
+    @Rule
+    public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+    private FailureDetail createFailureDetail(String testClass, String testMethod, String failureName, boolean error) {
+        FailureDetail failureDetail = new FailureDetail();
+        failureDetail.setTestClass(testClass);
+        failureDetail.setTestMethod(testMethod);
+        failureDetail.setFailureName(failureName);
+        failureDetail.setError(error);
+        return failureDetail;
+    }
+
+    @Test
+    public void testFlakyFailuresAreRemoved() {
+        FailureLocation fooLocation = new FailureLocation("org.example.FooTest");
+        fooLocation.addFailingMethod("testFlaky");
+        fooLocation.addFailure(new FailureType("java.lang.AssertionError", null, false));
+        fooLocation.addErroringMethod("testBroken");
+        fooLocation.addFailure(new FailureType("java.lang.NullPointerException", null, true));
+
+        FailureLocation barLocation = new FailureLocation("org.example.BarTest");
+        barLocation.addFailingMethod("testFlaky");
+        barLocation.addFailure(new FailureType("java.lang.AssertionError", null, false));
+
+        List<FailureDetail> failureDetails = Arrays.asList(
+                this.createFailureDetail("org.example.FooTest", "testFlaky", "java.lang.AssertionError", false),
+                this.createFailureDetail("org.example.FooTest", "testBroken", "java.lang.NullPointerException", true),
+                this.createFailureDetail("org.example.BarTest", "testFlaky", "java.lang.AssertionError", false));
+
+        Set<FailureLocation> result = ClassifyFlakyTests.removeFlakyFailures(new HashSet<>(Arrays.asList(fooLocation, barLocation)),
+                failureDetails, new HashSet<>(Arrays.asList("org.example.FooTest#testFlaky", "org.example.BarTest#testFlaky")));
+
+        assertThat(result.size(), is(1));
+        FailureLocation location = result.iterator().next();
+        assertThat(location.getClassName(), is("org.example.FooTest"));
+        assertThat(location.getFailingMethods().isEmpty(), is(true));
+        assertThat(location.getErroringMethods(), is(Collections.singleton("testBroken")));
+        assertThat(location.getNbErrors(), is(1));
+        assertThat(location.getNbFailures(), is(0));
+    }
+
+    @Test
+    public void testOnlyTestsWhoseRerunsDisagreeAreFlaky() {
+        assertThat(ClassifyFlakyTests.computeVerdict(3, 1, 2), is(FlakinessVerdict.Verdict.FLAKY));
+        assertThat(ClassifyFlakyTests.computeVerdict(3, 3, 0), is(FlakinessVerdict.Verdict.PASSING));
+        assertThat(ClassifyFlakyTests.computeVerdict(3, 0, 3), is(FlakinessVerdict.Verdict.FAILING));
+        assertThat(ClassifyFlakyTests.computeVerdict(3, 0, 2), is(FlakinessVerdict.Verdict.UNKNOWN));
+        assertThat(ClassifyFlakyTests.computeVerdict(3, 2, 0), is(FlakinessVerdict.Verdict.UNKNOWN));
+    }
+
+    private Xpp3Dom createNode(String name, String value) {
+        Xpp3Dom node = new Xpp3Dom(name);
+        node.setValue(value);
+        return node;
+    }
+
+    @Test
+    public void testForkConfigurationIsReadFromSurefire() throws Exception {
+        File moduleDir = this.tmpFolder.newFolder("module");
+
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        configuration.addChild(this.createNode("argLine", "-Xmx512m @{jacocoArgLine} -Dfoo=\"a b\""));
+        Xpp3Dom systemProperties = new Xpp3Dom("systemPropertyVariables");
+        systemProperties.addChild(this.createNode("bar", "baz"));
+        systemProperties.addChild(this.createNode("unknown", "${unknown}"));
+        configuration.addChild(systemProperties);
+        configuration.addChild(this.createNode("workingDirectory", "target/work"));
+
+        Xpp3Dom executionConfiguration = new Xpp3Dom("configuration");
+        Xpp3Dom environmentVariables = new Xpp3Dom("environmentVariables");
+        environmentVariables.addChild(this.createNode("TZ", "UTC"));
+        executionConfiguration.addChild(environmentVariables);
+        PluginExecution execution = new PluginExecution();
+        execution.setId("default-test");
+        execution.setConfiguration(executionConfiguration);
+
+        Plugin plugin = new Plugin();
+        plugin.setArtifactId("maven-surefire-plugin");
+        plugin.setConfiguration(configuration);
+        plugin.addExecution(execution);
+        Build build = new Build();
+        build.addPlugin(plugin);
+        Model model = new Model();
+        model.setBuild(build);
+
+        ClassifyFlakyTests.ForkConfiguration forkConfiguration = ClassifyFlakyTests.ForkConfiguration.fromModel(moduleDir, model);
+        assertThat(forkConfiguration.getJvmArguments(), is(Arrays.asList("-Xmx512m", "-Dfoo=a b", "-Dbar=baz")));
+        assertThat(forkConfiguration.getEnvironment(), is(Collections.singletonMap("TZ", "UTC")));
+        assertThat(forkConfiguration.getWorkingDirectory(), is(new File(moduleDir, "target/work")));
+        assertThat(forkConfiguration.getWorkingDirectory().isDirectory(), is(true));
+        assertThat(forkConfiguration.isParallelForks(), is(false));
+
+        ClassifyFlakyTests.ForkConfiguration defaultConfiguration = ClassifyFlakyTests.ForkConfiguration.fromModel(moduleDir, null);
+        assertThat(defaultConfiguration.getJvmArguments().isEmpty(), is(true));
+        assertThat(defaultConfiguration.getWorkingDirectory(), is(moduleDir));
+    }
+
+    private Model createSurefireModel(String forkCount, String workingDirectory) {
+        Xpp3Dom configuration = new Xpp3Dom("configuration");
+        configuration.addChild(this.createNode("forkCount", forkCount));
+        if (workingDirectory != null) {
+            configuration.addChild(this.createNode("workingDirectory", workingDirectory));
+        }
+        Plugin plugin = new Plugin();
+        plugin.setArtifactId("maven-surefire-plugin");
+        plugin.setConfiguration(configuration);
+        Build build = new Build();
+        build.addPlugin(plugin);
+        Model model = new Model();
+        model.setBuild(build);
+        return model;
+    }
+
+    @Test
+    public void testReRunsAreOnlyParallelWithParallelForks() throws Exception {
+        File moduleDir = this.tmpFolder.newFolder("module");
+
+        assertThat(ClassifyFlakyTests.ForkConfiguration.fromModel(moduleDir, this.createSurefireModel("1", null)).isParallelForks(), is(false));
+        assertThat(ClassifyFlakyTests.ForkConfiguration.fromModel(moduleDir, this.createSurefireModel("${forks}", null)).isParallelForks(), is(false));
+        assertThat(ClassifyFlakyTests.ForkConfiguration.fromModel(moduleDir, this.createSurefireModel("2", null)).isParallelForks(), is(true));
+        assertThat(ClassifyFlakyTests.ForkConfiguration.fromModel(moduleDir, this.createSurefireModel("2C", null)).isParallelForks(), is(true));
+        // each fork has its own working directory in the build, but the reruns would share the one of the module
+        assertThat(ClassifyFlakyTests.ForkConfiguration.fromModel(moduleDir, this.createSurefireModel("2", "target/fork${surefire.forkNumber}")).isParallelForks(), is(false));
+    }
+}
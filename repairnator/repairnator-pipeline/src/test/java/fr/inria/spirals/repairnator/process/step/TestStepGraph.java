@@ -0,0 +1,166 @@
+package fr.inria.spirals.repairnator.process.step;
+
+import ch.qos.logback.classic.Level;
+import fr.inria.jtravis.entities.Build;
+import fr.inria.spirals.repairnator.BuildToBeInspected;
+import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.step.paths.ComputeClasspath;
+import fr.inria.spirals.repairnator.process.step.paths.ComputeTestDir;
+import fr.inria.spirals.repairnator.process.step.push.InitRepoToPush;
+import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import fr.inria.spirals.repairnator.states.PipelineState;
+import fr.inria.spirals.repairnator.states.ScannedBuildStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TestStepGraph {
+
+    public class StepWithData extends AbstractStep {
+        private Set<StepData> inputs;
+        private Set<StepData> outputs;
+        private CyclicBarrier barrier;
+        private boolean shouldFail;
+
+        public StepWithData(ProjectInspector inspector, String name, Set<StepData> inputs, Set<StepData> outputs) {
+            super(inspector, true, name);
+            this.inputs = inputs;
+            this.outputs = outputs;
+        }
+
+        @Override
+        public Set<StepData> getInputs() {
+            return this.inputs;
+        }
+
+        @Override
+        public Set<StepData> getOutputs() {
+            return this.outputs;
+        }
+
+        @Override
+        protected StepStatus businessExecute() {
+            if (this.shouldFail) {
+                return StepStatus.buildError(this, PipelineState.NOTBUILDABLE);
+            }
+            if (this.barrier != null) {
+                try {
+                    this.barrier.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException | BrokenBarrierException | TimeoutException e) {
+                    return StepStatus.buildError(this, PipelineState.NOTBUILDABLE);
+                }
+            }
+            return StepStatus.buildSuccess(this);
+        }
+    }
+
+    private ProjectInspector inspector;
+
+    @Before
+    public void setup() {
+        Utils.setLoggersLevel(Level.ERROR);
+        JobStatus jobStatus = new JobStatus("./src/test/resources/test-abstractstep/simple-maven-project");
+        this.inspector = ProjectInspectorMocker.mockProjectInspector(jobStatus, "./src/test/resources/test-abstractstep/simple-maven-project");
+        BuildToBeInspected buildToBeInspected = new BuildToBeInspected(mock(Build.class), null, ScannedBuildStatus.ONLY_FAIL, "test");
+        when(this.inspector.getBuildToBeInspected()).thenReturn(buildToBeInspected);
+    }
+
+    @After
+    public void tearDown() {
+        RepairnatorConfig.deleteInstance();
+    }
+
+    @Test
+    public void testDependenciesAreComputedFromInputsAndOutputs() {
+        StepWithData classpath = new StepWithData(this.inspector, "classpath", EnumSet.of(StepData.REPOSITORY), EnumSet.of(StepData.CLASSPATH));
+        StepWithData sources = new StepWithData(this.inspector, "sources", EnumSet.of(StepData.REPOSITORY), EnumSet.of(StepData.SOURCE_DIRS));
+        StepWithData repair = new StepWithData(this.inspector, "repair", EnumSet.of(StepData.CLASSPATH, StepData.SOURCE_DIRS), EnumSet.of(StepData.PATCHES));
+        StepWithData checkout = new StepWithData(this.inspector, "checkout", EnumSet.noneOf(StepData.class), EnumSet.of(StepData.REPOSITORY));
+
+        StepGraph graph = new StepGraph(this.inspector, classpath, sources, repair, checkout);
+
+        assertThat(graph.getDependencies(classpath).isEmpty(), is(true));
+        assertThat(graph.getDependencies(sources).isEmpty(), is(true));
+        assertThat(graph.getDependencies(repair).size(), is(2));
+        assertThat(graph.getDependencies(repair).contains(classpath), is(true));
+        assertThat(graph.getDependencies(repair).contains(sources), is(true));
+        assertThat(graph.getDependencies(checkout).size(), is(2));
+        assertThat(graph.getDependencies(checkout).contains(repair), is(false));
+    }
+
+    @Test
+    public void testMavenStepIsConcurrentWithTheCopyOfTheRepository() {
+        InitRepoToPush initRepoToPush = new InitRepoToPush(this.inspector);
+        ComputeClasspath computeClasspath = new ComputeClasspath(this.inspector, false);
+        ComputeTestDir computeTestDir = new ComputeTestDir(this.inspector, false);
+
+        StepGraph graph = new StepGraph(this.inspector, initRepoToPush, computeClasspath, computeTestDir);
+
+        // maven only writes the classpath file in the build directory, which is not copied by InitRepoToPush
+        assertThat(graph.getDependencies(computeClasspath).isEmpty(), is(true));
+        assertThat(graph.getDependencies(computeTestDir).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testIndependentStepsAreExecutedConcurrently() {
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        StepWithData classpath = new StepWithData(this.inspector, "classpath", EnumSet.of(StepData.REPOSITORY), EnumSet.of(StepData.CLASSPATH));
+        StepWithData sources = new StepWithData(this.inspector, "sources", EnumSet.of(StepData.REPOSITORY), EnumSet.of(StepData.SOURCE_DIRS));
+        classpath.barrier = barrier;
+        sources.barrier = barrier;
+
+        StepGraph graph = new StepGraph(this.inspector, 2, classpath, sources);
+        StepStatus stepStatus = graph.businessExecute();
+
+        assertThat(stepStatus.isSuccess(), is(true));
+        assertThat(graph.isShouldStop(), is(false));
+        assertThat(classpath.getStepStatus().isSuccess(), is(true));
+        assertThat(sources.getStepStatus().isSuccess(), is(true));
+        assertThat(this.inspector.getJobStatus().getStepStatuses().size(), is(2));
+    }
+
+    @Test
+    public void testFailingBlockingStepStopsTheGraph() {
+        StepWithData classpath = new StepWithData(this.inspector, "classpath", EnumSet.of(StepData.REPOSITORY), EnumSet.of(StepData.CLASSPATH));
+        StepWithData repair = new StepWithData(this.inspector, "repair", EnumSet.of(StepData.CLASSPATH), EnumSet.of(StepData.PATCHES));
+        classpath.shouldFail = true;
+
+        StepGraph graph = new StepGraph(this.inspector, 2, classpath, repair);
+        StepStatus stepStatus = graph.businessExecute();
+
+        assertThat(stepStatus.isSuccess(), is(false));
+        assertThat(graph.isShouldStop(), is(true));
+        assertThat(classpath.getStepStatus().isSuccess(), is(false));
+        assertThat(repair.getStepStatus(), nullValue());
+    }
+
+    @Test
+    public void testGraphIsNotRegisteredAsAStep() {
+        StepWithData classpath = new StepWithData(this.inspector, "classpath", EnumSet.of(StepData.REPOSITORY), EnumSet.of(StepData.CLASSPATH));
+        StepGraph graph = new StepGraph(this.inspector, classpath);
+
+        verify(this.inspector).registerStep(classpath);
+        verify(this.inspector, never()).registerStep(graph);
+        assertThat(graph.getSteps(), is(Collections.<AbstractStep>singletonList(classpath)));
+        assertThat(graph.getInputs(), is((Set<StepData>) EnumSet.of(StepData.REPOSITORY)));
+    }
+}
@@ -10,6 +10,11 @@ import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
 import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutBuggyBuild;
 import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutType;
+import fr.inria.spirals.repairnator.process.step.gatherinfo.BuildShouldFail;
+import fr.inria.spirals.repairnator.process.step.gatherinfo.GatherTestInformation;
+import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestClassReport;
 import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
 import fr.inria.spirals.repairnator.states.ScannedBuildStatus;
 import org.hamcrest.core.Is;
@@ -21,8 +26,11 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.TreeSet;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
@@ -139,6 +147,81 @@ public class TestTestProject {
         }
     }
 
+    @Test
+    public void testIncrementalTestRunAfterStoppedTestRun() throws IOException {
+        long buildId = 207890790; // surli/failingProject build
+
+        Build build = this.checkBuildAndReturn(buildId, false);
+        RepairnatorConfig.getInstance().setIncrementalBuild(true);
+        RepairnatorConfig.getInstance().setStopTestsAfterFailingClasses(1);
+
+        tmpDir = Files.createTempDirectory("test_testproject_incremental").toFile();
+
+        BuildToBeInspected toBeInspected = new BuildToBeInspected(build, null, ScannedBuildStatus.ONLY_FAIL, "");
+
+        JobStatus jobStatus = new JobStatus(tmpDir.getAbsolutePath()+"/repo");
+
+        ProjectInspector inspector = ProjectInspectorMocker.mockProjectInspector(jobStatus, tmpDir, toBeInspected, CheckoutType.CHECKOUT_BUGGY_BUILD);
+
+        CloneRepository cloneStep = new CloneRepository(inspector);
+        TestProject stoppedTestProject = new TestProject(inspector, true, "TestProjectStopped", true);
+        BuildProject incrementalBuildProject = new BuildProject(inspector, true, "BuildProjectIncremental");
+        TestProject incrementalTestProject = new TestProject(inspector, true, "TestProjectIncremental");
+        GatherTestInformation gatherTestInformation = new GatherTestInformation(inspector, true, new BuildShouldFail(), false);
+
+        cloneStep.addNextStep(new CheckoutBuggyBuild(inspector, true))
+                .addNextStep(new BuildProject(inspector))
+                .addNextStep(stoppedTestProject)
+                .addNextStep(incrementalBuildProject)
+                .addNextStep(incrementalTestProject)
+                .addNextStep(gatherTestInformation);
+        cloneStep.execute();
+
+        List<StepStatus> stepStatusList = jobStatus.getStepStatuses();
+        assertThat(stepStatusList.size(), is(7));
+        for (StepStatus stepStatus : stepStatusList) {
+            assertThat(stepStatus.isSuccess(), is(true));
+        }
+
+        // nothing changed since the first build, but the reports of the stopped test run cannot be reused:
+        // the whole test suite has been run again
+        assertThat(jobStatus.isPartialTestReports(), is(false));
+        assertThat(gatherTestInformation.getNbTotalTests(), is(98));
+        assertThat(gatherTestInformation.getNbFailingTests(), is(26));
+        assertThat(gatherTestInformation.getNbErroringTests(), is(5));
+    }
+
+    @Test
+    public void testGetTestFilter() {
+        FailureLocation failingClass = new FailureLocation("org.example.FooTest");
+        failingClass.addFailingMethod("testB");
+        failingClass.addErroringMethod("testA");
+        FailureLocation classWithoutMethod = new FailureLocation("org.example.BarTest");
+
+        assertThat(TestProject.getTestFilter(Arrays.asList(failingClass, classWithoutMethod)), is("org.example.BarTest,org.example.FooTest#testA+testB"));
+    }
+
+    @Test
+    public void testGetTestClassesNotRun() throws IOException {
+        tmpDir = Files.createTempDirectory("test_testproject").toFile();
+        File surefireDir = new File(tmpDir, "target/surefire-reports");
+        surefireDir.mkdirs();
+        Files.write(new File(surefireDir, "TEST-org.example.FooTest.xml").toPath(),
+                "<testsuite name=\"org.example.FooTest\" tests=\"1\" failures=\"0\" errors=\"0\" skipped=\"0\"><testcase name=\"testA\" classname=\"org.example.FooTest\"/></testsuite>".getBytes());
+        // an old surefire might create the report of a class without running any of the selected methods
+        Files.write(new File(surefireDir, "TEST-org.example.BarTest.xml").toPath(),
+                "<testsuite name=\"org.example.BarTest\" tests=\"0\" failures=\"0\" errors=\"0\" skipped=\"0\"></testsuite>".getBytes());
+        List<TestClassReport> reports = new SurefireReportStreamParser().parseDirectories(Collections.singletonList(surefireDir));
+
+        FailureLocation fooTest = new FailureLocation("org.example.FooTest");
+        FailureLocation barTest = new FailureLocation("org.example.BarTest");
+        FailureLocation bazTest = new FailureLocation("org.example.BazTest");
+
+        assertThat(TestProject.getTestClassesNotRun(Collections.singletonList(fooTest), reports).isEmpty(), is(true));
+        assertThat(TestProject.getTestClassesNotRun(Arrays.asList(fooTest, barTest, bazTest), reports),
+                is(new TreeSet<>(Arrays.asList("org.example.BarTest", "org.example.BazTest"))));
+    }
+
     private Build checkBuildAndReturn(long buildId, boolean isPR) {
         Optional<Build> optionalBuild = RepairnatorConfig.getInstance().getJTravis().build().fromId(buildId);
         assertTrue(optionalBuild.isPresent());
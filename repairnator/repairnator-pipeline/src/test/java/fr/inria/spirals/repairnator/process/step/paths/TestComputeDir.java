@@ -2,6 +2,7 @@ package fr.inria.spirals.repairnator.process.step.paths;
 
 import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.maven.ProjectModelService;
 import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
 import org.junit.Test;
 
@@ -32,6 +33,7 @@ public class TestComputeDir {
         // and a link to the local m2 repository (here we got a stub value)
         when(mockInspector.getRepoLocalPath()).thenReturn(resourcePomDir);
         when(mockInspector.getM2LocalPath()).thenReturn("/tmp");
+        when(mockInspector.getProjectModelService()).thenReturn(new ProjectModelService("/tmp"));
 
         // we create the proper instance of the object to test
         ComputeDir computeDir = new ComputeDir(mockInspector, true);
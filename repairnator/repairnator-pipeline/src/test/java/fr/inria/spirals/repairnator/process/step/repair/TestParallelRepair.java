@@ -0,0 +1,181 @@
+package fr.inria.spirals.repairnator.process.step.repair;
+
+import ch.qos.logback.classic.Level;
+import fr.inria.spirals.repairnator.Utils;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.inspectors.RepairPatch;
+import fr.inria.spirals.repairnator.process.step.StepStatus;
+import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class TestParallelRepair {
+
+    private File tmpDir;
+
+    @Before
+    public void setup() throws IOException {
+        Utils.setLoggersLevel(Level.ERROR);
+        this.tmpDir = Files.createTempDirectory("test_parallelrepair").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RepairnatorConfig.deleteInstance();
+        FileHelper.deleteFile(this.tmpDir);
+    }
+
+    private ProjectInspector createInspector() throws IOException {
+        File repoDir = new File(this.tmpDir, "repo");
+        new File(repoDir, "src/main/java").mkdirs();
+        Files.write(new File(repoDir, "pom.xml").toPath(), "<project/>".getBytes());
+
+        ProjectInspector inspector = ProjectInspectorMocker.mockProjectInspector(new JobStatus(repoDir.getAbsolutePath()), repoDir.getAbsolutePath());
+        when(inspector.getM2LocalPath()).thenReturn(new File(repoDir, ".m2").getAbsolutePath());
+        when(inspector.getRepoToPushLocalPath()).thenReturn(new File(this.tmpDir, "repotopush").getAbsolutePath());
+        return inspector;
+    }
+
+    private StepStatus getStepStatus(JobStatus jobStatus, AbstractRepairStep repairStep) {
+        for (StepStatus stepStatus : jobStatus.getStepStatuses()) {
+            if (stepStatus.getStep() == repairStep) {
+                return stepStatus;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void testPatchesOfAllToolsAreMerged() throws IOException {
+        ProjectInspector inspector = this.createInspector();
+        StubRepairStep firstTool = new StubRepairStep("FirstTool", "FirstTool", true);
+        StubRepairStep secondTool = new StubRepairStep("SecondTool", "SecondTool", true);
+
+        ParallelRepair parallelRepair = new ParallelRepair(inspector, Arrays.<AbstractRepairStep>asList(firstTool, secondTool));
+        assertThat(parallelRepair.businessExecute().isSuccess(), is(true));
+
+        JobStatus jobStatus = inspector.getJobStatus();
+        assertThat(jobStatus.isHasBeenPatched(), is(true));
+        assertThat(jobStatus.getListOfPatches().keySet(), is(new HashSet<>(Arrays.asList("FirstTool", "SecondTool"))));
+        // the patches are translated from the workspace of each tool to the local repository
+        for (RepairPatch patch : jobStatus.getAllPatches()) {
+            assertThat(patch.getFilePath(), is(new File(inspector.getRepoLocalPath(), "src/main/java/Foo.java").getAbsolutePath()));
+        }
+        assertThat(this.getStepStatus(jobStatus, firstTool).isSuccess(), is(true));
+        assertThat(this.getStepStatus(jobStatus, secondTool).isSuccess(), is(true));
+        assertThat(new File(inspector.getRepoLocalPath() + "_FirstTool").exists(), is(false));
+    }
+
+    @Test
+    public void testOtherToolsAreCancelledAtFirstPatch() throws IOException {
+        RepairnatorConfig.getInstance().setStopAtFirstPatch(true);
+        ProjectInspector inspector = this.createInspector();
+        StubRepairStep waitingTool = new StubRepairStep("WaitingTool", "group", false);
+        waitingTool.waitForInterruption = true;
+        StubRepairStep notStartedTool = new StubRepairStep("NotStartedTool", "group", true);
+        StubRepairStep patchingTool = new StubRepairStep("PatchingTool", "PatchingTool", true);
+        patchingTool.waitForStart = waitingTool.started;
+
+        ParallelRepair parallelRepair = new ParallelRepair(inspector, Arrays.<AbstractRepairStep>asList(waitingTool, notStartedTool, patchingTool));
+        assertThat(parallelRepair.businessExecute().isSuccess(), is(true));
+
+        JobStatus jobStatus = inspector.getJobStatus();
+        assertThat(jobStatus.getListOfPatches().keySet(), is(Collections.singleton("PatchingTool")));
+        assertThat(waitingTool.interrupted, is(true));
+        assertThat(notStartedTool.executed, is(false));
+        assertThat(this.getStepStatus(jobStatus, notStartedTool).getStatus(), is(StepStatus.StatusKind.SKIPPED));
+    }
+
+    @Test
+    public void testToolsAreStoppedWhenTheTimeBudgetIsExhausted() throws IOException {
+        RepairnatorConfig.getInstance().setRepairTimeBudget(1);
+        ProjectInspector inspector = this.createInspector();
+        // the tool finds a patch once it has been interrupted, which is too late
+        StubRepairStep waitingTool = new StubRepairStep("WaitingTool", "group", true);
+        waitingTool.waitForInterruption = true;
+        StubRepairStep notStartedTool = new StubRepairStep("NotStartedTool", "group", true);
+
+        ParallelRepair parallelRepair = new ParallelRepair(inspector, Arrays.<AbstractRepairStep>asList(waitingTool, notStartedTool));
+        assertThat(parallelRepair.businessExecute().getStatus(), is(StepStatus.StatusKind.SKIPPED));
+
+        JobStatus jobStatus = inspector.getJobStatus();
+        assertThat(waitingTool.interrupted, is(true));
+        assertThat(notStartedTool.executed, is(false));
+        assertThat(jobStatus.isHasBeenPatched(), is(false));
+        assertThat(jobStatus.getAllPatches().isEmpty(), is(true));
+        assertThat(this.getStepStatus(jobStatus, waitingTool), nullValue());
+        assertThat(this.getStepStatus(jobStatus, notStartedTool).getStatus(), is(StepStatus.StatusKind.SKIPPED));
+        assertThat(jobStatus.getStepErrors().get(parallelRepair.getName()).size(), is(1));
+    }
+
+    private static class StubRepairStep extends AbstractRepairStep {
+        private final String toolName;
+        private final String isolationGroup;
+        private final boolean patching;
+        private final CountDownLatch started = new CountDownLatch(1);
+        private CountDownLatch waitForStart;
+        private boolean waitForInterruption;
+        private volatile boolean executed;
+        private volatile boolean interrupted;
+
+        StubRepairStep(String toolName, String isolationGroup, boolean patching) {
+            this.toolName = toolName;
+            this.isolationGroup = isolationGroup;
+            this.patching = patching;
+        }
+
+        @Override
+        public String getRepairToolName() {
+            return this.toolName;
+        }
+
+        @Override
+        public String getIsolationGroup() {
+            return this.isolationGroup;
+        }
+
+        @Override
+        protected StepStatus businessExecute() {
+            this.executed = true;
+            this.started.countDown();
+            try {
+                if (this.waitForStart != null) {
+                    this.waitForStart.await(1, TimeUnit.MINUTES);
+                }
+                if (this.waitForInterruption) {
+                    Thread.sleep(TimeUnit.MINUTES.toMillis(5));
+                }
+            } catch (InterruptedException e) {
+                this.interrupted = true;
+            }
+
+            if (!this.patching) {
+                return StepStatus.buildSkipped(this, "No patch found.");
+            }
+            String filePath = new File(this.getInspector().getRepoLocalPath(), "src/main/java/Foo.java").getAbsolutePath();
+            List<RepairPatch> patches = Collections.singletonList(new RepairPatch(this.toolName, filePath, "diff"));
+            this.getInspector().getJobStatus().addPatches(this.toolName, patches);
+            this.getInspector().getJobStatus().setHasBeenPatched(true);
+            return StepStatus.buildSuccess(this);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package fr.inria.spirals.repairnator.process.step.repair.nopol;
+
+import com.google.gson.Gson;
+import fr.inria.spirals.repairnator.config.RepairnatorConfig;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.nopol.IgnoreStatus;
+import fr.inria.spirals.repairnator.process.nopol.NopolInformation;
+import fr.inria.spirals.repairnator.process.nopol.NopolStatus;
+import fr.inria.spirals.repairnator.process.testinformation.FailureLocation;
+import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.CoreMatchers.hasItem;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+
+public class TestAbstractNopolRepair {
+
+    @After
+    public void tearDown() {
+        RepairnatorConfig.deleteInstance();
+    }
+
+    @Test
+    public void testTimeoutKeepsABudgetForTheNextRuns() {
+        // 2 waves of runs remaining: a third of the budget, the rest being kept for the next runs
+        assertThat(AbstractNopolRepair.computeTimeout(240, 4, 2), is(80));
+        // the last wave is given half of the remaining budget
+        assertThat(AbstractNopolRepair.computeTimeout(240, 2, 2), is(120));
+        assertThat(AbstractNopolRepair.computeTimeout(240, 1, 4), is(120));
+        // a run is never given less than the minimum timeout
+        assertThat(AbstractNopolRepair.computeTimeout(3, 10, 1), is(2));
+    }
+
+    @Test
+    public void testDefaultParallelismIsBoundedByTheMemory() {
+        long gigabyte = 1024L * 1024 * 1024;
+        assertThat(AbstractNopolRepair.computeDefaultParallelism(8, 64 * gigabyte, 4 * gigabyte), is(8));
+        assertThat(AbstractNopolRepair.computeDefaultParallelism(8, 8 * gigabyte, 2 * gigabyte), is(3));
+        assertThat(AbstractNopolRepair.computeDefaultParallelism(8, 2 * gigabyte, 2 * gigabyte), is(1));
+        assertThat(AbstractNopolRepair.computeDefaultParallelism(8, -1, 2 * gigabyte), is(8));
+    }
+
+    @Test
+    public void testRelevantJvmOptionsAreForwarded() {
+        List<String> command = AbstractNopolRepair.getNopolCommand(Arrays.asList("-Xmx16g", "-Dlogback.configurationFile=/etc/logback.xml",
+                "-agentlib:jdwp=transport=dt_socket,server=y,address=5005", "-XX:+UseG1GC"), "lib/a.jar" + File.pathSeparator + "/lib/b.jar");
+
+        assertThat(command, hasItem("-Xmx2048m"));
+        assertThat(command, not(hasItem("-Xmx16g")));
+        assertThat(command, hasItem("-Dlogback.configurationFile=/etc/logback.xml"));
+        assertThat(command, hasItem("-XX:+UseG1GC"));
+        assertThat(command, not(hasItem("-agentlib:jdwp=transport=dt_socket,server=y,address=5005")));
+        assertThat(command, hasItem(new File("lib/a.jar").getAbsolutePath() + File.pathSeparator + "/lib/b.jar"));
+        assertThat(command.get(command.size() - 1), is(NopolRunner.class.getName()));
+    }
+
+    @Test
+    public void testResultsAreMerged() throws InterruptedException {
+        JobStatus jobStatus = new JobStatus("/tmp/repo");
+        ProjectInspector inspector = ProjectInspectorMocker.mockProjectInspector(jobStatus, "/tmp/repo");
+        NopolSingleTestRepair nopolRepair = new NopolSingleTestRepair();
+        nopolRepair.setProjectInspector(inspector);
+        nopolRepair.setSources(new File[] { new File("/tmp/repo/src/main/java") });
+
+        NopolRunner.Result result = new Gson().fromJson("{\"status\":\"PATCH\",\"nbStatements\":3,\"nbAngelicValues\":2,"
+                + "\"patches\":[{\"filePath\":\"/tmp/repo/src/main/java/Foo.java\",\"diff\":\"diff\"}],\"errors\":[\"error of nopol\"]}", NopolRunner.Result.class);
+        NopolInformation patchInformation = new NopolInformation(Collections.singleton(new FailureLocation("FooTest")), IgnoreStatus.NOTHING_TO_IGNORE);
+        nopolRepair.mergeResult(patchInformation, CompletableFuture.completedFuture(result));
+
+        assertThat(patchInformation.getStatus(), is(NopolStatus.PATCH));
+        assertThat(nopolRepair.getRepairPatches().size(), is(1));
+        assertThat(nopolRepair.getRepairPatches().get(0).getFilePath(), is("/tmp/repo/src/main/java/Foo.java"));
+        assertThat(jobStatus.getStepErrors().get(nopolRepair.getName()), hasItem("error of nopol"));
+
+        // a run which did not give back any result is a timeout, and a run which failed is an exception
+        NopolInformation timeoutInformation = new NopolInformation(Collections.singleton(new FailureLocation("BarTest")), IgnoreStatus.NOTHING_TO_IGNORE);
+        nopolRepair.mergeResult(timeoutInformation, CompletableFuture.completedFuture(new NopolRunner.Result()));
+        assertThat(timeoutInformation.getStatus(), is(NopolStatus.TIMEOUT));
+
+        CompletableFuture<NopolRunner.Result> failedRun = new CompletableFuture<>();
+        failedRun.completeExceptionally(new IllegalStateException("JVM crash"));
+        NopolInformation exceptionInformation = new NopolInformation(Collections.singleton(new FailureLocation("BazTest")), IgnoreStatus.NOTHING_TO_IGNORE);
+        nopolRepair.mergeResult(exceptionInformation, failedRun);
+        assertThat(exceptionInformation.getStatus(), is(NopolStatus.EXCEPTION));
+        assertThat(exceptionInformation.getExceptionDetail(), is("JVM crash"));
+        assertThat(nopolRepair.getRepairPatches().size(), is(1));
+    }
+}
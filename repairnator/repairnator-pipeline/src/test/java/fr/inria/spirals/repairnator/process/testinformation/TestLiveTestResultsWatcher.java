@@ -0,0 +1,81 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.maven.ProjectModelService;
+import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.TreeSet;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class TestLiveTestResultsWatcher {
+
+    private File tmpDir;
+    private File surefireDir;
+    private JobStatus jobStatus;
+    private ProjectInspector inspector;
+
+    @Before
+    public void setup() throws IOException {
+        this.tmpDir = Files.createTempDirectory("test_livetestresults").toFile();
+        Files.write(new File(this.tmpDir, "pom.xml").toPath(), ("<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId>" +
+                "<artifactId>project</artifactId><version>1.0</version></project>").getBytes());
+        this.surefireDir = new File(this.tmpDir, "target/surefire-reports");
+        this.surefireDir.mkdirs();
+
+        this.jobStatus = new JobStatus(this.tmpDir.getAbsolutePath());
+        this.inspector = ProjectInspectorMocker.mockProjectInspector(this.jobStatus);
+        when(this.inspector.getProjectModelService()).thenReturn(new ProjectModelService(new File(this.tmpDir, ".m2").getAbsolutePath()));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileHelper.deleteFile(this.tmpDir);
+    }
+
+    private void writeReport(String className, boolean failing) throws IOException {
+        String testCase = failing ?
+                "<testcase name=\"test\" classname=\"" + className + "\"><failure type=\"java.lang.AssertionError\"/></testcase>" :
+                "<testcase name=\"test\" classname=\"" + className + "\"/>";
+        Files.write(new File(this.surefireDir, "TEST-" + className + ".xml").toPath(),
+                ("<testsuite name=\"" + className + "\">" + testCase + "</testsuite>").getBytes());
+    }
+
+    @Test
+    public void testReportsAreReadWhileTheyAreWritten() throws IOException {
+        // a report of a previous execution
+        this.writeReport("org.example.OldTest", true);
+
+        LiveTestResultsWatcher watcher = new LiveTestResultsWatcher(this.inspector, this.tmpDir);
+        watcher.poll();
+        assertThat(watcher.getNbRunningTests(), is(0));
+
+        this.writeReport("org.example.FooTest", false);
+        this.writeReport("org.example.BarTest", true);
+        // a report which is still being written
+        Files.write(new File(this.surefireDir, "TEST-org.example.BazTest.xml").toPath(), "<testsuite name=\"org.example.BazTest\"><testcase".getBytes());
+        watcher.poll();
+
+        assertThat(watcher.getNbRunningTests(), is(2));
+        assertThat(watcher.getNbFailingTests(), is(1));
+        assertThat(watcher.getFailingClasses(), is(new TreeSet<>(Arrays.asList("org.example.BarTest"))));
+        assertThat(this.jobStatus.getProperties().getTests().getOverallMetrics().getNumberRunning(), is(2));
+
+        this.writeReport("org.example.BazTest", true);
+        watcher.poll();
+
+        assertThat(watcher.getNbRunningTests(), is(3));
+        assertThat(watcher.getFailingClasses(), is(new TreeSet<>(Arrays.asList("org.example.BarTest", "org.example.BazTest"))));
+    }
+}
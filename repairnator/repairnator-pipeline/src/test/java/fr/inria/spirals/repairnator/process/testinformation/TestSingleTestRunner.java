@@ -0,0 +1,30 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class TestSingleTestRunner {
+
+    // those classes are not run by surefire, as they are inner classes
+    public static class SampleTest {
+        @Test
+        public void testPassing() {
+        }
+
+        @Test
+        public void testFailing() {
+            fail("failure");
+        }
+    }
+
+    @Test
+    public void testExitCodesOfTheRunner() {
+        assertThat(SingleTestRunner.run(SampleTest.class.getName(), "testPassing"), is(SingleTestRunner.TEST_PASSED));
+        assertThat(SingleTestRunner.run(SampleTest.class.getName(), "testFailing"), is(SingleTestRunner.TEST_FAILED));
+        assertThat(SingleTestRunner.run(SampleTest.class.getName(), "testUnknown"), is(SingleTestRunner.TEST_NOT_RUN));
+        assertThat(SingleTestRunner.run("org.example.UnknownTest", "test"), is(SingleTestRunner.RUNNER_ERROR));
+    }
+}
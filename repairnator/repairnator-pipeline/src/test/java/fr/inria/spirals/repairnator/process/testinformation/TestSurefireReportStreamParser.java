@@ -0,0 +1,110 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestCaseFailure;
+import fr.inria.spirals.repairnator.process.testinformation.SurefireReportStreamParser.TestClassReport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class TestSurefireReportStreamParser {
+
+    private static final String REPORT = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+            "<testsuite name=\"org.example.FooTest\" tests=\"4\" failures=\"1\" errors=\"1\" skipped=\"1\">\n" +
+            "  <properties><property name=\"java.version\" value=\"1.8\"/></properties>\n" +
+            "  <testcase name=\"testPass\" classname=\"org.example.FooTest\" time=\"0.01\"/>\n" +
+            "  <testcase name=\"testFail\" classname=\"org.example.FooTest\" time=\"0.01\">\n" +
+            "    <failure message=\"expected:&lt;1&gt; but was:&lt;2&gt;\" type=\"java.lang.AssertionError\">java.lang.AssertionError\n\tat org.example.FooTest.testFail</failure>\n" +
+            "    <system-out>some output</system-out>\n" +
+            "  </testcase>\n" +
+            "  <testcase name=\"testError\" classname=\"org.example.FooTest\" time=\"0.01\">\n" +
+            "    <error type=\"java.lang.NullPointerException:\">java.lang.NullPointerException</error>\n" +
+            "  </testcase>\n" +
+            "  <testcase name=\"testSkip\" classname=\"org.example.FooTest\" time=\"0\"><skipped/></testcase>\n" +
+            "</testsuite>\n";
+
+    private File tmpDir;
+
+    @Before
+    public void setup() throws IOException {
+        this.tmpDir = Files.createTempDirectory("test_surefirereportparser").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileHelper.deleteFile(this.tmpDir);
+    }
+
+    private File writeReport(String module, String name, String content) throws IOException {
+        File surefireDir = new File(this.tmpDir, module + "/target/surefire-reports");
+        surefireDir.mkdirs();
+        File report = new File(surefireDir, name);
+        Files.write(report.toPath(), content.getBytes("UTF-8"));
+        return surefireDir;
+    }
+
+    @Test
+    public void testReportIsParsedWithoutCapturedOutput() throws Exception {
+        File surefireDir = this.writeReport("module", "TEST-org.example.FooTest.xml", REPORT);
+
+        List<TestClassReport> reports = new SurefireReportStreamParser().parseReport(new File(surefireDir, "TEST-org.example.FooTest.xml"));
+
+        assertThat(reports.size(), is(1));
+        TestClassReport report = reports.get(0);
+        assertThat(report.getFullClassName(), is("org.example.FooTest"));
+        assertThat(report.getSurefireDir(), is(surefireDir));
+        assertThat(report.getNumberOfTests(), is(4));
+        assertThat(report.getNumberOfFailures(), is(1));
+        assertThat(report.getNumberOfErrors(), is(1));
+        assertThat(report.getNumberOfSkipped(), is(1));
+
+        assertThat(report.getFailures().size(), is(2));
+        TestCaseFailure failure = report.getFailures().get(0);
+        assertThat(failure.getTestName(), is("testFail"));
+        assertThat(failure.getFailureType(), is("java.lang.AssertionError"));
+        assertThat(failure.getFailureMessage(), is("expected:<1> but was:<2>"));
+        assertThat(failure.isError(), is(false));
+        assertThat(failure.getSystemOut(), nullValue());
+
+        TestCaseFailure error = report.getFailures().get(1);
+        assertThat(error.getTestName(), is("testError"));
+        assertThat(error.getFailureType(), is("java.lang.NullPointerException:"));
+        assertThat(error.isError(), is(true));
+    }
+
+    @Test
+    public void testCapturedOutputIsKeptWhenAsked() throws Exception {
+        File surefireDir = this.writeReport("module", "TEST-org.example.FooTest.xml", REPORT);
+
+        List<TestClassReport> reports = new SurefireReportStreamParser(true).parseReport(new File(surefireDir, "TEST-org.example.FooTest.xml"));
+
+        assertThat(reports.get(0).getFailures().get(0).getSystemOut(), is("some output"));
+    }
+
+    @Test
+    public void testDirectoriesAreParsedAndInvalidReportsAreReported() throws Exception {
+        File firstDir = this.writeReport("first", "TEST-org.example.FooTest.xml", REPORT);
+        this.writeReport("first", "TEST-org.example.Broken.xml", "<testsuite name=\"broken\"><testcase");
+        File secondDir = this.writeReport("second", "TEST-org.example.BarTest.xml", REPORT.replace("FooTest", "BarTest"));
+        this.writeReport("second", "other.xml", "<project/>");
+
+        SurefireReportStreamParser parser = new SurefireReportStreamParser();
+        List<TestClassReport> reports = parser.parseDirectories(Arrays.asList(firstDir, secondDir));
+
+        assertThat(reports.size(), is(2));
+        assertThat(reports.get(0).getFullClassName(), is("org.example.FooTest"));
+        assertThat(reports.get(1).getFullClassName(), is("org.example.BarTest"));
+        assertThat(reports.get(1).getSurefireDir(), is(secondDir));
+        assertThat(parser.getErrors().size(), is(1));
+    }
+}
@@ -0,0 +1,91 @@
+package fr.inria.spirals.repairnator.process.testinformation;
+
+import fr.inria.spirals.repairnator.process.files.FileHelper;
+import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
+import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.maven.ProjectModelService;
+import fr.inria.spirals.repairnator.process.utils4tests.ProjectInspectorMocker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.when;
+
+public class TestSurefireReportsFinder {
+
+    private File tmpDir;
+    private ProjectInspector inspector;
+
+    @Before
+    public void setup() throws IOException {
+        this.tmpDir = Files.createTempDirectory("test_surefirereportsfinder").toFile();
+        String m2LocalPath = new File(this.tmpDir, ".m2").getAbsolutePath();
+
+        this.inspector = ProjectInspectorMocker.mockProjectInspector(new JobStatus(this.tmpDir.getAbsolutePath()));
+        when(this.inspector.getM2LocalPath()).thenReturn(m2LocalPath);
+        when(this.inspector.getProjectModelService()).thenReturn(new ProjectModelService(m2LocalPath));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileHelper.deleteFile(this.tmpDir);
+    }
+
+    private File createReportsDir(String path) {
+        File reportsDir = new File(this.tmpDir, path + "/target/surefire-reports");
+        reportsDir.mkdirs();
+        return reportsDir;
+    }
+
+    private void writePom(String path, String... modules) throws IOException {
+        StringBuilder content = new StringBuilder("<project><modelVersion>4.0.0</modelVersion><groupId>org.example</groupId>");
+        content.append("<artifactId>").append(new File(path).getName()).append("</artifactId><version>1.0</version>");
+        if (modules.length > 0) {
+            content.append("<packaging>pom</packaging><modules>");
+            for (String module : modules) {
+                content.append("<module>").append(module).append("</module>");
+            }
+            content.append("</modules>");
+        }
+        content.append("</project>");
+
+        File dir = new File(this.tmpDir, path);
+        dir.mkdirs();
+        Files.write(new File(dir, "pom.xml").toPath(), content.toString().getBytes());
+    }
+
+    @Test
+    public void testReportsAreFoundInTheModules() throws IOException {
+        this.writePom(".", "core", "lib");
+        this.writePom("core");
+        this.writePom("lib");
+        File coreReports = this.createReportsDir("core");
+        File libReports = this.createReportsDir("lib");
+        // a module missing from the reactor, e.g. activated by a profile
+        File examplesReports = this.createReportsDir("examples");
+
+        List<File> reportsDirs = new SurefireReportsFinder(this.inspector).findSurefireReportsDirs(this.tmpDir);
+
+        assertThat(reportsDirs, is(Arrays.asList(coreReports.getCanonicalFile(), examplesReports.getCanonicalFile(), libReports.getCanonicalFile())));
+    }
+
+    @Test
+    public void testTraversalDoesNotEnterTheLocalRepositoryNorGit() throws IOException {
+        File moduleReports = this.createReportsDir("module");
+        this.createReportsDir(".m2/org/example/project");
+        this.createReportsDir(".git/modules/project");
+        this.createReportsDir("module/target/classes/nested");
+
+        List<File> reportsDirs = new SurefireReportsFinder(this.inspector).findSurefireReportsDirs(this.tmpDir);
+
+        assertThat(reportsDirs, is(Arrays.asList(moduleReports.getCanonicalFile())));
+    }
+}
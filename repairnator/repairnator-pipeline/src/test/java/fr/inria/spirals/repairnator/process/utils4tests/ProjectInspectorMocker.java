@@ -5,6 +5,7 @@ import fr.inria.spirals.repairnator.process.files.FileHelper;
 import fr.inria.spirals.repairnator.process.git.GitHelper;
 import fr.inria.spirals.repairnator.process.inspectors.JobStatus;
 import fr.inria.spirals.repairnator.process.inspectors.ProjectInspector;
+import fr.inria.spirals.repairnator.process.maven.ProjectModelService;
 import fr.inria.spirals.repairnator.process.step.checkoutrepository.CheckoutType;
 
 import java.io.File;
@@ -37,6 +38,7 @@ public class ProjectInspectorMocker {
         when(inspector.getPatchedBuild()).thenReturn(buildToBeInspected.getPatchedBuild());
         when(inspector.getM2LocalPath()).thenReturn(tmpDir.getAbsolutePath()+"/.m2");
         when(inspector.getGitHelper()).thenReturn(new GitHelper());
+        when(inspector.getProjectModelService()).thenReturn(new ProjectModelService(tmpDir.getAbsolutePath()+"/.m2"));
         return inspector;
     }
 